@@ -0,0 +1,50 @@
+package com.simonepugliese.Core;
+
+import java.time.Duration;
+
+/**
+ * Immutable configuration of {@link AsyncWalletManager}.
+ *
+ * @param maxConcurrency Maximum number of calls running at the same time;
+ *                       the others wait their turn. It should not exceed
+ *                       the size of the connection pool of the vault.
+ * @param closeTimeout   How long {@link AsyncWalletManager#close()} waits for
+ *                       the running calls before closing the wallet anyway.
+ */
+public record AsyncConfig(int maxConcurrency, Duration closeTimeout) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public AsyncConfig {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        if (closeTimeout == null || closeTimeout.isNegative()) {
+            throw new IllegalArgumentException("closeTimeout must not be negative");
+        }
+    }
+
+    /**
+     * @return The default configuration: 4 concurrent calls, 10 seconds to close.
+     */
+    public static AsyncConfig defaults() {
+        return new AsyncConfig(4, Duration.ofSeconds(10));
+    }
+
+    /**
+     * @param maxConcurrency Maximum number of calls running at the same time.
+     * @return A copy of this configuration with the given concurrency.
+     */
+    public AsyncConfig withMaxConcurrency(int maxConcurrency) {
+        return new AsyncConfig(maxConcurrency, closeTimeout);
+    }
+
+    /**
+     * @param closeTimeout How long close() waits for the running calls.
+     * @return A copy of this configuration with the given timeout.
+     */
+    public AsyncConfig withCloseTimeout(Duration closeTimeout) {
+        return new AsyncConfig(maxConcurrency, closeTimeout);
+    }
+}
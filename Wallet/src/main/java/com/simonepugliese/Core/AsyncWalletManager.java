@@ -0,0 +1,230 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking facade over a {@link WalletManager}, for callers that must
+ * not wait for the database or the key derivation, such as the JavaFX
+ * application thread.
+ * <p>
+ * Every call runs on its own virtual thread and returns a
+ * {@link CompletableFuture}. At most {@link AsyncConfig#maxConcurrency()}
+ * calls run at the same time, so that a burst of calls queues up here
+ * instead of exhausting the connection pool.
+ * <p>
+ * The futures are completed through the result executor given at
+ * construction: with {@code Platform::runLater}, results and errors reach
+ * the dependent actions ({@code thenAccept}, {@code whenComplete}...) on the
+ * FX thread, where they can update the UI directly.
+ * <p>
+ * Cancelling a future ({@link CompletableFuture#cancel(boolean)}) withdraws
+ * a call still waiting for its turn; a running call is interrupted, which
+ * stops it at its next blocking wait (e.g. for a pooled connection), and its
+ * result is discarded.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class AsyncWalletManager implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncWalletManager.class);
+
+    private final WalletManager manager;
+    private final AsyncConfig config;
+    private final Executor resultExecutor;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * Creates an asynchronous facade. It takes ownership of the manager,
+     * which is closed by {@link #close()}.
+     *
+     * @param manager        The wallet to call.
+     * @param config         Concurrency and close timeout.
+     * @param resultExecutor Where the futures are completed, e.g.
+     *                       {@code Platform::runLater} for the FX thread.
+     */
+    public AsyncWalletManager(WalletManager manager, AsyncConfig config, Executor resultExecutor) {
+        this.manager = manager;
+        this.config = config;
+        this.resultExecutor = resultExecutor;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("wallet-async-", 0).factory());
+        this.permits = new Semaphore(config.maxConcurrency(), true);
+    }
+
+    /**
+     * Encrypts and saves an Entry (see {@link WalletManager#saveEntry(Entry)}).
+     *
+     * @param entry The Entry in its plaintext state. It is encrypted in place.
+     * @return A future completed when the save is over.
+     */
+    public CompletableFuture<Void> saveEntryAsync(Entry entry) {
+        return submit(() -> {
+            manager.saveEntry(entry);
+            return null;
+        });
+    }
+
+    /**
+     * Loads and decrypts an Entry (see {@link WalletManager#loadAndDecryptEntry(String)}).
+     *
+     * @param id The unique ID of the entry to load.
+     * @return A future with the decrypted Entry, or an empty Optional if it was not
+     * found; it fails with a {@link com.simonepugliese.Security.DecryptionFailedException}
+     * if the entry cannot be decrypted.
+     */
+    public CompletableFuture<Optional<Entry>> loadAndDecryptEntryAsync(String id) {
+        return submit(() -> manager.loadAndDecryptEntry(id));
+    }
+
+    /**
+     * Loads all Entry summaries (see {@link WalletManager#loadAllEntrySummaries()}).
+     *
+     * @return A future with the summaries.
+     */
+    public CompletableFuture<List<Entry>> loadAllEntrySummariesAsync() {
+        return submit(manager::loadAllEntrySummaries);
+    }
+
+    /**
+     * Deletes an Entry (see {@link WalletManager#deleteEntry(String)}).
+     *
+     * @param id The unique ID of the Entry to delete.
+     * @return A future completed when the deletion is over.
+     */
+    public CompletableFuture<Void> deleteEntryAsync(String id) {
+        return submit(() -> {
+            manager.deleteEntry(id);
+            return null;
+        });
+    }
+
+    /**
+     * Runs any other operation of the wallet asynchronously, with the same
+     * concurrency limit and result delivery, e.g.
+     * {@code callAsync(wallet -> wallet.loadEntrySummaries(request))}.
+     *
+     * @param operation The operation to run.
+     * @return A future with the result of the operation.
+     */
+    public <T> CompletableFuture<T> callAsync(Function<WalletManager, T> operation) {
+        return submit(() -> operation.apply(manager));
+    }
+
+    /**
+     * Stops accepting calls, waits up to {@link AsyncConfig#closeTimeout()}
+     * for the running and queued ones, interrupts those still running and
+     * waits for them again, then closes the wallet (see {@link WalletManager#close()}),
+     * so that the keys are not wiped under a running call.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (!awaitTermination()) {
+            log.warn("Wallet calls still running after {}: interrupting them.", config.closeTimeout());
+            executor.shutdownNow();
+            if (!awaitTermination()) {
+                log.error("Wallet calls still running after being interrupted: closing the wallet anyway.");
+            }
+        }
+        manager.close();
+    }
+
+    /**
+     * Waits up to {@link AsyncConfig#closeTimeout()} for the executor to
+     * terminate. Being interrupted meanwhile interrupts the calls, but does
+     * not cut the wait short; the interrupt status is restored afterwards.
+     *
+     * @return true if every call is over.
+     */
+    private boolean awaitTermination() {
+        long deadline = System.nanoTime() + config.closeTimeout().toNanos();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        Call<T> call = new Call<>();
+        try {
+            executor.execute(() -> call.run(task));
+        } catch (RejectedExecutionException e) {
+            call.completeExceptionally(new IllegalStateException("The wallet is closed", e));
+        }
+        return call;
+    }
+
+    /**
+     * The future of a call, which knows the thread running it so that
+     * cancelling can interrupt it.
+     */
+    private final class Call<T> extends CompletableFuture<T> {
+
+        private volatile Thread runner;
+
+        void run(Callable<T> task) {
+            runner = Thread.currentThread();
+            try {
+                if (isDone()) {
+                    return;
+                }
+                permits.acquire();
+                try {
+                    if (isDone()) {
+                        return;
+                    }
+                    T result = task.call();
+                    resultExecutor.execute(() -> complete(result));
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                if (!isCancelled()) {
+                    resultExecutor.execute(() -> completeExceptionally(new CancellationException("Interrupted")));
+                }
+            } catch (Throwable e) {
+                // Errors too, e.g. an OutOfMemoryError: the future must not stay pending
+                log.debug("Asynchronous wallet call failed", e);
+                resultExecutor.execute(() -> completeExceptionally(e));
+            } finally {
+                runner = null;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Thread thread = runner;
+            if (cancelled && thread != null) {
+                thread.interrupt();
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.simonepugliese.Core;
+
+import java.time.Duration;
+
+/**
+ * Immutable configuration of the decrypted-entry cache used by {@link WalletManager}.
+ *
+ * @param maxEntries Maximum number of decrypted entries kept; 0 disables the cache.
+ * @param idleTtl    How long an entry may stay in the cache without being read.
+ */
+public record CacheConfig(int maxEntries, Duration idleTtl) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public CacheConfig {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative");
+        }
+        if (idleTtl == null || idleTtl.isNegative() || idleTtl.isZero()) {
+            throw new IllegalArgumentException("idleTtl must be positive");
+        }
+    }
+
+    /**
+     * @return The default configuration: up to 64 entries, evicted after 2 minutes without reads.
+     */
+    public static CacheConfig defaults() {
+        return new CacheConfig(64, Duration.ofMinutes(2));
+    }
+
+    /**
+     * @return A configuration that caches nothing.
+     */
+    public static CacheConfig disabled() {
+        return new CacheConfig(0, Duration.ofMinutes(2));
+    }
+
+    /**
+     * @return Whether this configuration caches anything.
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.simonepugliese.Core;
+
+/**
+ * A snapshot of the decrypted-entry cache statistics.
+ *
+ * @param hits      Reads served from the cache.
+ * @param misses    Reads that had to go to the repository.
+ * @param evictions Entries dropped because the cache was full or they expired.
+ * @param size      Entries currently cached.
+ */
+public record CacheStats(long hits, long misses, long evictions, int size) {
+
+    /**
+     * @return The fraction of reads served from the cache, 0 if there were none.
+     */
+    public double hitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
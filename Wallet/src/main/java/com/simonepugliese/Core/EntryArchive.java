@@ -0,0 +1,184 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Model.SecretValue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Serializes Entries, in plaintext, as the payload of an encrypted archive
+ * (see {@link com.simonepugliese.Security.ArchiveOutputStream}).
+ * <p>
+ * Each Entry is a record: a marker byte, its id, description and category,
+ * then its fields (name, value, type, sensitive). Strings are written as
+ * their UTF-8 length (-1 for null) followed by the bytes. A final marker
+ * closes the payload, so that a complete archive is recognized as such.
+ * <p>
+ * The values of sensitive fields are written from and read into
+ * {@link SecretValue}s, never as Strings.
+ * <p>
+ * This class is package-private.
+ */
+final class EntryArchive {
+
+    private static final int ENTRY = 1;
+    private static final int END = 0;
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    private EntryArchive() {
+    }
+
+    /**
+     * Writes one Entry, with its fields in plaintext.
+     */
+    static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeByte(ENTRY);
+        writeString(out, entry.getId());
+        writeString(out, entry.getDescription());
+        writeString(out, entry.getCategory() == null ? null : entry.getCategory().name());
+        Map<String, Field> fields = entry.getFields();
+        out.writeInt(fields.size());
+        for (Map.Entry<String, Field> field : fields.entrySet()) {
+            writeString(out, field.getKey());
+            writeValue(out, field.getValue());
+            writeString(out, field.getValue().getType() == null ? null : field.getValue().getType().name());
+            out.writeBoolean(field.getValue().isSensitive());
+        }
+    }
+
+    /**
+     * Writes the end-of-payload marker.
+     */
+    static void writeEnd(DataOutputStream out) throws IOException {
+        out.writeByte(END);
+    }
+
+    /**
+     * Reads the Entries lazily, one per {@link Iterator#next()}.
+     * An I/O error is thrown as an {@link UncheckedIOException}.
+     */
+    static Iterator<Entry> read(DataInputStream in) {
+        return new Iterator<>() {
+            private Entry next;
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !ended) {
+                    try {
+                        next = readEntry(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read the archive", e);
+                    }
+                    ended = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = next;
+                next = null;
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * @return The next Entry, or null after the end marker.
+     */
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        int marker;
+        try {
+            marker = in.readUnsignedByte();
+        } catch (EOFException e) {
+            throw new IOException("Incomplete archive: end marker missing", e);
+        }
+        if (marker == END) {
+            if (in.read() != -1) {
+                throw new IOException("Unexpected data after the end of the archive");
+            }
+            return null;
+        }
+        if (marker != ENTRY) {
+            throw new IOException("Corrupt archive: unknown record " + marker);
+        }
+        String id = readString(in);
+        String description = readString(in);
+        String category = readString(in);
+        if (id == null) {
+            throw new IOException("Corrupt archive: entry without id");
+        }
+        Entry entry = new Entry(id, description, category == null ? null : Category.valueOf(category));
+        int fieldCount = in.readInt();
+        for (int i = 0; i < fieldCount; i++) {
+            String name = readString(in);
+            byte[] value = readBytes(in);
+            String type = readString(in);
+            boolean sensitive = in.readBoolean();
+            FieldType fieldType = type == null ? null : FieldType.valueOf(type);
+            entry.putField(name, sensitive && value != null
+                    ? new Field(SecretValue.wrap(value), fieldType)
+                    : new Field(value == null ? null : new String(value, StandardCharsets.UTF_8), fieldType, sensitive));
+        }
+        return entry;
+    }
+
+    /**
+     * Writes the value of a field, straight from its secret if it holds one.
+     */
+    private static void writeValue(DataOutputStream out, Field field) throws IOException {
+        SecretValue secret = field.getSecret();
+        if (secret == null) {
+            writeString(out, field.getValue());
+            return;
+        }
+        out.writeInt(secret.byteLength());
+        secret.writeTo(out);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The UTF-8 bytes of a string, or null.
+     */
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Corrupt archive: invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
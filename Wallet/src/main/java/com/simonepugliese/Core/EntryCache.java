@@ -0,0 +1,172 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Entry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded cache of decrypted Entries, with LRU eviction and an idle TTL.
+ * <p>
+ * The cache stores and returns copies, so callers can freely modify the
+ * Entries they get (e.g. in an edit form, or by encrypting them in place on
+ * save) without corrupting it. Entries leaving the cache (eviction,
+ * expiry, invalidation or {@link #clear()}) have their field values dropped.
+ * <p>
+ * Every write invalidates the Entry it changed, which bumps a generation
+ * counter. A loader reads {@link #generation()} before reading the
+ * repository and passes it to {@link #put(Entry, long)}: if anything was
+ * invalidated meanwhile, the Entry it read may be stale and is not cached.
+ * Writers invalidate both before and after writing, so that a load
+ * overlapping the write cannot re-cache the old values.
+ * <p>
+ * Expired entries are removed lazily, when the cache is accessed.
+ * This class is thread-safe.
+ */
+final class EntryCache {
+
+    /**
+     * A cached entry and the last time it was read or written.
+     */
+    private static final class CachedEntry {
+        private final Entry entry;
+        private long lastAccessNanos;
+
+        private CachedEntry(Entry entry, long lastAccessNanos) {
+            this.entry = entry;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+    }
+
+    private final CacheConfig config;
+    private final LongSupplier ticker;
+    // Access order: the least recently used entry comes first. Guarded by 'this'
+    private final LinkedHashMap<String, CachedEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    /**
+     * @param config The cache configuration.
+     */
+    EntryCache(CacheConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    /**
+     * @param config The cache configuration.
+     * @param ticker The time source, in nanoseconds (replaceable in tests).
+     */
+    EntryCache(CacheConfig config, LongSupplier ticker) {
+        this.config = config;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @param id The ID of the Entry.
+     * @return A copy of the cached Entry, or empty if absent or expired.
+     */
+    synchronized Optional<Entry> get(String id) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        long now = ticker.getAsLong();
+        evictExpired(now);
+        CachedEntry cached = entries.get(id);
+        if (cached == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        cached.lastAccessNanos = now;
+        return Optional.of(cached.entry.copy());
+    }
+
+    /**
+     * @return The current generation, to pass to {@link #put(Entry, long)}
+     * after reading an Entry from the repository.
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a copy of the Entry, evicting the least recently used ones if
+     * full, unless an Entry was invalidated since the given generation.
+     *
+     * @param entry      A decrypted Entry.
+     * @param generation The {@link #generation()} read before loading the Entry.
+     */
+    synchronized void put(Entry entry, long generation) {
+        if (!config.isEnabled() || generation != this.generation) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        evictExpired(now);
+        CachedEntry previous = entries.put(entry.getId(), new CachedEntry(entry.copy(), now));
+        if (previous != null) {
+            previous.entry.clearFields();
+        }
+        Iterator<CachedEntry> it = entries.values().iterator();
+        while (entries.size() > config.maxEntries() && it.hasNext()) {
+            CachedEntry eldest = it.next();
+            it.remove();
+            eldest.entry.clearFields();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes an Entry, e.g. because it was modified or deleted.
+     *
+     * @param id The ID of the Entry.
+     */
+    synchronized void invalidate(String id) {
+        generation++;
+        CachedEntry removed = entries.remove(id);
+        if (removed != null) {
+            removed.entry.clearFields();
+        }
+    }
+
+    /**
+     * Removes all Entries, dropping their field values.
+     */
+    synchronized void clear() {
+        generation++;
+        for (CachedEntry cached : entries.values()) {
+            cached.entry.clearFields();
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return A snapshot of the cache statistics.
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    /**
+     * Removes the entries not accessed within the idle TTL.
+     */
+    private void evictExpired(long now) {
+        long ttl = config.idleTtl().toNanos();
+        // In access order, so the first non-expired entry ends the scan
+        Iterator<Map.Entry<String, CachedEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            CachedEntry cached = it.next().getValue();
+            if (now - cached.lastAccessNanos < ttl) {
+                break;
+            }
+            it.remove();
+            cached.entry.clearFields();
+            evictions++;
+        }
+    }
+}
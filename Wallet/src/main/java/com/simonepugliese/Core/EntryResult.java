@@ -0,0 +1,42 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Entry;
+
+/**
+ * The outcome of processing a single Entry within a batch operation
+ * (e.g. {@link ICriptor#decryptAll(java.util.Collection)}).
+ * <p>
+ * Batch operations never abort because of one bad Entry: each Entry gets
+ * its own result, carrying either the processed Entry or the error.
+ *
+ * @param entry The Entry the result refers to.
+ * @param error The failure cause (e.g. a
+ *              {@link com.simonepugliese.Security.DecryptionFailedException}),
+ *              or {@code null} on success.
+ */
+public record EntryResult(Entry entry, RuntimeException error) {
+
+    /**
+     * @param entry The processed Entry.
+     * @return A successful result.
+     */
+    public static EntryResult success(Entry entry) {
+        return new EntryResult(entry, null);
+    }
+
+    /**
+     * @param entry The Entry that could not be processed.
+     * @param error The failure cause.
+     * @return A failed result.
+     */
+    public static EntryResult failure(Entry entry, RuntimeException error) {
+        return new EntryResult(entry, error);
+    }
+
+    /**
+     * @return true if the Entry was processed successfully.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -2,6 +2,11 @@ package com.simonepugliese.Core;
 
 import com.simonepugliese.Model.Entry;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Public contract for an encryption/decryption strategy.
  * This defines the operations needed to secure and restore an Entry.
@@ -25,4 +30,74 @@ public interface ICriptor {
      * @return The same Entry object, now with sensitive data in plaintext.
      */
     Entry decrypt(Entry entry);
-}
\ No newline at end of file
+
+    /**
+     * Encrypts all sensitive fields of many Entries.
+     * Each Entry is modified in place, as in {@link #encrypt(Entry)}.
+     * <p>
+     * A failure on one Entry does not stop the others. Implementations may
+     * process the entries concurrently; the default one is sequential.
+     *
+     * @param entries The Entries with plaintext sensitive data.
+     * @return One {@link EntryResult} per Entry, in input order.
+     */
+    default List<EntryResult> encryptAll(Collection<Entry> entries) {
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            try {
+                results.add(EntryResult.success(encrypt(entry)));
+            } catch (RuntimeException e) {
+                results.add(EntryResult.failure(entry, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Decrypts all sensitive fields of many Entries.
+     * Each Entry is modified in place, as in {@link #decrypt(Entry)}.
+     * <p>
+     * A failure on one Entry (typically a
+     * {@link com.simonepugliese.Security.DecryptionFailedException}) does not
+     * stop the others. Implementations may process the entries concurrently;
+     * the default one is sequential.
+     *
+     * @param entries The Entries with encrypted sensitive data.
+     * @return One {@link EntryResult} per Entry, in input order.
+     */
+    default List<EntryResult> decryptAll(Collection<Entry> entries) {
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            try {
+                results.add(EntryResult.success(decrypt(entry)));
+            } catch (RuntimeException e) {
+                results.add(EntryResult.failure(entry, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Tells whether the given Entry (as loaded from persistence) holds values
+     * in an outdated encryption format and should be re-encrypted.
+     *
+     * @param entry The Entry object with encrypted sensitive data.
+     * @return true if decrypting and encrypting it again would upgrade its storage format.
+     */
+    default boolean requiresReEncryption(Entry entry) {
+        return false;
+    }
+
+    /**
+     * Computes the blind index of a plaintext value: the keyed hash that
+     * {@link #encrypt(Entry)} stores next to sensitive values, so that they
+     * can be matched without being decrypted.
+     *
+     * @param plaintext The value to look up.
+     * @return The blind index, or an empty Optional if this strategy does
+     * not support blind indexes or the value is empty.
+     */
+    default Optional<String> blindIndex(String plaintext) {
+        return Optional.empty();
+    }
+}
@@ -1,8 +1,14 @@
 package com.simonepugliese.Core;
 
 import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import com.simonepugliese.Model.FieldType;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Public contract for wallet data persistence.
@@ -22,6 +28,57 @@ public interface IEntryRepository {
      */
     void save(Entry entry);
 
+    /**
+     * Saves many Entries (new or existing), assuming their sensitive fields
+     * are already encrypted. Implementations should write them in a single
+     * transaction; a failing Entry must not prevent the others from being saved.
+     * <p>
+     * The default implementation calls {@link #save(Entry)} for each Entry.
+     *
+     * @param entries The Entries to save.
+     * @return One {@link EntryResult} per Entry, in input order.
+     */
+    default List<EntryResult> saveAll(List<Entry> entries) {
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            try {
+                save(entry);
+                results.add(EntryResult.success(entry));
+            } catch (RuntimeException e) {
+                results.add(EntryResult.failure(entry, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Replaces the values of stored Entries with new versions of them (e.g.
+     * re-encrypted), but only for the Entries still stored as they were read:
+     * an Entry changed or deleted meanwhile is skipped, so that the concurrent
+     * write is not lost, and can be picked up again later. Only the sensitive
+     * values and blind indexes that differ are written. Implementations should check
+     * and write in a single statement per value, within one transaction.
+     * <p>
+     * The default implementation saves the replacements with
+     * {@link #saveAll(List)} without any check, so it only suits
+     * repositories that are not written concurrently.
+     *
+     * @param read         The Entries as they were read.
+     * @param replacements The new versions, matched with the read Entries by id.
+     * @return The number of Entries replaced.
+     * @throws RuntimeException if a replacement could not be written.
+     */
+    default int replaceIfUnchanged(List<Entry> read, List<Entry> replacements) {
+        int replaced = 0;
+        for (EntryResult result : saveAll(replacements)) {
+            if (!result.isSuccess()) {
+                throw result.error();
+            }
+            replaced++;
+        }
+        return replaced;
+    }
+
     /**
      * Loads a single Entry by its unique ID, including all its Fields.
      * The returned Entry will contain *encrypted* values for sensitive fields.
@@ -31,6 +88,54 @@ public interface IEntryRepository {
      */
     Optional<Entry> findById(String id);
 
+    /**
+     * Loads many Entries by their IDs, including all their Fields.
+     * Implementations must avoid one query per Entry (N+1 loading).
+     * The returned Entries contain *encrypted* values for sensitive fields.
+     *
+     * @param ids The unique IDs of the Entries to retrieve.
+     * @return The Entries found, in the order of the given IDs.
+     * IDs without a matching Entry are skipped.
+     */
+    List<Entry> findAllByIds(Collection<String> ids);
+
+    /**
+     * Loads every Entry in persistence, including all their Fields,
+     * in a single pass.
+     * The returned Entries contain *encrypted* values for sensitive fields.
+     * <p>
+     * The whole vault is held in memory at once: whole-vault operations that
+     * handle one Entry at a time should use {@link #stream()} instead.
+     *
+     * @return A List of all Entries with their fields.
+     */
+    List<Entry> findAll();
+
+    /**
+     * Streams every Entry in persistence, including all their Fields,
+     * reading them from storage as the stream is consumed, so that
+     * whole-vault operations run in constant memory.
+     * The Entries contain *encrypted* values for sensitive fields.
+     * <p>
+     * The stream holds storage resources: it must be closed, e.g. with
+     * try-with-resources.
+     *
+     * @return A sequential, ordered stream of all Entries with their fields.
+     */
+    Stream<Entry> stream();
+
+    /**
+     * Passes every Entry in persistence, including all their Fields, to the
+     * given action, one at a time (see {@link #stream()}).
+     *
+     * @param action Called once per Entry, with *encrypted* sensitive values.
+     */
+    default void forEach(Consumer<Entry> action) {
+        try (Stream<Entry> entries = stream()) {
+            entries.forEach(action);
+        }
+    }
+
     /**
      * Loads all Entries from persistence, but *only* their metadata
      * (id, description, category). This is a lightweight operation
@@ -40,6 +145,27 @@ public interface IEntryRepository {
      */
     List<Entry> findAllSummaries();
 
+    /**
+     * Loads the metadata of all Entries as immutable {@link EntrySummary}
+     * records. It is the lighter alternative to {@link #findAllSummaries()}:
+     * no Entry, and no field map, is allocated per row.
+     *
+     * @return The summaries of all Entries.
+     */
+    List<EntrySummary> findAllEntrySummaries();
+
+    /**
+     * Loads one page of Entry metadata (id, description, category), sorted
+     * by description and optionally filtered by category.
+     * Implementations must page by keyset (the sort key of the previous
+     * page's last Entry), not by offset, and use an index for both the
+     * filter and the sort.
+     *
+     * @param request The page to load.
+     * @return The requested page of summaries.
+     */
+    Page findSummaries(PageRequest request);
+
     /**
      * Deletes an Entry (and all its associated fields) from persistence
      * using its unique ID.
@@ -48,4 +174,50 @@ public interface IEntryRepository {
      * @return true if the deletion was successful, false otherwise.
      */
     boolean deleteById(String id);
-}
\ No newline at end of file
+
+    /**
+     * Finds Entries whose description or non-sensitive field values match
+     * the given text. Every word of the query is matched as a word prefix,
+     * and all words must match.
+     *
+     * @param query The text typed by the user.
+     * @param limit The maximum number of results.
+     * @return Matching Entries without their fields, best match first.
+     */
+    List<Entry> search(String query, int limit);
+
+    /**
+     * Finds the Entries holding a field with the given blind index, i.e. a
+     * sensitive value equal to the one the index was computed from.
+     * The lookup is a single indexed query, nothing is decrypted.
+     *
+     * @param blindIndex The blind index (see {@link ICriptor#blindIndex(String)}).
+     * @return The matching Entries without their fields.
+     */
+    List<Entry> findByBlindIndex(String blindIndex);
+
+    /**
+     * Finds the sensitive values of the given type that are used by more than
+     * one Entry, comparing their blind indexes in a single query.
+     *
+     * @param type The field type to check (e.g. {@link FieldType#PASSWORD}).
+     * @return One group per shared value, each with the Entries (without
+     * their fields) that use it; the most shared values first.
+     */
+    List<List<Entry>> findSharedValues(FieldType type);
+
+    /**
+     * Rewrites the values still stored in an outdated storage format, without
+     * decrypting them (e.g. encrypted values stored as Base64 text that now
+     * have a binary form). Implementations should run it in short transactions,
+     * so that the wallet stays usable meanwhile; it can be interrupted and
+     * run again.
+     * <p>
+     * The default implementation has nothing to convert.
+     *
+     * @return The number of values rewritten.
+     */
+    default int migrateStorageFormat() {
+        return 0;
+    }
+}
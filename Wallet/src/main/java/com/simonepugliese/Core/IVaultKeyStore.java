@@ -0,0 +1,36 @@
+package com.simonepugliese.Core;
+
+/**
+ * Public contract for the storage of the vault keys.
+ * <p>
+ * The master password never encrypts data directly: it only protects
+ * (wraps) the data key that encrypts the sensitive fields. Changing the
+ * password therefore rewrites the wrapped key, never the entries.
+ */
+public interface IVaultKeyStore {
+
+    /**
+     * Checks a master password by unwrapping the data key with it, without
+     * changing anything.
+     *
+     * @param password The master password to check.
+     * @throws com.simonepugliese.Security.DecryptionFailedException if the
+     * password is incorrect.
+     * @throws IllegalStateException if the vault has no data key.
+     */
+    void verify(char[] password);
+
+    /**
+     * Wraps the vault data key with a key derived from a new master password,
+     * replacing the stored one in a single transaction. The data key itself,
+     * and so every encrypted field, is unchanged.
+     *
+     * @param currentPassword The current master password.
+     * @param newPassword     The new master password.
+     * @throws com.simonepugliese.Security.DecryptionFailedException if
+     * {@code currentPassword} is incorrect; nothing is changed.
+     * @throws IllegalStateException if the vault has no data key, or its
+     * password was changed concurrently.
+     */
+    void changeMasterPassword(char[] currentPassword, char[] newPassword);
+}
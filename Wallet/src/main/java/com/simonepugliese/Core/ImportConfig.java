@@ -0,0 +1,44 @@
+package com.simonepugliese.Core;
+
+/**
+ * Immutable configuration of the bulk import pipeline
+ * (see {@link WalletManager#importEntries(java.util.Iterator, ImportConfig, java.util.function.Consumer)}).
+ *
+ * @param batchSize         Number of Entries committed per transaction.
+ * @param queueCapacity     Maximum number of batches read ahead of the writer
+ *                          (being encrypted or waiting to be written); bounds the memory used.
+ * @param encryptionThreads Number of threads encrypting batches in parallel.
+ */
+public record ImportConfig(int batchSize, int queueCapacity, int encryptionThreads) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public ImportConfig {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        if (encryptionThreads < 1) {
+            throw new IllegalArgumentException("encryptionThreads must be positive");
+        }
+    }
+
+    /**
+     * @return The default configuration: batches of 1000 entries, up to 4 of
+     * them ahead of the writer, one encryption thread per processor.
+     */
+    public static ImportConfig defaults() {
+        return new ImportConfig(1000, 4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param batchSize Number of Entries committed per transaction.
+     * @return A copy of this configuration with the given batch size.
+     */
+    public ImportConfig withBatchSize(int batchSize) {
+        return new ImportConfig(batchSize, queueCapacity, encryptionThreads);
+    }
+}
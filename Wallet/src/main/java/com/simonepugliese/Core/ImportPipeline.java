@@ -0,0 +1,234 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The three-stage pipeline behind {@link WalletManager#importEntries}.
+ * <ol>
+ *     <li>The calling thread reads the source and groups its Entries into batches.</li>
+ *     <li>A pool of threads encrypts the batches in parallel.</li>
+ *     <li>A single writer thread saves the encrypted batches in read order,
+ *     one transaction per batch (see {@link IEntryRepository#saveAll(List)}).</li>
+ * </ol>
+ * The stages are connected by a bounded queue of pending batches, so a fast
+ * source waits for the writer instead of filling the heap.
+ * <p>
+ * This class is package-private and single-use.
+ */
+final class ImportPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportPipeline.class);
+
+    /**
+     * Marks the end of the source in the queue.
+     */
+    private static final Future<EncryptedBatch> END_OF_SOURCE = CompletableFuture.completedFuture(null);
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /**
+     * A batch after the encryption stage: the Entries to save and those that failed.
+     */
+    private record EncryptedBatch(List<Entry> encrypted, List<EntryResult> failures) {
+    }
+
+    private final IEntryRepository repository;
+    private final ICriptor criptor;
+    private final Consumer<String> onSaved;
+    private final ImportConfig config;
+    private final Consumer<ImportProgress> progress;
+
+    private final BlockingQueue<Future<EncryptedBatch>> queue;
+    // Written by the writer thread only, read after it has been joined
+    private final List<EntryResult> failures = new ArrayList<>();
+    private long imported;
+
+    /**
+     * @param repository The repository the batches are saved to.
+     * @param criptor    Encrypts the Entries; must be thread-safe.
+     * @param onSaved    Called with the id of every saved Entry (e.g. to invalidate a cache).
+     * @param config     The pipeline configuration.
+     * @param progress   Receives the progress after each batch, on the writer thread.
+     */
+    ImportPipeline(IEntryRepository repository, ICriptor criptor, Consumer<String> onSaved,
+                   ImportConfig config, Consumer<ImportProgress> progress) {
+        this.repository = repository;
+        this.criptor = criptor;
+        this.onSaved = onSaved;
+        this.config = config;
+        this.progress = progress;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+    }
+
+    /**
+     * Runs the import to completion.
+     *
+     * @param source The Entries to import, in plaintext. It is only read by the calling thread.
+     * @return The import report.
+     * @throws RuntimeException if the source fails or the import is interrupted;
+     * the batches read before are still saved.
+     */
+    ImportReport run(Iterator<Entry> source) {
+        long start = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService encryptors = Executors.newFixedThreadPool(config.encryptionThreads(), r -> {
+            Thread t = new Thread(r, "wallet-import-encryptor-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Thread writer = new Thread(this::writeBatches, "wallet-import-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        RuntimeException sourceFailure = null;
+        long read = 0;
+        try {
+            List<Entry> batch = new ArrayList<>(config.batchSize());
+            while (source.hasNext()) {
+                batch.add(source.next());
+                read++;
+                if (batch.size() == config.batchSize()) {
+                    enqueue(encryptors.submit(encryptTask(batch)), writer);
+                    batch = new ArrayList<>(config.batchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                enqueue(encryptors.submit(encryptTask(batch)), writer);
+            }
+            // Let the writer drain what was read
+            enqueue(END_OF_SOURCE, writer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sourceFailure = new RuntimeException("Import interrupted after reading " + read + " entries", e);
+        } catch (RuntimeException e) {
+            sourceFailure = new RuntimeException("Import aborted after reading " + read + " entries", e);
+        }
+
+        try {
+            if (sourceFailure != null) {
+                // Stop reading: the writer saves what is already queued
+                enqueue(END_OF_SOURCE, writer);
+            }
+            writer.join();
+        } catch (IllegalStateException e) {
+            // The writer is already gone
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+            if (sourceFailure == null) {
+                sourceFailure = new RuntimeException("Import interrupted", e);
+            }
+        } finally {
+            encryptors.shutdownNow();
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (sourceFailure != null) {
+            log.error("Import stopped after {} entries imported.", imported, sourceFailure);
+            throw sourceFailure;
+        }
+        log.info("Import completed in {} ms: {} imported, {} failed.", elapsed.toMillis(), imported, failures.size());
+        return new ImportReport(imported, failures, elapsed);
+    }
+
+    /**
+     * Puts a batch in the queue, waiting for room, unless the writer has died.
+     */
+    private void enqueue(Future<EncryptedBatch> batch, Thread writer) throws InterruptedException {
+        while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                throw new IllegalStateException("The import writer has stopped");
+            }
+        }
+    }
+
+    /**
+     * The encryption stage of one batch: Entries are encrypted one by one,
+     * so that a failing Entry does not fail its batch.
+     */
+    private Callable<EncryptedBatch> encryptTask(List<Entry> batch) {
+        return () -> {
+            List<Entry> encrypted = new ArrayList<>(batch.size());
+            List<EntryResult> failed = new ArrayList<>();
+            for (Entry entry : batch) {
+                try {
+                    encrypted.add(criptor.encrypt(entry));
+                } catch (RuntimeException e) {
+                    failed.add(EntryResult.failure(entry, e));
+                }
+            }
+            return new EncryptedBatch(encrypted, failed);
+        };
+    }
+
+    /**
+     * The writer stage: saves the batches in read order until the end of the source.
+     */
+    private void writeBatches() {
+        try {
+            while (true) {
+                Future<EncryptedBatch> next = queue.take();
+                if (next == END_OF_SOURCE) {
+                    return;
+                }
+                try {
+                    writeBatch(next.get());
+                } catch (ExecutionException e) {
+                    // The encryption task catches every per-entry failure
+                    log.error("Unexpected failure in the import encryption stage", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Import writer interrupted.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatch(EncryptedBatch batch) {
+        failures.addAll(batch.failures());
+        if (!batch.encrypted().isEmpty()) {
+            List<EntryResult> results;
+            try {
+                results = repository.saveAll(batch.encrypted());
+            } catch (RuntimeException e) {
+                log.error("Failed to save a batch of {} entries", batch.encrypted().size(), e);
+                results = new ArrayList<>(batch.encrypted().size());
+                for (Entry entry : batch.encrypted()) {
+                    results.add(EntryResult.failure(entry, e));
+                }
+            }
+            for (EntryResult result : results) {
+                if (result.isSuccess()) {
+                    imported++;
+                    onSaved.accept(result.entry().getId());
+                } else {
+                    failures.add(result);
+                }
+            }
+        }
+        log.debug("Import progress: {} imported, {} failed.", imported, failures.size());
+        try {
+            progress.accept(new ImportProgress(imported, failures.size()));
+        } catch (RuntimeException e) {
+            log.warn("Import progress listener failed", e);
+        }
+    }
+}
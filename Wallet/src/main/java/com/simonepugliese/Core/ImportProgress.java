@@ -0,0 +1,17 @@
+package com.simonepugliese.Core;
+
+/**
+ * Progress of a running import, reported after every committed batch.
+ *
+ * @param imported Entries saved so far.
+ * @param failed   Entries that could not be encrypted or saved so far.
+ */
+public record ImportProgress(long imported, long failed) {
+
+    /**
+     * @return The number of Entries processed so far.
+     */
+    public long processed() {
+        return imported + failed;
+    }
+}
@@ -0,0 +1,29 @@
+package com.simonepugliese.Core;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import.
+ *
+ * @param imported The number of Entries saved.
+ * @param failures One failed {@link EntryResult} per Entry that could not be
+ *                 encrypted or saved; the others were imported regardless.
+ * @param elapsed  The total duration of the import.
+ */
+public record ImportReport(long imported, List<EntryResult> failures, Duration elapsed) {
+
+    /**
+     * Makes the failure list unmodifiable.
+     */
+    public ImportReport {
+        failures = List.copyOf(failures);
+    }
+
+    /**
+     * @return true if every Entry was imported.
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+}
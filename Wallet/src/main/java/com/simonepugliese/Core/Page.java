@@ -0,0 +1,41 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.EntrySummary;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One page of Entry summaries, as returned for a {@link PageRequest}.
+ *
+ * @param entries The summaries of the page, in the requested order.
+ * @param request The request this page answers.
+ * @param hasNext Whether more entries follow this page.
+ */
+public record Page(List<EntrySummary> entries, PageRequest request, boolean hasNext) {
+
+    /**
+     * Makes the entry list unmodifiable.
+     */
+    public Page {
+        entries = List.copyOf(entries);
+    }
+
+    /**
+     * @param request The request that found nothing.
+     * @return A page without entries and without a next page.
+     */
+    public static Page empty(PageRequest request) {
+        return new Page(List.of(), request, false);
+    }
+
+    /**
+     * @return The request for the following page, or an empty Optional if this is the last one.
+     */
+    public Optional<PageRequest> next() {
+        if (!hasNext || entries.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(request.after(entries.get(entries.size() - 1)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.EntrySummary;
+
+import java.util.Objects;
+
+/**
+ * Immutable request for one page of Entry summaries, sorted by description
+ * (case-insensitive, ties broken by id) and optionally filtered by category.
+ * <p>
+ * Pages are addressed by keyset rather than by offset: a request carries the
+ * sort key of the last Entry of the previous page, so reading any page costs
+ * the same as reading the first one, and entries added or deleted meanwhile
+ * do not shift the following pages. Start with {@link #first(int)} and
+ * continue with {@link Page#next()}.
+ *
+ * @param size             Maximum number of entries in the page (1 to {@value #MAX_SIZE}).
+ * @param category         Only entries of this category, or null for all of them.
+ * @param direction        The sort direction.
+ * @param afterDescription Description of the last Entry of the previous page, or null for the first page.
+ * @param afterId          Id of the last Entry of the previous page, or null for the first page.
+ */
+public record PageRequest(int size, Category category, Direction direction, String afterDescription, String afterId) {
+
+    /**
+     * Upper bound of {@link #size()}, to keep a single page cheap.
+     */
+    public static final int MAX_SIZE = 1000;
+
+    /**
+     * Sort direction of the descriptions.
+     */
+    public enum Direction {
+        ASCENDING,
+        DESCENDING
+    }
+
+    /**
+     * Validates the request values.
+     */
+    public PageRequest {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SIZE);
+        }
+        Objects.requireNonNull(direction, "direction");
+        if ((afterDescription == null) != (afterId == null)) {
+            throw new IllegalArgumentException("afterDescription and afterId must be set together");
+        }
+    }
+
+    /**
+     * @param size Maximum number of entries in the page.
+     * @return A request for the first page of all entries, in ascending order.
+     */
+    public static PageRequest first(int size) {
+        return new PageRequest(size, null, Direction.ASCENDING, null, null);
+    }
+
+    /**
+     * @param category The category to keep, or null for all of them.
+     * @return A copy of this request, restarted from the first page with the given filter.
+     */
+    public PageRequest withCategory(Category category) {
+        return new PageRequest(size, category, direction, null, null);
+    }
+
+    /**
+     * @param direction The sort direction.
+     * @return A copy of this request, restarted from the first page in the given direction.
+     */
+    public PageRequest withDirection(Direction direction) {
+        return new PageRequest(size, category, direction, null, null);
+    }
+
+    /**
+     * @param last The last Entry of the current page.
+     * @return The request for the page that follows it.
+     */
+    public PageRequest after(EntrySummary last) {
+        return new PageRequest(size, category, direction, last.description(), last.id());
+    }
+
+    /**
+     * @return true if this request is for the first page.
+     */
+    public boolean isFirstPage() {
+        return afterId == null;
+    }
+}
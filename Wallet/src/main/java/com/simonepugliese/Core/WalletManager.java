@@ -1,12 +1,33 @@
 package com.simonepugliese.Core;
 
+import com.simonepugliese.Import.ImportFormat;
 import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Security.ArchiveInputStream;
+import com.simonepugliese.Security.ArchiveOutputStream;
 import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.KeyDerivationFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Main Facade for the wallet application.
@@ -14,24 +35,72 @@ import java.util.Optional;
  * This is the central entry point for all business logic, coordinating
  * the repository and criptor. It ensures that data is always
  * encrypted before saving and decrypted after loading.
+ * <p>
+ * Optionally, single entries loaded with {@link #loadAndDecryptEntry(String)}
+ * are kept decrypted in a bounded cache (see {@link CacheConfig}), so that
+ * reopening an entry does not hit the database and decrypt again.
  */
 public final class WalletManager implements AutoCloseable{
 
     private static final Logger log = LoggerFactory.getLogger(WalletManager.class);
 
+    // Page size used when walking the whole vault (e.g. migrations)
+    private static final int SCAN_PAGE_SIZE = 500;
+
     private final IEntryRepository repository;
     private final ICriptor criptor;
+    private final EntryCache cache;
+    private final IVaultKeyStore keyStore;
 
     /**
-     * Constructs a new WalletManager.
+     * Constructs a new WalletManager without a decrypted-entry cache.
      * The dependencies are injected via the public interfaces.
      *
      * @param repository The persistence strategy (e.g., EntryRepository).
      * @param criptor    The encryption strategy (e.g., EntryCriptor).
      */
     public WalletManager(IEntryRepository repository, ICriptor criptor) {
+        this(repository, criptor, CacheConfig.disabled());
+    }
+
+    /**
+     * Constructs a new WalletManager.
+     * The dependencies are injected via the public interfaces.
+     *
+     * @param repository  The persistence strategy (e.g., EntryRepository).
+     * @param criptor     The encryption strategy (e.g., EntryCriptor).
+     * @param cacheConfig The decrypted-entry cache configuration.
+     */
+    public WalletManager(IEntryRepository repository, ICriptor criptor, CacheConfig cacheConfig) {
+        this(repository, criptor, new EntryCache(cacheConfig), null);
+    }
+
+    /**
+     * Constructs a new WalletManager that can also change the master password
+     * (see {@link #changeMasterPassword(char[], char[])}).
+     *
+     * @param repository  The persistence strategy (e.g., EntryRepository).
+     * @param criptor     The encryption strategy (e.g., EntryCriptor).
+     * @param cacheConfig The decrypted-entry cache configuration.
+     * @param keyStore    The storage of the vault keys (e.g., VaultKeyStore).
+     */
+    public WalletManager(IEntryRepository repository, ICriptor criptor, CacheConfig cacheConfig,
+                         IVaultKeyStore keyStore) {
+        this(repository, criptor, new EntryCache(cacheConfig), keyStore);
+    }
+
+    /**
+     * Constructor used by tests to inject a cache with a fake clock.
+     */
+    WalletManager(IEntryRepository repository, ICriptor criptor, EntryCache cache) {
+        this(repository, criptor, cache, null);
+    }
+
+    private WalletManager(IEntryRepository repository, ICriptor criptor, EntryCache cache, IVaultKeyStore keyStore) {
         this.repository = repository;
         this.criptor = criptor;
+        this.cache = cache;
+        this.keyStore = keyStore;
         log.info("WalletManager initialized.");
     }
 
@@ -41,6 +110,8 @@ public final class WalletManager implements AutoCloseable{
      * @param entry The Entry in its plaintext state (from the UI).
      */
     public void saveEntry(Entry entry) {
+        // Invalidate first: even a failed save may have changed the stored entry
+        cache.invalidate(entry.getId());
         try {
             log.info("Saving entry (ID: {})...", entry.getId());
             // 1. Encrypt
@@ -51,11 +122,177 @@ public final class WalletManager implements AutoCloseable{
             //TODO: (This is where you would notify Observers)
         } catch (Exception e) {
             log.error("Failed to save entry (ID: {})", entry.getId(), e);
+        } finally {
+            // And again after: a load that overlapped the write must not cache the old values
+            cache.invalidate(entry.getId());
+        }
+    }
+
+    /**
+     * Imports many Entries with the default {@link ImportConfig}.
+     *
+     * @see #importEntries(Iterator, ImportConfig, Consumer)
+     */
+    public ImportReport importEntries(Iterator<Entry> entries) {
+        return importEntries(entries, ImportConfig.defaults(), progress -> { });
+    }
+
+    /**
+     * Imports many Entries (e.g. from another password manager) through a pipeline:
+     * entries are encrypted in parallel while a single writer saves them in
+     * batches, one transaction per batch. The source is read lazily, so it can
+     * be larger than the heap.
+     * <p>
+     * A failing Entry does not stop the import: it is reported in the result.
+     *
+     * @param entries  The Entries to import, in plaintext. They are encrypted in place.
+     * @param config   Batch size, queue capacity and encryption threads.
+     * @param progress Receives the progress after each batch, on the writer thread.
+     * @return The import report.
+     * @throws RuntimeException if reading the source fails; the batches read
+     * before are still imported.
+     */
+    public ImportReport importEntries(Iterator<Entry> entries, ImportConfig config, Consumer<ImportProgress> progress) {
+        log.info("Importing entries (batch size {})...", config.batchSize());
+        return new ImportPipeline(repository, criptor, cache::invalidate, config, progress).run(entries);
+    }
+
+    /**
+     * Imports the export file of another password manager with the default {@link ImportConfig}.
+     *
+     * @see #importFile(Path, ImportFormat, ImportConfig, Consumer)
+     */
+    public ImportReport importFile(Path file, ImportFormat format) {
+        return importFile(file, format, ImportConfig.defaults(), progress -> { });
+    }
+
+    /**
+     * Imports the export file of another password manager. The file is parsed
+     * as it is imported (see {@link #importEntries(Iterator, ImportConfig, Consumer)}),
+     * so it is never loaded in memory.
+     *
+     * @param file     The export file, in UTF-8.
+     * @param format   The format of the file.
+     * @param config   Batch size, queue capacity and encryption threads.
+     * @param progress Receives the progress after each batch, on the writer thread.
+     * @return The import report.
+     * @throws RuntimeException if the file cannot be read or is malformed
+     * (an {@link com.simonepugliese.Import.ImportFormatException} is the cause);
+     * the batches read before are still imported.
+     */
+    public ImportReport importFile(Path file, ImportFormat format, ImportConfig config,
+                                   Consumer<ImportProgress> progress) {
+        log.info("Importing {} file: {}", format, file);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importEntries(format.newImporter().parse(reader), config, progress);
+        } catch (IOException e) {
+            log.error("Failed to read import file: {}", file, e);
+            throw new RuntimeException("Failed to read import file: " + file, e);
+        }
+    }
+
+    /**
+     * Exports the whole wallet to an encrypted archive, protecting it with
+     * {@link KeyDerivationFunction#defaults()}.
+     *
+     * @see #exportTo(OutputStream, char[], KeyDerivationFunction)
+     */
+    public long exportTo(OutputStream out, char[] password) {
+        return exportTo(out, password, KeyDerivationFunction.defaults());
+    }
+
+    /**
+     * Exports the whole wallet to an encrypted archive (see
+     * {@link ArchiveOutputStream}): the entries are streamed from the
+     * database, decrypted one at a time and written in authenticated
+     * segments, so the export runs in constant memory. The password is
+     * stretched once per archive, not per entry or segment.
+     * <p>
+     * The archive is independent of the vault keys: it can be restored into
+     * any wallet with {@link #importFrom(InputStream, char[])}.
+     *
+     * @param out      Where the archive is written. It is not closed.
+     * @param password The archive password (not necessarily the master password).
+     * @param kdf      The KDF that stretches the archive password.
+     * @return The number of exported entries.
+     * @throws DecryptionFailedException if an entry cannot be decrypted: an
+     * archive is never silently incomplete.
+     * @throws RuntimeException if the archive cannot be written.
+     */
+    public long exportTo(OutputStream out, char[] password, KeyDerivationFunction kdf) {
+        log.info("Exporting the wallet to an encrypted archive...");
+        long exported = 0;
+        try (Stream<Entry> entries = repository.stream()) {
+            ArchiveOutputStream archive = new ArchiveOutputStream(out, password, kdf);
+            DataOutputStream data = new DataOutputStream(archive);
+            Iterator<Entry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                try {
+                    criptor.decrypt(entry);
+                } catch (RuntimeException e) {
+                    log.error("Export aborted: entry could not be decrypted (ID: {}).", entry.getId());
+                    throw e;
+                }
+                EntryArchive.writeEntry(data, entry);
+                // Wipe the decrypted values now rather than when the stream ends
+                entry.clearFields();
+                exported++;
+            }
+            EntryArchive.writeEnd(data);
+            data.flush();
+            archive.finish();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to write the archive after {} entries", exported, e);
+            throw new RuntimeException("Failed to write the archive", e);
         }
+        log.info("Exported {} entries.", exported);
+        return exported;
     }
 
     /**
-     * Loads a single, fully-detailed Entry and decrypts it.
+     * Restores an encrypted archive with the default {@link ImportConfig}.
+     *
+     * @see #importFrom(InputStream, char[], ImportConfig, Consumer)
+     */
+    public ImportReport importFrom(InputStream in, char[] password) {
+        return importFrom(in, password, ImportConfig.defaults(), progress -> { });
+    }
+
+    /**
+     * Restores an archive written by {@link #exportTo(OutputStream, char[])}
+     * through the import pipeline (see {@link #importEntries(Iterator, ImportConfig, Consumer)}).
+     * The archive is decrypted as it is imported, and every segment is
+     * authenticated before any of its entries is read. Entries keep their id,
+     * so restoring replaces the entries of the wallet that have the same id.
+     *
+     * @param in       The archive. It is not closed.
+     * @param password The archive password.
+     * @param config   Batch size, queue capacity and encryption threads.
+     * @param progress Receives the progress after each batch, on the writer thread.
+     * @return The import report.
+     * @throws DecryptionFailedException if the password is wrong (nothing is
+     * imported) or a segment is corrupt.
+     * @throws RuntimeException if the archive is malformed, truncated or
+     * cannot be read. In these two cases the entries of the segments read
+     * before are still imported.
+     */
+    public ImportReport importFrom(InputStream in, char[] password, ImportConfig config,
+                                   Consumer<ImportProgress> progress) {
+        log.info("Importing an encrypted archive...");
+        ArchiveInputStream archive;
+        try {
+            archive = new ArchiveInputStream(in, password);
+        } catch (IOException e) {
+            log.error("Failed to open the archive", e);
+            throw new RuntimeException("Failed to open the archive", e);
+        }
+        return importEntries(EntryArchive.read(new DataInputStream(archive)), config, progress);
+    }
+
+    /**
+     * Loads a single, fully-detailed Entry and decrypts it,
+     * or returns a copy of it from the cache if enabled.
      *
      * @param id The unique ID of the entry to load.
      * @return The fully decrypted Entry, ready for editing, or an empty Optional
@@ -66,6 +303,13 @@ public final class WalletManager implements AutoCloseable{
     public Optional<Entry> loadAndDecryptEntry(String id) throws DecryptionFailedException {
         log.info("Loading and decrypting entry (ID: {})...", id);
 
+        Optional<Entry> cached = cache.get(id);
+        if (cached.isPresent()) {
+            log.debug("Entry served from cache (ID: {}).", id);
+            return cached;
+        }
+
+        long generation = cache.generation();
         Optional<Entry> encryptedEntry;
         try {
             encryptedEntry = repository.findById(id);
@@ -79,12 +323,94 @@ public final class WalletManager implements AutoCloseable{
             return Optional.empty();
         }
         log.debug("Entry found, decrypting...");
-        return encryptedEntry.map(criptor::decrypt);
+        Entry decrypted = criptor.decrypt(encryptedEntry.get());
+        // Not cached if the entry was written meanwhile: it may be stale
+        cache.put(decrypted, generation);
+        return Optional.of(decrypted);
+    }
+
+    /**
+     * Loads and decrypts many Entries at once.
+     * The entries are fetched in bulk (no query per entry) and decrypted as a
+     * batch, so callers should use this instead of looping over
+     * {@link #loadAndDecryptEntry(String)}.
+     *
+     * @param ids The unique IDs of the entries to load.
+     * @return One {@link EntryResult} per entry found, in the order of the given IDs.
+     * Entries that fail to decrypt are reported in their result; an empty list
+     * is returned if a DB error occurred.
+     */
+    public List<EntryResult> loadAndDecryptEntries(Collection<String> ids) {
+        log.info("Loading and decrypting {} entries...", ids.size());
+        List<Entry> encryptedEntries;
+        try {
+            encryptedEntries = repository.findAllByIds(ids);
+        } catch (Exception e) {
+            log.error("Failed to load entries from repository", e);
+            return List.of();
+        }
+        return decryptAll(encryptedEntries);
     }
 
     /**
-     * Loads all Entry summaries (id, description, category) for display
-     * in the main list. This data is not sensitive and needs no decryption.
+     * Loads and decrypts every Entry in the wallet.
+     * <p>
+     * This is not constant-memory: every Entry is loaded, then decrypted,
+     * before returning. Exports and audits should use {@link #streamDecrypted()}.
+     *
+     * @return One {@link EntryResult} per entry. Entries that fail to decrypt
+     * are reported in their result; an empty list is returned if a DB error occurred.
+     */
+    public List<EntryResult> loadAndDecryptAllEntries() {
+        log.info("Loading and decrypting all entries...");
+        List<Entry> encryptedEntries;
+        try {
+            encryptedEntries = repository.findAll();
+        } catch (Exception e) {
+            log.error("Failed to load entries from repository", e);
+            return List.of();
+        }
+        return decryptAll(encryptedEntries);
+    }
+
+    /**
+     * Streams every Entry in the wallet, decrypted one at a time as the
+     * stream is consumed, so exports and audits run in constant memory.
+     * Decrypted entries are not cached.
+     * <p>
+     * The stream holds a database connection: it must be closed, e.g. with
+     * try-with-resources.
+     *
+     * @return One {@link EntryResult} per entry; entries that fail to decrypt
+     * are reported in their result. An empty stream is returned if the
+     * stream could not be opened; later read errors are thrown by the stream.
+     */
+    public Stream<EntryResult> streamDecrypted() {
+        log.info("Streaming decrypted entries...");
+        Stream<Entry> encryptedEntries;
+        try {
+            encryptedEntries = repository.stream();
+        } catch (Exception e) {
+            log.error("Failed to open the entry stream", e);
+            return Stream.empty();
+        }
+        // Decrypted sequentially: a per-entry batch would pay the executor hand-off
+        // for every field. A copy is decrypted, so a failed Entry is left untouched.
+        return encryptedEntries.map(entry -> {
+            try {
+                return EntryResult.success(criptor.decrypt(entry.copy()));
+            } catch (RuntimeException e) {
+                log.warn("Entry could not be decrypted (ID: {}).", entry.getId());
+                return EntryResult.failure(entry, e);
+            }
+        });
+    }
+
+    /**
+     * Loads all Entry summaries (id, description, category) at once.
+     * This data is not sensitive and needs no decryption.
+     * Lists should prefer {@link #loadEntrySummaries(PageRequest)}, which
+     * only loads what is visible, or {@link #loadAllSummaryRecords()}.
      *
      * @return A List of all Entry summaries, an empty list in case of error
      */
@@ -98,6 +424,103 @@ public final class WalletManager implements AutoCloseable{
         }
     }
 
+    /**
+     * Loads the metadata of all Entries as immutable {@link EntrySummary}
+     * records, which take far less memory than field-less Entries.
+     *
+     * @return The summaries of all Entries, an empty list in case of error.
+     */
+    public List<EntrySummary> loadAllSummaryRecords() {
+        log.info("Loading all entry summary records...");
+        try {
+            return repository.findAllEntrySummaries();
+        } catch (Exception e) {
+            log.error("Failed to load summaries", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Loads one page of Entry summaries for display in the main list,
+     * sorted by description and optionally filtered by category.
+     * Scrolling on is done with {@link Page#next()}.
+     *
+     * @param request The page to load (e.g. {@code PageRequest.first(50)}).
+     * @return The requested page; an empty page in case of error.
+     */
+    public Page loadEntrySummaries(PageRequest request) {
+        log.debug("Loading a page of entry summaries: {}", request);
+        try {
+            return repository.findSummaries(request);
+        } catch (Exception e) {
+            log.error("Failed to load a page of summaries", e);
+            return Page.empty(request);
+        }
+    }
+
+    /**
+     * Searches Entries by description and non-sensitive field values
+     * (e.g. username or URL). Sensitive values are never searchable.
+     * The results, like summaries, need no decryption.
+     *
+     * @param query The text typed by the user; each word matches as a prefix.
+     * @param limit The maximum number of results.
+     * @return The matching Entry summaries, best match first; an empty list in case of error.
+     */
+    public List<Entry> search(String query, int limit) {
+        log.debug("Searching entries (limit: {})...", limit);
+        try {
+            return repository.search(query, limit);
+        } catch (Exception e) {
+            log.error("Failed to search entries", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Finds the Entries holding a sensitive field equal to the given value
+     * (e.g. which accounts use a given password or secret username).
+     * The value is matched through its blind index: nothing is decrypted.
+     * Values stored before blind indexes existed are only found after
+     * {@link #migrateLegacyEntries()}.
+     *
+     * @param value The plaintext value to look for.
+     * @return The matching Entry summaries; an empty list if none match, the
+     * criptor does not support blind indexes or in case of error.
+     */
+    public List<Entry> findBySecretValue(String value) {
+        log.debug("Looking up entries by secret value...");
+        try {
+            Optional<String> blindIndex = criptor.blindIndex(value);
+            if (blindIndex.isEmpty()) {
+                return List.of();
+            }
+            return repository.findByBlindIndex(blindIndex.get());
+        } catch (Exception e) {
+            log.error("Failed to look up entries by secret value", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Reports the passwords used by more than one Entry, in a single query
+     * over their blind indexes.
+     *
+     * @return One group of Entry summaries per reused password, the most
+     * reused first; an empty list in case of error.
+     */
+    public List<List<Entry>> findReusedPasswords() {
+        log.info("Looking for reused passwords...");
+        try {
+            List<List<Entry>> groups = repository.findSharedValues(FieldType.PASSWORD);
+            log.info("Found {} reused passwords.", groups.size());
+            return groups;
+        } catch (Exception e) {
+            log.error("Failed to look for reused passwords", e);
+            return List.of();
+        }
+    }
+
     /**
      * Deletes an Entry by its ID.
      *
@@ -105,17 +528,176 @@ public final class WalletManager implements AutoCloseable{
      */
     public void deleteEntry(String id) {
         log.info("Deleting entry (ID: {})...", id);
+        cache.invalidate(id);
         try {
             repository.deleteById(id);
             log.info("Entry deleted successfully (ID: {}).", id);
             //TODO: notify Observers
         } catch (Exception e) {
             log.error("Failed to delete entry (ID: {})", id, e);
+        } finally {
+            // And again after: a load that overlapped the delete must not bring it back
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * Decrypts a batch of entries, logging those that failed.
+     */
+    private List<EntryResult> decryptAll(List<Entry> encryptedEntries) {
+        List<EntryResult> results = criptor.decryptAll(encryptedEntries);
+        long failures = results.stream().filter(r -> !r.isSuccess()).count();
+        if (failures > 0) {
+            log.warn("{} of {} entries could not be decrypted.", failures, results.size());
         }
+        log.debug("Decrypted {} entries.", results.size() - failures);
+        return results;
     }
 
+    /**
+     * Re-encrypts every Entry still stored in an outdated encryption format
+     * (e.g. legacy per-field-salt payloads, or values without a blind index)
+     * with the current format.
+     * <p>
+     * Values that only need a new storage format are converted first, without
+     * being decrypted (see {@link IEntryRepository#migrateStorageFormat()}).
+     * <p>
+     * The vault is read one page at a time: the outdated Entries of a page are
+     * loaded in bulk, decrypted and encrypted as batches (in parallel, if the
+     * criptor supports it) and saved in one transaction. Each Entry is only
+     * written if it has not changed since it was read (see
+     * {@link IEntryRepository#replaceIfUnchanged(List, List)}): an Entry saved
+     * meanwhile keeps that save, and is picked up by the next run if it is
+     * still outdated. A migrated Entry is no longer outdated, so the
+     * operation can be interrupted and run again: it resumes where it stopped.
+     *
+     * @return The number of entries that were re-encrypted.
+     * @throws DecryptionFailedException if an outdated entry cannot be decrypted;
+     * the other outdated entries of its page are still migrated.
+     */
+    public int migrateLegacyEntries() throws DecryptionFailedException {
+        log.info("Migrating entries stored in outdated formats...");
+        repository.migrateStorageFormat();
+        int migrated = 0;
+        // Page through the vault instead of holding every summary at once;
+        // re-encryption does not change descriptions, so the keyset stays valid
+        Optional<PageRequest> request = Optional.of(PageRequest.first(SCAN_PAGE_SIZE));
+        while (request.isPresent()) {
+            Page page = repository.findSummaries(request.get());
+            List<String> ids = page.entries().stream().map(EntrySummary::id).toList();
+            List<Entry> outdated = repository.findAllByIds(ids).stream()
+                    .filter(criptor::requiresReEncryption)
+                    .toList();
+            if (!outdated.isEmpty()) {
+                migrated += reEncrypt(outdated);
+            }
+            request = page.next();
+        }
+        log.info("Migration completed, {} entries re-encrypted.", migrated);
+        return migrated;
+    }
+
+    /**
+     * Decrypts and encrypts again a batch of stored Entries, then saves them
+     * in one transaction, skipping those changed since they were read.
+     *
+     * @return The number of entries saved.
+     * @throws RuntimeException the first decryption failure, after the other
+     * entries of the batch have been saved, or the save failure.
+     */
+    private int reEncrypt(List<Entry> stored) {
+        RuntimeException failure = null;
+        // Decryption works in place: keep the values as read, for the check on save
+        List<Entry> read = stored.stream().map(Entry::copy).toList();
+        List<Entry> decrypted = new ArrayList<>(stored.size());
+        for (EntryResult result : criptor.decryptAll(stored)) {
+            if (result.isSuccess()) {
+                decrypted.add(result.entry());
+            } else {
+                log.error("Entry could not be decrypted for migration (ID: {}).", result.entry().getId());
+                failure = failure == null ? result.error() : failure;
+            }
+        }
+        List<Entry> encrypted = new ArrayList<>(decrypted.size());
+        for (EntryResult result : criptor.encryptAll(decrypted)) {
+            if (result.isSuccess()) {
+                encrypted.add(result.entry());
+            } else {
+                failure = failure == null ? result.error() : failure;
+            }
+        }
+        int saved = 0;
+        if (!encrypted.isEmpty()) {
+            try {
+                saved = repository.replaceIfUnchanged(read, encrypted);
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        log.debug("Re-encrypted a batch of {} entries ({} changed meanwhile).", saved, encrypted.size() - saved);
+        if (failure != null) {
+            throw failure;
+        }
+        return saved;
+    }
+
+    /**
+     * Changes the master password of the vault.
+     * <p>
+     * The sensitive fields are encrypted with the vault data key, which the
+     * master password only wraps: changing it rewrites the wrapped key, not
+     * the entries, so it takes the same time whatever the size of the vault.
+     * The only values encrypted with the password itself are those still in
+     * the legacy per-field-salt format; once the current password has been
+     * checked, they are migrated (see {@link #migrateLegacyEntries()}), so
+     * the new password can read the whole vault. If the migration is
+     * interrupted, the password is not changed and calling this method again
+     * resumes it.
+     *
+     * @param currentPassword The current master password.
+     * @param newPassword     The new master password.
+     * @throws DecryptionFailedException if {@code currentPassword} is incorrect
+     * (nothing is written then) or an outdated entry cannot be decrypted; the
+     * password is unchanged.
+     * @throws IllegalStateException if this manager was created without a key store.
+     */
+    public void changeMasterPassword(char[] currentPassword, char[] newPassword) throws DecryptionFailedException {
+        if (keyStore == null) {
+            throw new IllegalStateException("This wallet cannot change its master password: no key store");
+        }
+        log.info("Changing the master password...");
+        // Checked up front: a wrong password must not cost a vault-wide migration
+        keyStore.verify(currentPassword);
+        migrateLegacyEntries();
+        keyStore.changeMasterPassword(currentPassword, newPassword);
+        log.info("Master password changed.");
+    }
+
+    /**
+     * @return A snapshot of the decrypted-entry cache statistics
+     * (hits, misses, evictions, current size).
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Clears the decrypted-entry cache, closes the repository if it holds
+     * resources (e.g. a write-behind queue, whose pending writes are committed
+     * first), and closes the criptor, which zeroes the keys and destroys every
+     * {@link com.simonepugliese.Model.SecretValue} it decrypted, including
+     * those of the Entries returned to callers.
+     */
     @Override
     public void close() {
+        cache.clear();
+        if (repository instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) repository).close();
+            } catch (Exception e) {
+                log.warn("Errore durante la chiusura del repository", e);
+            }
+        }
         if (criptor instanceof AutoCloseable) {
             try {
                 ((AutoCloseable) criptor).close();
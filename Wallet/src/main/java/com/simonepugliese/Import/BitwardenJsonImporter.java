@@ -0,0 +1,284 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Imports an unencrypted Bitwarden JSON export.
+ * <p>
+ * Every element of the {@code items} array becomes an Entry: its
+ * {@code type} picks the category (login, secure note, card, identity),
+ * and its login, card and identity details, custom fields and notes become
+ * fields. Passwords, TOTP secrets, card numbers and codes, identity document
+ * numbers and hidden custom fields are marked sensitive. Folders,
+ * collections and password history are not imported.
+ */
+public final class BitwardenJsonImporter implements EntryImporter {
+
+    // Values of "type" for items and custom fields
+    private static final int ITEM_LOGIN = 1;
+    private static final int ITEM_SECURE_NOTE = 2;
+    private static final int ITEM_CARD = 3;
+    private static final int ITEM_IDENTITY = 4;
+    private static final int FIELD_HIDDEN = 1;
+    private static final int FIELD_LINKED = 3;
+
+    private static final Map<String, String> CARD_FIELDS = Map.of(
+            "cardholderName", "Cardholder",
+            "brand", "Brand",
+            "number", "Number",
+            "code", "Security code");
+    private static final Set<String> SENSITIVE_CARD_FIELDS = Set.of("number", "code");
+
+    private static final Map<String, String> IDENTITY_FIELDS = Map.ofEntries(
+            Map.entry("title", "Title"),
+            Map.entry("firstName", "First name"),
+            Map.entry("middleName", "Middle name"),
+            Map.entry("lastName", "Last name"),
+            Map.entry("company", "Company"),
+            Map.entry("email", "Email"),
+            Map.entry("phone", "Phone"),
+            Map.entry("username", "Username"),
+            Map.entry("address1", "Address"),
+            Map.entry("address2", "Address"),
+            Map.entry("address3", "Address"),
+            Map.entry("city", "City"),
+            Map.entry("state", "State"),
+            Map.entry("postalCode", "Postal code"),
+            Map.entry("country", "Country"),
+            Map.entry("ssn", "Social security number"),
+            Map.entry("passportNumber", "Passport number"),
+            Map.entry("licenseNumber", "License number"));
+    private static final Set<String> SENSITIVE_IDENTITY_FIELDS = Set.of("ssn", "passportNumber", "licenseNumber");
+
+    @Override
+    public Iterator<Entry> parse(Reader reader) {
+        return new ItemIterator(new JsonReader(reader));
+    }
+
+    /**
+     * Walks the {@code items} array, one item per {@link #next()}.
+     */
+    private static final class ItemIterator implements Iterator<Entry> {
+
+        private final JsonReader json;
+        private boolean started;
+        private boolean finished;
+
+        ItemIterator(JsonReader json) {
+            this.json = json;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                finished = !moveToItems();
+            }
+            if (!finished && !json.hasNext()) {
+                json.endArray();
+                finished = true;
+            }
+            return !finished;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return readItem(json);
+        }
+
+        /**
+         * Skips the top-level members up to the items array and enters it.
+         *
+         * @return false if the export has no items.
+         */
+        private boolean moveToItems() {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("encrypted") && json.peek() == JsonReader.Token.BOOLEAN) {
+                    if (json.nextBoolean()) {
+                        throw new ImportFormatException("Encrypted Bitwarden exports are not supported: "
+                                + "export the vault as unencrypted JSON");
+                    }
+                } else if (name.equals("items") && json.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                    json.beginArray();
+                    return true;
+                } else {
+                    json.skipValue();
+                }
+            }
+            return false;
+        }
+    }
+
+    private static Entry readItem(JsonReader json) {
+        EntryBuilder builder = new EntryBuilder();
+        String notes = null;
+        List<CustomField> customFields = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name" -> builder.description(json.nextString());
+                case "type" -> builder.category(category(json.nextInt()));
+                case "notes" -> notes = json.nextString();
+                case "login" -> readObjectOrNull(json, () -> readLogin(json, builder));
+                case "card" -> readObjectOrNull(json, () -> readDetails(json, builder, CARD_FIELDS, SENSITIVE_CARD_FIELDS));
+                case "identity" -> readObjectOrNull(json, () -> readDetails(json, builder, IDENTITY_FIELDS, SENSITIVE_IDENTITY_FIELDS));
+                case "fields" -> readCustomFields(json, customFields);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        // Custom fields and notes come last, whatever the order of the members
+        for (CustomField field : customFields) {
+            if (field.hidden()) {
+                builder.secret(field.name(), field.value());
+            } else {
+                builder.text(field.name(), field.value());
+            }
+        }
+        builder.note(EntryBuilder.NOTES, notes);
+        return builder.build();
+    }
+
+    private static void readLogin(JsonReader json, EntryBuilder details) {
+        String username = null;
+        String password = null;
+        String totp = null;
+        List<String> uris = new ArrayList<>();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "username" -> username = json.nextString();
+                case "password" -> password = json.nextString();
+                case "totp" -> totp = json.nextString();
+                case "uris" -> readUris(json, uris);
+                default -> json.skipValue();
+            }
+        }
+        details.text(EntryBuilder.USERNAME, username);
+        details.secret(EntryBuilder.PASSWORD, password);
+        for (String uri : uris) {
+            details.url(EntryBuilder.URL, uri);
+        }
+        details.secret(EntryBuilder.TOTP, totp);
+    }
+
+    private static void readUris(JsonReader json, List<String> uris) {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (json.nextName().equals("uri")) {
+                    uris.add(json.nextString());
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * Reads a card or identity object: its known members become fields,
+     * in the order they appear.
+     */
+    private static void readDetails(JsonReader json, EntryBuilder details,
+                                    Map<String, String> labels, Set<String> sensitive) {
+        String expMonth = null;
+        String expYear = null;
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("expMonth")) {
+                expMonth = json.nextString();
+            } else if (name.equals("expYear")) {
+                expYear = json.nextString();
+            } else if (labels.containsKey(name) && json.peek() != JsonReader.Token.BEGIN_OBJECT
+                    && json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+                String value = json.nextString();
+                if (sensitive.contains(name)) {
+                    details.secret(labels.get(name), value);
+                } else {
+                    details.text(labels.get(name), value);
+                }
+            } else {
+                json.skipValue();
+            }
+        }
+        if (expMonth != null || expYear != null) {
+            details.text("Expiry", (expMonth == null ? "" : expMonth + "/") + (expYear == null ? "" : expYear));
+        }
+    }
+
+    /**
+     * A custom field of an item.
+     */
+    private record CustomField(String name, String value, boolean hidden) {
+    }
+
+    private static void readCustomFields(JsonReader json, List<CustomField> fields) {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            String name = null;
+            String value = null;
+            int type = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> name = json.nextString();
+                    case "value" -> value = json.nextString();
+                    case "type" -> type = json.nextInt();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            // Linked fields only point to another field of the item
+            if (type != FIELD_LINKED) {
+                fields.add(new CustomField(name == null || name.isBlank() ? "Field" : name, value, type == FIELD_HIDDEN));
+            }
+        }
+        json.endArray();
+    }
+
+    private static void readObjectOrNull(JsonReader json, Runnable readMembers) {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.skipValue();
+            return;
+        }
+        json.beginObject();
+        readMembers.run();
+        json.endObject();
+    }
+
+    private static Category category(int type) {
+        return switch (type) {
+            case ITEM_LOGIN -> Category.LOGIN;
+            case ITEM_SECURE_NOTE -> Category.SECURE_NOTE;
+            case ITEM_CARD -> Category.CREDIT_CARD;
+            case ITEM_IDENTITY -> Category.IDENTITY;
+            default -> Category.GENERIC;
+        };
+    }
+}
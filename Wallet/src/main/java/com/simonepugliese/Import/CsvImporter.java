@@ -0,0 +1,330 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Imports a CSV export with a header row (RFC 4180: quoted values may hold
+ * delimiters, quotes and line breaks).
+ * <p>
+ * Columns are mapped by their header, case-insensitively, so the exports of
+ * most tools work as they are: name/title becomes the description,
+ * username, password, url/uri, totp and notes/extra become the standard
+ * fields (the {@code login_} prefix of Bitwarden is ignored), and a
+ * type/category column picks the category. Bookkeeping columns (folder,
+ * favorite...) are dropped and any other column becomes a text field named
+ * after its header.
+ */
+public final class CsvImporter implements EntryImporter {
+
+    private enum Column { DESCRIPTION, USERNAME, PASSWORD, URL, TOTP, NOTES, CATEGORY, IGNORED, OTHER }
+
+    private static final Map<String, Column> COLUMNS = Map.ofEntries(
+            Map.entry("name", Column.DESCRIPTION),
+            Map.entry("title", Column.DESCRIPTION),
+            Map.entry("description", Column.DESCRIPTION),
+            Map.entry("username", Column.USERNAME),
+            Map.entry("user", Column.USERNAME),
+            Map.entry("login", Column.USERNAME),
+            Map.entry("password", Column.PASSWORD),
+            Map.entry("url", Column.URL),
+            Map.entry("uri", Column.URL),
+            Map.entry("website", Column.URL),
+            Map.entry("totp", Column.TOTP),
+            Map.entry("otp", Column.TOTP),
+            Map.entry("notes", Column.NOTES),
+            Map.entry("note", Column.NOTES),
+            Map.entry("extra", Column.NOTES),
+            Map.entry("type", Column.CATEGORY),
+            Map.entry("category", Column.CATEGORY));
+
+    private static final Set<String> IGNORED_COLUMNS = Set.of(
+            "folder", "favorite", "fav", "reprompt", "grouping", "group",
+            "last modified", "created", "httprealm", "formactionorigin", "guid",
+            "timecreated", "timelastused", "timepasswordchanged");
+
+    // Values of a type column, as written by Bitwarden
+    private static final Map<String, Category> TYPES = Map.of(
+            "login", Category.LOGIN,
+            "note", Category.SECURE_NOTE,
+            "securenote", Category.SECURE_NOTE,
+            "card", Category.CREDIT_CARD,
+            "identity", Category.IDENTITY);
+
+    private final char delimiter;
+
+    /**
+     * Creates an importer for comma-separated files.
+     */
+    public CsvImporter() {
+        this(',');
+    }
+
+    /**
+     * @param delimiter The value delimiter (e.g. ';' for files from spreadsheets in some locales).
+     */
+    public CsvImporter(char delimiter) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public Iterator<Entry> parse(Reader reader) {
+        return new RowIterator(new CsvReader(reader, delimiter));
+    }
+
+    /**
+     * Maps one row per {@link #next()}, the header being read first.
+     */
+    private static final class RowIterator implements Iterator<Entry> {
+
+        private final CsvReader csv;
+        private List<String> headers;
+        private Column[] columns;
+        private List<String> row;
+
+        RowIterator(CsvReader csv) {
+            this.csv = csv;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (columns == null) {
+                readHeader();
+            }
+            while (row == null) {
+                List<String> values = csv.readRecord();
+                if (values == null) {
+                    return false;
+                }
+                if (!isBlank(values)) {
+                    row = values;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<String> values = row;
+            row = null;
+            return toEntry(values);
+        }
+
+        private void readHeader() {
+            headers = csv.readRecord();
+            if (headers == null) {
+                headers = List.of();
+            }
+            columns = new Column[headers.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = column(headers.get(i));
+            }
+        }
+
+        private Entry toEntry(List<String> values) {
+            if (values.size() > columns.length) {
+                throw new ImportFormatException("Row with " + values.size() + " values for "
+                        + columns.length + " columns (CSV, line " + csv.recordLine() + ")");
+            }
+            EntryBuilder builder = new EntryBuilder();
+            String username = null;
+            String password = null;
+            String url = null;
+            String totp = null;
+            String notes = null;
+            List<Integer> others = new ArrayList<>();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                switch (columns[i]) {
+                    case DESCRIPTION -> builder.description(value);
+                    case USERNAME -> username = value;
+                    case PASSWORD -> password = value;
+                    case URL -> url = value;
+                    case TOTP -> totp = value;
+                    case NOTES -> notes = value;
+                    case CATEGORY -> builder.category(category(value));
+                    case OTHER -> others.add(i);
+                    case IGNORED -> {
+                    }
+                }
+            }
+            builder.text(EntryBuilder.USERNAME, username)
+                    .secret(EntryBuilder.PASSWORD, password)
+                    .url(EntryBuilder.URL, url)
+                    .secret(EntryBuilder.TOTP, totp);
+            for (int i : others) {
+                builder.text(headers.get(i).strip(), values.get(i));
+            }
+            builder.note(EntryBuilder.NOTES, notes);
+            return builder.build();
+        }
+    }
+
+    private static Column column(String header) {
+        String key = header.strip().toLowerCase(Locale.ROOT);
+        if (key.startsWith("login_")) {
+            key = key.substring("login_".length());
+        }
+        if (key.isEmpty() || IGNORED_COLUMNS.contains(key)) {
+            return Column.IGNORED;
+        }
+        return COLUMNS.getOrDefault(key, Column.OTHER);
+    }
+
+    /**
+     * @return The category named by a type column, or null to infer it.
+     */
+    private static Category category(String value) {
+        String key = value.strip().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+        Category category = TYPES.get(key);
+        if (category != null) {
+            return category;
+        }
+        for (Category candidate : Category.values()) {
+            if (candidate.name().replace("_", "").equalsIgnoreCase(key)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(List<String> values) {
+        for (String value : values) {
+            if (!value.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads CSV records one at a time from a buffered {@link Reader}.
+     */
+    private static final class CsvReader {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final Reader in;
+        private final char delimiter;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int pos;
+        private int limit;
+        private int line = 1;
+        private int recordLine;
+        private boolean started;
+
+        private final StringBuilder value = new StringBuilder();
+
+        CsvReader(Reader in, char delimiter) {
+            this.in = in;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * @return The values of the next record, or null at the end of the input.
+         */
+        List<String> readRecord() {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> values = new ArrayList<>();
+            while (true) {
+                value.setLength(0);
+                if (c == '"') {
+                    c = readQuoted();
+                }
+                // Also keeps what follows a closing quote, as spreadsheets do
+                while (c != delimiter && c != '\n' && c != '\r' && c != -1) {
+                    value.append((char) c);
+                    c = read();
+                }
+                values.add(value.toString());
+                if (c == delimiter) {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r') {
+                    // CRLF or a lone CR
+                    c = read();
+                    if (c != '\n' && c != -1) {
+                        pos--;
+                    }
+                }
+                return values;
+            }
+        }
+
+        /**
+         * @return The line the last record started on, for error messages.
+         */
+        int recordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Reads a quoted value whose opening quote has already been read.
+         *
+         * @return The character after the closing quote.
+         */
+        private int readQuoted() {
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new ImportFormatException("Unterminated quoted value (CSV, line " + recordLine + ")");
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        return c;
+                    }
+                }
+                value.append((char) c);
+            }
+        }
+
+        private int read() {
+            if (pos == limit) {
+                try {
+                    int n = in.read(buffer, 0, buffer.length);
+                    if (n <= 0) {
+                        return -1;
+                    }
+                    pos = 0;
+                    limit = n;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read the export", e);
+                }
+            }
+            char c = buffer[pos++];
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Assembles an imported Entry, shared by the importers.
+ * <p>
+ * Blank values are dropped, and a field whose name is already taken gets
+ * a numbered name ("URL 2") instead of replacing the first one.
+ */
+final class EntryBuilder {
+
+    // Names of the fields every importer maps to
+    static final String USERNAME = "Username";
+    static final String PASSWORD = "Password";
+    static final String URL = "URL";
+    static final String NOTES = "Notes";
+    static final String TOTP = "TOTP";
+
+    static final String UNTITLED = "Untitled";
+
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    private String description;
+    private Category category;
+
+    EntryBuilder description(String description) {
+        this.description = description;
+        return this;
+    }
+
+    EntryBuilder category(Category category) {
+        this.category = category;
+        return this;
+    }
+
+    EntryBuilder text(String name, String value) {
+        return field(name, value, FieldType.TEXT, false);
+    }
+
+    EntryBuilder secret(String name, String value) {
+        return field(name, value, FieldType.PASSWORD, true);
+    }
+
+    EntryBuilder url(String name, String value) {
+        return field(name, value, FieldType.URL, false);
+    }
+
+    EntryBuilder note(String name, String value) {
+        return field(name, value, FieldType.NOTE, false);
+    }
+
+    EntryBuilder field(String name, String value, FieldType type, boolean sensitive) {
+        if (value == null || value.isBlank()) {
+            return this;
+        }
+        String unique = name;
+        for (int n = 2; fields.containsKey(unique); n++) {
+            unique = name + " " + n;
+        }
+        fields.put(unique, new Field(value, type, sensitive));
+        return this;
+    }
+
+    /**
+     * @return The Entry. Without an explicit category, it is a LOGIN if it has
+     * credentials or a URL, a SECURE_NOTE if it only has notes, GENERIC otherwise.
+     */
+    Entry build() {
+        String name = description == null || description.isBlank() ? UNTITLED : description.strip();
+        Entry entry = new Entry(name, category != null ? category : inferCategory());
+        fields.forEach(entry::putField);
+        return entry;
+    }
+
+    private Category inferCategory() {
+        boolean notesOnly = !fields.isEmpty();
+        for (Field field : fields.values()) {
+            if (field.getType() == FieldType.PASSWORD || field.getType() == FieldType.URL) {
+                return Category.LOGIN;
+            }
+            notesOnly &= field.getType() == FieldType.NOTE;
+        }
+        if (fields.containsKey(USERNAME)) {
+            return Category.LOGIN;
+        }
+        return notesOnly ? Category.SECURE_NOTE : Category.GENERIC;
+    }
+}
@@ -0,0 +1,28 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Entry;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Parses the export of another password manager into plaintext Entries.
+ * <p>
+ * Parsing is incremental: each call to {@link Iterator#next()} reads just
+ * enough of the input for one Entry, so exports of any size can be fed to
+ * {@link com.simonepugliese.Core.WalletManager#importEntries(Iterator)}
+ * without being loaded in memory.
+ */
+public interface EntryImporter {
+
+    /**
+     * Starts parsing an export.
+     *
+     * @param reader The export content. It is owned by the caller, who must
+     *               close it once the iterator is no longer used.
+     * @return The Entries of the export, in file order. Its methods throw
+     * {@link ImportFormatException} if the content is malformed, and
+     * {@link java.io.UncheckedIOException} if the reader fails.
+     */
+    Iterator<Entry> parse(Reader reader);
+}
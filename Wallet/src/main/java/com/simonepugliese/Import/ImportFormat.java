@@ -0,0 +1,37 @@
+package com.simonepugliese.Import;
+
+import java.util.function.Supplier;
+
+/**
+ * The export formats that can be imported.
+ */
+public enum ImportFormat {
+    /**
+     * An unencrypted Bitwarden JSON export.
+     */
+    BITWARDEN_JSON(BitwardenJsonImporter::new),
+
+    /**
+     * A KeePass 2 XML export (KeePass, KeePassXC).
+     */
+    KEEPASS_XML(KeePassXmlImporter::new),
+
+    /**
+     * A comma-separated file with a header row (Bitwarden, LastPass,
+     * Chrome, Firefox, KeePassXC and most other tools).
+     */
+    CSV(CsvImporter::new);
+
+    private final Supplier<EntryImporter> factory;
+
+    ImportFormat(Supplier<EntryImporter> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return A new importer for this format, with its default settings.
+     */
+    public EntryImporter newImporter() {
+        return factory.get();
+    }
+}
@@ -0,0 +1,26 @@
+package com.simonepugliese.Import;
+
+/**
+ * A runtime exception thrown when an export file cannot be parsed
+ * (malformed content or an unsupported variant of the format).
+ * <p>
+ * It is unchecked because importers report it from {@link java.util.Iterator#next()},
+ * which cannot throw checked exceptions.
+ */
+public class ImportFormatException extends RuntimeException {
+
+    /**
+     * @param message The detail message, including where the problem was found.
+     */
+    public ImportFormatException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message The detail message, including where the problem was found.
+     * @param cause   The underlying parser error.
+     */
+    public ImportFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
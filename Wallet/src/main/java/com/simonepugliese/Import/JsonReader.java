@@ -0,0 +1,395 @@
+package com.simonepugliese.Import;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * A minimal pull parser for JSON (RFC 8259), reading one token at a time
+ * from a {@link Reader}, so that large exports are never held in memory.
+ * <p>
+ * The API follows the usual streaming readers: {@link #peek()} the next
+ * token, then consume it with the matching method, e.g.
+ * {@link #beginObject()}, {@link #nextName()}, {@link #nextString()} or
+ * {@link #skipValue()}. Errors are reported as {@link ImportFormatException}
+ * with the line they were found on.
+ * <p>
+ * This class is package-private and not thread-safe.
+ */
+final class JsonReader {
+
+    /**
+     * The kinds of token.
+     */
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // What the reader expects next in each open container
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private int line = 1;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+
+    // The peeked token and, for names, strings, numbers and booleans, its text
+    private Token peeked;
+    private String peekedText;
+
+    private final StringBuilder text = new StringBuilder();
+
+    JsonReader(Reader in) {
+        this.in = in;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * @return The next token, without consuming it.
+     */
+    Token peek() {
+        if (peeked != null) {
+            return peeked;
+        }
+        int top = stack[stackSize - 1];
+        switch (top) {
+            case EMPTY_DOCUMENT -> {
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                readValue(nextNonWhitespace());
+            }
+            case NONEMPTY_DOCUMENT -> {
+                int c = nextNonWhitespace();
+                if (c != -1) {
+                    throw syntaxError("Unexpected content after the end of the document");
+                }
+                peeked = Token.END_DOCUMENT;
+            }
+            case EMPTY_ARRAY, NONEMPTY_ARRAY -> {
+                int c = nextNonWhitespace();
+                if (c == ']') {
+                    peeked = Token.END_ARRAY;
+                } else if (top == EMPTY_ARRAY) {
+                    stack[stackSize - 1] = NONEMPTY_ARRAY;
+                    readValue(c);
+                } else if (c == ',') {
+                    readValue(nextNonWhitespace());
+                } else {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    peeked = Token.END_OBJECT;
+                    break;
+                }
+                if (top == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                stack[stackSize - 1] = DANGLING_NAME;
+                peekedText = readString();
+                peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                readValue(nextNonWhitespace());
+            }
+            default -> throw new IllegalStateException("Unknown scope " + top);
+        }
+        return peeked;
+    }
+
+    void beginObject() {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    void endObject() {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    void beginArray() {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    void endArray() {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * @return true if the current object or array has more elements.
+     */
+    boolean hasNext() {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    String nextName() {
+        expect(Token.NAME);
+        return peekedText;
+    }
+
+    /**
+     * @return The next string, number or boolean as text, or null for a JSON null.
+     */
+    String nextString() {
+        Token token = peek();
+        switch (token) {
+            case STRING, NUMBER, BOOLEAN -> {
+                peeked = null;
+                return peekedText;
+            }
+            case NULL -> {
+                peeked = null;
+                return null;
+            }
+            default -> throw syntaxError("Expected a string but was " + token);
+        }
+    }
+
+    /**
+     * @return The next value as an int.
+     */
+    int nextInt() {
+        String value = nextString();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + value);
+        }
+    }
+
+    boolean nextBoolean() {
+        Token token = peek();
+        if (token != Token.BOOLEAN) {
+            throw syntaxError("Expected a boolean but was " + token);
+        }
+        peeked = null;
+        return Boolean.parseBoolean(peekedText);
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays.
+     */
+    void skipValue() {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    depth++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    depth--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    depth--;
+                }
+                case END_DOCUMENT -> throw syntaxError("Unexpected end of document");
+                default -> peeked = null;
+            }
+        } while (depth > 0);
+    }
+
+    private void expect(Token expected) {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Reads the value starting with {@code c} into the peeked token.
+     */
+    private void readValue(int c) {
+        switch (c) {
+            case '{' -> peeked = Token.BEGIN_OBJECT;
+            case '[' -> peeked = Token.BEGIN_ARRAY;
+            case '"' -> {
+                peekedText = readString();
+                peeked = Token.STRING;
+            }
+            case 't' -> readLiteral("true", Token.BOOLEAN);
+            case 'f' -> readLiteral("false", Token.BOOLEAN);
+            case 'n' -> readLiteral("null", Token.NULL);
+            case -1 -> throw syntaxError("Unexpected end of document");
+            default -> {
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw syntaxError("Unexpected character '" + (char) c + "'");
+                }
+                peekedText = readNumber(c);
+                peeked = Token.NUMBER;
+            }
+        }
+    }
+
+    private void readLiteral(String literal, Token token) {
+        // The first character has already been read
+        for (int i = 1; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw syntaxError("Expected '" + literal + "'");
+            }
+        }
+        peekedText = literal;
+        peeked = token;
+    }
+
+    private String readNumber(int first) {
+        text.setLength(0);
+        text.append((char) first);
+        while (true) {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append((char) c);
+            } else {
+                unread(c);
+                return text.toString();
+            }
+        }
+    }
+
+    /**
+     * Reads a string whose opening quote has already been read.
+     */
+    private String readString() {
+        text.setLength(0);
+        while (true) {
+            // Copy unescaped runs straight from the buffer
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\' || c == '\n') {
+                    break;
+                }
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            int c = read();
+            switch (c) {
+                case '"' -> {
+                    return text.toString();
+                }
+                case '\\' -> text.append(readEscape());
+                case '\n' -> text.append('\n');
+                case -1 -> throw syntaxError("Unterminated string");
+                default -> text.append((char) c);
+            }
+        }
+    }
+
+    private char readEscape() {
+        int c = read();
+        return switch (c) {
+            case '"', '\\', '/' -> (char) c;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    code = code * 16 + digit;
+                }
+                yield (char) code;
+            }
+            default -> throw syntaxError("Invalid escape sequence");
+        };
+    }
+
+    private int nextNonWhitespace() {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != '\uFEFF') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * @return The next character, or -1 at the end of the input.
+     */
+    private int read() {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[pos++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /**
+     * Steps back over the character just returned by {@link #read()}.
+     */
+    private void unread(int c) {
+        if (c != -1) {
+            pos--;
+            if (c == '\n') {
+                line--;
+            }
+        }
+    }
+
+    private boolean fill() {
+        try {
+            int n = in.read(buffer, 0, buffer.length);
+            if (n <= 0) {
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the export", e);
+        }
+    }
+
+    private ImportFormatException syntaxError(String message) {
+        return new ImportFormatException(message + " (JSON, line " + line + ")");
+    }
+}
@@ -0,0 +1,200 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Entry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Imports a KeePass 2 XML export (as written by KeePass and KeePassXC).
+ * <p>
+ * The file is read with a StAX cursor, so only the current Entry is held in
+ * memory. Each {@code <Entry>} becomes an Entry: its Title is the
+ * description, and its UserName, Password, URL and Notes strings map to the
+ * standard fields. Custom strings keep their key, and are sensitive when
+ * KeePass protects them in memory. Entry history and attachments are not
+ * imported, nor are the entries of the recycle bin.
+ */
+public final class KeePassXmlImporter implements EntryImporter {
+
+    @Override
+    public Iterator<Entry> parse(Reader reader) {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // An export never needs a DTD: refusing it also rules out XXE attacks
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            return new EntryIterator(factory.createXMLStreamReader(reader));
+        } catch (XMLStreamException e) {
+            throw formatError(e);
+        }
+    }
+
+    /**
+     * Moves the XML cursor from one {@code <Entry>} to the next.
+     */
+    private static final class EntryIterator implements Iterator<Entry> {
+
+        private final XMLStreamReader xml;
+        // UUIDs of the groups enclosing the cursor
+        private final List<String> groups = new ArrayList<>();
+        private String recycleBinUuid;
+        private Entry next;
+        private boolean finished;
+
+        EntryIterator(XMLStreamReader xml) {
+            this.xml = xml;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = advance();
+                } catch (XMLStreamException e) {
+                    throw formatError(e);
+                }
+                finished = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = next;
+            next = null;
+            return entry;
+        }
+
+        /**
+         * @return The next Entry outside the recycle bin, or null at the end of the file.
+         */
+        private Entry advance() throws XMLStreamException {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        // In the Meta element, before any group
+                        case "RecycleBinUUID" -> recycleBinUuid = xml.getElementText();
+                        case "Group" -> groups.add("");
+                        // The group UUID precedes its entries and subgroups
+                        case "UUID" -> {
+                            if (!groups.isEmpty() && groups.get(groups.size() - 1).isEmpty()) {
+                                groups.set(groups.size() - 1, xml.getElementText());
+                            }
+                        }
+                        case "Entry" -> {
+                            Entry entry = readEntry(xml);
+                            if (recycleBinUuid == null || !groups.contains(recycleBinUuid)) {
+                                return entry;
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("Group")) {
+                    groups.remove(groups.size() - 1);
+                }
+            }
+            xml.close();
+            return null;
+        }
+    }
+
+    /**
+     * A custom string of an Entry.
+     */
+    private record CustomString(String key, String value, boolean protectInMemory) {
+    }
+
+    /**
+     * Reads an {@code <Entry>} element, the cursor being on its start tag.
+     */
+    private static Entry readEntry(XMLStreamReader xml) throws XMLStreamException {
+        EntryBuilder builder = new EntryBuilder();
+        String username = null;
+        String password = null;
+        String url = null;
+        String notes = null;
+        List<CustomString> custom = new ArrayList<>();
+
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!xml.getLocalName().equals("String")) {
+                // History, Times, AutoType, Binary...: not imported
+                skipElement(xml);
+                continue;
+            }
+            String key = null;
+            String value = null;
+            boolean protectedValue = false;
+            while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (xml.getLocalName().equals("Key")) {
+                    key = xml.getElementText();
+                } else if (xml.getLocalName().equals("Value")) {
+                    if ("True".equalsIgnoreCase(xml.getAttributeValue(null, "Protected"))) {
+                        throw new ImportFormatException("Protected values are not supported (KeePass XML, line "
+                                + xml.getLocation().getLineNumber() + "): export the database as plain XML");
+                    }
+                    protectedValue = "True".equalsIgnoreCase(xml.getAttributeValue(null, "ProtectInMemory"));
+                    value = xml.getElementText();
+                } else {
+                    skipElement(xml);
+                }
+            }
+            if (key == null) {
+                continue;
+            }
+            switch (key) {
+                case "Title" -> builder.description(value);
+                case "UserName" -> username = value;
+                case "Password" -> password = value;
+                case "URL" -> url = value;
+                case "Notes" -> notes = value;
+                default -> custom.add(new CustomString(key, value, protectedValue));
+            }
+        }
+
+        builder.text(EntryBuilder.USERNAME, username)
+                .secret(EntryBuilder.PASSWORD, password)
+                .url(EntryBuilder.URL, url);
+        for (CustomString field : custom) {
+            if (field.protectInMemory()) {
+                builder.secret(field.key(), field.value());
+            } else {
+                builder.text(field.key(), field.value());
+            }
+        }
+        builder.note(EntryBuilder.NOTES, notes);
+        return builder.build();
+    }
+
+    /**
+     * Skips the current element and its content, leaving the cursor on its end tag.
+     */
+    private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static ImportFormatException formatError(XMLStreamException e) {
+        String where = e.getLocation() == null ? "" : ", line " + e.getLocation().getLineNumber();
+        return new ImportFormatException("Malformed export (KeePass XML" + where + ")", e);
+    }
+}
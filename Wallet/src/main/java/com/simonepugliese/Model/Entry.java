@@ -156,4 +156,29 @@ public final class Entry { // 'final' prevents inheritance
     public Map<String, Field> getFields() {
         return Collections.unmodifiableMap(this.fields);
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a deep copy of this entry: same ID and metadata, and a copy of
+     * every field in the same order. Changes to the copy do not affect this entry.
+     *
+     * @return A new, independent Entry.
+     */
+    public Entry copy() {
+        Entry copy = new Entry(id, description, category);
+        for (Map.Entry<String, Field> field : fields.entrySet()) {
+            copy.fields.put(field.getKey(), field.getValue().copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Drops the values of all fields and removes them, so that this entry no
+     * longer references any (possibly decrypted) data. Secrets are destroyed.
+     */
+    public void clearFields() {
+        for (Field field : fields.values()) {
+            field.setValue(null);
+        }
+        fields.clear();
+    }
+}
@@ -0,0 +1,36 @@
+package com.simonepugliese.Model;
+
+import java.util.Objects;
+
+/**
+ * Immutable, read-only view of an {@link Entry}'s metadata (id, description,
+ * category), used to populate lists.
+ * <p>
+ * Unlike a field-less Entry it carries no field map and no mutable state:
+ * three references per entry, the category being one of the shared
+ * {@link Category} constants. Loading 100k summaries therefore allocates
+ * little more than their id and description strings.
+ *
+ * @param id          The unique identifier of the Entry.
+ * @param description The user-friendly display name.
+ * @param category    The category of the Entry.
+ */
+public record EntrySummary(String id, String description, Category category) {
+
+    /**
+     * Validates the summary values.
+     */
+    public EntrySummary {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(description, "description");
+        Objects.requireNonNull(category, "category");
+    }
+
+    /**
+     * @param entry The Entry to summarize.
+     * @return The summary of the Entry's current metadata.
+     */
+    public static EntrySummary of(Entry entry) {
+        return new EntrySummary(entry.getId(), entry.getDescription(), entry.getCategory());
+    }
+}
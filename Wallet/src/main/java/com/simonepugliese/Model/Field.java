@@ -6,6 +6,13 @@ package com.simonepugliese.Model;
  * This class holds the value, type, and sensitivity, but not the name
  * (e.g., "Username"), as the name will be used as the key in the
  * {@link Entry}'s field map.
+ * <p>
+ * The decrypted value of a sensitive field is held as a {@link SecretValue},
+ * which the field owns: it is destroyed when the value is replaced or
+ * cleared. The encrypted value of a sensitive field is held as its
+ * ciphertext, a binary payload. Otherwise the value is a String (plaintext,
+ * or a sensitive value stored in one of the older text formats).
+ * A field holds one of the three at a time: setting one clears the others.
  */
 public final class Field { // 'final' prevents inheritance
 
@@ -15,6 +22,18 @@ public final class Field { // 'final' prevents inheritance
      */
     private String value;
 
+    /**
+     * The plaintext value of a sensitive field, when held as a secret.
+     * Null when the value is held as a String.
+     */
+    private SecretValue secret;
+
+    /**
+     * The encrypted value of a sensitive field, as produced by the Criptor
+     * and stored by the repository. Null when the value is not held encrypted.
+     */
+    private byte[] ciphertext;
+
     /**
      * The semantic type of the field, guiding UI representation.
      */
@@ -26,6 +45,13 @@ public final class Field { // 'final' prevents inheritance
      */
     private boolean sensitive;
 
+    /**
+     * Keyed hash of the plaintext value of a sensitive field, set by the
+     * Criptor when encrypting. It lets the repository find equal values
+     * without decrypting them. Null for non-sensitive or empty fields.
+     */
+    private String blindIndex;
+
     /**
      * Constructs a new Field.
      *
@@ -39,21 +65,37 @@ public final class Field { // 'final' prevents inheritance
         this.sensitive = sensitive;
     }
 
+    /**
+     * Constructs a new sensitive Field holding a secret.
+     *
+     * @param secret The plaintext value. The field takes ownership of it.
+     * @param type   The {@link FieldType} (e.g., PASSWORD).
+     */
+    public Field(SecretValue secret, FieldType type) {
+        this.secret = secret;
+        this.type = type;
+        this.sensitive = true;
+    }
+
     /**
      * Gets the field's value.
      * <p>
      * Note: If this field was loaded from persistence and is sensitive,
-     * this will return the *encrypted* value until it is processed by
-     * a Criptor.
+     * its value is held as a ciphertext until it is processed by a Criptor,
+     * and this returns null (or, for values stored in an older text format,
+     * the encrypted text).
+     * <p>
+     * If the value is held as a {@link SecretValue}, a new String is created
+     * from it, which cannot be wiped: prefer {@link #getSecret()}.
      *
      * @return The raw string value.
      */
     public String getValue() {
-        return value;
+        return secret != null ? secret.reveal() : value;
     }
 
     /**
-     * Sets the field's value.
+     * Sets the field's value, destroying the secret it held, if any.
      * <p>
      * This method is intentionally public to be used by the Criptor
      * strategies (to set the encrypted/decrypted value) and the UI.
@@ -61,7 +103,52 @@ public final class Field { // 'final' prevents inheritance
      * @param value The new raw string value.
      */
     public void setValue(String value) {
+        destroySecret();
         this.value = value;
+        this.ciphertext = null;
+    }
+
+    /**
+     * @return The plaintext value held as a secret (e.g. after decryption),
+     * or null if the value is held as a String or a ciphertext.
+     */
+    public SecretValue getSecret() {
+        return secret;
+    }
+
+    /**
+     * Sets the field's value as a secret, destroying the one it held, if any.
+     *
+     * @param secret The plaintext value. The field takes ownership of it.
+     */
+    public void setSecret(SecretValue secret) {
+        if (secret != this.secret) {
+            destroySecret();
+        }
+        this.secret = secret;
+        this.value = null;
+        this.ciphertext = null;
+    }
+
+    /**
+     * @return The encrypted value (not a copy), or null if the value is not
+     * held encrypted.
+     */
+    public byte[] getCiphertext() {
+        return ciphertext;
+    }
+
+    /**
+     * Sets the field's value as a ciphertext, destroying the secret it held, if any.
+     * <p>
+     * This method is intended for the Criptor strategies and the repository.
+     *
+     * @param ciphertext The encrypted value. The field keeps the array as it is.
+     */
+    public void setCiphertext(byte[] ciphertext) {
+        destroySecret();
+        this.value = null;
+        this.ciphertext = ciphertext;
     }
 
     /**
@@ -95,4 +182,41 @@ public final class Field { // 'final' prevents inheritance
     public void setSensitive(boolean sensitive) {
         this.sensitive = sensitive;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The blind index of the value, or null if it has none.
+     */
+    public String getBlindIndex() {
+        return blindIndex;
+    }
+
+    /**
+     * Sets the blind index of the value.
+     * <p>
+     * This method is intended for the Criptor strategies and the repository.
+     *
+     * @param blindIndex The keyed hash of the plaintext value, or null.
+     */
+    public void setBlindIndex(String blindIndex) {
+        this.blindIndex = blindIndex;
+    }
+
+    /**
+     * @return A new Field with the same value (a secret or a ciphertext is
+     * copied), type, sensitivity and blind index.
+     */
+    public Field copy() {
+        Field copy = new Field(value, type, sensitive);
+        copy.secret = secret == null ? null : secret.copy();
+        copy.ciphertext = ciphertext == null ? null : ciphertext.clone();
+        copy.blindIndex = blindIndex;
+        return copy;
+    }
+
+    private void destroySecret() {
+        if (secret != null) {
+            secret.destroy();
+            secret = null;
+        }
+    }
+}
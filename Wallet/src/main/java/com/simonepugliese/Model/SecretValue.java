@@ -0,0 +1,294 @@
+package com.simonepugliese.Model;
+
+import javax.security.auth.Destroyable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The plaintext value of a sensitive {@link Field}, held as UTF-8 bytes
+ * that can be wiped.
+ * <p>
+ * A String cannot be erased: a decrypted password kept as a String stays in
+ * the heap until the garbage collector reclaims it, and every conversion
+ * leaves another copy. A SecretValue is decrypted straight into its own
+ * buffer, encrypted straight from it, and {@link #destroy()} zeroes it.
+ * Creating a String from it ({@link #reveal()}) should be left to the
+ * places that really need one, e.g. a text field of the UI.
+ * <p>
+ * The secrets created by a {@link Scope} (e.g. by a criptor, while
+ * decrypting) are all destroyed when the scope is closed, even if they are
+ * still referenced elsewhere. A SecretValue must not be destroyed while
+ * another thread reads it.
+ */
+public final class SecretValue implements Destroyable {
+
+    private final byte[] utf8;
+    private final Scope scope;
+    private final Reference<SecretValue> registration;
+    private volatile boolean destroyed;
+
+    private SecretValue(byte[] utf8, Scope scope) {
+        this.utf8 = utf8;
+        this.scope = scope;
+        this.registration = scope == null ? null : scope.register(this);
+    }
+
+    /**
+     * Creates a secret from a String, e.g. one typed in the UI.
+     * The String itself cannot be wiped.
+     *
+     * @param value The plaintext value.
+     * @return A new secret, not tracked by any scope.
+     */
+    public static SecretValue of(String value) {
+        return new SecretValue(value.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * Creates a secret from characters, e.g. those of a password field.
+     * The characters are copied, so the caller should wipe its own array.
+     *
+     * @param value The plaintext value.
+     * @return A new secret, not tracked by any scope.
+     */
+    public static SecretValue of(char[] value) {
+        return new SecretValue(encode(value), null);
+    }
+
+    /**
+     * Creates a secret that takes ownership of a buffer, without copying it.
+     * The caller must not use the array afterwards.
+     *
+     * @param utf8 The UTF-8 bytes of the plaintext value.
+     * @return A new secret, not tracked by any scope.
+     */
+    public static SecretValue wrap(byte[] utf8) {
+        return new SecretValue(utf8, null);
+    }
+
+    /**
+     * Passes the UTF-8 bytes of the value to a function, without copying them.
+     * The array is the buffer of this secret: the function must not modify
+     * it nor keep a reference to it.
+     *
+     * @param reader The function reading the bytes.
+     * @return The result of the function.
+     * @throws IllegalStateException if the secret has been destroyed.
+     */
+    public <R> R read(Function<byte[], R> reader) {
+        checkNotDestroyed();
+        return reader.apply(utf8);
+    }
+
+    /**
+     * Writes the UTF-8 bytes of the value to a stream, without copying them.
+     *
+     * @param out The stream. It is not closed.
+     * @throws IOException if the stream cannot be written.
+     * @throws IllegalStateException if the secret has been destroyed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        checkNotDestroyed();
+        out.write(utf8);
+    }
+
+    /**
+     * @return The value as a new String, which cannot be wiped.
+     * @throws IllegalStateException if the secret has been destroyed.
+     */
+    public String reveal() {
+        checkNotDestroyed();
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The value as a new char array, which the caller should wipe.
+     * @throws IllegalStateException if the secret has been destroyed.
+     */
+    public char[] toChars() {
+        checkNotDestroyed();
+        CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(utf8));
+        try {
+            return Arrays.copyOf(chars.array(), chars.limit());
+        } finally {
+            Arrays.fill(chars.array(), '\0');
+        }
+    }
+
+    /**
+     * @return The length of the value in UTF-8 bytes.
+     */
+    public int byteLength() {
+        return utf8.length;
+    }
+
+    /**
+     * @return True if the value is empty.
+     */
+    public boolean isEmpty() {
+        return utf8.length == 0;
+    }
+
+    /**
+     * Compares two secrets in constant time.
+     *
+     * @param other The other secret.
+     * @return True if both hold the same value.
+     * @throws IllegalStateException if either secret has been destroyed.
+     */
+    public boolean contentEquals(SecretValue other) {
+        checkNotDestroyed();
+        other.checkNotDestroyed();
+        return MessageDigest.isEqual(utf8, other.utf8);
+    }
+
+    /**
+     * @return A new secret with the same value, in a buffer of its own,
+     * tracked by the same scope as this one.
+     * @throws IllegalStateException if the secret has been destroyed.
+     */
+    public SecretValue copy() {
+        checkNotDestroyed();
+        return new SecretValue(utf8.clone(), scope);
+    }
+
+    /**
+     * Zeroes the value. The secret cannot be read afterwards.
+     * Destroying a secret twice has no effect.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(utf8, (byte) 0);
+        if (registration != null) {
+            scope.unregister(registration);
+        }
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Never shows the value, so that secrets do not end up in logs.
+     */
+    @Override
+    public String toString() {
+        return destroyed ? "SecretValue[destroyed]" : "SecretValue[" + utf8.length + " bytes]";
+    }
+
+    private void checkNotDestroyed() {
+        if (destroyed) {
+            throw new IllegalStateException("Secret value has been destroyed");
+        }
+    }
+
+    private static byte[] encode(char[] value) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(value));
+        try {
+            return Arrays.copyOf(bytes.array(), bytes.limit());
+        } finally {
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+    }
+
+    /**
+     * Tracks the secrets it creates, and their copies, so that closing it
+     * destroys those still alive. Secrets that become unreachable before are
+     * only weakly referenced, and forgotten.
+     * <p>
+     * This class is thread-safe.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Set<Reference<SecretValue>> live = ConcurrentHashMap.newKeySet();
+        private final ReferenceQueue<SecretValue> collected = new ReferenceQueue<>();
+        private volatile boolean closed;
+
+        /**
+         * Creates a secret tracked by this scope that takes ownership of a
+         * buffer, without copying it (see {@link SecretValue#wrap(byte[])}).
+         *
+         * @param utf8 The UTF-8 bytes of the plaintext value.
+         * @return A new secret.
+         * @throws IllegalStateException if the scope is closed; the buffer is then wiped.
+         */
+        public SecretValue wrap(byte[] utf8) {
+            return new SecretValue(utf8, this);
+        }
+
+        /**
+         * Creates a secret tracked by this scope from a String
+         * (see {@link SecretValue#of(String)}).
+         *
+         * @param value The plaintext value.
+         * @return A new secret.
+         * @throws IllegalStateException if the scope is closed.
+         */
+        public SecretValue of(String value) {
+            return new SecretValue(value.getBytes(StandardCharsets.UTF_8), this);
+        }
+
+        /**
+         * @return The number of tracked secrets not yet destroyed, including
+         * unreachable ones not yet reclaimed.
+         */
+        public int size() {
+            expunge();
+            return live.size();
+        }
+
+        /**
+         * Destroys every tracked secret still alive. Secrets can no longer be
+         * created by this scope.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            for (Reference<SecretValue> reference : live) {
+                SecretValue secret = reference.get();
+                if (secret != null) {
+                    secret.destroy();
+                }
+            }
+            live.clear();
+        }
+
+        private Reference<SecretValue> register(SecretValue secret) {
+            expunge();
+            Reference<SecretValue> reference = new WeakReference<>(secret, collected);
+            if (!closed) {
+                live.add(reference);
+                // close() may have run just before the secret was added
+                if (!closed || !live.remove(reference)) {
+                    return reference;
+                }
+            }
+            Arrays.fill(secret.utf8, (byte) 0);
+            throw new IllegalStateException("Secret scope is closed");
+        }
+
+        private void unregister(Reference<SecretValue> reference) {
+            live.remove(reference);
+        }
+
+        private void expunge() {
+            Reference<? extends SecretValue> reference;
+            while ((reference = collected.poll()) != null) {
+                live.remove(reference);
+            }
+        }
+    }
+}
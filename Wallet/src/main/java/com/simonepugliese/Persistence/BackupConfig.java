@@ -0,0 +1,76 @@
+package com.simonepugliese.Persistence;
+
+import java.time.Duration;
+
+/**
+ * Immutable configuration of a {@link BackupService}.
+ *
+ * @param pagesPerStep    Database pages copied per step of the online backup.
+ *                        Smaller steps hold the database for less time at once.
+ * @param stepPause       Pause between two steps, leaving room to the other connections.
+ * @param interval        Time between two scheduled backups (see {@link BackupService#start()}).
+ * @param retainedBackups Number of backups kept in the backup directory; older ones are deleted.
+ */
+public record BackupConfig(int pagesPerStep,
+                           Duration stepPause,
+                           Duration interval,
+                           int retainedBackups) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public BackupConfig {
+        if (pagesPerStep < 1) {
+            throw new IllegalArgumentException("pagesPerStep must be at least 1");
+        }
+        if (stepPause == null || stepPause.isNegative()) {
+            throw new IllegalArgumentException("stepPause must not be negative");
+        }
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (retainedBackups < 1) {
+            throw new IllegalArgumentException("retainedBackups must be at least 1");
+        }
+    }
+
+    /**
+     * @return The default configuration: 256 pages (1 MiB with the default
+     * page size) per step, 5 ms between steps, one backup a day, 7 kept.
+     */
+    public static BackupConfig defaults() {
+        return new BackupConfig(256, Duration.ofMillis(5), Duration.ofDays(1), 7);
+    }
+
+    /**
+     * @param pagesPerStep The new number of pages per step.
+     * @return A copy of this configuration with the given step size.
+     */
+    public BackupConfig withPagesPerStep(int pagesPerStep) {
+        return new BackupConfig(pagesPerStep, stepPause, interval, retainedBackups);
+    }
+
+    /**
+     * @param stepPause The new pause between steps.
+     * @return A copy of this configuration with the given pause.
+     */
+    public BackupConfig withStepPause(Duration stepPause) {
+        return new BackupConfig(pagesPerStep, stepPause, interval, retainedBackups);
+    }
+
+    /**
+     * @param interval The new time between scheduled backups.
+     * @return A copy of this configuration with the given interval.
+     */
+    public BackupConfig withInterval(Duration interval) {
+        return new BackupConfig(pagesPerStep, stepPause, interval, retainedBackups);
+    }
+
+    /**
+     * @param retainedBackups The new number of backups to keep.
+     * @return A copy of this configuration with the given retention.
+     */
+    public BackupConfig withRetainedBackups(int retainedBackups) {
+        return new BackupConfig(pagesPerStep, stepPause, interval, retainedBackups);
+    }
+}
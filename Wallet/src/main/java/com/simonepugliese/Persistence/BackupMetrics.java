@@ -0,0 +1,19 @@
+package com.simonepugliese.Persistence;
+
+import java.time.Duration;
+
+/**
+ * A point-in-time snapshot of the statistics of a {@link BackupService}.
+ *
+ * @param completedCount  Total number of completed backups.
+ * @param failedCount     Total number of failed backups.
+ * @param averageDuration Average duration of the completed backups.
+ * @param maxDuration     Longest duration of a completed backup.
+ * @param lastBackup      The last completed backup, or null if there is none.
+ */
+public record BackupMetrics(long completedCount,
+                            long failedCount,
+                            Duration averageDuration,
+                            Duration maxDuration,
+                            BackupResult lastBackup) {
+}
@@ -0,0 +1,24 @@
+package com.simonepugliese.Persistence;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The outcome of one completed backup.
+ *
+ * @param file        The backup file.
+ * @param completedAt When the backup was completed.
+ * @param duration    How long the copy took, pauses included.
+ * @param pageCount   Number of database pages copied.
+ * @param steps       Number of backup steps.
+ * @param restarts    How many times the copy started over because another
+ *                    connection changed the database (always 0 in WAL mode).
+ */
+public record BackupResult(Path file,
+                           Instant completedAt,
+                           Duration duration,
+                           int pageCount,
+                           int steps,
+                           int restarts) {
+}
@@ -0,0 +1,333 @@
+package com.simonepugliese.Persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Takes consistent copies of a vault while the application keeps running.
+ * <p>
+ * The copy uses SQLite's online backup API on a pooled connection, a few
+ * pages per step with a short pause between steps (see {@link BackupConfig}),
+ * so it never holds the database for long. In WAL mode (the default
+ * {@link ConnectionProfile}) the backup connection also keeps one read
+ * transaction open for the whole copy: every step then reads the same
+ * snapshot, so writers are never blocked and never force the copy to start
+ * over. In the other journal modes a write between two steps restarts the
+ * copy, which is reported in {@link BackupResult#restarts()}.
+ * <p>
+ * Backups are written to a temporary file and renamed once complete, so a
+ * backup file is always a whole database. {@link #start()} runs them on a
+ * schedule and keeps the most recent ones.
+ */
+public final class BackupService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BackupService.class);
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    // Retries of a step that finds the database locked by a writer
+    private static final int BUSY_RETRY_MILLIS = 50;
+    private static final int BUSY_RETRIES = 100;
+
+    private final DbConnector dbConnector;
+    private final Path directory;
+    private final BackupConfig config;
+    private final Clock clock;
+    private final String prefix;
+    private final Pattern backupName;
+
+    // One backup at a time, scheduled or not
+    private final ReentrantLock backupLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    // --- Metrics, guarded by metricsLock (not by backupLock, so they can be read during a backup) ---
+    private final Object metricsLock = new Object();
+    private long completedCount;
+    private long failedCount;
+    private long totalNanos;
+    private long maxNanos;
+    private BackupResult lastBackup;
+
+    /**
+     * Creates a backup service. Nothing is copied until {@link #backupNow()}
+     * or {@link #start()} is called.
+     *
+     * @param dbConnector The vault to back up.
+     * @param directory   Where backups are written; it is created if needed.
+     * @param config      Step size, pause, schedule and retention.
+     */
+    public BackupService(DbConnector dbConnector, Path directory, BackupConfig config) {
+        this(dbConnector, directory, config, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor used by tests to name the backups with a fake clock.
+     */
+    BackupService(DbConnector dbConnector, Path directory, BackupConfig config, Clock clock) {
+        this.dbConnector = dbConnector;
+        this.directory = directory;
+        this.config = config;
+        this.clock = clock;
+        Path vault = dbConnector.getPath();
+        String name = vault == null ? "wallet" : vault.getFileName().toString();
+        this.prefix = (name.endsWith(".db") ? name.substring(0, name.length() - 3) : name) + "-";
+        this.backupName = Pattern.compile(Pattern.quote(prefix) + "\\d{8}-\\d{6}-\\d{3}\\.db");
+    }
+
+    /**
+     * Backs up the vault into the backup directory, then deletes the oldest
+     * backups beyond {@link BackupConfig#retainedBackups()}.
+     * Waits if another backup is running.
+     *
+     * @return The completed backup.
+     * @throws RuntimeException if the backup fails; no backup file is left behind.
+     */
+    public BackupResult backupNow() {
+        backupLock.lock();
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(prefix + TIMESTAMP.format(clock.instant()) + ".db");
+            BackupResult result = copyTo(file);
+            try {
+                deleteOldBackups();
+            } catch (IOException e) {
+                // The backup itself is complete
+                log.warn("Failed to delete old backups in {}", directory, e);
+            }
+            return result;
+        } catch (IOException e) {
+            recordFailure();
+            log.error("Backup failed", e);
+            throw new RuntimeException("Backup failed", e);
+        } finally {
+            backupLock.unlock();
+        }
+    }
+
+    /**
+     * Backs up the vault into the given file, e.g. one chosen by the user.
+     * Retention does not apply to it. Waits if another backup is running.
+     *
+     * @param target The backup file. It is replaced if it exists.
+     * @return The completed backup.
+     * @throws RuntimeException if the backup fails; the target is then left unchanged.
+     */
+    public BackupResult backupTo(Path target) {
+        backupLock.lock();
+        try {
+            return copyTo(target.toAbsolutePath());
+        } catch (IOException e) {
+            recordFailure();
+            log.error("Backup to {} failed", target, e);
+            throw new RuntimeException("Backup failed: " + target, e);
+        } finally {
+            backupLock.unlock();
+        }
+    }
+
+    /**
+     * Starts taking a backup every {@link BackupConfig#interval()}, the first
+     * one after one interval. A failed backup is logged and counted, and the
+     * schedule goes on.
+     *
+     * @throws IllegalStateException if the schedule is already running.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Backup schedule already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wallet-db-backup");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMillis = config.interval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                backupNow();
+            } catch (RuntimeException e) {
+                // Already logged and counted
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Backups of {} scheduled every {} in {}.", prefix, config.interval(), directory);
+    }
+
+    /**
+     * @return A snapshot of the backup statistics.
+     */
+    public BackupMetrics metrics() {
+        synchronized (metricsLock) {
+            Duration average = completedCount == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos / completedCount);
+            return new BackupMetrics(completedCount, failedCount, average, Duration.ofNanos(maxNanos), lastBackup);
+        }
+    }
+
+    /**
+     * Stops the schedule, waiting for a running backup to complete.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("A backup is still running after one minute.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    /**
+     * Copies the database into a temporary file next to the target, then
+     * renames it. Must be called with the backup lock held.
+     */
+    private BackupResult copyTo(Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + PARTIAL_SUFFIX);
+        log.info("Backing up the vault to {}...", target);
+        long start = System.nanoTime();
+        StepObserver observer = new StepObserver(config.stepPause());
+        try {
+            Files.deleteIfExists(partial);
+            runBackup(partial, observer);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+        }
+        long nanos = System.nanoTime() - start;
+        BackupResult result = new BackupResult(target, clock.instant(), Duration.ofNanos(nanos),
+                observer.pageCount, observer.steps, observer.restarts);
+        synchronized (metricsLock) {
+            completedCount++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastBackup = result;
+        }
+        log.info("Backup completed: {} pages in {} ms ({} steps, {} restarts).",
+                result.pageCount(), result.duration().toMillis(), result.steps(), result.restarts());
+        return result;
+    }
+
+    private void recordFailure() {
+        synchronized (metricsLock) {
+            failedCount++;
+        }
+    }
+
+    private void runBackup(Path file, StepObserver observer) throws SQLException {
+        try (Connection conn = dbConnector.getConnection()) {
+            boolean pinSnapshot = isWal(conn);
+            try {
+                if (pinSnapshot) {
+                    // Start a read transaction: all steps copy this snapshot
+                    conn.setAutoCommit(false);
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master")) {
+                        rs.next();
+                    }
+                }
+                DB db = conn.unwrap(SQLiteConnection.class).getDatabase();
+                int rc = db.backup("main", file.toString(), observer,
+                        BUSY_RETRY_MILLIS, BUSY_RETRIES, config.pagesPerStep());
+                if (rc != 0) {
+                    throw new SQLException("SQLite backup failed (error code " + rc + ")");
+                }
+            } finally {
+                if (pinSnapshot) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    private static boolean isWal(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            return rs.next() && "wal".equalsIgnoreCase(rs.getString(1));
+        }
+    }
+
+    /**
+     * Deletes the oldest backups of this vault beyond the retention.
+     * Backup names sort chronologically.
+     */
+    private void deleteOldBackups() throws IOException {
+        List<Path> backups;
+        try (Stream<Path> files = Files.list(directory)) {
+            backups = files.filter(p -> backupName.matcher(p.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < backups.size() - config.retainedBackups(); i++) {
+            Files.deleteIfExists(backups.get(i));
+            log.info("Deleted old backup {}.", backups.get(i));
+        }
+    }
+
+    /**
+     * Counts the steps and restarts of a backup, and pauses after each step.
+     */
+    private static final class StepObserver implements DB.ProgressObserver {
+
+        private final long pauseMillis;
+        private int steps;
+        private int restarts;
+        private int pageCount;
+        private int lastRemaining = Integer.MAX_VALUE;
+
+        StepObserver(Duration pause) {
+            this.pauseMillis = pause.toMillis();
+        }
+
+        @Override
+        public void progress(int remaining, int pageCount) {
+            steps++;
+            if (remaining > lastRemaining) {
+                restarts++;
+            }
+            lastRemaining = remaining;
+            this.pageCount = pageCount;
+            if (remaining > 0 && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    // Finish the copy without pauses, keeping the interrupt
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
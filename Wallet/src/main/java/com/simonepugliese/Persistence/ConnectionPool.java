@@ -0,0 +1,325 @@
+package com.simonepugliese.Persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, bounded JDBC connection pool.
+ * <p>
+ * Borrowed connections are dynamic proxies: calling {@link Connection#close()}
+ * on them returns the physical connection to the pool instead of closing it,
+ * so callers keep using the usual try-with-resources idiom.
+ * <p>
+ * Idle connections are kept in LIFO order (the most recently used one is
+ * handed out first, as it has the warmest statement and page caches) and are
+ * closed by a background evictor once idle for longer than
+ * {@link PoolConfig#maxIdleTime()}.
+ * <p>
+ * This class is package-private: it is an implementation detail of {@link DbConnector}.
+ */
+final class ConnectionPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Opens a new physical connection.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * An idle physical connection and the time it was returned to the pool.
+     */
+    private record IdleConnection(Connection connection, long returnedAtNanos) {
+    }
+
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>(); // guarded by 'this'
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // --- Metrics ---
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a new pool. Connections are opened lazily on demand.
+     *
+     * @param factory Opens new physical connections.
+     * @param config  The pool configuration.
+     */
+    ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+
+        long periodMillis = Math.max(1000, config.maxIdleTime().toMillis() / 2);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wallet-db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        log.debug("Connection pool created (maxSize: {}, maxIdleTime: {}).", config.maxSize(), config.maxIdleTime());
+    }
+
+    /**
+     * Borrows a connection, waiting up to {@link PoolConfig#borrowTimeout()}
+     * if all connections are in use.
+     *
+     * @return A pooled {@link Connection}; closing it returns it to the pool.
+     * @throws SQLTimeoutException if no connection became available in time.
+     * @throws SQLException if the pool is closed or a new connection cannot be opened.
+     */
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.borrowTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                timeoutCount.incrementAndGet();
+                log.warn("Timed out after {} waiting for a pooled connection.", config.borrowTimeout());
+                throw new SQLTimeoutException("Timed out waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                physical = factory.create();
+                createdCount.incrementAndGet();
+                log.trace("Opened new physical connection.");
+            }
+            recordWait(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return A snapshot of the pool statistics.
+     */
+    PoolMetrics metrics() {
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+        long borrows = borrowCount.get();
+        int active = config.maxSize() - permits.availablePermits();
+        return new PoolMetrics(
+                active,
+                idleCount,
+                config.maxSize(),
+                borrows,
+                createdCount.get(),
+                evictedCount.get(),
+                timeoutCount.get(),
+                Duration.ofNanos(borrows == 0 ? 0 : totalWaitNanos.get() / borrows),
+                Duration.ofNanos(maxWaitNanos.get()));
+    }
+
+    /**
+     * Closes all idle connections and rejects further borrows.
+     * Connections currently borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (this) {
+            for (IdleConnection c : idle) {
+                closeQuietly(c.connection());
+            }
+            idle.clear();
+        }
+        log.debug("Connection pool closed.");
+    }
+
+    // --- Private Helper Methods ---
+
+    /**
+     * Pops the most recently used idle connection, discarding invalid ones.
+     *
+     * @return A valid physical connection, or null if none is idle.
+     */
+    private Connection takeIdle() {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (this) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (!config.validateOnBorrow() || isValid(candidate.connection())) {
+                return candidate.connection();
+            }
+            log.debug("Discarding invalid pooled connection.");
+            evictedCount.incrementAndGet();
+            closeQuietly(candidate.connection());
+        }
+    }
+
+    /**
+     * Gives a physical connection back to the pool, resetting its state.
+     */
+    private void release(Connection physical) {
+        try {
+            boolean reusable = !closed && !physical.isClosed();
+            if (reusable && !physical.getAutoCommit()) {
+                // Never leak a half-done transaction to the next borrower
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                synchronized (this) {
+                    idle.addFirst(new IdleConnection(physical, System.nanoTime()));
+                }
+            } else {
+                closeQuietly(physical);
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to reset pooled connection, discarding it.", e);
+            evictedCount.incrementAndGet();
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than the configured limit,
+     * always keeping {@link PoolConfig#minIdle()} of them open.
+     */
+    private void evictIdle() {
+        long threshold = System.nanoTime() - config.maxIdleTime().toNanos();
+        Deque<Connection> expired = new ArrayDeque<>();
+        synchronized (this) {
+            // The oldest connections are at the tail of the deque
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > config.minIdle()) {
+                IdleConnection c = it.next();
+                if (c.returnedAtNanos() - threshold > 0) {
+                    break;
+                }
+                it.remove();
+                expired.add(c.connection());
+            }
+        }
+        for (Connection c : expired) {
+            evictedCount.incrementAndGet();
+            closeQuietly(c);
+        }
+        if (!expired.isEmpty()) {
+            log.debug("Evicted {} idle connections.", expired.size());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close physical connection", e);
+        }
+    }
+
+    /**
+     * Wraps a physical connection in a proxy whose close() returns it to the pool.
+     */
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Invocation handler behind every borrowed connection.
+     * After the connection is returned, any further use fails.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final Connection physical;
+        private boolean returned;
+
+        private PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.simonepugliese.Persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Immutable set of SQLite PRAGMAs applied by {@link DbConnector} to every
+ * new physical connection.
+ * <p>
+ * The defaults favour concurrency and throughput for a local, single-process
+ * vault: with WAL journaling readers no longer block on a writer (and vice
+ * versa), and {@code synchronous=NORMAL} only syncs at checkpoints, which in
+ * WAL mode can lose the last transactions on power loss but never corrupts
+ * the database.
+ *
+ * @param journalMode     The journal mode ({@code PRAGMA journal_mode}).
+ * @param synchronous     How often SQLite syncs to disk ({@code PRAGMA synchronous}).
+ * @param foreignKeys     Whether foreign keys (and thus ON DELETE CASCADE) are enforced.
+ * @param mmapSizeBytes   Maximum bytes of the database file to memory-map, 0 to disable.
+ * @param cacheSizeKiB    Page cache size per connection, in KiB.
+ * @param tempStore       Where temporary tables and indices are kept.
+ * @param busyTimeout     How long a connection retries when the database is locked.
+ */
+public record ConnectionProfile(JournalMode journalMode,
+                                Synchronous synchronous,
+                                boolean foreignKeys,
+                                long mmapSizeBytes,
+                                int cacheSizeKiB,
+                                TempStore tempStore,
+                                Duration busyTimeout) {
+
+    /**
+     * Values of {@code PRAGMA journal_mode}.
+     */
+    public enum JournalMode { DELETE, TRUNCATE, PERSIST, MEMORY, WAL, OFF }
+
+    /**
+     * Values of {@code PRAGMA synchronous}.
+     */
+    public enum Synchronous { OFF, NORMAL, FULL, EXTRA }
+
+    /**
+     * Values of {@code PRAGMA temp_store}.
+     */
+    public enum TempStore { DEFAULT, FILE, MEMORY }
+
+    /**
+     * Validates the profile values.
+     */
+    public ConnectionProfile {
+        if (journalMode == null || synchronous == null || tempStore == null) {
+            throw new IllegalArgumentException("journalMode, synchronous and tempStore are required");
+        }
+        if (mmapSizeBytes < 0) {
+            throw new IllegalArgumentException("mmapSizeBytes must not be negative");
+        }
+        if (cacheSizeKiB < 1) {
+            throw new IllegalArgumentException("cacheSizeKiB must be positive");
+        }
+        if (busyTimeout == null || busyTimeout.isNegative() || busyTimeout.toMillis() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("busyTimeout must be between 0 and Integer.MAX_VALUE ms");
+        }
+    }
+
+    /**
+     * @return The default profile: WAL, synchronous NORMAL, foreign keys on,
+     * 256 MiB mmap, 16 MiB page cache, in-memory temp store, 5 seconds busy timeout.
+     */
+    public static ConnectionProfile defaults() {
+        return new ConnectionProfile(JournalMode.WAL, Synchronous.NORMAL, true,
+                256L * 1024 * 1024, 16 * 1024, TempStore.MEMORY, Duration.ofSeconds(5));
+    }
+
+    /**
+     * @return The settings SQLite uses when no PRAGMA is set (rollback journal,
+     * synchronous FULL, foreign keys off, no mmap, 2 MiB cache).
+     */
+    public static ConnectionProfile sqliteDefaults() {
+        return new ConnectionProfile(JournalMode.DELETE, Synchronous.FULL, false,
+                0, 2 * 1024, TempStore.DEFAULT, Duration.ofSeconds(3));
+    }
+
+    /**
+     * @param journalMode The new journal mode.
+     * @return A copy of this profile with the given journal mode.
+     */
+    public ConnectionProfile withJournalMode(JournalMode journalMode) {
+        return new ConnectionProfile(journalMode, synchronous, foreignKeys, mmapSizeBytes, cacheSizeKiB, tempStore, busyTimeout);
+    }
+
+    /**
+     * @param synchronous The new synchronous level.
+     * @return A copy of this profile with the given synchronous level.
+     */
+    public ConnectionProfile withSynchronous(Synchronous synchronous) {
+        return new ConnectionProfile(journalMode, synchronous, foreignKeys, mmapSizeBytes, cacheSizeKiB, tempStore, busyTimeout);
+    }
+
+    /**
+     * @param busyTimeout The new busy timeout.
+     * @return A copy of this profile with the given busy timeout.
+     */
+    public ConnectionProfile withBusyTimeout(Duration busyTimeout) {
+        return new ConnectionProfile(journalMode, synchronous, foreignKeys, mmapSizeBytes, cacheSizeKiB, tempStore, busyTimeout);
+    }
+
+    /**
+     * Applies the profile to a newly opened connection.
+     * The busy timeout is set first, so that switching the journal mode
+     * waits for other connections instead of failing.
+     *
+     * @param connection A physical connection, outside of any transaction.
+     * @throws SQLException if a PRAGMA cannot be executed.
+     */
+    void applyTo(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeout.toMillis());
+            stmt.execute("PRAGMA journal_mode = " + journalMode.name());
+            stmt.execute("PRAGMA synchronous = " + synchronous.name());
+            stmt.execute("PRAGMA foreign_keys = " + (foreignKeys ? "ON" : "OFF"));
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            // A negative cache_size is a size in KiB rather than a page count
+            stmt.execute("PRAGMA cache_size = -" + cacheSizeKiB);
+            stmt.execute("PRAGMA temp_store = " + tempStore.name());
+        }
+    }
+}
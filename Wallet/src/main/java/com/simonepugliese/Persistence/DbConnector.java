@@ -3,65 +3,278 @@ package com.simonepugliese.Persistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Singleton database connector for SQLite.
- * Manages a single connection URL and initializes the database schema.
+ * Database connector for SQLite vaults.
+ * Each connector manages one database, a bounded pool of connections to it
+ * and initializes the database schema.
+ * <p>
+ * File connectors are shared per database file: {@link #forPath(Path)} always
+ * returns the same open connector for the same file, so any number of vaults
+ * can be hosted in one process. {@link #getInstance()} is the connector of
+ * the default vault, "wallet.db" in the working directory.
+ * {@link #inMemory()} creates private, in-memory vaults for tests and benchmarks.
+ * <p>
+ * Connections handed out by {@link #getConnection()} are pooled: closing
+ * them returns them to the pool, so the SQLite file is not reopened (and its
+ * schema not re-parsed) on every repository call.
+ * <p>
+ * Every new physical connection is configured with a {@link ConnectionProfile}
+ * (journal mode, synchronous level, foreign keys, caches...).
  */
-public class DbConnector {
+public class DbConnector implements AutoCloseable {
 
-    private static volatile DbConnector instance;
+    // Open file connectors, keyed by absolute normalized path
+    private static final ConcurrentMap<Path, DbConnector> connectors = new ConcurrentHashMap<>();
+
+    private static volatile PoolConfig poolConfig = PoolConfig.defaults();
+
+    private static volatile ConnectionProfile connectionProfile = ConnectionProfile.defaults();
 
     private static final Logger log = LoggerFactory.getLogger(DbConnector.class);
 
-    private static final String JDBC_URL = "jdbc:sqlite:wallet.db";
+    private static final Path DEFAULT_PATH = Path.of("wallet.db");
 
     // --- Table Definitions ---
     private static final String TABLE_ENTRIES = "Entries";
     private static final String TABLE_FIELDS = "Fields";
+    private static final String TABLE_METADATA = "Metadata";
+
+    // PRAGMAs reported by getEffectiveSettings()
+    private static final List<String> REPORTED_PRAGMAS = List.of(
+            "journal_mode", "synchronous", "foreign_keys", "mmap_size", "cache_size", "temp_store", "busy_timeout");
+
+    private final ConnectionPool pool;
+    private final Path path; // null for in-memory databases
+    private final Connection keepAlive; // keeps an in-memory database alive, null otherwise
 
     /**
-     * Private constructor for Singleton pattern.
+     * Opens a connector with the default {@link ConnectionProfile}.
+     *
+     * @param jdbcUrl The SQLite JDBC URL.
+     * @param config  The connection pool configuration.
      */
-    private DbConnector() {
-        log.debug("Initializing DbConnector for URL: {}", JDBC_URL);
+    DbConnector(String jdbcUrl, PoolConfig config) {
+        this(jdbcUrl, config, ConnectionProfile.defaults());
+    }
+
+    /**
+     * Opens a connector outside the per-file registry: {@link #forPath(Path)}
+     * never returns it, and nobody else shares it. {@link #inMemory()} uses
+     * it; it is package-private so that tests can also open a connector with
+     * their own URL, pool or profile, e.g. on a separate database file.
+     *
+     * @param jdbcUrl The SQLite JDBC URL.
+     * @param config  The connection pool configuration.
+     * @param profile The PRAGMAs applied to every new connection.
+     */
+    DbConnector(String jdbcUrl, PoolConfig config, ConnectionProfile profile) {
+        this(jdbcUrl, null, config, profile);
+    }
+
+    private DbConnector(String jdbcUrl, Path path, PoolConfig config, ConnectionProfile profile) {
+        log.debug("Initializing DbConnector for URL: {}", jdbcUrl);
+        this.path = path;
+        try {
+            // The first connection to a shared-cache in-memory database creates it,
+            // the last one to close drops it: pin one for the connector's lifetime
+            this.keepAlive = isSharedInMemory(jdbcUrl) ? DriverManager.getConnection(jdbcUrl) : null;
+        } catch (SQLException e) {
+            log.error("Error opening in-memory database", e);
+            throw new RuntimeException("Failed to open in-memory database", e);
+        }
+        this.pool = new ConnectionPool(() -> openConnection(jdbcUrl, profile), config);
         initializeDatabase();
+        log.info("SQLite connection settings: {}", getEffectiveSettings());
     }
 
     /**
-     * Gets the single instance of the DbConnector.
+     * Gets the connector of the default vault ("wallet.db" in the working directory).
+     * Equivalent to {@code forPath(Path.of("wallet.db"))}.
      *
-     * @return The singleton DbConnector instance.
+     * @return The default DbConnector.
      */
     public static DbConnector getInstance() {
-        if (instance == null) {
-            synchronized (DbConnector.class) {
-                if (instance == null) {
-                    log.debug("Creating/returning new DbConnector instance.");
-                    instance = new DbConnector();
-                }
+        return forPath(DEFAULT_PATH);
+    }
+
+    /**
+     * Gets the connector of the vault stored in the given file, opening it
+     * (and creating the schema) on first use. Concurrent callers asking for
+     * the same file always get the same connector.
+     *
+     * @param dbFile The SQLite database file.
+     * @return The open DbConnector for that file.
+     */
+    public static DbConnector forPath(Path dbFile) {
+        Path key = dbFile.toAbsolutePath().normalize();
+        return connectors.computeIfAbsent(key, p -> {
+            log.debug("Opening new DbConnector for {}.", p);
+            return new DbConnector("jdbc:sqlite:" + p, p, poolConfig, connectionProfile);
+        });
+    }
+
+    /**
+     * Creates a new, empty vault held entirely in memory, with the configured
+     * pool and connection profile. It is private to the returned connector
+     * and is discarded when the connector is closed.
+     *
+     * @return A new in-memory DbConnector. The caller must close it.
+     */
+    public static DbConnector inMemory() {
+        String name = "wallet-" + UUID.randomUUID();
+        return new DbConnector("jdbc:sqlite:file:" + name + "?mode=memory&cache=shared", poolConfig, connectionProfile);
+    }
+
+    /**
+     * Sets the connection pool configuration of the connectors opened from now on.
+     * It must be called before the first {@link #getInstance()}.
+     *
+     * @param config The pool configuration to use.
+     * @throws IllegalStateException if the default connector has already been opened.
+     */
+    public static void configurePool(PoolConfig config) {
+        synchronized (DbConnector.class) {
+            if (connectors.containsKey(DEFAULT_PATH.toAbsolutePath().normalize())) {
+                throw new IllegalStateException("DbConnector already initialized, the pool cannot be reconfigured");
+            }
+            poolConfig = Objects.requireNonNull(config);
+        }
+    }
+
+    /**
+     * Sets the PRAGMAs applied to every connection of the connectors opened from now on.
+     * It must be called before the first {@link #getInstance()}.
+     *
+     * @param profile The connection profile to use.
+     * @throws IllegalStateException if the default connector has already been opened.
+     */
+    public static void configureConnectionProfile(ConnectionProfile profile) {
+        synchronized (DbConnector.class) {
+            if (connectors.containsKey(DEFAULT_PATH.toAbsolutePath().normalize())) {
+                throw new IllegalStateException("DbConnector already initialized, the connection profile cannot be changed");
             }
+            connectionProfile = Objects.requireNonNull(profile);
         }
-        return instance;
     }
 
     /**
-     * Gets a new connection to the database.
+     * Closes every open file connector. Mainly meant for application shutdown
+     * and tests.
+     */
+    public static void closeAll() {
+        for (DbConnector connector : List.copyOf(connectors.values())) {
+            connector.close();
+        }
+    }
+
+    /**
+     * Borrows a connection to the database from the pool.
+     * Closing the returned connection gives it back to the pool.
      *
-     * @return A {@link Connection} to the SQLite database.
-     * @throws SQLException if a database access error occurs.
+     * @return A pooled {@link Connection} to the SQLite database.
+     * @throws SQLException if a database access error occurs or no
+     * connection becomes available within the configured timeout.
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL);
+        return pool.borrow();
+    }
+
+    /**
+     * @return A snapshot of the connection pool statistics
+     * (active/idle counts, borrow wait times).
+     */
+    public PoolMetrics getPoolMetrics() {
+        return pool.metrics();
+    }
+
+    /**
+     * Reads the settings actually in effect on a pooled connection.
+     * They can differ from the requested {@link ConnectionProfile}: for
+     * example, an in-memory database cannot use WAL journaling.
+     *
+     * @return The PRAGMA names and their current values, in a stable order.
+     */
+    public Map<String, String> getEffectiveSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String pragma : REPORTED_PRAGMAS) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    settings.put(pragma, rs.next() ? rs.getString(1) : null);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error reading the SQLite settings", e);
+            throw new RuntimeException("Failed to read the SQLite settings", e);
+        }
+        return settings;
+    }
+
+    /**
+     * @return The database file, or null for an in-memory database.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Closes the pooled connections. A file connector is removed from the
+     * registry, so the next {@link #forPath(Path)} for the same file opens a
+     * new one; an in-memory database is discarded.
+     * Repositories still holding this connector fail from now on.
+     */
+    @Override
+    public void close() {
+        if (path != null) {
+            connectors.remove(path, this);
+        }
+        pool.close();
+        if (keepAlive != null) {
+            try {
+                keepAlive.close();
+            } catch (SQLException e) {
+                log.warn("Failed to close in-memory database", e);
+            }
+        }
+        log.debug("DbConnector closed ({}).", path != null ? path : "in-memory");
+    }
+
+    private static boolean isSharedInMemory(String jdbcUrl) {
+        return jdbcUrl.contains("mode=memory");
+    }
+
+    /**
+     * Opens a physical connection and applies the profile to it.
+     */
+    private static Connection openConnection(String jdbcUrl, ConnectionProfile profile) throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl);
+        try {
+            profile.applyTo(connection);
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
     }
 
     /**
      * Initializes the database schema.
-     * Creates the new Entries and Fields tables if they don't exist.
+     * Creates the Entries, Fields, Metadata and search tables if they don't exist,
+     * and indexes any Entry missing from the search index.
      * This method is called automatically by the constructor.
      */
     private void initializeDatabase() {
@@ -83,12 +296,36 @@ public class DbConnector {
                     + "value TEXT, "
                     + "type TEXT NOT NULL, "
                     + "sensitive INTEGER NOT NULL, "
+                    + "blind_index TEXT, "
                     + "FOREIGN KEY (entry_id) REFERENCES " + TABLE_ENTRIES + "(id) ON DELETE CASCADE)";
             stmt.execute(createFieldsSql);
 
             // Create an index for fast field lookups by entry_id
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_entry_id ON " + TABLE_FIELDS + " (entry_id)");
 
+            // Blind indexes of sensitive values (added after the first release)
+            addColumnIfMissing(conn, TABLE_FIELDS, "blind_index", "TEXT");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_fields_blind_index ON " + TABLE_FIELDS
+                    + " (blind_index) WHERE blind_index IS NOT NULL");
+
+            // SQL to create the Metadata table (vault-level key/value settings,
+            // e.g. the KDF salt and the wrapped data key)
+            String createMetadataSql = "CREATE TABLE IF NOT EXISTS " + TABLE_METADATA + " ("
+                    + "key TEXT PRIMARY KEY, "
+                    + "value TEXT NOT NULL)";
+            stmt.execute(createMetadataSql);
+
+            // Covering indexes for the summary pages, sorted by description and optionally filtered by category
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_entries_description ON " + TABLE_ENTRIES
+                    + " (description COLLATE NOCASE, id, category)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_entries_category_description ON " + TABLE_ENTRIES
+                    + " (category, description COLLATE NOCASE, id)");
+
+            // Full-text search over descriptions and non-sensitive field values
+            stmt.execute(SearchIndex.CREATE_SEARCH_DOCUMENTS_SQL);
+            stmt.execute(SearchIndex.CREATE_SEARCH_INDEX_SQL);
+            SearchIndex.rebuildIfNeeded(conn);
+
             log.info("Database tables checked/created successfully.");
 
         } catch (SQLException e) {
@@ -96,4 +333,21 @@ public class DbConnector {
             throw new RuntimeException("Failed to initialize database", e);
         }
     }
+
+    /**
+     * Adds a column to a table created by an older version of the schema.
+     */
+    private static void addColumnIfMissing(Connection conn, String table, String column, String type) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("name"))) {
+                        return;
+                    }
+                }
+            }
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+            log.info("Added column {}.{} to an existing database.", table, column);
+        }
+    }
 }
\ No newline at end of file
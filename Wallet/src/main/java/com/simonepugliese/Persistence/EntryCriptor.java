@@ -1,9 +1,27 @@
 package com.simonepugliese.Persistence;
 
+import com.simonepugliese.Core.EntryResult;
 import com.simonepugliese.Core.ICriptor;
 import com.simonepugliese.Model.Entry;
 import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.SecretValue;
+import com.simonepugliese.Security.CipherEngine;
 import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.DecryptionFailedException;
+
+import javax.crypto.SecretKey;
+import javax.security.auth.DestroyFailedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
 
 /**
  * Concrete implementation of the {@link ICriptor} strategy.
@@ -11,44 +29,329 @@ import com.simonepugliese.Security.CryptoUtils;
  * It iterates over the fields of an Entry and encrypts/decrypts
  * them based on their 'sensitive' flag.
  * <p>
- * Implements AutoCloseable to securely zero-out the password from memory.
+ * Fields are encrypted with the vault data key, unwrapped once at unlock.
+ * The master password is only kept to read values still stored in the
+ * legacy per-field-salt format.
+ * <p>
+ * Decrypted values are {@link SecretValue}s, decrypted straight into their
+ * own buffer, and values held as secrets are encrypted straight from it.
+ * Every secret decrypted by this criptor, and every copy of one, is
+ * destroyed on {@link #close()}.
+ * <p>
+ * Every encrypted value also gets a blind index, an HMAC keyed by a key
+ * derived from the data key, used for exact-match lookups.
+ * <p>
+ * Batch operations ({@link #encryptAll(Collection)}, {@link #decryptAll(Collection)})
+ * spread the field-level AES-GCM work over an {@link Executor}. An Entry is only
+ * modified if all of its fields were processed successfully.
+ * <p>
+ * The AES-GCM and HMAC instances are reused: every operation borrows a
+ * {@link CipherEngine} from a small pool and gives it back when done, so
+ * they are never looked up per field. On {@link #close()} the pooled
+ * engines are cleared together with the keys.
+ * <p>
+ * Implements AutoCloseable to securely zero-out the password, the key and
+ * the decrypted values from memory.
  */
 public final class EntryCriptor implements ICriptor, AutoCloseable {
 
     private final char[] masterPassword;
+    private final SecretKey dataKey;
+    private final SecretKey blindIndexKey;
+    private final Executor executor;
+
+    // Idle engines; when all are in use a new one is created, and dropped if the pool is full
+    private final BlockingQueue<CipherEngine> engines =
+            new ArrayBlockingQueue<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+    private volatile boolean closed;
+
+    // Tracks the decrypted values, to destroy them on close()
+    private final SecretValue.Scope secrets = new SecretValue.Scope();
 
     /**
-     * Constructs a new EntryCriptor.
-     * @param masterPassword The master password.
+     * Constructs a new EntryCriptor that runs batch operations on the
+     * common fork-join pool.
+     * @param masterPassword The master password (used for legacy payloads only).
+     * @param dataKey The unwrapped vault data key. The criptor takes ownership
+     *                of it and destroys it on {@link #close()}.
      */
-    public EntryCriptor(String masterPassword) {
+    public EntryCriptor(String masterPassword, SecretKey dataKey) {
+        this(masterPassword, dataKey, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new EntryCriptor with a custom executor for batch operations
+     * (e.g. a dedicated {@link ForkJoinPool} or
+     * {@link java.util.concurrent.Executors#newVirtualThreadPerTaskExecutor()}).
+     * The executor is not shut down by {@link #close()}.
+     * @param masterPassword The master password (used for legacy payloads only).
+     * @param dataKey The unwrapped vault data key. The criptor takes ownership
+     *                of it and destroys it on {@link #close()}.
+     * @param executor The executor running field-level encryption tasks.
+     */
+    public EntryCriptor(String masterPassword, SecretKey dataKey, Executor executor) {
         this.masterPassword = masterPassword.toCharArray();
+        this.dataKey = dataKey;
+        this.blindIndexKey = CryptoUtils.deriveBlindIndexKey(dataKey);
+        this.executor = executor;
     }
 
     @Override
     public Entry encrypt(Entry entry) {
-        // Iterate over the map values (the Fields) and encrypt sensitive ones
-        for (Field field : entry.getFields().values()) {
-            if (field.isSensitive()) {
-                field.setValue(CryptoUtils.encrypt(field.getValue(), masterPassword));
+        CipherEngine engine = borrowEngine();
+        try {
+            // Iterate over the map values (the Fields) and encrypt sensitive ones
+            for (Field field : entry.getFields().values()) {
+                if (field.isSensitive()) {
+                    encryptValue(engine, field).applyTo(field, true);
+                } else {
+                    field.setBlindIndex(null);
+                }
             }
+        } finally {
+            returnEngine(engine);
         }
         return entry;
     }
 
     @Override
     public Entry decrypt(Entry entry) {
-        // Iterate and decrypt sensitive ones
-        for (Field field : entry.getFields().values()) {
-            if (field.isSensitive()) {
-                field.setValue(CryptoUtils.decrypt(field.getValue(), masterPassword));
+        CipherEngine engine = borrowEngine();
+        try {
+            // Iterate and decrypt sensitive ones
+            for (Field field : entry.getFields().values()) {
+                if (field.isSensitive()) {
+                    decryptValue(engine, field).applyTo(field, false);
+                }
             }
+        } finally {
+            returnEngine(engine);
         }
         return entry;
     }
 
+    @Override
+    public List<EntryResult> encryptAll(Collection<Entry> entries) {
+        return processAll(entries, this::encryptValue, true);
+    }
+
+    @Override
+    public List<EntryResult> decryptAll(Collection<Entry> entries) {
+        return processAll(entries, this::decryptValue, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Besides legacy payloads, this is also true for sensitive values stored
+     * before blind indexes existed, so that migrating them fills the index.
+     */
+    @Override
+    public boolean requiresReEncryption(Entry entry) {
+        for (Field field : entry.getFields().values()) {
+            if (!field.isSensitive()) {
+                continue;
+            }
+            String value = field.getValue();
+            if (CryptoUtils.isLegacyPayload(value)) {
+                return true;
+            }
+            boolean encrypted = field.getCiphertext() != null || value != null && !value.isEmpty();
+            if (encrypted && field.getBlindIndex() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<String> blindIndex(String plaintext) {
+        CipherEngine engine = borrowEngine();
+        try {
+            return Optional.ofNullable(engine.blindIndex(plaintext, blindIndexKey));
+        } finally {
+            returnEngine(engine);
+        }
+    }
+
+    /**
+     * The new value of a sensitive field (a ciphertext when encrypting, a
+     * secret when decrypting, or a null/empty String kept as it is) and, when
+     * encrypting, its blind index.
+     */
+    private record ProcessedValue(String value, byte[] ciphertext, SecretValue secret, String blindIndex) {
+
+        void applyTo(Field field, boolean updateBlindIndex) {
+            if (secret != null) {
+                field.setSecret(secret);
+            } else if (ciphertext != null) {
+                field.setCiphertext(ciphertext);
+            } else {
+                field.setValue(value);
+            }
+            if (updateBlindIndex) {
+                field.setBlindIndex(blindIndex);
+            }
+        }
+
+        /**
+         * Destroys a decrypted value that will not be written back.
+         */
+        void discard() {
+            if (secret != null) {
+                secret.destroy();
+            }
+        }
+    }
+
+    /**
+     * Submits one task per sensitive field of every Entry, then collects the
+     * results Entry by Entry, in input order.
+     * The new values are written back only if every field of the Entry succeeded.
+     *
+     * @param updateBlindIndex true to also write back the blind indexes (when encrypting).
+     */
+    private List<EntryResult> processAll(Collection<Entry> entries,
+                                         BiFunction<CipherEngine, Field, ProcessedValue> transform,
+                                         boolean updateBlindIndex) {
+        List<Entry> input = List.copyOf(entries);
+        List<List<Field>> sensitiveFields = new ArrayList<>(input.size());
+        List<List<CompletableFuture<ProcessedValue>>> tasks = new ArrayList<>(input.size());
+
+        // 1. Fan out: every sensitive field becomes an independent task
+        for (Entry entry : input) {
+            List<Field> fields = new ArrayList<>();
+            List<CompletableFuture<ProcessedValue>> futures = new ArrayList<>();
+            for (Field field : entry.getFields().values()) {
+                if (field.isSensitive()) {
+                    fields.add(field);
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        CipherEngine engine = borrowEngine();
+                        try {
+                            return transform.apply(engine, field);
+                        } finally {
+                            returnEngine(engine);
+                        }
+                    }, executor));
+                }
+            }
+            sensitiveFields.add(fields);
+            tasks.add(futures);
+        }
+
+        // 2. Fan in: apply the results per Entry, isolating failures
+        List<EntryResult> results = new ArrayList<>(input.size());
+        for (int i = 0; i < input.size(); i++) {
+            Entry entry = input.get(i);
+            List<CompletableFuture<ProcessedValue>> futures = tasks.get(i);
+            try {
+                List<ProcessedValue> values = new ArrayList<>(futures.size());
+                for (CompletableFuture<ProcessedValue> future : futures) {
+                    values.add(future.join());
+                }
+                if (updateBlindIndex) {
+                    for (Field field : entry.getFields().values()) {
+                        field.setBlindIndex(null);
+                    }
+                }
+                List<Field> fields = sensitiveFields.get(i);
+                for (int f = 0; f < fields.size(); f++) {
+                    values.get(f).applyTo(fields.get(f), updateBlindIndex);
+                }
+                results.add(EntryResult.success(entry));
+            } catch (CompletionException e) {
+                // The fields that did succeed, or are still running, are not written back
+                for (CompletableFuture<ProcessedValue> future : futures) {
+                    future.thenAccept(ProcessedValue::discard);
+                }
+                RuntimeException cause = e.getCause() instanceof RuntimeException re ? re : e;
+                results.add(EntryResult.failure(entry, cause));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Encrypts the value of a sensitive field, from its secret if it holds one.
+     * A field already holding a ciphertext is kept as it is.
+     */
+    private ProcessedValue encryptValue(CipherEngine engine, Field field) {
+        if (field.getCiphertext() != null) {
+            return new ProcessedValue(null, field.getCiphertext(), null, field.getBlindIndex());
+        }
+        SecretValue secret = field.getSecret();
+        if (secret == null) {
+            String value = field.getValue();
+            if (value == null || value.isEmpty()) {
+                return new ProcessedValue(value, null, null, null);
+            }
+            return new ProcessedValue(null, engine.encrypt(value, dataKey), null, engine.blindIndex(value, blindIndexKey));
+        }
+        if (secret.isEmpty()) {
+            return new ProcessedValue("", null, null, null);
+        }
+        return secret.read(bytes -> new ProcessedValue(
+                null, engine.encrypt(bytes, dataKey), null, engine.blindIndex(bytes, blindIndexKey)));
+    }
+
+    /**
+     * Decrypts the stored value of a sensitive field into a secret, picking
+     * the key based on its format. Null and empty values are kept as they are.
+     */
+    private ProcessedValue decryptValue(CipherEngine engine, Field field) {
+        byte[] ciphertext = field.getCiphertext();
+        if (ciphertext == null) {
+            String value = field.getValue();
+            if (value == null || value.isEmpty()) {
+                return new ProcessedValue(value, null, null, null);
+            }
+            if (CryptoUtils.isLegacyPayload(value)) {
+                return new ProcessedValue(null, null, secrets.of(CryptoUtils.decrypt(value, masterPassword)), null);
+            }
+            // A "v2:" value, not converted to the binary format yet
+            ciphertext = CryptoUtils.fromV2Payload(value);
+            if (ciphertext == null) {
+                throw new DecryptionFailedException("Corrupt encrypted value", null);
+            }
+        }
+        return new ProcessedValue(null, null, secrets.wrap(engine.decryptToBytes(ciphertext, dataKey)), null);
+    }
+
+    private CipherEngine borrowEngine() {
+        CipherEngine engine = engines.poll();
+        return engine != null ? engine : new CipherEngine();
+    }
+
+    /**
+     * Gives an engine back to the pool. Engines that are not kept, or that
+     * come back after {@link #close()}, are cleared.
+     */
+    private void returnEngine(CipherEngine engine) {
+        if (closed || !engines.offer(engine)) {
+            engine.clear();
+            return;
+        }
+        // close() may have drained the pool just before the engine came back
+        if (closed && engines.remove(engine)) {
+            engine.clear();
+        }
+    }
+
     @Override
     public void close() {
+        closed = true;
+        secrets.close();
+        CipherEngine engine;
+        while ((engine = engines.poll()) != null) {
+            engine.clear();
+        }
         java.util.Arrays.fill(masterPassword, '\0');
+        try {
+            blindIndexKey.destroy();
+            dataKey.destroy();
+        } catch (DestroyFailedException e) {
+            // Key implementations without wiping support (e.g. SecretKeySpec)
+            // throw here: nothing more can be done for them.
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,15 @@
 package com.simonepugliese.Persistence;
 
+import com.simonepugliese.Core.EntryResult;
 import com.simonepugliese.Core.IEntryRepository;
+import com.simonepugliese.Core.Page;
+import com.simonepugliese.Core.PageRequest;
 import com.simonepugliese.Model.Category;
 import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
 import com.simonepugliese.Model.Field;
 import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Security.CryptoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,11 +17,25 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Concrete implementation of the {@link IEntryRepository} interface.
@@ -37,18 +56,81 @@ public final class EntryRepository implements IEntryRepository {
             "INSERT INTO " + TABLE_ENTRIES + " (id, description, category) VALUES (?, ?, ?) " +
                     "ON CONFLICT(id) DO UPDATE SET description = ?, category = ?";
 
-    private static final String DELETE_FIELDS_SQL = "DELETE FROM " + TABLE_FIELDS + " WHERE entry_id = ?";
+    private static final String DELETE_FIELD_BY_ID_SQL = "DELETE FROM " + TABLE_FIELDS + " WHERE id = ?";
+    private static final String DELETE_FIELDS_BY_ENTRY_ID_SQL = "DELETE FROM " + TABLE_FIELDS + " WHERE entry_id = ?";
+
+    private static final String UPDATE_FIELD_SQL =
+            "UPDATE " + TABLE_FIELDS + " SET value = ?, type = ?, sensitive = ?, blind_index = ? WHERE id = ?";
 
     private static final String INSERT_FIELD_SQL =
-            "INSERT INTO " + TABLE_FIELDS + " (id, entry_id, name, value, type, sensitive) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
+            "INSERT INTO " + TABLE_FIELDS + " (id, entry_id, name, value, type, sensitive, blind_index) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
     private static final String SELECT_ENTRY_BY_ID_SQL = "SELECT * FROM " + TABLE_ENTRIES + " WHERE id = ?";
-    private static final String SELECT_FIELDS_BY_ENTRY_ID_SQL = "SELECT * FROM " + TABLE_FIELDS + " WHERE entry_id = ?";
+    private static final String SELECT_FIELDS_BY_ENTRY_ID_SQL = "SELECT * FROM " + TABLE_FIELDS + " WHERE entry_id = ? ORDER BY rowid";
     private static final String SELECT_ALL_ENTRY_SUMMARIES_SQL = "SELECT id, description, category FROM " + TABLE_ENTRIES;
+
+    // Keyset pagination, served by idx_entries_description / idx_entries_category_description.
+    // The sort key is (description COLLATE NOCASE, id). The collation goes on the parameter:
+    // SQLite only turns the row-value comparison into an index range when the column is bare.
+    private static final String SUMMARIES_AFTER_KEY = "(description, id) > (? COLLATE NOCASE, ?)";
+    private static final String SUMMARIES_BEFORE_KEY = "(description, id) < (? COLLATE NOCASE, ?)";
     private static final String DELETE_ENTRY_BY_ID_SQL = "DELETE FROM " + TABLE_ENTRIES + " WHERE id = ?";
 
+    // Entries joined with their Fields, one row per field (or one row with
+    // NULL field columns for an entry without fields). Rows of the same entry
+    // are adjacent and fields keep their insertion order (rowid).
+    private static final String SELECT_ENTRIES_WITH_FIELDS_SQL =
+            "SELECT e.id, e.description, e.category, f.name, f.value, f.type, f.sensitive, f.blind_index " +
+                    "FROM " + TABLE_ENTRIES + " e LEFT JOIN " + TABLE_FIELDS + " f ON f.entry_id = e.id ";
+    private static final String ENTRIES_WITH_FIELDS_ORDER_BY = " ORDER BY e.id, f.rowid";
+
+    // Entries holding a field with the given blind index (served by idx_fields_blind_index)
+    private static final String SELECT_ENTRIES_BY_BLIND_INDEX_SQL =
+            "SELECT DISTINCT e.id, e.description, e.category " +
+                    "FROM " + TABLE_FIELDS + " f JOIN " + TABLE_ENTRIES + " e ON e.id = f.entry_id " +
+                    "WHERE f.blind_index = ? ORDER BY e.description, e.id";
+
+    // Fields of a type whose blind index appears in more than one Entry,
+    // grouped by blind index
+    private static final String SELECT_SHARED_BLIND_INDEXES_SQL =
+            "SELECT f.blind_index, e.id, e.description, e.category " +
+                    "FROM " + TABLE_FIELDS + " f JOIN " + TABLE_ENTRIES + " e ON e.id = f.entry_id " +
+                    "WHERE f.type = ? AND f.blind_index IN (" +
+                    "SELECT blind_index FROM " + TABLE_FIELDS + " WHERE blind_index IS NOT NULL AND type = ? " +
+                    "GROUP BY blind_index HAVING COUNT(DISTINCT entry_id) > 1) " +
+                    "ORDER BY f.blind_index, e.description, e.id";
+
+    // Sensitive values stored as text, in field id order (see migrateStorageFormat())
+    private static final String SELECT_TEXT_VALUES_SQL =
+            "SELECT id, value FROM " + TABLE_FIELDS + " WHERE id > ? AND sensitive = 1 " +
+                    "AND typeof(value) = 'text' ORDER BY id LIMIT ?";
+    // Only rewrites a value that did not change since it was read
+    private static final String CONVERT_VALUE_SQL =
+            "UPDATE " + TABLE_FIELDS + " SET value = ? WHERE id = ? AND value = ?";
+    // Same, for a value and blind index replaced by replaceIfUnchanged()
+    private static final String REPLACE_VALUE_SQL =
+            "UPDATE " + TABLE_FIELDS + " SET value = ?, blind_index = ? " +
+                    "WHERE entry_id = ? AND name = ? AND value IS ? AND blind_index IS ?";
+
+    /**
+     * Fields read, and values rewritten in one transaction, by {@link #migrateStorageFormat()}.
+     */
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of IDs bound in a single IN (...) clause,
+     * well below SQLite's host parameter limit.
+     */
+    private static final int IN_CLAUSE_BATCH_SIZE = 500;
+
+    /**
+     * Rows fetched at a time by {@link #stream()}.
+     */
+    private static final int STREAM_FETCH_SIZE = 256;
+
     private final DbConnector dbConnector;
+    private final AtomicLong rowsWritten = new AtomicLong();
 
     /**
      * Constructs a new EntryRepository.
@@ -60,73 +142,131 @@ public final class EntryRepository implements IEntryRepository {
         // The DbConnector's constructor already called initializeDatabase()
     }
 
+    /**
+     * Constructs a new EntryRepository on a specific vault
+     * (see {@link DbConnector#forPath(java.nio.file.Path)} and {@link DbConnector#inMemory()}).
+     *
+     * @param dbConnector The connector to use.
+     */
+    public EntryRepository(DbConnector dbConnector) {
+        this.dbConnector = dbConnector;
+        log.debug("EntryRepository initialized.");
+    }
+
     /**
      * Saves or updates an Entry and all its fields in a single transaction.
-     * This method implements the Template Method pattern (UPSERT).
+     * <p>
+     * Instead of rewriting every field, the Entry is compared with the rows
+     * already stored and only the needed INSERT/UPDATE/DELETE statements are
+     * issued. Field rows keep their IDs across saves, and saving an unchanged
+     * Entry writes nothing at all.
+     * <p>
+     * The search index is updated in the same transaction.
      */
     @Override
     public void save(Entry entry) {
         log.debug("Beginning transaction to save entry: {}", entry.getId());
-        Connection conn = null;
-        log.trace("Executing UPSERT for Entry: {}", entry.getId());
-        try {
-            conn = dbConnector.getConnection();
-            conn.setAutoCommit(false); // Begin transaction
-
-            // Step 1: Save the Entry (UPSERT)
-            try (PreparedStatement ps = conn.prepareStatement(UPSERT_ENTRY_SQL)) {
-                ps.setString(1, entry.getId());
-                ps.setString(2, entry.getDescription());
-                ps.setString(3, entry.getCategory().name());
-                // Parameters for the ON CONFLICT UPDATE
-                ps.setString(4, entry.getDescription());
-                ps.setString(5, entry.getCategory().name());
-                ps.executeUpdate();
-            }
-
-            log.trace("Deleting old fields for Entry: {}", entry.getId());
-            // Step 2: Delete all old Fields for this Entry (to ensure clean state)
-            try (PreparedStatement ps = conn.prepareStatement(DELETE_FIELDS_SQL)) {
-                ps.setString(1, entry.getId());
-                ps.executeUpdate();
-            }
-
-            log.trace("Batch inserting {} fields for Entry: {}", entry.getFields().size(), entry.getId());
-            // Step 3: Insert all current Fields (Batch insert)
-            try (PreparedStatement ps = conn.prepareStatement(INSERT_FIELD_SQL)) {
-                for (Map.Entry<String, Field> fieldEntry : entry.getFields().entrySet()) {
-                    Field field = fieldEntry.getValue();
-                    ps.setString(1, UUID.randomUUID().toString()); // New unique ID for the field
-                    ps.setString(2, entry.getId());                 // Foreign Key to the Entry
-                    ps.setString(3, fieldEntry.getKey());           // Field Name (from map key)
-                    ps.setString(4, field.getValue());              // Field Value (encrypted)
-                    ps.setString(5, field.getType().name());        // Field Type
-                    ps.setBoolean(6, field.isSensitive());          // Sensitivity
-                    ps.addBatch();
-                }
-                ps.executeBatch();
+        // Locked before the diff reads the stored rows (see WriteTransaction)
+        try (Connection conn = dbConnector.getConnection();
+             WriteTransaction tx = WriteTransaction.begin(conn)) {
+            int written = writeEntry(conn, entry);
+            if (written > 0) {
+                SearchIndex.index(conn, entry);
             }
 
-            conn.commit(); // Commit transaction
-            log.debug("Transaction committed for entry: {}", entry.getId());
+            tx.commit();
+            rowsWritten.addAndGet(written);
+            log.debug("Transaction committed for entry: {} ({} rows written)", entry.getId(), written);
 
         } catch (SQLException e) {
-            log.error("Transaction failed for entry: {}. Rolling back.", entry.getId(), e);
+            log.error("Transaction failed for entry: {}. Rolled back.", entry.getId(), e);
+            throw new RuntimeException("Failed to save entry", e);
+        }
+    }
+
+    /**
+     * Saves many Entries in a single transaction over one connection, with
+     * each statement prepared once for the whole batch.
+     * <p>
+     * Entries are written whole, without diffing: the fields of an Entry that
+     * already exists are replaced. If an Entry fails, the batch is rolled back
+     * and written again with one savepoint per Entry, so that the failing
+     * Entry is skipped alone and reported in its result. Savepoints are not
+     * used up front, as they make every write pay for the rare failure.
+     */
+    @Override
+    public List<EntryResult> saveAll(List<Entry> entries) {
+        log.debug("Beginning batch transaction for {} entries", entries.size());
+        try (Connection conn = dbConnector.getConnection();
+             WriteTransaction tx = WriteTransaction.begin(conn)) {
+            BatchOutcome outcome;
             try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) {
-                log.error("Failed to rollback transaction", ex);
+                outcome = writeBatch(conn, entries, false);
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Batch of {} entries failed, writing it again entry by entry.", entries.size());
+                tx.restart();
+                outcome = writeBatch(conn, entries, true);
             }
-            throw new RuntimeException("Failed to save entry", e);
-        } finally {
+            tx.commit();
+            rowsWritten.addAndGet(outcome.written());
+            log.debug("Batch transaction committed ({} rows written)", outcome.written());
+            return outcome.results();
+        } catch (SQLException e) {
+            log.error("Batch transaction failed for {} entries. Rolled back.", entries.size(), e);
+            throw new RuntimeException("Failed to save entries", e);
+        }
+    }
+
+    /**
+     * Applies a group of saves and deletes in a single transaction over one
+     * connection (see {@link WriteBehindRepository}).
+     * <p>
+     * Entries are saved as by {@link #save(Entry)}, diffing them against the
+     * stored ones. As in {@link #saveAll(List)}, if a write fails the group is
+     * rolled back and applied again with one savepoint per write, so that the
+     * failing write is skipped alone and reported in its outcome.
+     *
+     * @param writes The writes, at most one per Entry id.
+     * @return One outcome per write, in the same order.
+     * @throws RuntimeException if the transaction itself fails; nothing is written.
+     */
+    List<WriteOutcome> applyAll(List<PendingWrite> writes) {
+        log.debug("Beginning group transaction for {} writes", writes.size());
+        try (Connection conn = dbConnector.getConnection();
+             WriteTransaction tx = WriteTransaction.begin(conn)) {
+            List<WriteOutcome> outcomes;
             try {
-                if (conn != null) conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                log.error("Failed to reset auto-commit", e);
+                outcomes = applyWrites(conn, writes, false);
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Group of {} writes failed, applying it again write by write.", writes.size());
+                tx.restart();
+                outcomes = applyWrites(conn, writes, true);
             }
+            tx.commit();
+            int written = 0;
+            for (int i = 0; i < writes.size(); i++) {
+                if (!writes.get(i).isDelete()) {
+                    written += outcomes.get(i).rows();
+                }
+            }
+            rowsWritten.addAndGet(written);
+            log.debug("Group transaction committed ({} writes)", writes.size());
+            return outcomes;
+        } catch (SQLException e) {
+            log.error("Group transaction failed for {} writes. Rolled back.", writes.size(), e);
+            throw new RuntimeException("Failed to write entries", e);
         }
     }
 
+    /**
+     * @return The total number of Entries/Fields rows inserted, updated or
+     * deleted by {@link #save(Entry)} since this repository was created.
+     * Useful to measure write amplification.
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
     @Override
     public Optional<Entry> findById(String id) {
         log.debug("Executing findById for ID: {}", id);
@@ -166,6 +306,100 @@ public final class EntryRepository implements IEntryRepository {
         return Optional.empty();
     }
 
+    @Override
+    public List<Entry> findAllByIds(Collection<String> ids) {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        log.debug("Executing findAllByIds for {} IDs...", uniqueIds.size());
+        Map<String, Entry> found = new HashMap<>();
+        try (Connection conn = dbConnector.getConnection()) {
+            for (int from = 0; from < uniqueIds.size(); from += IN_CLAUSE_BATCH_SIZE) {
+                List<String> batch = uniqueIds.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, uniqueIds.size()));
+                String sql = SELECT_ENTRIES_WITH_FIELDS_SQL
+                        + "WHERE e.id IN (" + "?,".repeat(batch.size() - 1) + "?)"
+                        + ENTRIES_WITH_FIELDS_ORDER_BY;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        ps.setString(i + 1, batch.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        for (Entry entry : mapJoinedRows(rs)) {
+                            found.put(entry.getId(), entry);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to load entries by IDs", e);
+            throw new RuntimeException("Failed to load entries by IDs", e);
+        }
+
+        // Return them in the caller's order
+        List<Entry> entries = new ArrayList<>(found.size());
+        for (String id : uniqueIds) {
+            Entry entry = found.get(id);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        log.debug("Found {} of {} requested entries.", entries.size(), uniqueIds.size());
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A single joined query, whose rows are all mapped before returning;
+     * {@link #stream()} maps them as they are consumed instead.
+     */
+    @Override
+    public List<Entry> findAll() {
+        log.debug("Executing findAll...");
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ENTRIES_WITH_FIELDS_SQL + ENTRIES_WITH_FIELDS_ORDER_BY);
+             ResultSet rs = ps.executeQuery()) {
+            List<Entry> entries = mapJoinedRows(rs);
+            log.debug("Loaded {} entries with their fields.", entries.size());
+            return entries;
+        } catch (SQLException e) {
+            log.error("Failed to load all entries", e);
+            throw new RuntimeException("Failed to load all entries", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The stream holds a pooled connection and an open ResultSet (and thus a
+     * read snapshot of the vault) until it is closed.
+     */
+    @Override
+    public Stream<Entry> stream() {
+        log.debug("Opening entry stream...");
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conn = dbConnector.getConnection();
+            ps = conn.prepareStatement(SELECT_ENTRIES_WITH_FIELDS_SQL + ENTRIES_WITH_FIELDS_ORDER_BY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            rs = ps.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(rs, ps, conn);
+            log.error("Failed to open entry stream", e);
+            throw new RuntimeException("Failed to open entry stream", e);
+        }
+
+        ResultSet cursorRs = rs;
+        PreparedStatement cursorPs = ps;
+        Connection cursorConn = conn;
+        Spliterator<Entry> spliterator = Spliterators.spliteratorUnknownSize(new JoinedRowIterator(rs),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            closeQuietly(cursorRs, cursorPs, cursorConn);
+            log.debug("Entry stream closed.");
+        });
+    }
+
     @Override
     public List<Entry> findAllSummaries() {
         log.debug("Executing findAllSummaries...");
@@ -185,26 +419,658 @@ public final class EntryRepository implements IEntryRepository {
         return summaries;
     }
 
+    @Override
+    public List<EntrySummary> findAllEntrySummaries() {
+        log.debug("Executing findAllEntrySummaries...");
+        List<EntrySummary> summaries = new ArrayList<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ALL_ENTRY_SUMMARIES_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                summaries.add(mapResultSetToSummary(rs));
+            }
+            log.debug("Found {} summaries.", summaries.size());
+        } catch (SQLException e) {
+            log.error("Failed to load entry summaries", e);
+            throw new RuntimeException("Failed to load entry summaries", e);
+        }
+        return summaries;
+    }
+
+    @Override
+    public Page findSummaries(PageRequest request) {
+        log.debug("Executing findSummaries: {}", request);
+        boolean descending = request.direction() == PageRequest.Direction.DESCENDING;
+        StringBuilder sql = new StringBuilder(SELECT_ALL_ENTRY_SUMMARIES_SQL);
+        List<String> conditions = new ArrayList<>(2);
+        if (request.category() != null) {
+            conditions.add("category = ?");
+        }
+        if (!request.isFirstPage()) {
+            conditions.add(descending ? SUMMARIES_BEFORE_KEY : SUMMARIES_AFTER_KEY);
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String order = descending ? " DESC" : "";
+        sql.append(" ORDER BY description COLLATE NOCASE").append(order).append(", id").append(order).append(" LIMIT ?");
+
+        List<EntrySummary> entries = new ArrayList<>(request.size() + 1);
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int param = 1;
+            if (request.category() != null) {
+                ps.setString(param++, request.category().name());
+            }
+            if (!request.isFirstPage()) {
+                ps.setString(param++, request.afterDescription());
+                ps.setString(param++, request.afterId());
+            }
+            // One extra row tells whether another page follows
+            ps.setInt(param, request.size() + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapResultSetToSummary(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to load a page of entry summaries", e);
+            throw new RuntimeException("Failed to load a page of entry summaries", e);
+        }
+
+        boolean hasNext = entries.size() > request.size();
+        if (hasNext) {
+            entries.remove(entries.size() - 1);
+        }
+        log.debug("Loaded a page of {} summaries (more: {}).", entries.size(), hasNext);
+        return new Page(entries, request, hasNext);
+    }
+
     @Override
     public boolean deleteById(String id) {
         log.debug("Executing deleteById for ID: {}", id);
+        try (Connection conn = dbConnector.getConnection();
+             WriteTransaction tx = WriteTransaction.begin(conn)) {
+            int affectedRows = deleteEntry(conn, id);
+            tx.commit();
+            if (affectedRows > 0) {
+                log.debug("Successfully deleted entry (and fields via cascade) for ID: {}", id);
+            } else {
+                log.warn("No entry found to delete for ID: {}", id);
+            }
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            log.error("Failed to delete entry: {}", id, e);
+            throw new RuntimeException("Failed to delete entry", e);
+        }
+    }
+
+    @Override
+    public List<Entry> search(String query, int limit) {
+        log.debug("Executing search (limit: {})...", limit);
         try (Connection conn = dbConnector.getConnection()) {
-            // We rely on "ON DELETE CASCADE" in the table definition.
-            // If that was set, we only need to delete from the Entries table.
-            try (PreparedStatement ps = conn.prepareStatement(DELETE_ENTRY_BY_ID_SQL)) {
-                ps.setString(1, id);
-                int affectedRows = ps.executeUpdate();
-                if (affectedRows > 0) {
-                    log.debug("Successfully deleted entry (and fields via cascade) for ID: {}", id);
+            List<Entry> results = SearchIndex.search(conn, query, limit);
+            log.debug("Search returned {} entries.", results.size());
+            return results;
+        } catch (SQLException e) {
+            log.error("Failed to search entries", e);
+            throw new RuntimeException("Failed to search entries", e);
+        }
+    }
+
+    @Override
+    public List<Entry> findByBlindIndex(String blindIndex) {
+        log.debug("Executing findByBlindIndex...");
+        List<Entry> summaries = new ArrayList<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ENTRIES_BY_BLIND_INDEX_SQL)) {
+            ps.setString(1, blindIndex);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(mapResultSetToEntry(rs));
+                }
+            }
+            log.debug("Found {} entries with a matching value.", summaries.size());
+        } catch (SQLException e) {
+            log.error("Failed to find entries by blind index", e);
+            throw new RuntimeException("Failed to find entries by blind index", e);
+        }
+        return summaries;
+    }
+
+    @Override
+    public List<List<Entry>> findSharedValues(FieldType type) {
+        log.debug("Executing findSharedValues for type: {}", type);
+        // blind index -> entries by id (an Entry may hold the same value twice)
+        Map<String, Map<String, Entry>> groups = new LinkedHashMap<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_SHARED_BLIND_INDEXES_SQL)) {
+            ps.setString(1, type.name());
+            ps.setString(2, type.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Entry> group = groups.computeIfAbsent(rs.getString("blind_index"), k -> new LinkedHashMap<>());
+                    if (!group.containsKey(rs.getString("id"))) {
+                        Entry entry = mapResultSetToEntry(rs);
+                        group.put(entry.getId(), entry);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to find shared values", e);
+            throw new RuntimeException("Failed to find shared values", e);
+        }
+
+        List<List<Entry>> result = new ArrayList<>(groups.size());
+        for (Map<String, Entry> group : groups.values()) {
+            result.add(new ArrayList<>(group.values()));
+        }
+        // Most reused first
+        result.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        log.debug("Found {} values shared by several entries.", result.size());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Converts the encrypted values still stored as "v2:" Base64 text to
+     * binary BLOBs (see {@link CryptoUtils#fromV2Payload(String)}): the
+     * ciphertext is unchanged, so no key is needed. The fields are walked by
+     * id, a few hundred at a time, each batch in its own short
+     * transaction, so other connections keep reading and writing meanwhile.
+     * A value changed by a concurrent save is left alone, since the save
+     * already wrote it in the current format.
+     * <p>
+     * The space freed in the database file is reused by new rows; the file
+     * itself only shrinks after a VACUUM.
+     */
+    @Override
+    public int migrateStorageFormat() {
+        log.info("Converting stored values to the current storage format...");
+        int converted = 0;
+        String lastId = "";
+        try (Connection conn = dbConnector.getConnection()) {
+            while (true) {
+                Map<String, String> batch = new LinkedHashMap<>();
+                try (PreparedStatement ps = conn.prepareStatement(SELECT_TEXT_VALUES_SQL)) {
+                    ps.setString(1, lastId);
+                    ps.setInt(2, MIGRATION_BATCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            lastId = rs.getString("id");
+                            batch.put(lastId, rs.getString("value"));
+                        }
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                converted += convertValues(conn, batch);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to convert the stored values after {} rows", converted, e);
+            throw new RuntimeException("Failed to convert the stored values", e);
+        }
+        log.info("Converted {} stored values.", converted);
+        return converted;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each value is rewritten with an UPDATE conditional on the value and
+     * blind index read, as in {@link #migrateStorageFormat()}. If one of them
+     * no longer matches, the updates of its Entry are rolled back to a
+     * savepoint and the Entry is skipped. Whole Entries are never deleted and
+     * inserted again. Sensitive values are not indexed for search, so the
+     * search index is left as it is.
+     */
+    @Override
+    public int replaceIfUnchanged(List<Entry> read, List<Entry> replacements) {
+        log.debug("Beginning transaction to replace the values of {} entries", replacements.size());
+        Map<String, Entry> readById = new HashMap<>();
+        for (Entry entry : read) {
+            readById.put(entry.getId(), entry);
+        }
+        int replaced = 0;
+        int written = 0;
+        try (Connection conn = dbConnector.getConnection();
+             WriteTransaction tx = WriteTransaction.begin(conn);
+             PreparedStatement ps = conn.prepareStatement(REPLACE_VALUE_SQL);
+             Statement savepoints = conn.createStatement()) {
+            for (Entry replacement : replacements) {
+                Entry original = readById.get(replacement.getId());
+                if (original == null) {
+                    throw new IllegalArgumentException("No Entry was read with ID: " + replacement.getId());
+                }
+                savepoints.execute("SAVEPOINT replace_entry");
+                int rows = replaceValues(ps, original, replacement);
+                if (rows < 0) {
+                    log.debug("Entry {} changed since it was read, skipping it.", replacement.getId());
+                    savepoints.execute("ROLLBACK TO replace_entry");
                 } else {
-                    log.warn("No entry found to delete for ID: {}", id);
+                    replaced++;
+                    written += rows;
                 }
-                return affectedRows > 0;
+                savepoints.execute("RELEASE replace_entry");
             }
+            tx.commit();
         } catch (SQLException e) {
-            log.error("Failed to delete entry: {}", id, e);
-            throw new RuntimeException("Failed to delete entry", e);
+            log.error("Failed to replace the values of {} entries. Rolled back.", replacements.size(), e);
+            throw new RuntimeException("Failed to replace entry values", e);
+        }
+        rowsWritten.addAndGet(written);
+        log.debug("Replaced the values of {} of {} entries ({} rows written)", replaced, replacements.size(), written);
+        return replaced;
+    }
+
+    /**
+     * Rewrites the sensitive values of an Entry that differ from the ones
+     * read, each only if it is still stored as read.
+     *
+     * @return The number of rows written, or -1 if a value changed since it
+     * was read; the rows already written must then be rolled back.
+     */
+    private static int replaceValues(PreparedStatement ps, Entry read, Entry replacement) throws SQLException {
+        int written = 0;
+        for (Map.Entry<String, Field> fieldEntry : replacement.getFields().entrySet()) {
+            Field before = read.getField(fieldEntry.getKey());
+            Field after = fieldEntry.getValue();
+            if (before == null || !before.isSensitive() || !after.isSensitive()
+                    || (sameValue(before, after) && Objects.equals(before.getBlindIndex(), after.getBlindIndex()))) {
+                continue;
+            }
+            bindValue(ps, 1, after);
+            ps.setString(2, after.getBlindIndex());
+            ps.setString(3, replacement.getId());
+            ps.setString(4, fieldEntry.getKey());
+            bindValue(ps, 5, before); // In its stored form, as read
+            ps.setString(6, before.getBlindIndex());
+            if (ps.executeUpdate() != 1) {
+                return -1;
+            }
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Rewrites the given text values (by field id) that are "v2:" payloads
+     * as binary payloads, in one transaction.
+     *
+     * @return The number of values rewritten.
+     */
+    private int convertValues(Connection conn, Map<String, String> values) throws SQLException {
+        try (WriteTransaction tx = WriteTransaction.begin(conn);
+             PreparedStatement ps = conn.prepareStatement(CONVERT_VALUE_SQL)) {
+            boolean pending = false;
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                byte[] binary = CryptoUtils.fromV2Payload(value.getValue());
+                if (binary == null) {
+                    continue; // e.g. a legacy payload, re-encrypted by the WalletManager instead
+                }
+                ps.setBytes(1, binary);
+                ps.setString(2, value.getKey());
+                ps.setString(3, value.getValue());
+                ps.addBatch();
+                pending = true;
+            }
+            int converted = pending ? sum(ps.executeBatch()) : 0;
+            tx.commit();
+            return converted;
+        }
+    }
+
+    // --- Private Helper Methods (Diff-based save) ---
+
+    /**
+     * A Field row as currently stored in the database.
+     */
+    private record StoredField(String id, Field field) {
+
+        /**
+         * A sensitive value encrypted again (with a fresh IV) is the same
+         * content if its blind index is unchanged: the stored ciphertext is
+         * kept, so that saving an unchanged Entry still writes nothing. Legacy
+         * payloads are always rewritten, to move them to the current format.
+         */
+        boolean sameContentAs(Field other) {
+            if (field.getType() != other.getType() || field.isSensitive() != other.isSensitive()
+                    || !Objects.equals(field.getBlindIndex(), other.getBlindIndex())) {
+                return false;
+            }
+            return sameValue(field, other)
+                    || field.isSensitive() && field.getBlindIndex() != null
+                    && !CryptoUtils.isLegacyPayload(field.getValue());
+        }
+    }
+
+    /**
+     * Tells whether two fields hold the same stored value, text or ciphertext.
+     */
+    private static boolean sameValue(Field a, Field b) {
+        return Arrays.equals(a.getCiphertext(), b.getCiphertext()) && Objects.equals(a.getValue(), b.getValue());
+    }
+
+    /**
+     * Writes the difference between the given Entry and its stored rows,
+     * within the caller's transaction.
+     * <p>
+     * Field order is the rowid order, so it must match the Entry's map order.
+     * Stored fields are kept in place while they appear in the same relative
+     * order; from the first field that breaks the order on, fields are
+     * (re)inserted at the end, keeping their IDs.
+     *
+     * @return The number of rows written.
+     */
+    private int writeEntry(Connection conn, Entry entry) throws SQLException {
+        int written = 0;
+
+        // Step 1: Entry metadata (write only if new or changed)
+        String[] stored = loadStoredEntry(conn, entry.getId());
+        if (stored == null
+                || !stored[0].equals(entry.getDescription())
+                || !stored[1].equals(entry.getCategory().name())) {
+            log.trace("Executing UPSERT for Entry: {}", entry.getId());
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT_ENTRY_SQL)) {
+                ps.setString(1, entry.getId());
+                ps.setString(2, entry.getDescription());
+                ps.setString(3, entry.getCategory().name());
+                // Parameters for the ON CONFLICT UPDATE
+                ps.setString(4, entry.getDescription());
+                ps.setString(5, entry.getCategory().name());
+                written += ps.executeUpdate();
+            }
+        }
+
+        // Step 2: Compute the field diff
+        // (always loaded: rows left over by a delete without cascade would otherwise survive)
+        Map<String, StoredField> storedFields = loadStoredFields(conn, entry.getId());
+        List<String> storedOrder = new ArrayList<>();
+        for (String name : storedFields.keySet()) {
+            if (entry.getField(name) != null) {
+                storedOrder.add(name); // retained fields, in rowid order
+            }
+        }
+
+        List<String> deletes = new ArrayList<>();
+        List<Map.Entry<String, StoredField>> updates = new ArrayList<>();
+        List<Map.Entry<String, String>> inserts = new ArrayList<>(); // field name -> row id
+        int cursor = 0;
+        boolean reordering = false;
+        for (Map.Entry<String, Field> fieldEntry : entry.getFields().entrySet()) {
+            String name = fieldEntry.getKey();
+            StoredField current = storedFields.remove(name);
+            if (current == null) {
+                inserts.add(Map.entry(name, UUID.randomUUID().toString()));
+                reordering = reordering || cursor < storedOrder.size();
+            } else if (!reordering && name.equals(storedOrder.get(cursor))) {
+                cursor++;
+                if (!current.sameContentAs(fieldEntry.getValue())) {
+                    updates.add(Map.entry(name, current));
+                }
+            } else {
+                // Out of order: move it to the end, keeping its ID
+                reordering = true;
+                deletes.add(current.id());
+                inserts.add(Map.entry(name, current.id()));
+            }
+        }
+        for (StoredField removed : storedFields.values()) {
+            deletes.add(removed.id());
+        }
+
+        // Step 3: Apply it (deletes first, so moved rows can be re-inserted)
+        if (!deletes.isEmpty()) {
+            log.trace("Deleting {} fields for Entry: {}", deletes.size(), entry.getId());
+            try (PreparedStatement ps = conn.prepareStatement(DELETE_FIELD_BY_ID_SQL)) {
+                for (String fieldId : deletes) {
+                    ps.setString(1, fieldId);
+                    ps.addBatch();
+                }
+                written += sum(ps.executeBatch());
+            }
+        }
+        if (!updates.isEmpty()) {
+            log.trace("Updating {} fields for Entry: {}", updates.size(), entry.getId());
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_FIELD_SQL)) {
+                for (Map.Entry<String, StoredField> update : updates) {
+                    Field field = entry.getField(update.getKey());
+                    bindValue(ps, 1, field);
+                    ps.setString(2, field.getType().name());
+                    ps.setBoolean(3, field.isSensitive());
+                    ps.setString(4, field.getBlindIndex());
+                    ps.setString(5, update.getValue().id());
+                    ps.addBatch();
+                }
+                written += sum(ps.executeBatch());
+            }
+        }
+        if (!inserts.isEmpty()) {
+            log.trace("Batch inserting {} fields for Entry: {}", inserts.size(), entry.getId());
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_FIELD_SQL)) {
+                for (Map.Entry<String, String> insert : inserts) {
+                    Field field = entry.getField(insert.getKey());
+                    ps.setString(1, insert.getValue());             // Field ID (kept if moved)
+                    ps.setString(2, entry.getId());                 // Foreign Key to the Entry
+                    ps.setString(3, insert.getKey());               // Field Name (from map key)
+                    bindValue(ps, 4, field);                        // Field Value (encrypted)
+                    ps.setString(5, field.getType().name());        // Field Type
+                    ps.setBoolean(6, field.isSensitive());          // Sensitivity
+                    ps.setString(7, field.getBlindIndex());         // Blind index (sensitive only)
+                    ps.addBatch();
+                }
+                written += sum(ps.executeBatch());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * The results of a batch write and the number of rows it wrote.
+     */
+    private record BatchOutcome(List<EntryResult> results, int written) {
+    }
+
+    /**
+     * A write queued by {@link WriteBehindRepository}.
+     *
+     * @param id    The id of the Entry.
+     * @param entry The Entry to save, or null to delete it.
+     */
+    record PendingWrite(String id, Entry entry) {
+
+        boolean isDelete() {
+            return entry == null;
+        }
+    }
+
+    /**
+     * The outcome of a {@link PendingWrite}.
+     *
+     * @param rows  The number of rows written: for a delete, 1 if the Entry existed.
+     * @param error The failure, or null if the write succeeded.
+     */
+    record WriteOutcome(int rows, RuntimeException error) {
+    }
+
+    /**
+     * Applies a group of writes in the current transaction.
+     *
+     * @param isolateFailures true to apply every write in its own savepoint and
+     *                        skip those that fail; false to throw on the first failure.
+     */
+    private List<WriteOutcome> applyWrites(Connection conn, List<PendingWrite> writes, boolean isolateFailures)
+            throws SQLException {
+        List<WriteOutcome> outcomes = new ArrayList<>(writes.size());
+        try (Statement savepoints = conn.createStatement()) {
+            for (PendingWrite write : writes) {
+                if (!isolateFailures) {
+                    outcomes.add(new WriteOutcome(applyWrite(conn, write), null));
+                    continue;
+                }
+                savepoints.execute("SAVEPOINT apply_write");
+                try {
+                    int rows = applyWrite(conn, write);
+                    savepoints.execute("RELEASE apply_write");
+                    outcomes.add(new WriteOutcome(rows, null));
+                } catch (SQLException | RuntimeException e) {
+                    log.warn("Failed to write entry {} in group, skipping it.", write.id(), e);
+                    savepoints.execute("ROLLBACK TO apply_write");
+                    savepoints.execute("RELEASE apply_write");
+                    RuntimeException cause = e instanceof RuntimeException re ? re
+                            : new RuntimeException(write.isDelete() ? "Failed to delete entry" : "Failed to save entry", e);
+                    outcomes.add(new WriteOutcome(0, cause));
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * @return The number of rows written.
+     */
+    private int applyWrite(Connection conn, PendingWrite write) throws SQLException {
+        if (write.isDelete()) {
+            return deleteEntry(conn, write.id());
+        }
+        int written = writeEntry(conn, write.entry());
+        if (written > 0) {
+            SearchIndex.index(conn, write.entry());
         }
+        return written;
+    }
+
+    /**
+     * Deletes an Entry, its fields and its search terms in the current transaction.
+     *
+     * @return The number of Entries rows deleted: 1 if the Entry existed, else 0.
+     */
+    private int deleteEntry(Connection conn, String id) throws SQLException {
+        SearchIndex.remove(conn, id);
+        // We rely on "ON DELETE CASCADE" in the table definition.
+        // If that was set, we only need to delete from the Entries table.
+        try (PreparedStatement ps = conn.prepareStatement(DELETE_ENTRY_BY_ID_SQL)) {
+            ps.setString(1, id);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Writes a batch of Entries in the current transaction.
+     *
+     * @param isolateFailures true to write every Entry in its own savepoint and
+     *                        skip those that fail; false to throw on the first failure.
+     */
+    private BatchOutcome writeBatch(Connection conn, List<Entry> entries, boolean isolateFailures)
+            throws SQLException {
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        int written = 0;
+        try (PreparedStatement upsertEntry = conn.prepareStatement(UPSERT_ENTRY_SQL);
+             PreparedStatement deleteFields = conn.prepareStatement(DELETE_FIELDS_BY_ENTRY_ID_SQL);
+             PreparedStatement insertField = conn.prepareStatement(INSERT_FIELD_SQL);
+             SearchIndex.Indexer indexer = new SearchIndex.Indexer(conn);
+             Statement savepoints = conn.createStatement()) {
+            for (Entry entry : entries) {
+                if (!isolateFailures) {
+                    written += writeWholeEntry(entry, upsertEntry, deleteFields, insertField);
+                    indexer.index(entry);
+                    results.add(EntryResult.success(entry));
+                    continue;
+                }
+                savepoints.execute("SAVEPOINT save_entry");
+                try {
+                    int rows = writeWholeEntry(entry, upsertEntry, deleteFields, insertField);
+                    indexer.index(entry);
+                    savepoints.execute("RELEASE save_entry");
+                    written += rows;
+                    results.add(EntryResult.success(entry));
+                } catch (SQLException | RuntimeException e) {
+                    log.warn("Failed to save entry {} in batch, skipping it.", entry.getId(), e);
+                    insertField.clearBatch();
+                    savepoints.execute("ROLLBACK TO save_entry");
+                    savepoints.execute("RELEASE save_entry");
+                    RuntimeException cause = e instanceof RuntimeException re ? re
+                            : new RuntimeException("Failed to save entry", e);
+                    results.add(EntryResult.failure(entry, cause));
+                }
+            }
+        }
+        return new BatchOutcome(results, written);
+    }
+
+    /**
+     * Writes an Entry and all its fields with the given batch statements,
+     * replacing any field rows it already had.
+     *
+     * @return The number of rows written.
+     */
+    private int writeWholeEntry(Entry entry, PreparedStatement upsertEntry, PreparedStatement deleteFields,
+                                PreparedStatement insertField) throws SQLException {
+        upsertEntry.setString(1, entry.getId());
+        upsertEntry.setString(2, entry.getDescription());
+        upsertEntry.setString(3, entry.getCategory().name());
+        upsertEntry.setString(4, entry.getDescription());
+        upsertEntry.setString(5, entry.getCategory().name());
+        int written = upsertEntry.executeUpdate();
+
+        deleteFields.setString(1, entry.getId());
+        written += deleteFields.executeUpdate();
+
+        if (!entry.getFields().isEmpty()) {
+            for (Map.Entry<String, Field> fieldEntry : entry.getFields().entrySet()) {
+                Field field = fieldEntry.getValue();
+                insertField.setString(1, UUID.randomUUID().toString());
+                insertField.setString(2, entry.getId());
+                insertField.setString(3, fieldEntry.getKey());
+                bindValue(insertField, 4, field);
+                insertField.setString(5, field.getType().name());
+                insertField.setBoolean(6, field.isSensitive());
+                insertField.setString(7, field.getBlindIndex());
+                insertField.addBatch();
+            }
+            written += sum(insertField.executeBatch());
+        }
+        return written;
+    }
+
+    /**
+     * @return The stored {description, category} of the Entry, or null if it does not exist.
+     */
+    private String[] loadStoredEntry(Connection conn, String entryId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ENTRY_BY_ID_SQL)) {
+            ps.setString(1, entryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new String[]{rs.getString("description"), rs.getString("category")} : null;
+            }
+        }
+    }
+
+    /**
+     * @return The stored fields of the Entry by name, in rowid order.
+     */
+    private Map<String, StoredField> loadStoredFields(Connection conn, String entryId) throws SQLException {
+        Map<String, StoredField> fields = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_FIELDS_BY_ENTRY_ID_SQL)) {
+            ps.setString(1, entryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    fields.put(rs.getString("name"), new StoredField(rs.getString("id"), readField(rs)));
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static int sum(int[] updateCounts) {
+        int total = 0;
+        for (int count : updateCounts) {
+            // SUCCESS_NO_INFO (-2) still means one row for these statements
+            total += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
     }
 
     // --- Private Helper Methods (Mapping) ---
@@ -224,6 +1090,140 @@ public final class EntryRepository implements IEntryRepository {
         return new Entry(id, description, category);
     }
 
+    /**
+     * Maps a ResultSet row (id, description, category) to an {@link EntrySummary}.
+     *
+     * @param rs The ResultSet, positioned at a valid row.
+     * @return A new summary.
+     * @throws SQLException if column labels are not found.
+     */
+    private EntrySummary mapResultSetToSummary(ResultSet rs) throws SQLException {
+        return new EntrySummary(
+                rs.getString("id"),
+                rs.getString("description"),
+                Category.valueOf(rs.getString("category")));
+    }
+
+    /**
+     * Assembles Entries from the rows of {@link #SELECT_ENTRIES_WITH_FIELDS_SQL}
+     * in a single pass, relying on the rows of each entry being adjacent.
+     *
+     * @param rs The ResultSet of the joined query, before its first row.
+     * @return The assembled Entries, in row order.
+     * @throws SQLException if column labels are not found.
+     */
+    private List<Entry> mapJoinedRows(ResultSet rs) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        JoinedRowIterator rows = new JoinedRowIterator(rs);
+        while (rows.hasNextEntry()) {
+            entries.add(rows.nextEntry());
+        }
+        return entries;
+    }
+
+    /**
+     * Assembles Entries one at a time from the rows of
+     * {@link #SELECT_ENTRIES_WITH_FIELDS_SQL}: each Entry is complete as soon
+     * as the first row of the next one is read, so only one Entry is held
+     * in memory at a time.
+     */
+    private final class JoinedRowIterator implements Iterator<Entry> {
+
+        private final ResultSet rs;
+        private boolean onRow; // rs is positioned on an unconsumed row
+        private boolean started;
+
+        private JoinedRowIterator(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        boolean hasNextEntry() throws SQLException {
+            if (!started) {
+                started = true;
+                onRow = rs.next();
+            }
+            return onRow;
+        }
+
+        Entry nextEntry() throws SQLException {
+            if (!hasNextEntry()) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = mapResultSetToEntry(rs);
+            do {
+                // LEFT JOIN: an entry without fields yields NULL field columns
+                if (rs.getString("name") != null) {
+                    mapResultSetToField(rs, entry);
+                }
+                onRow = rs.next();
+            } while (onRow && entry.getId().equals(rs.getString("id")));
+            return entry;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return hasNextEntry();
+            } catch (SQLException e) {
+                log.error("Failed to read the entry stream", e);
+                throw new RuntimeException("Failed to read the entry stream", e);
+            }
+        }
+
+        @Override
+        public Entry next() {
+            try {
+                return nextEntry();
+            } catch (SQLException e) {
+                log.error("Failed to read the entry stream", e);
+                throw new RuntimeException("Failed to read the entry stream", e);
+            }
+        }
+    }
+
+    /**
+     * Closes JDBC resources in order, ignoring nulls and logging failures.
+     */
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.error("Failed to close {}", resource, e);
+            }
+        }
+    }
+
+    /**
+     * Binds the value of a Field: a ciphertext as a BLOB, the other values as TEXT.
+     */
+    static void bindValue(PreparedStatement ps, int index, Field field) throws SQLException {
+        if (field.getCiphertext() != null) {
+            ps.setBytes(index, field.getCiphertext());
+        } else {
+            ps.setString(index, field.getValue());
+        }
+    }
+
+    /**
+     * Reads a Field row, with its value as stored by {@link #bindValue}:
+     * a BLOB becomes the field's ciphertext, TEXT its value.
+     */
+    private static Field readField(ResultSet rs) throws SQLException {
+        Field field = new Field((String) null, FieldType.valueOf(rs.getString("type")), rs.getBoolean("sensitive"));
+        Object value = rs.getObject("value");
+        if (value instanceof byte[] ciphertext) {
+            field.setCiphertext(ciphertext);
+        } else {
+            field.setValue(Objects.toString(value, null));
+        }
+        field.setBlindIndex(rs.getString("blind_index"));
+        return field;
+    }
+
     /**
      * Maps a ResultSet row to a new Field object and adds it to the
      * provided Entry.
@@ -233,11 +1233,6 @@ public final class EntryRepository implements IEntryRepository {
      * @throws SQLException if column labels are not found.
      */
     private void mapResultSetToField(ResultSet rs, Entry entry) throws SQLException {
-        String name = rs.getString("name");
-        String value = rs.getString("value");
-        FieldType type = FieldType.valueOf(rs.getString("type"));
-        boolean sensitive = rs.getBoolean("sensitive");
-
-        entry.putField(name, new Field(value, type, sensitive));
+        entry.putField(rs.getString("name"), readField(rs));
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.simonepugliese.Persistence;
+
+import java.time.Duration;
+
+/**
+ * Immutable configuration of the JDBC connection pool used by {@link DbConnector}.
+ *
+ * @param maxSize         Maximum number of open connections (borrowed + idle).
+ * @param minIdle         Number of idle connections that idle eviction always keeps open.
+ * @param maxIdleTime     How long a connection may stay idle before it is closed.
+ * @param borrowTimeout   How long a caller waits for a free connection before failing.
+ * @param validateOnBorrow Whether idle connections are validated before being handed out.
+ */
+public record PoolConfig(int maxSize,
+                         int minIdle,
+                         Duration maxIdleTime,
+                         Duration borrowTimeout,
+                         boolean validateOnBorrow) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public PoolConfig {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+        }
+        if (maxIdleTime == null || maxIdleTime.isNegative() || maxIdleTime.isZero()) {
+            throw new IllegalArgumentException("maxIdleTime must be positive");
+        }
+        if (borrowTimeout == null || borrowTimeout.isNegative()) {
+            throw new IllegalArgumentException("borrowTimeout must not be negative");
+        }
+    }
+
+    /**
+     * @return The default configuration: 8 connections, 1 kept warm,
+     * 5 minutes idle time, 30 seconds borrow timeout, validation on borrow.
+     */
+    public static PoolConfig defaults() {
+        return new PoolConfig(8, 1, Duration.ofMinutes(5), Duration.ofSeconds(30), true);
+    }
+
+    /**
+     * @param maxSize The new maximum pool size.
+     * @return A copy of this configuration with the given maximum size.
+     */
+    public PoolConfig withMaxSize(int maxSize) {
+        return new PoolConfig(maxSize, Math.min(minIdle, maxSize), maxIdleTime, borrowTimeout, validateOnBorrow);
+    }
+
+    /**
+     * @param maxIdleTime The new idle time limit.
+     * @return A copy of this configuration with the given idle time limit.
+     */
+    public PoolConfig withMaxIdleTime(Duration maxIdleTime) {
+        return new PoolConfig(maxSize, minIdle, maxIdleTime, borrowTimeout, validateOnBorrow);
+    }
+
+    /**
+     * @param borrowTimeout The new borrow timeout.
+     * @return A copy of this configuration with the given borrow timeout.
+     */
+    public PoolConfig withBorrowTimeout(Duration borrowTimeout) {
+        return new PoolConfig(maxSize, minIdle, maxIdleTime, borrowTimeout, validateOnBorrow);
+    }
+}
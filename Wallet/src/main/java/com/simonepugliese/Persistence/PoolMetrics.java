@@ -0,0 +1,28 @@
+package com.simonepugliese.Persistence;
+
+import java.time.Duration;
+
+/**
+ * A point-in-time snapshot of the connection pool statistics.
+ *
+ * @param activeConnections  Connections currently borrowed by callers.
+ * @param idleConnections    Open connections waiting in the pool.
+ * @param maxSize            Configured maximum pool size.
+ * @param borrowCount        Total number of successful borrows.
+ * @param createdCount       Total number of physical connections opened.
+ * @param evictedCount       Total number of physical connections closed by the pool
+ *                           (idle eviction or failed validation).
+ * @param timeoutCount       Total number of borrows that timed out.
+ * @param averageBorrowWait  Average time a caller waited to obtain a connection.
+ * @param maxBorrowWait      Longest time a caller waited to obtain a connection.
+ */
+public record PoolMetrics(int activeConnections,
+                          int idleConnections,
+                          int maxSize,
+                          long borrowCount,
+                          long createdCount,
+                          long evictedCount,
+                          long timeoutCount,
+                          Duration averageBorrowWait,
+                          Duration maxBorrowWait) {
+}
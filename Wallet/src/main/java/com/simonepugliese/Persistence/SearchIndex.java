@@ -0,0 +1,304 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Maintains and queries the full-text search index of a vault.
+ * <p>
+ * The index is an FTS5 virtual table with one document per Entry, made of
+ * its description and the values of its non-sensitive fields. Sensitive
+ * values (encrypted anyway) are never indexed.
+ * <p>
+ * FTS5 documents are addressed by rowid, which SQLite may renumber on VACUUM
+ * for tables without an INTEGER PRIMARY KEY such as Entries. The stable
+ * document id of each Entry is therefore kept in a separate mapping table.
+ * <p>
+ * All methods work within the caller's connection (and transaction).
+ */
+final class SearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    // --- Table Definitions ---
+    static final String TABLE_SEARCH_INDEX = "SearchIndex";
+    static final String TABLE_SEARCH_DOCUMENTS = "SearchDocuments";
+
+    static final String CREATE_SEARCH_DOCUMENTS_SQL = "CREATE TABLE IF NOT EXISTS " + TABLE_SEARCH_DOCUMENTS + " ("
+            + "doc_id INTEGER PRIMARY KEY, "
+            + "entry_id TEXT NOT NULL UNIQUE)";
+
+    // Diacritics are folded ("citta" finds "città"); 2 and 3 character
+    // prefixes are indexed to speed up search-as-you-type queries
+    static final String CREATE_SEARCH_INDEX_SQL = "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_SEARCH_INDEX
+            + " USING fts5(description, content, tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3')";
+
+    // --- Private SQL Constants ---
+    private static final String INSERT_DOCUMENT_SQL =
+            "INSERT OR IGNORE INTO " + TABLE_SEARCH_DOCUMENTS + " (entry_id) VALUES (?)";
+    private static final String SELECT_DOCUMENT_SQL =
+            "SELECT doc_id FROM " + TABLE_SEARCH_DOCUMENTS + " WHERE entry_id = ?";
+    private static final String DELETE_INDEXED_SQL =
+            "DELETE FROM " + TABLE_SEARCH_INDEX + " WHERE rowid = ?";
+    private static final String INSERT_INDEXED_SQL =
+            "INSERT INTO " + TABLE_SEARCH_INDEX + " (rowid, description, content) VALUES (?, ?, ?)";
+    private static final String DELETE_DOCUMENT_SQL =
+            "DELETE FROM " + TABLE_SEARCH_DOCUMENTS + " WHERE doc_id = ?";
+
+    // Two tiers: Entries matching in the description rank before those
+    // matching in their field values; within a tier, older Entries come first.
+    // Unlike bm25(), whose cost grows with the number of documents containing
+    // each term, every tier only reads the first matches it needs (LIMIT).
+    private static final String SEARCH_SQL =
+            "SELECT e.id, e.description, e.category FROM ("
+                    + "SELECT doc_id, MIN(tier) AS tier FROM ("
+                    + "SELECT * FROM (SELECT rowid AS doc_id, 0 AS tier FROM " + TABLE_SEARCH_INDEX
+                    + " WHERE " + TABLE_SEARCH_INDEX + " MATCH ? ORDER BY rowid LIMIT ?) "
+                    + "UNION ALL "
+                    + "SELECT * FROM (SELECT rowid AS doc_id, 1 AS tier FROM " + TABLE_SEARCH_INDEX
+                    + " WHERE " + TABLE_SEARCH_INDEX + " MATCH ? ORDER BY rowid LIMIT ?)"
+                    + ") GROUP BY doc_id ORDER BY tier, doc_id LIMIT ?) s "
+                    + "JOIN " + TABLE_SEARCH_DOCUMENTS + " d ON d.doc_id = s.doc_id "
+                    + "JOIN Entries e ON e.id = d.entry_id "
+                    + "ORDER BY s.tier, s.doc_id";
+
+    private static final String OUT_OF_SYNC_SQL =
+            "SELECT (SELECT COUNT(*) FROM Entries) <> (SELECT COUNT(*) FROM " + TABLE_SEARCH_DOCUMENTS + ")";
+
+    private SearchIndex() {
+    }
+
+    /**
+     * (Re)indexes an Entry. Only its description and non-sensitive field
+     * values are indexed.
+     */
+    static void index(Connection conn, Entry entry) throws SQLException {
+        try (Indexer indexer = new Indexer(conn)) {
+            indexer.index(entry);
+        }
+    }
+
+    /**
+     * Indexes many Entries on one connection, preparing its statements once.
+     * Used by batch writes; must be closed after use.
+     */
+    static final class Indexer implements AutoCloseable {
+
+        private final PreparedStatement insertDocument;
+        private final PreparedStatement selectDocument;
+        private final PreparedStatement delete;
+        private final PreparedStatement insert;
+
+        Indexer(Connection conn) throws SQLException {
+            List<PreparedStatement> opened = new ArrayList<>(4);
+            try {
+                opened.add(conn.prepareStatement(INSERT_DOCUMENT_SQL));
+                opened.add(conn.prepareStatement(SELECT_DOCUMENT_SQL));
+                opened.add(conn.prepareStatement(DELETE_INDEXED_SQL));
+                opened.add(conn.prepareStatement(INSERT_INDEXED_SQL));
+            } catch (SQLException e) {
+                for (PreparedStatement ps : opened) {
+                    ps.close();
+                }
+                throw e;
+            }
+            this.insertDocument = opened.get(0);
+            this.selectDocument = opened.get(1);
+            this.delete = opened.get(2);
+            this.insert = opened.get(3);
+        }
+
+        /**
+         * (Re)indexes an Entry, see {@link SearchIndex#index(Connection, Entry)}.
+         */
+        void index(Entry entry) throws SQLException {
+            long docId = documentId(entry.getId());
+            delete.setLong(1, docId);
+            delete.executeUpdate();
+            insert.setLong(1, docId);
+            insert.setString(2, entry.getDescription());
+            insert.setString(3, searchableContent(entry));
+            insert.executeUpdate();
+        }
+
+        /**
+         * Gets the stable document id of an Entry, allocating it if needed.
+         */
+        private long documentId(String entryId) throws SQLException {
+            insertDocument.setString(1, entryId);
+            insertDocument.executeUpdate();
+            selectDocument.setString(1, entryId);
+            try (ResultSet rs = selectDocument.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No search document for entry " + entryId);
+                }
+                return rs.getLong(1);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            insertDocument.close();
+            selectDocument.close();
+            delete.close();
+            insert.close();
+        }
+    }
+
+    /**
+     * Removes an Entry from the index, if present.
+     */
+    static void remove(Connection conn, String entryId) throws SQLException {
+        Long docId = null;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_DOCUMENT_SQL)) {
+            ps.setString(1, entryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    docId = rs.getLong(1);
+                }
+            }
+        }
+        if (docId == null) {
+            return;
+        }
+        try (PreparedStatement delete = conn.prepareStatement(DELETE_INDEXED_SQL);
+             PreparedStatement deleteDoc = conn.prepareStatement(DELETE_DOCUMENT_SQL)) {
+            delete.setLong(1, docId);
+            delete.executeUpdate();
+            deleteDoc.setLong(1, docId);
+            deleteDoc.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs a ranked search: Entries matching in their description come
+     * first, then those matching (also) in their field values.
+     *
+     * @param query Free text typed by the user, see {@link #toMatchExpression(String)}.
+     * @param limit Maximum number of results.
+     * @return Entry summaries (id, description, category), best match first.
+     */
+    static List<Entry> search(Connection conn, String query, int limit) throws SQLException {
+        String match = toMatchExpression(query);
+        List<Entry> results = new ArrayList<>();
+        if (match == null || limit <= 0) {
+            return results;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(SEARCH_SQL)) {
+            ps.setString(1, "description : (" + match + ")");
+            ps.setInt(2, limit);
+            ps.setString(3, match);
+            // Up to 'limit' of these may already be in the first tier
+            ps.setInt(4, (int) Math.min(Integer.MAX_VALUE, 2L * limit));
+            ps.setInt(5, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    results.add(new Entry(rs.getString("id"), rs.getString("description"),
+                            Category.valueOf(rs.getString("category"))));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Rebuilds the index if it does not cover every Entry (e.g. a vault
+     * created before search existed, or rows written bypassing the repository).
+     *
+     * @return Whether the index was rebuilt.
+     */
+    static boolean rebuildIfNeeded(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(OUT_OF_SYNC_SQL)) {
+            if (!rs.next() || !rs.getBoolean(1)) {
+                return false;
+            }
+        }
+        rebuild(conn);
+        return true;
+    }
+
+    /**
+     * Rebuilds the whole index from the Entries and Fields tables.
+     */
+    static void rebuild(Connection conn) throws SQLException {
+        log.info("Rebuilding the search index...");
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + TABLE_SEARCH_INDEX);
+            stmt.executeUpdate("DELETE FROM " + TABLE_SEARCH_DOCUMENTS);
+            stmt.executeUpdate("INSERT INTO " + TABLE_SEARCH_DOCUMENTS + " (entry_id) SELECT id FROM Entries");
+            int indexed = stmt.executeUpdate("INSERT INTO " + TABLE_SEARCH_INDEX + " (rowid, description, content) "
+                    + "SELECT d.doc_id, e.description, "
+                    + "COALESCE((SELECT group_concat(f.value, char(10)) FROM Fields f "
+                    + "WHERE f.entry_id = e.id AND f.sensitive = 0 AND f.value IS NOT NULL), '') "
+                    + "FROM Entries e JOIN " + TABLE_SEARCH_DOCUMENTS + " d ON d.entry_id = e.id");
+            if (autoCommit) {
+                conn.commit();
+            }
+            log.info("Search index rebuilt ({} entries).", indexed);
+        } catch (SQLException e) {
+            if (autoCommit) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Turns free text into an FTS5 expression: every word becomes a quoted
+     * term and all of them must match. The last word is a prefix, as it may
+     * still be being typed; the others are whole words, which FTS5 can look
+     * up much faster than long prefixes. Quoting neutralizes FTS5 operators
+     * and column filters typed by the user.
+     *
+     * @return The expression, or null if the text contains no words.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringJoiner terms = new StringJoiner(" ");
+        String last = null;
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (last != null) {
+                    terms.add("\"" + last + "\"");
+                }
+                last = word;
+            }
+        }
+        if (last == null) {
+            return null;
+        }
+        return terms.add("\"" + last + "\"*").toString();
+    }
+
+    /**
+     * @return The non-sensitive field values, one per line.
+     */
+    private static String searchableContent(Entry entry) {
+        StringJoiner content = new StringJoiner("\n");
+        for (Field field : entry.getFields().values()) {
+            if (!field.isSensitive() && field.getValue() != null) {
+                content.add(field.getValue());
+            }
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.IVaultKeyStore;
+import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.KeyDerivationFunction;
+import com.simonepugliese.Security.SessionKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persists the vault key hierarchy in the Metadata table.
+ * <p>
+ * The master password derives a key-encryption key (KEK) with the vault salt.
+ * The KEK only wraps a random data key, which is what actually encrypts the
+ * sensitive fields. This way the expensive derivation runs once per unlock
+ * instead of once per field.
+ * <p>
+ * The KDF and its cost are chosen when the vault is created and stored with
+ * it, so they can be changed for new vaults without affecting existing ones.
+ * Vaults without stored parameters use {@link KeyDerivationFunction#legacy()}.
+ * <p>
+ * Changing the master password only rewraps the data key, so it takes the
+ * same time whatever the size of the vault.
+ */
+public final class VaultKeyStore implements IVaultKeyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(VaultKeyStore.class);
+
+    // --- Metadata keys ---
+    private static final String KEY_KEK_SALT = "kek.salt";
+    private static final String KEY_WRAPPED_DATA_KEY = "datakey.wrapped";
+    private static final String KEY_KDF_PARAMS = "kdf.params";
+
+    // --- Private SQL Constants ---
+    private static final String TABLE_METADATA = "Metadata";
+    private static final String SELECT_METADATA_SQL =
+            "SELECT key, value FROM " + TABLE_METADATA + " WHERE key IN (?, ?, ?)";
+    private static final String INSERT_METADATA_SQL =
+            "INSERT OR IGNORE INTO " + TABLE_METADATA + " (key, value) VALUES (?, ?)";
+    private static final String UPSERT_METADATA_SQL =
+            "INSERT OR REPLACE INTO " + TABLE_METADATA + " (key, value) VALUES (?, ?)";
+    // Only replaces the wrapped key that was unwrapped, see changeMasterPassword()
+    private static final String REPLACE_WRAPPED_KEY_SQL =
+            "UPDATE " + TABLE_METADATA + " SET value = ? WHERE key = ? AND value = ?";
+    // Any encrypted value, to check the password of a vault without a data key
+    private static final String SELECT_SENSITIVE_VALUE_SQL =
+            "SELECT value FROM Fields WHERE sensitive = 1 AND value IS NOT NULL AND value <> '' LIMIT 1";
+
+    private final DbConnector dbConnector;
+    private final KeyDerivationFunction kdfForNewVaults;
+
+    /**
+     * Constructs a new VaultKeyStore that creates new vaults with
+     * {@link KeyDerivationFunction#defaults()}.
+     * It immediately gets the DbConnector instance.
+     */
+    public VaultKeyStore() {
+        this(KeyDerivationFunction.defaults());
+    }
+
+    /**
+     * Constructs a new VaultKeyStore.
+     * It immediately gets the DbConnector instance.
+     *
+     * @param kdfForNewVaults The KDF used if the vault has no data key yet
+     *                        (e.g. a calibrated one, see
+     *                        {@link com.simonepugliese.Security.KdfCalibrator})
+     *                        or when its master password is changed.
+     *                        Existing vaults are always unlocked with their stored parameters.
+     */
+    public VaultKeyStore(KeyDerivationFunction kdfForNewVaults) {
+        this(DbConnector.getInstance(), kdfForNewVaults);
+    }
+
+    /**
+     * Constructs a new VaultKeyStore on a specific vault.
+     *
+     * @param dbConnector     The connector of the vault.
+     * @param kdfForNewVaults The KDF used if the vault has no data key yet,
+     *                        or when its master password is changed.
+     */
+    public VaultKeyStore(DbConnector dbConnector, KeyDerivationFunction kdfForNewVaults) {
+        this.dbConnector = dbConnector;
+        this.kdfForNewVaults = kdfForNewVaults;
+        log.debug("VaultKeyStore initialized.");
+    }
+
+    /**
+     * Unlocks the vault and returns its data key.
+     * <p>
+     * On a vault without a stored key (new, or created before the key hierarchy
+     * existed) a fresh data key is generated, wrapped with the key derived from
+     * {@code masterPassword} and stored. If the vault already holds encrypted
+     * values, the password must decrypt them first (see
+     * {@link #verifyLegacyPassword(char[])}).
+     *
+     * @param masterPassword The master password.
+     * @return The vault data key. The caller owns it and should destroy it when done.
+     * @throws DecryptionFailedException if the master password is incorrect.
+     */
+    public SessionKey unlock(char[] masterPassword) {
+        Map<String, String> stored = readKeyMetadata();
+        if (!stored.containsKey(KEY_WRAPPED_DATA_KEY)) {
+            log.info("No data key found in the vault, generating a new one.");
+            verifyLegacyPassword(masterPassword);
+            SessionKey created = createDataKey(masterPassword);
+            if (created != null) {
+                log.info("Vault unlocked with a new data key ({}).", kdfForNewVaults.encode());
+                return created;
+            }
+            // A concurrent unlock stored its key first
+            stored = readKeyMetadata();
+        }
+
+        KeyDerivationFunction kdf = storedKdf(stored);
+        SessionKey dataKey = unwrapDataKey(stored, kdf, masterPassword);
+        log.info("Vault unlocked ({}).", kdf.encode());
+        return dataKey;
+    }
+
+    @Override
+    public void verify(char[] password) {
+        Map<String, String> stored = readKeyMetadata();
+        if (!stored.containsKey(KEY_WRAPPED_DATA_KEY)) {
+            throw new IllegalStateException("The vault has no data key yet");
+        }
+        unwrapDataKey(stored, storedKdf(stored), password).destroy();
+        log.debug("Master password verified.");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The new password is stretched with a new salt and with the KDF this key
+     * store creates vaults with, so changing the password also upgrades the
+     * cost of an older vault. Sessions already unlocked keep working, since
+     * the data key does not change.
+     */
+    @Override
+    public void changeMasterPassword(char[] currentPassword, char[] newPassword) {
+        Map<String, String> stored = readKeyMetadata();
+        if (!stored.containsKey(KEY_WRAPPED_DATA_KEY)) {
+            throw new IllegalStateException("The vault has no data key yet");
+        }
+        SessionKey dataKey = unwrapDataKey(stored, storedKdf(stored), currentPassword);
+        try {
+            byte[] salt = CryptoUtils.generateSalt();
+            String wrapped = wrapDataKey(dataKey, newPassword, salt);
+            try (Connection conn = dbConnector.getConnection();
+                 WriteTransaction tx = WriteTransaction.begin(conn)) {
+                // Fails if another session changed the password since it was read
+                try (PreparedStatement ps = conn.prepareStatement(REPLACE_WRAPPED_KEY_SQL)) {
+                    ps.setString(1, wrapped);
+                    ps.setString(2, KEY_WRAPPED_DATA_KEY);
+                    ps.setString(3, stored.get(KEY_WRAPPED_DATA_KEY));
+                    if (ps.executeUpdate() != 1) {
+                        throw new IllegalStateException("The master password was changed concurrently");
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_METADATA_SQL)) {
+                    ps.setString(1, KEY_KEK_SALT);
+                    ps.setString(2, Base64.getEncoder().encodeToString(salt));
+                    ps.addBatch();
+                    ps.setString(1, KEY_KDF_PARAMS);
+                    ps.setString(2, kdfForNewVaults.encode());
+                    ps.addBatch();
+                    ps.executeBatch();
+                }
+                tx.commit();
+            }
+        } catch (SQLException e) {
+            log.error("Failed to store the rewrapped data key", e);
+            throw new RuntimeException("Failed to change the master password", e);
+        } finally {
+            dataKey.destroy();
+        }
+        log.info("Master password changed ({}).", kdfForNewVaults.encode());
+    }
+
+    /**
+     * @return The KDF the stored data key is wrapped with.
+     */
+    private static KeyDerivationFunction storedKdf(Map<String, String> stored) {
+        return stored.containsKey(KEY_KDF_PARAMS)
+                ? KeyDerivationFunction.decode(stored.get(KEY_KDF_PARAMS))
+                : KeyDerivationFunction.legacy();
+    }
+
+    /**
+     * Derives the key-encryption key from the password and unwraps the data key.
+     *
+     * @throws DecryptionFailedException if the password is incorrect.
+     */
+    private static SessionKey unwrapDataKey(Map<String, String> stored, KeyDerivationFunction kdf, char[] password) {
+        byte[] salt = Base64.getDecoder().decode(stored.get(KEY_KEK_SALT));
+        SessionKey kek = kdf.deriveKey(password, salt);
+        try {
+            return CryptoUtils.unwrapKey(stored.get(KEY_WRAPPED_DATA_KEY), kek);
+        } finally {
+            kek.destroy();
+        }
+    }
+
+    /**
+     * Wraps the data key with a key-encryption key derived from the password
+     * by the KDF for new vaults.
+     */
+    private String wrapDataKey(SessionKey dataKey, char[] password, byte[] salt) {
+        SessionKey kek = kdfForNewVaults.deriveKey(password, salt);
+        try {
+            return CryptoUtils.wrapKey(dataKey, kek);
+        } finally {
+            kek.destroy();
+        }
+    }
+
+    /**
+     * Checks the master password of a vault that has no data key yet, before
+     * one is created with it. A vault created before the key hierarchy
+     * existed holds values encrypted with keys derived per field from the
+     * password: if the password does not decrypt one of them, it is wrong,
+     * and a data key wrapped with it would lock the user out of the old
+     * values. A vault without encrypted values has nothing to check.
+     *
+     * @throws DecryptionFailedException if the password does not decrypt the stored values.
+     * @throws IllegalStateException if the values are encrypted with a data
+     * key that is no longer stored.
+     */
+    private void verifyLegacyPassword(char[] masterPassword) {
+        Object sample;
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_SENSITIVE_VALUE_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            sample = rs.next() ? rs.getObject("value") : null;
+        } catch (SQLException e) {
+            log.error("Failed to read an encrypted value of the vault", e);
+            throw new RuntimeException("Failed to read an encrypted value of the vault", e);
+        }
+        if (sample == null) {
+            return;
+        }
+        // Binary payloads (BLOBs) and "v2:" text were encrypted with a data key
+        if (!(sample instanceof String text) || !CryptoUtils.isLegacyPayload(text)) {
+            throw new IllegalStateException("The vault holds values encrypted with a data key that is no longer stored");
+        }
+        // Throws DecryptionFailedException if the password is wrong
+        CryptoUtils.decrypt(text, masterPassword);
+        log.debug("Master password verified against a legacy value.");
+    }
+
+    /**
+     * Generates, wraps and stores a new data key in a single transaction.
+     * Existing values are never overwritten (INSERT OR IGNORE).
+     *
+     * @return The new data key, or null if a concurrent unlock stored its own first.
+     */
+    private SessionKey createDataKey(char[] masterPassword) {
+        byte[] salt = CryptoUtils.generateSalt();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        boolean created = false;
+        try {
+            String wrapped = wrapDataKey(dataKey, masterPassword, salt);
+            try (Connection conn = dbConnector.getConnection();
+                 WriteTransaction tx = WriteTransaction.begin(conn);
+                 PreparedStatement ps = conn.prepareStatement(INSERT_METADATA_SQL)) {
+                ps.setString(1, KEY_KEK_SALT);
+                ps.setString(2, Base64.getEncoder().encodeToString(salt));
+                ps.addBatch();
+                ps.setString(1, KEY_WRAPPED_DATA_KEY);
+                ps.setString(2, wrapped);
+                ps.addBatch();
+                ps.setString(1, KEY_KDF_PARAMS);
+                ps.setString(2, kdfForNewVaults.encode());
+                ps.addBatch();
+                int[] inserted = ps.executeBatch();
+                tx.commit();
+                created = inserted[1] == 1;
+            }
+        } catch (SQLException e) {
+            log.error("Failed to store the vault data key", e);
+            throw new RuntimeException("Failed to store the vault data key", e);
+        } finally {
+            if (!created) {
+                dataKey.destroy();
+            }
+        }
+        // Returned as is: unwrapping it again would derive the key twice
+        return created ? dataKey : null;
+    }
+
+    /**
+     * @return The stored salt, wrapped key and KDF parameters, keyed by their metadata key.
+     */
+    private Map<String, String> readKeyMetadata() {
+        Map<String, String> values = new HashMap<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_METADATA_SQL)) {
+            ps.setString(1, KEY_KEK_SALT);
+            ps.setString(2, KEY_WRAPPED_DATA_KEY);
+            ps.setString(3, KEY_KDF_PARAMS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    values.put(rs.getString("key"), rs.getString("value"));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to read the vault key metadata", e);
+            throw new RuntimeException("Failed to read the vault key metadata", e);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,67 @@
+package com.simonepugliese.Persistence;
+
+import java.time.Duration;
+
+/**
+ * Immutable configuration of a {@link WriteBehindRepository}.
+ *
+ * @param maxBatchSize  Maximum number of queued writes committed in one transaction.
+ * @param maxLatency    How long the writer waits for more writes after the first
+ *                      one of a group, before committing it. Zero commits whatever
+ *                      is queued right away.
+ * @param queueCapacity Maximum number of writes waiting in the queue; callers
+ *                      block beyond it.
+ */
+public record WriteBehindConfig(int maxBatchSize,
+                                Duration maxLatency,
+                                int queueCapacity) {
+
+    /**
+     * Validates the configuration values.
+     */
+    public WriteBehindConfig {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        if (maxLatency == null || maxLatency.isNegative()) {
+            throw new IllegalArgumentException("maxLatency must not be negative");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1");
+        }
+    }
+
+    /**
+     * @return The default configuration: up to 256 writes per transaction,
+     * no extra latency, 1024 queued writes. Groups still form under load, from
+     * the writes queued while the previous group is being committed; waiting
+     * longer only pays off when commits are very slow to sync.
+     */
+    public static WriteBehindConfig defaults() {
+        return new WriteBehindConfig(256, Duration.ZERO, 1024);
+    }
+
+    /**
+     * @param maxBatchSize The new maximum number of writes per transaction.
+     * @return A copy of this configuration with the given batch size.
+     */
+    public WriteBehindConfig withMaxBatchSize(int maxBatchSize) {
+        return new WriteBehindConfig(maxBatchSize, maxLatency, queueCapacity);
+    }
+
+    /**
+     * @param maxLatency The new time the writer waits for more writes.
+     * @return A copy of this configuration with the given latency.
+     */
+    public WriteBehindConfig withMaxLatency(Duration maxLatency) {
+        return new WriteBehindConfig(maxBatchSize, maxLatency, queueCapacity);
+    }
+
+    /**
+     * @param queueCapacity The new maximum number of queued writes.
+     * @return A copy of this configuration with the given capacity.
+     */
+    public WriteBehindConfig withQueueCapacity(int queueCapacity) {
+        return new WriteBehindConfig(maxBatchSize, maxLatency, queueCapacity);
+    }
+}
@@ -0,0 +1,405 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.EntryResult;
+import com.simonepugliese.Core.IEntryRepository;
+import com.simonepugliese.Core.Page;
+import com.simonepugliese.Core.PageRequest;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Persistence.EntryRepository.PendingWrite;
+import com.simonepugliese.Persistence.EntryRepository.WriteOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An {@link EntryRepository} whose saves and deletes all go through a single
+ * writer thread, which commits them in groups.
+ * <p>
+ * SQLite allows one write transaction at a time: threads saving concurrently
+ * with their own transactions wait on the database lock, one after the other,
+ * and may give up with SQLITE_BUSY. Here writes are queued instead; the writer
+ * takes every write queued while it was committing the previous group, waits
+ * up to {@link WriteBehindConfig#maxLatency()} for more, and commits them
+ * together in one transaction (group commit). The more writers there are, the
+ * larger the groups, so the cost of a commit is shared rather than paid by
+ * each save.
+ * <p>
+ * Writes to the same Entry id within a group are coalesced: only the last
+ * one is applied, and the futures of those it superseded complete with its
+ * outcome. A write that fails in a group is skipped alone (see
+ * {@link EntryRepository#applyAll(List)}).
+ * <p>
+ * {@link #save(Entry)} and {@link #deleteById(String)} wait for the commit,
+ * so callers see the usual repository behavior. {@link #saveAsync(Entry)} and
+ * {@link #deleteAsync(String)} return as soon as the write is queued; a read
+ * made before their future completes may not see the write yet. Reads go
+ * straight to the underlying repository.
+ * <p>
+ * This class is thread-safe. Futures are completed by the writer thread, so
+ * actions chained to them should be quick or run asynchronously.
+ */
+public final class WriteBehindRepository implements IEntryRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindRepository.class);
+
+    // Tells the writer to stop, once the writes queued before it are committed
+    private static final Request STOP = new Request(null, null);
+
+    private final EntryRepository repository;
+    private final WriteBehindConfig config;
+    private final BlockingQueue<Request> queue;
+    private final Thread writer;
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedWrites = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates the repository and starts its writer thread.
+     *
+     * @param repository The repository the writes are committed to.
+     * @param config     The group commit settings.
+     */
+    public WriteBehindRepository(EntryRepository repository, WriteBehindConfig config) {
+        this.repository = repository;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        this.writer = new Thread(this::runWriter, "wallet-db-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the save of an Entry. The Entry must not be modified until the
+     * returned future completes.
+     *
+     * @param entry The Entry to save, as for {@link EntryRepository#save(Entry)}.
+     * @return A future completed once the save is committed, with true if any
+     * row was written; it fails if the save failed.
+     * @throws IllegalStateException if the repository is closed.
+     */
+    public CompletableFuture<Boolean> saveAsync(Entry entry) {
+        return submit(new PendingWrite(entry.getId(), entry));
+    }
+
+    /**
+     * Queues the delete of an Entry.
+     *
+     * @param id The id of the Entry to delete.
+     * @return A future completed once the delete is committed, with true if
+     * the Entry existed; it fails if the delete failed.
+     * @throws IllegalStateException if the repository is closed.
+     */
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return submit(new PendingWrite(id, null));
+    }
+
+    /**
+     * @return A future completed once every write queued before this call has
+     * been committed or has failed.
+     * @throws IllegalStateException if the repository is closed.
+     */
+    public CompletableFuture<Void> flush() {
+        return submit(null).thenApply(ignored -> null);
+    }
+
+    /**
+     * Saves an Entry with the next group commit, waiting for it.
+     */
+    @Override
+    public void save(Entry entry) {
+        await(saveAsync(entry));
+    }
+
+    /**
+     * Waits for the queued writes, then saves the Entries in a transaction of
+     * their own with {@link EntryRepository#saveAll(List)}, which is better
+     * suited to large batches.
+     */
+    @Override
+    public List<EntryResult> saveAll(List<Entry> entries) {
+        await(flush());
+        return repository.saveAll(entries);
+    }
+
+    /**
+     * Deletes an Entry with the next group commit, waiting for it.
+     */
+    @Override
+    public boolean deleteById(String id) {
+        return await(deleteAsync(id));
+    }
+
+    /**
+     * Waits for the queued writes, then converts the stored values.
+     */
+    @Override
+    public int migrateStorageFormat() {
+        await(flush());
+        return repository.migrateStorageFormat();
+    }
+
+    /**
+     * Waits for the queued writes, then replaces the values in a transaction
+     * of their own.
+     */
+    @Override
+    public int replaceIfUnchanged(List<Entry> read, List<Entry> replacements) {
+        await(flush());
+        return repository.replaceIfUnchanged(read, replacements);
+    }
+
+    @Override
+    public Optional<Entry> findById(String id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public List<Entry> findAllByIds(Collection<String> ids) {
+        return repository.findAllByIds(ids);
+    }
+
+    @Override
+    public List<Entry> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public Stream<Entry> stream() {
+        return repository.stream();
+    }
+
+    @Override
+    public List<Entry> findAllSummaries() {
+        return repository.findAllSummaries();
+    }
+
+    @Override
+    public List<EntrySummary> findAllEntrySummaries() {
+        return repository.findAllEntrySummaries();
+    }
+
+    @Override
+    public Page findSummaries(PageRequest request) {
+        return repository.findSummaries(request);
+    }
+
+    @Override
+    public List<Entry> search(String query, int limit) {
+        return repository.search(query, limit);
+    }
+
+    @Override
+    public List<Entry> findByBlindIndex(String blindIndex) {
+        return repository.findByBlindIndex(blindIndex);
+    }
+
+    @Override
+    public List<List<Entry>> findSharedValues(FieldType type) {
+        return repository.findSharedValues(type);
+    }
+
+    /**
+     * @return The number of group transactions committed so far.
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * @return The number of writes committed so far, after coalescing.
+     */
+    public long getCommittedWriteCount() {
+        return committedWrites.get();
+    }
+
+    /**
+     * Commits the queued writes and stops the writer thread. Writes queued
+     * afterwards fail with an {@link IllegalStateException}. Nothing is done
+     * if the writer thread has already stopped on its own.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the queued writes", e);
+        }
+        List<Request> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.remove(STOP);
+        fail(left, closedException());
+        log.info("Write-behind repository closed after {} group commits.", commits.get());
+    }
+
+    private CompletableFuture<Boolean> submit(PendingWrite write) {
+        if (closed) {
+            throw closedException();
+        }
+        Request request = new Request(write, new CompletableFuture<>());
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queuing a write", e);
+        }
+        // close() may have stopped the writer just before the request was added
+        if (closed && queue.remove(request)) {
+            request.future().completeExceptionally(closedException());
+        }
+        return request.future();
+    }
+
+    /**
+     * Commits groups until asked to stop. Whatever ends the loop, the
+     * repository is then closed and the writes still queued fail, so that no
+     * caller waits forever for a writer that is gone.
+     */
+    private void runWriter() {
+        List<Request> group = new ArrayList<>();
+        try {
+            boolean stopping = false;
+            while (!stopping) {
+                Request first = queue.take();
+                if (first == STOP) {
+                    break;
+                }
+                group.add(first);
+                stopping = collect(group);
+                try {
+                    commit(group);
+                } catch (Throwable e) {
+                    // Errors too, e.g. an OutOfMemoryError: the group fails, the writer goes on
+                    log.error("Group commit of {} writes failed", group.size(), e);
+                    fail(group, e);
+                }
+                group.clear();
+            }
+        } catch (Throwable e) {
+            log.error("Writer thread stopped, queued writes are no longer committed", e);
+            fail(group, e instanceof InterruptedException
+                    ? new RuntimeException("Writer thread interrupted", e) : e);
+        } finally {
+            closed = true;
+            List<Request> left = new ArrayList<>();
+            queue.drainTo(left);
+            left.remove(STOP);
+            fail(left, closedException());
+        }
+    }
+
+    private static void fail(List<Request> requests, Throwable cause) {
+        for (Request request : requests) {
+            request.future().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Adds to a group the writes queued until the group is full or its
+     * latency has elapsed.
+     *
+     * @return true if the writer was asked to stop.
+     */
+    private boolean collect(List<Request> group) throws InterruptedException {
+        long deadline = System.nanoTime() + config.maxLatency().toNanos();
+        while (group.size() < config.maxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return false;
+            }
+            if (next == STOP) {
+                return true;
+            }
+            group.add(next);
+        }
+        return false;
+    }
+
+    /**
+     * Commits a group in one transaction, keeping the last write of each
+     * Entry id, and completes the futures of the group.
+     */
+    private void commit(List<Request> group) {
+        Map<String, PendingWrite> latest = new LinkedHashMap<>();
+        for (Request request : group) {
+            if (request.write() != null) {
+                latest.put(request.write().id(), request.write());
+            }
+        }
+        Map<String, WriteOutcome> outcomes = new HashMap<>();
+        RuntimeException failure = null;
+        if (!latest.isEmpty()) {
+            List<PendingWrite> writes = new ArrayList<>(latest.values());
+            try {
+                List<WriteOutcome> results = repository.applyAll(writes);
+                for (int i = 0; i < writes.size(); i++) {
+                    outcomes.put(writes.get(i).id(), results.get(i));
+                }
+                commits.incrementAndGet();
+                committedWrites.addAndGet(writes.size());
+                log.debug("Committed {} writes ({} queued) in one transaction", writes.size(), group.size());
+            } catch (RuntimeException e) {
+                // Already logged by the repository
+                failure = e;
+            }
+        }
+        for (Request request : group) {
+            if (request.write() == null) {
+                request.future().complete(true);
+            } else if (failure != null) {
+                request.future().completeExceptionally(failure);
+            } else {
+                WriteOutcome outcome = outcomes.get(request.write().id());
+                if (outcome.error() != null) {
+                    request.future().completeExceptionally(outcome.error());
+                } else {
+                    request.future().complete(outcome.rows() > 0);
+                }
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("Write-behind repository is closed");
+    }
+
+    /**
+     * A queued write and its future; a null write only marks a point in the
+     * queue (see {@link #flush()}).
+     */
+    private record Request(PendingWrite write, CompletableFuture<Boolean> future) {
+    }
+}
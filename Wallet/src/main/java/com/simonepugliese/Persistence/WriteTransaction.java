@@ -0,0 +1,94 @@
+package com.simonepugliese.Persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A write transaction that takes the database write lock when it begins
+ * ({@code BEGIN IMMEDIATE}); closing it without a commit rolls it back.
+ * <p>
+ * A transaction opened with {@code setAutoCommit(false)} is deferred: it
+ * starts as a read and asks for the write lock at its first write. In WAL
+ * mode, if another connection has committed in the meantime, that upgrade
+ * fails at once with SQLITE_BUSY, without waiting for the busy timeout, as
+ * the rows already read are stale. Writes that read the stored rows first
+ * (e.g. to diff them) must therefore lock up front, where the busy timeout
+ * makes concurrent writers wait for their turn.
+ * <p>
+ * The statements are issued on a connection left in auto-commit mode,
+ * rather than through the driver's IMMEDIATE transaction mode: the driver
+ * begins a new transaction right after each commit, which would take the
+ * write lock again until auto-commit is turned back on.
+ */
+final class WriteTransaction implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteTransaction.class);
+
+    private final Connection conn;
+    private boolean active;
+
+    private WriteTransaction(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Begins a write transaction, waiting up to the busy timeout for the lock.
+     *
+     * @param conn A connection in auto-commit mode.
+     * @return The transaction, to be closed once done.
+     * @throws SQLException if the lock could not be taken.
+     */
+    static WriteTransaction begin(Connection conn) throws SQLException {
+        WriteTransaction tx = new WriteTransaction(conn);
+        tx.execute("BEGIN IMMEDIATE");
+        tx.active = true;
+        return tx;
+    }
+
+    /**
+     * Commits the transaction. If the commit fails, closing the transaction
+     * rolls it back.
+     */
+    void commit() throws SQLException {
+        execute("COMMIT");
+        active = false;
+    }
+
+    /**
+     * Rolls back everything written so far and begins again, e.g. to retry a
+     * batch with savepoints.
+     */
+    void restart() throws SQLException {
+        execute("ROLLBACK");
+        active = false;
+        execute("BEGIN IMMEDIATE");
+        active = true;
+    }
+
+    /**
+     * Rolls the transaction back, unless it was committed.
+     */
+    @Override
+    public void close() {
+        if (!active) {
+            return;
+        }
+        active = false;
+        try {
+            execute("ROLLBACK");
+        } catch (SQLException e) {
+            // e.g. SQLite has already rolled it back after an error
+            log.warn("Failed to roll back a write transaction", e);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.simonepugliese.Security;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * The clear-text header of an encrypted archive, and the per-segment nonces
+ * derived from it.
+ * <p>
+ * Layout: magic "WLTA", version (1 byte), segment size (int), KDF parameters
+ * (short length + UTF-8, see {@link KeyDerivationFunction#encode()}), salt
+ * (1 byte length + bytes), nonce prefix (7 bytes). The whole header is the
+ * associated data of every segment, so changing any of it (e.g. to weaken
+ * the KDF) makes the archive fail to decrypt.
+ * <p>
+ * The KDF parameters are used before anything is authenticated, so their
+ * cost is bounded: a crafted header could otherwise make reading the
+ * archive run for hours or run out of memory, whatever the password.
+ * <p>
+ * This class is package-private.
+ */
+final class ArchiveHeader {
+
+    static final int NONCE_LENGTH = 12;
+    static final int TAG_LENGTH = 16;
+
+    private static final byte[] MAGIC = {'W', 'L', 'T', 'A'};
+    private static final byte VERSION = 1;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int MAX_SEGMENT_SIZE = 1 << 24;
+    private static final int MAX_KDF_PARAMS_LENGTH = 256;
+    private static final long MAX_SCRYPT_MEMORY = 1L << 30;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final KeyDerivationFunction kdf;
+    private final byte[] salt;
+    private final byte[] noncePrefix;
+    private final int segmentSize;
+    private final byte[] encoded;
+
+    ArchiveHeader(KeyDerivationFunction kdf, byte[] salt, byte[] noncePrefix, int segmentSize) {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        if (noncePrefix.length != NONCE_PREFIX_LENGTH || salt.length == 0 || salt.length > 255) {
+            throw new IllegalArgumentException("Invalid salt or nonce prefix length");
+        }
+        checkCost(kdf);
+        this.kdf = kdf;
+        this.salt = salt.clone();
+        this.noncePrefix = noncePrefix.clone();
+        this.segmentSize = segmentSize;
+        this.encoded = encode();
+    }
+
+    /**
+     * Rejects KDF parameters more expensive than any this application creates
+     * (see {@link KeyDerivationFunction#scaled(double)}).
+     */
+    private static void checkCost(KeyDerivationFunction kdf) {
+        boolean tooExpensive = switch (kdf) {
+            case ScryptKdf scrypt -> scrypt.n() > ScryptKdf.MAX_N
+                    || (long) scrypt.r() * scrypt.p() > ScryptKdf.MAX_R_TIMES_P
+                    || 128L * scrypt.r() * scrypt.n() > MAX_SCRYPT_MEMORY;
+            case Pbkdf2Kdf pbkdf2 -> pbkdf2.iterations() > Pbkdf2Kdf.MAX_ITERATIONS;
+            default -> false;
+        };
+        if (tooExpensive) {
+            throw new IllegalArgumentException("KDF parameters out of range: " + kdf.encode());
+        }
+    }
+
+    /**
+     * @return A header with a random salt and nonce prefix.
+     */
+    static ArchiveHeader random(KeyDerivationFunction kdf, int segmentSize) {
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        SECURE_RANDOM.nextBytes(noncePrefix);
+        return new ArchiveHeader(kdf, CryptoUtils.generateSalt(), noncePrefix, segmentSize);
+    }
+
+    /**
+     * Reads and validates a header.
+     *
+     * @throws IOException if the stream does not start with a valid archive header.
+     */
+    static ArchiveHeader read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            data.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a wallet archive");
+            }
+            byte version = data.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported archive version: " + version);
+            }
+            int segmentSize = data.readInt();
+            int kdfLength = data.readUnsignedShort();
+            if (kdfLength > MAX_KDF_PARAMS_LENGTH) {
+                throw new IOException("Corrupt archive header");
+            }
+            byte[] kdfParams = new byte[kdfLength];
+            data.readFully(kdfParams);
+            byte[] salt = new byte[data.readUnsignedByte()];
+            data.readFully(salt);
+            byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            data.readFully(noncePrefix);
+            return new ArchiveHeader(KeyDerivationFunction.decode(new String(kdfParams, StandardCharsets.UTF_8)),
+                    salt, noncePrefix, segmentSize);
+        } catch (EOFException e) {
+            throw new IOException("Truncated archive header", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt archive header: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            byte[] kdfParams = kdf.encode().getBytes(StandardCharsets.UTF_8);
+            data.write(MAGIC);
+            data.writeByte(VERSION);
+            data.writeInt(segmentSize);
+            data.writeShort(kdfParams.length);
+            data.write(kdfParams);
+            data.writeByte(salt.length);
+            data.write(salt);
+            data.write(noncePrefix);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Builds the nonce of a segment: prefix | segment number | last-segment flag.
+     * The flag makes a truncated archive (whose last segment is missing) fail
+     * to decrypt instead of looking complete.
+     */
+    byte[] nonce(int segment, boolean last) {
+        return ByteBuffer.allocate(NONCE_LENGTH)
+                .put(noncePrefix)
+                .putInt(segment)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    /**
+     * @return The archive key, derived from the password (the only expensive step).
+     */
+    SessionKey deriveKey(char[] password) {
+        return kdf.deriveKey(password, salt);
+    }
+
+    int segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return The serialized header, also the associated data of every segment.
+     */
+    byte[] encoded() {
+        return encoded.clone();
+    }
+}
@@ -0,0 +1,178 @@
+package com.simonepugliese.Security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * An input stream that decrypts an archive written by {@link ArchiveOutputStream}.
+ * <p>
+ * Segments are read and authenticated one at a time: no byte of a segment
+ * is returned before its whole segment has been verified, and the end of the
+ * stream is only reported after the segment sealed as the last one, so a
+ * truncated, reordered or modified archive fails instead of being read
+ * partially. The password is stretched once, with the KDF parameters stored
+ * in the archive.
+ */
+public final class ArchiveInputStream extends InputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveInputStream.class);
+
+    private final DataInputStream in;
+    private final ArchiveHeader header;
+    private final byte[] associatedData;
+    private final SessionKey key;
+    private final Cipher cipher;
+    private final byte[] sealed;
+    private final byte[] plain;
+    private int position;
+    private int limit;
+    private int segment;
+    // Length of the frame to read next, read ahead to detect the last segment
+    private int nextFrameLength;
+    private boolean lastSegmentRead;
+
+    /**
+     * Reads the archive header, derives the archive key and verifies the
+     * first segment.
+     *
+     * @param in       The archive. It is read sequentially and not closed by this constructor.
+     * @param password The archive password. It is not retained.
+     * @throws IOException if the stream is not an archive or cannot be read.
+     * @throws DecryptionFailedException if the password is wrong or the first segment is corrupt.
+     */
+    public ArchiveInputStream(InputStream in, char[] password) throws IOException {
+        this.in = new DataInputStream(in);
+        this.header = ArchiveHeader.read(this.in);
+        this.associatedData = header.encoded();
+        this.sealed = new byte[header.segmentSize() + ArchiveHeader.TAG_LENGTH];
+        this.plain = new byte[header.segmentSize()];
+        this.key = header.deriveKey(password);
+        try {
+            this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            this.nextFrameLength = readFrameLength();
+            if (nextFrameLength < 0) {
+                throw new IOException("Truncated archive: no segment");
+            }
+            readSegment();
+        } catch (GeneralSecurityException e) {
+            key.destroy();
+            log.error("AES-GCM is not available", e);
+            throw new RuntimeException("AES-GCM is not available", e);
+        } catch (IOException | RuntimeException e) {
+            key.destroy();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return plain[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(length, limit - position);
+        System.arraycopy(plain, position, bytes, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Wipes the key and the decrypted buffer, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        key.destroy();
+        Arrays.fill(plain, (byte) 0);
+        position = limit = 0;
+        lastSegmentRead = true;
+        in.close();
+    }
+
+    /**
+     * Makes sure decrypted bytes are available.
+     *
+     * @return false at the end of the archive.
+     */
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            if (lastSegmentRead) {
+                return false;
+            }
+            readSegment();
+        }
+        return true;
+    }
+
+    /**
+     * Reads, authenticates and decrypts the next segment into the buffer.
+     */
+    private void readSegment() throws IOException {
+        int length = nextFrameLength;
+        try {
+            in.readFully(sealed, 0, length);
+        } catch (EOFException e) {
+            throw new IOException("Truncated archive (segment " + segment + ")", e);
+        }
+        nextFrameLength = readFrameLength();
+        boolean last = nextFrameLength < 0;
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(ArchiveHeader.TAG_LENGTH * 8, header.nonce(segment, last)));
+            cipher.updateAAD(associatedData);
+            limit = cipher.doFinal(sealed, 0, length, plain, 0);
+        } catch (GeneralSecurityException e) {
+            log.warn("Archive segment {} failed authentication.", segment);
+            String reason = segment == 0
+                    ? "Unable to open the archive, likely due to an incorrect password"
+                    : "Archive segment " + segment + " is corrupt, or the archive was truncated";
+            throw new DecryptionFailedException(reason, e);
+        }
+        position = 0;
+        lastSegmentRead = last;
+        segment++;
+    }
+
+    /**
+     * @return The length of the next frame, or -1 at the end of the stream.
+     */
+    private int readFrameLength() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return -1;
+        }
+        int length;
+        try {
+            length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        } catch (EOFException e) {
+            throw new IOException("Truncated archive (segment " + segment + ")", e);
+        }
+        if (length < ArchiveHeader.TAG_LENGTH || length > sealed.length) {
+            throw new IOException("Corrupt archive: invalid segment length " + length);
+        }
+        return length;
+    }
+}
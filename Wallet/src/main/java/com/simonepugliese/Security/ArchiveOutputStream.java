@@ -0,0 +1,180 @@
+package com.simonepugliese.Security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * An output stream that encrypts what is written to it into a password
+ * protected archive, read back by {@link ArchiveInputStream}.
+ * <p>
+ * The password is stretched once, when the stream is created, with the
+ * given {@link KeyDerivationFunction} whose parameters are stored in the
+ * archive header. The data is then cut into segments of fixed plaintext
+ * size, each sealed with AES-256-GCM under its own nonce and written as a
+ * length-prefixed frame, so the archive can be written and verified in
+ * constant memory whatever its size.
+ * <p>
+ * {@link #finish()} writes the last segment; it must be called (or the stream
+ * closed), otherwise the archive is rejected as truncated.
+ */
+public final class ArchiveOutputStream extends OutputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveOutputStream.class);
+
+    /**
+     * Plaintext bytes per segment, unless specified otherwise.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final ArchiveHeader header;
+    private final byte[] associatedData;
+    private final SessionKey key;
+    private final Cipher cipher;
+    private final byte[] plain;
+    private final byte[] sealed;
+    private int buffered;
+    private int segment;
+    private boolean finished;
+
+    /**
+     * Writes the archive header and derives the archive key, with
+     * {@link #DEFAULT_SEGMENT_SIZE} segments.
+     *
+     * @param out      The stream the archive is written to.
+     * @param password The archive password. It is not retained.
+     * @param kdf      The KDF that stretches the password.
+     * @throws IOException if the header cannot be written.
+     */
+    public ArchiveOutputStream(OutputStream out, char[] password, KeyDerivationFunction kdf) throws IOException {
+        this(out, password, kdf, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Writes the archive header and derives the archive key.
+     *
+     * @param out         The stream the archive is written to.
+     * @param password    The archive password. It is not retained.
+     * @param kdf         The KDF that stretches the password.
+     * @param segmentSize Plaintext bytes per segment.
+     * @throws IOException if the header cannot be written.
+     */
+    public ArchiveOutputStream(OutputStream out, char[] password, KeyDerivationFunction kdf, int segmentSize)
+            throws IOException {
+        this.out = new DataOutputStream(out);
+        this.header = ArchiveHeader.random(kdf, segmentSize);
+        this.associatedData = header.encoded();
+        this.key = header.deriveKey(password);
+        try {
+            this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            key.destroy();
+            log.error("AES-GCM is not available", e);
+            throw new RuntimeException("AES-GCM is not available", e);
+        }
+        this.plain = new byte[segmentSize];
+        this.sealed = new byte[segmentSize + ArchiveHeader.TAG_LENGTH];
+        this.out.write(associatedData);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (buffered == plain.length) {
+            writeSegment(false);
+        }
+        plain[buffered++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            // A full segment is only sealed once more data arrives, so that
+            // the last one is always sealed by finish()
+            if (buffered == plain.length) {
+                writeSegment(false);
+            }
+            int n = Math.min(length, plain.length - buffered);
+            System.arraycopy(bytes, offset, plain, buffered, n);
+            buffered += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Writes the buffered data as the last segment and wipes the key,
+     * without closing the underlying stream. Further writes fail.
+     *
+     * @throws IOException if the segment cannot be written.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            writeSegment(true);
+            out.flush();
+        } finally {
+            finished = true;
+            key.destroy();
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /**
+     * Flushes the underlying stream. Buffered data is only written segment by
+     * segment, so it does not reach the stream until its segment is full.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Finishes the archive and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeSegment(boolean last) throws IOException {
+        int length;
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                    new GCMParameterSpec(ArchiveHeader.TAG_LENGTH * 8, header.nonce(segment, last)));
+            cipher.updateAAD(associatedData);
+            length = cipher.doFinal(plain, 0, buffered, sealed, 0);
+        } catch (GeneralSecurityException e) {
+            log.error("Archive segment encryption failed", e);
+            throw new RuntimeException("Archive segment encryption failed", e);
+        }
+        out.writeInt(length);
+        out.write(sealed, 0, length);
+        if (segment == Integer.MAX_VALUE) {
+            throw new IOException("Archive too large");
+        }
+        segment++;
+        buffered = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Archive already finished");
+        }
+    }
+}
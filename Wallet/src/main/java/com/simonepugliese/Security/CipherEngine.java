@@ -0,0 +1,277 @@
+package com.simonepugliese.Security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Reusable AES-GCM and HMAC-SHA256 instances for the per-field operations
+ * with the vault data key: encryption, decryption and blind indexes.
+ * <p>
+ * Looking up a Cipher or a Mac ({@code getInstance}) costs more than
+ * encrypting a short value, and allocates several KiB. An engine looks them
+ * up once and only re-initializes them for each value; the HMAC key is only
+ * set again when it changes. Values are encrypted straight into their
+ * payload, and decrypted straight from it into a scratch buffer that the
+ * resulting String is built from, so no intermediate array is allocated. Plaintext bytes are
+ * wiped as soon as they are used.
+ * <p>
+ * An engine is not thread-safe: a thread must have it to itself, e.g. by
+ * taking it from a pool (see {@link com.simonepugliese.Persistence.EntryCriptor}).
+ * The Cipher and the Mac hold state derived from the last key they used:
+ * {@link #clear()} drops them when that key is no longer needed.
+ * <p>
+ * The static methods of {@link CryptoUtils} use a new engine per call.
+ */
+public final class CipherEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(CipherEngine.class);
+
+    private static final String AES_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // Larger decryption buffers are not kept after use
+    private static final int INITIAL_SCRATCH_SIZE = 256;
+    private static final int MAX_RETAINED_SCRATCH_SIZE = 64 * 1024;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final byte[] iv = new byte[CryptoUtils.GCM_IV_LENGTH];
+    private byte[] scratch = new byte[0];
+    private Cipher cipher;
+    private Mac mac;
+    private SecretKey macKey;
+
+    /**
+     * Encrypts a value with AES-256 GCM into a binary payload
+     * [version | IV | Ciphertext] (see {@link CryptoUtils#encrypt(String, SecretKey)}).
+     *
+     * @param plaintext The string to encrypt.
+     * @param key       The vault data key.
+     * @return The encrypted payload, or null if the value is null/empty.
+     */
+    public byte[] encrypt(String plaintext, SecretKey key) {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return null;
+        }
+        byte[] plainBytes = plaintext.getBytes(StandardCharsets.UTF_8);
+        try {
+            return encrypt(plainBytes, key);
+        } finally {
+            Arrays.fill(plainBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Encrypts the UTF-8 bytes of a value, e.g. those of a
+     * {@link com.simonepugliese.Model.SecretValue}, without copying them.
+     *
+     * @param plaintext The bytes to encrypt. They are not modified.
+     * @param key       The vault data key.
+     * @return The encrypted payload.
+     */
+    public byte[] encrypt(byte[] plaintext, SecretKey key) {
+        try {
+            SECURE_RANDOM.nextBytes(iv);
+            Cipher aes = cipher();
+            aes.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(CryptoUtils.GCM_TAG_LENGTH * 8, iv));
+            // Encrypt straight after the header, in the array that becomes the payload
+            byte[] payload = new byte[CryptoUtils.BINARY_HEADER_LENGTH + plaintext.length + CryptoUtils.GCM_TAG_LENGTH];
+            payload[0] = CryptoUtils.BINARY_PAYLOAD_VERSION;
+            System.arraycopy(iv, 0, payload, 1, CryptoUtils.GCM_IV_LENGTH);
+            aes.doFinal(plaintext, 0, plaintext.length, payload, CryptoUtils.BINARY_HEADER_LENGTH);
+            return payload;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            log.error("Encryption failed", e);
+            throw new RuntimeException("Encryption failed", e);
+        }
+    }
+
+    /**
+     * Decrypts a payload produced by {@link #encrypt(String, SecretKey)}.
+     *
+     * @param payload The payload to decrypt.
+     * @param key     The vault data key.
+     * @return The original plaintext, or null if the payload is null.
+     * @throws DecryptionFailedException if the decryption fails, likely due to an
+     * incorrect key or corrupt data.
+     */
+    public String decrypt(byte[] payload, SecretKey key) {
+        if (payload == null) {
+            return null;
+        }
+        byte[] output = null;
+        int length = 0;
+        try {
+            checkHeader(payload);
+            output = scratch(payload.length - CryptoUtils.BINARY_HEADER_LENGTH);
+            length = open(payload, key, output);
+            return new String(output, 0, length, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            throw decryptionFailed(e);
+        } finally {
+            if (output != null) {
+                Arrays.fill(output, 0, length, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Decrypts a payload into a new array holding exactly the UTF-8 bytes of
+     * the value, with no intermediate copy (see {@link #decrypt(byte[], SecretKey)}).
+     *
+     * @param payload The payload to decrypt, not null.
+     * @param key     The vault data key.
+     * @return The plaintext bytes, which the caller should wipe.
+     * @throws DecryptionFailedException if the decryption fails, likely due to an
+     * incorrect key or corrupt data.
+     */
+    public byte[] decryptToBytes(byte[] payload, SecretKey key) {
+        byte[] output = null;
+        try {
+            checkHeader(payload);
+            output = new byte[payload.length - CryptoUtils.BINARY_HEADER_LENGTH - CryptoUtils.GCM_TAG_LENGTH];
+            open(payload, key, output);
+            return output;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            if (output != null) {
+                Arrays.fill(output, (byte) 0);
+            }
+            throw decryptionFailed(e);
+        }
+    }
+
+    /**
+     * Computes the blind index of a value
+     * (see {@link CryptoUtils#blindIndex(String, SecretKey)}).
+     *
+     * @param plaintext     The value to index.
+     * @param blindIndexKey The key from {@link CryptoUtils#deriveBlindIndexKey(SecretKey)}.
+     * @return The Base64 encoded HMAC, or null if the value is null/empty.
+     */
+    public String blindIndex(String plaintext, SecretKey blindIndexKey) {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return null;
+        }
+        byte[] plainBytes = plaintext.getBytes(StandardCharsets.UTF_8);
+        try {
+            return blindIndex(plainBytes, blindIndexKey);
+        } finally {
+            Arrays.fill(plainBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Computes the blind index of the UTF-8 bytes of a value, without copying them.
+     *
+     * @param plaintext     The bytes to index. They are not modified.
+     * @param blindIndexKey The key from {@link CryptoUtils#deriveBlindIndexKey(SecretKey)}.
+     * @return The Base64 encoded HMAC, or null if the value is empty.
+     */
+    public String blindIndex(byte[] plaintext, SecretKey blindIndexKey) {
+        if (plaintext.length == 0) {
+            return null;
+        }
+        try {
+            return Base64.getEncoder().encodeToString(mac(blindIndexKey).doFinal(plaintext));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            log.error("HMAC computation failed", e);
+            throw new RuntimeException("HMAC computation failed", e);
+        }
+    }
+
+    /**
+     * Drops the Cipher and the Mac, with the state derived from the last keys
+     * they used, and wipes the scratch buffer. The engine can still be used:
+     * they are looked up again when needed.
+     */
+    public void clear() {
+        cipher = null;
+        mac = null;
+        macKey = null;
+        Arrays.fill(scratch, (byte) 0);
+    }
+
+    /**
+     * Rejects a payload that is too short, or not in the binary format.
+     */
+    private static void checkHeader(byte[] payload) {
+        if (payload.length < CryptoUtils.BINARY_HEADER_LENGTH + CryptoUtils.GCM_TAG_LENGTH
+                || payload[0] != CryptoUtils.BINARY_PAYLOAD_VERSION) {
+            throw new IllegalArgumentException("Payload was not encrypted with a data key");
+        }
+    }
+
+    /**
+     * Decrypts the ciphertext following the header into the output buffer.
+     *
+     * @return The number of plaintext bytes written.
+     */
+    private int open(byte[] payload, SecretKey key, byte[] output) throws GeneralSecurityException {
+        Cipher aes = cipher();
+        aes.init(Cipher.DECRYPT_MODE, key,
+                new GCMParameterSpec(CryptoUtils.GCM_TAG_LENGTH * 8, payload, 1, CryptoUtils.GCM_IV_LENGTH));
+        return aes.doFinal(payload, CryptoUtils.BINARY_HEADER_LENGTH,
+                payload.length - CryptoUtils.BINARY_HEADER_LENGTH, output, 0);
+    }
+
+    private static DecryptionFailedException decryptionFailed(Exception e) {
+        log.warn("Decryption failed. Data may be corrupt or key is incorrect.", e);
+        return new DecryptionFailedException("Decryption failed, likely due to incorrect key or corrupt data", e);
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(AES_ALGORITHM);
+        }
+        return cipher;
+    }
+
+    /**
+     * @return The Mac, initialized with the given key. doFinal() leaves a Mac
+     * initialized with the same key, so it is only set again when it changes
+     * (or has been destroyed, so that using it fails as it should).
+     */
+    private Mac mac(SecretKey key) throws GeneralSecurityException {
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC_ALGORITHM);
+        }
+        if (key != macKey || key.isDestroyed()) {
+            macKey = null;
+            byte[] keyBytes = key.getEncoded();
+            try {
+                mac.init(new SecretKeySpec(keyBytes, HMAC_ALGORITHM));
+            } finally {
+                Arrays.fill(keyBytes, (byte) 0);
+            }
+            macKey = key;
+        }
+        return mac;
+    }
+
+    /**
+     * @return A buffer of at least the given size: the retained scratch buffer,
+     * grown if needed, or a temporary one for very large values.
+     */
+    private byte[] scratch(int size) {
+        if (size <= scratch.length) {
+            return scratch;
+        }
+        if (size > MAX_RETAINED_SCRATCH_SIZE) {
+            return new byte[size];
+        }
+        Arrays.fill(scratch, (byte) 0);
+        scratch = new byte[Math.max(size, Math.max(INITIAL_SCRATCH_SIZE, scratch.length * 2))];
+        return scratch;
+    }
+}
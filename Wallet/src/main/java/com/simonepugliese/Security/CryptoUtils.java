@@ -4,10 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.security.SecureRandom;
@@ -16,8 +15,17 @@ import java.util.Base64;
 /**
  * Utility class for handling AES-256 GCM encryption and decryption.
  * <p>
- * This class provides static methods to encrypt and decrypt strings based
- * on a master password.
+ * This class provides static methods to encrypt and decrypt strings either
+ * with a vault data key (the current format) or directly with the master
+ * password (the legacy per-field-salt format, kept for backward compatibility).
+ * It also exposes the key-hierarchy primitives: deriving a key-encryption key
+ * from the master password and wrapping/unwrapping the random data key,
+ * and the keyed blind indexes used to look up encrypted values.
+ * <p>
+ * Values encrypted with a data key are binary payloads
+ * [version | IV | Ciphertext], handled as byte arrays from encryption to
+ * storage, with no Base64 encoding in between. Only the older text formats
+ * (legacy, and "v2:" Base64, see {@link #fromV2Payload(String)}) are Strings.
  * It is final and cannot be instantiated.
  */
 public final class CryptoUtils {
@@ -25,13 +33,33 @@ public final class CryptoUtils {
     private static final Logger log = LoggerFactory.getLogger(CryptoUtils.class);
 
     // --- Private constants ---
-    private static final int GCM_IV_LENGTH = 12;
-    private static final int GCM_TAG_LENGTH = 16;
+    static final int GCM_IV_LENGTH = 12;
+    static final int GCM_TAG_LENGTH = 16;
     private static final int SALT_LENGTH = 16;
-    private static final int KEY_LENGTH_BITS = 256;
-    private static final int PBKDF2_ITERATIONS = 65536;
-    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final KeyDerivationFunction LEGACY_KDF = KeyDerivationFunction.legacy();
     private static final String AES_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Domain-separation label of the blind-index key, so that it is never
+     * equal to (or usable as) the data key it is derived from.
+     */
+    private static final byte[] BLIND_INDEX_KEY_LABEL =
+            "wallet/blind-index/v1".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+    /**
+     * Prefix of the previous format of payloads encrypted with a data key:
+     * "v2:" + Base64(IV | Ciphertext), still readable.
+     * The ':' is not part of the Base64 alphabet, so legacy payloads can never match it.
+     */
+    static final String DATA_KEY_PAYLOAD_PREFIX = "v2:";
+
+    /**
+     * First byte of binary payloads encrypted with a data key (AES-256-GCM):
+     * [BINARY_PAYLOAD_VERSION | IV | Ciphertext].
+     */
+    static final byte BINARY_PAYLOAD_VERSION = 3;
+    static final int BINARY_HEADER_LENGTH = 1 + GCM_IV_LENGTH;
 
     /**
      * A cryptographically secure random number generator.
@@ -47,26 +75,141 @@ public final class CryptoUtils {
 
     /**
      * Derives a 256-bit AES key from the master password and a salt
-     * using PBKDF2.
+     * with the fixed legacy parameters (PBKDF2-HMAC-SHA256, 65,536 iterations).
+     * Payloads in the legacy format were encrypted with exactly these parameters.
      *
      * @param password The char array with the password
      * @param saltBytes The random salt (16 bytes).
-     * @return A SecretKey for use with AES.
+     * @return The key, which the caller should destroy once done with it.
+     */
+    private static SessionKey getAESKey(char[] password, byte[] saltBytes) {
+        return LEGACY_KDF.deriveKey(password, saltBytes);
+    }
+
+    /**
+     * Derives a 256-bit key-encryption key from the master password with the
+     * legacy parameters. Vaults store their own KDF parameters: prefer
+     * {@link KeyDerivationFunction#deriveKey(char[], byte[])} on those.
+     *
+     * @param password  The char array with the password.
+     * @param saltBytes The vault salt (see {@link #generateSalt()}).
+     * @return The key, which the caller should destroy once done with it.
+     */
+    public static SessionKey deriveKey(char[] password, byte[] saltBytes) {
+        return getAESKey(password, saltBytes);
+    }
+
+    /**
+     * @return A new random salt suitable for {@link #deriveKey(char[], byte[])}.
+     */
+    public static byte[] generateSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        SECURE_RANDOM.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Generates a new random 256-bit AES data key.
+     *
+     * @return A destroyable {@link SessionKey}.
+     */
+    public static SessionKey generateDataKey() {
+        byte[] keyBytes = new byte[KeyDerivationFunction.AES_KEY_LENGTH];
+        SECURE_RANDOM.nextBytes(keyBytes);
+        try {
+            return new SessionKey(keyBytes);
+        } finally {
+            java.util.Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Wraps (encrypts) a data key with a key-encryption key.
+     *
+     * @param dataKey The data key to protect.
+     * @param kek     The key-encryption key derived from the master password.
+     * @return The Base64 encoded [IV | Ciphertext] of the raw key bytes.
+     */
+    public static String wrapKey(SecretKey dataKey, SecretKey kek) {
+        byte[] keyBytes = dataKey.getEncoded();
+        try {
+            return Base64.getEncoder().encodeToString(seal(keyBytes, kek));
+        } catch (Exception e) {
+            log.error("Key wrapping failed", e);
+            throw new RuntimeException("Key wrapping failed", e);
+        } finally {
+            java.util.Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Unwraps a data key previously produced by {@link #wrapKey(SecretKey, SecretKey)}.
+     *
+     * @param wrappedKey The Base64 encoded wrapped key.
+     * @param kek        The key-encryption key derived from the master password.
+     * @return The data key as a destroyable {@link SessionKey}.
+     * @throws DecryptionFailedException if the key-encryption key is wrong
+     * (i.e. an incorrect master password) or the stored key is corrupt.
+     */
+    public static SessionKey unwrapKey(String wrappedKey, SecretKey kek) {
+        byte[] keyBytes = null;
+        try {
+            keyBytes = open(Base64.getDecoder().decode(wrappedKey), kek);
+            return new SessionKey(keyBytes);
+        } catch (Exception e) {
+            log.warn("Key unwrapping failed. Master password is likely incorrect.");
+            throw new DecryptionFailedException("Unable to unlock the vault, likely due to an incorrect master password", e);
+        } finally {
+            if (keyBytes != null) java.util.Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Derives the key used to compute blind indexes from the vault data key
+     * (HMAC-SHA256 of a fixed label, keyed by the data key).
+     * The same data key always yields the same blind-index key.
+     *
+     * @param dataKey The vault data key.
+     * @return A destroyable HMAC key, distinct from the data key.
+     */
+    public static SessionKey deriveBlindIndexKey(SecretKey dataKey) {
+        byte[] keyBytes = null;
+        try {
+            keyBytes = hmac(dataKey, BLIND_INDEX_KEY_LABEL);
+            return new SessionKey(keyBytes);
+        } finally {
+            if (keyBytes != null) java.util.Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Computes the blind index of a value: a keyed HMAC-SHA256 that allows
+     * exact-match lookups on encrypted values without decrypting them.
+     * Equal values always have the same blind index, so the index reveals
+     * which values are equal, but not the values themselves.
+     *
+     * @param plaintext     The value to index.
+     * @param blindIndexKey The key from {@link #deriveBlindIndexKey(SecretKey)}.
+     * @return The Base64 encoded HMAC, or null if the value is null/empty.
      */
-    private static SecretKey getAESKey(char[] password, byte[] saltBytes) {
+    public static String blindIndex(String plaintext, SecretKey blindIndexKey) {
+        return new CipherEngine().blindIndex(plaintext, blindIndexKey);
+    }
+
+    /**
+     * Computes HMAC-SHA256 over the given bytes, using the raw bytes of any key.
+     */
+    private static byte[] hmac(SecretKey key, byte[] data) {
+        byte[] keyBytes = key.getEncoded();
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(
-                    password,
-                    saltBytes,
-                    PBKDF2_ITERATIONS,
-                    KEY_LENGTH_BITS
-            );
-            SecretKey secretKey = factory.generateSecret(spec);
-            return new SecretKeySpec(secretKey.getEncoded(), "AES");
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(keyBytes, HMAC_ALGORITHM));
+            return mac.doFinal(data);
         } catch (Exception e) {
-            log.error("Error deriving AES key from password", e);
-            throw new RuntimeException("Error deriving AES key", e);
+            log.error("HMAC computation failed", e);
+            throw new RuntimeException("HMAC computation failed", e);
+        } finally {
+            java.util.Arrays.fill(keyBytes, (byte) 0);
         }
     }
 
@@ -82,16 +225,24 @@ public final class CryptoUtils {
      * @throws Exception if cipher initialization fails.
      */
     private static Cipher createCipher(int mode, char[] password, byte[] salt, byte[] iv) throws Exception {
-        SecretKey key = getAESKey(password, salt);
-        Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-        cipher.init(mode, key, gcmSpec);
-        return cipher;
+        SessionKey key = getAESKey(password, salt);
+        try {
+            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
+            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
+            cipher.init(mode, key, gcmSpec);
+            return cipher;
+        } finally {
+            // The initialized cipher keeps its own copy of the key
+            key.destroy();
+        }
     }
 
     /**
-     * Encrypts a plaintext string using AES-256 GCM.
+     * Encrypts a plaintext string using AES-256 GCM (legacy per-field-salt format).
      * The output is a Base64 string containing: [Salt | IV | Ciphertext].
+     * <p>
+     * Note: every call runs a full PBKDF2 derivation. Prefer
+     * {@link #encrypt(String, SecretKey)} with the vault data key.
      *
      * @param plaintext The string to encrypt.
      * @param password The char array with the password
@@ -123,7 +274,8 @@ public final class CryptoUtils {
     }
 
     /**
-     * Decrypts a Base64 encoded string (Salt | IV | Ciphertext).
+     * Decrypts a Base64 encoded string (Salt | IV | Ciphertext) in the legacy
+     * per-field-salt format.
      *
      * @param encryptedValue The Base64 string to decrypt.
      * @param password The char array with the password
@@ -151,6 +303,96 @@ public final class CryptoUtils {
         }
     }
 
+    /**
+     * Encrypts a plaintext string using AES-256 GCM and an already derived data key.
+     * No key derivation takes place, which makes this the hot path for field encryption.
+     * The output is a binary payload [version | IV | Ciphertext].
+     * Each call looks up a new Cipher: code that encrypts many values should
+     * reuse a {@link CipherEngine} instead.
+     *
+     * @param plaintext The string to encrypt.
+     * @param key       The vault data key.
+     * @return The encrypted payload, or null if the value is null/empty.
+     */
+    public static byte[] encrypt(String plaintext, SecretKey key) {
+        return new CipherEngine().encrypt(plaintext, key);
+    }
+
+    /**
+     * Decrypts a payload produced by {@link #encrypt(String, SecretKey)}.
+     *
+     * @param payload The payload to decrypt.
+     * @param key     The vault data key.
+     * @return The original plaintext, or null if the payload is null.
+     * @throws DecryptionFailedException if the decryption fails, likely due to an
+     * incorrect key or corrupt data.
+     */
+    public static String decrypt(byte[] payload, SecretKey key) {
+        return new CipherEngine().decrypt(payload, key);
+    }
+
+    /**
+     * Tells whether a stored value uses the legacy per-field-salt format
+     * (Base64 of [Salt | IV | Ciphertext], keyed directly by the master password).
+     * Such values must be decrypted with {@link #decrypt(String, char[])} and
+     * should be re-encrypted with the data key.
+     *
+     * @param encryptedValue The value stored as text.
+     * @return true if the value is a non-empty legacy payload.
+     */
+    public static boolean isLegacyPayload(String encryptedValue) {
+        return encryptedValue != null
+                && !encryptedValue.isEmpty()
+                && !encryptedValue.startsWith(DATA_KEY_PAYLOAD_PREFIX);
+    }
+
+    /**
+     * Converts a value stored in the previous "v2:" Base64 format to the
+     * binary payload, without decrypting it: the ciphertext is unchanged.
+     *
+     * @param encryptedValue The value stored as text.
+     * @return The binary payload, or null if the value is not a "v2:" payload
+     * (e.g. empty, legacy, or corrupt).
+     */
+    public static byte[] fromV2Payload(String encryptedValue) {
+        if (encryptedValue == null || !encryptedValue.startsWith(DATA_KEY_PAYLOAD_PREFIX)) {
+            return null;
+        }
+        byte[] sealed;
+        try {
+            sealed = Base64.getDecoder().decode(encryptedValue.substring(DATA_KEY_PAYLOAD_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        byte[] payload = new byte[1 + sealed.length];
+        payload[0] = BINARY_PAYLOAD_VERSION;
+        System.arraycopy(sealed, 0, payload, 1, sealed.length);
+        return payload;
+    }
+
+    /**
+     * Encrypts raw bytes with a fresh random IV.
+     *
+     * @return The concatenation [IV | Ciphertext].
+     */
+    private static byte[] seal(byte[] plainBytes, SecretKey key) throws Exception {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        SECURE_RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+        byte[] cipherText = cipher.doFinal(plainBytes);
+        return ByteBuffer.allocate(iv.length + cipherText.length).put(iv).put(cipherText).array();
+    }
+
+    /**
+     * Decrypts and authenticates the output of {@link #seal(byte[], SecretKey)}.
+     */
+    private static byte[] open(byte[] sealed, SecretKey key) throws Exception {
+        Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, sealed, 0, GCM_IV_LENGTH));
+        return cipher.doFinal(sealed, GCM_IV_LENGTH, sealed.length - GCM_IV_LENGTH);
+    }
+
     /**
      * A private helper record to encapsulate the structure of the encrypted payload.
      * This record handles the serialization and deserialization of the
@@ -0,0 +1,96 @@
+package com.simonepugliese.Security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Picks the cost of a {@link KeyDerivationFunction} so that one derivation
+ * takes about a target time on the current machine.
+ * <p>
+ * The cost is adjusted proportionally to the measured time until the
+ * measurement is within 10% of the target, or until the cost stops changing
+ * (scrypt can only double its cost). The result is the last candidate
+ * not slower than the target, or the fastest one measured if all of them
+ * were slower.
+ */
+public final class KdfCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(KdfCalibrator.class);
+
+    /**
+     * Default unlock time targeted by {@link #calibrate(KeyDerivationFunction)}.
+     */
+    public static final Duration DEFAULT_TARGET = Duration.ofMillis(250);
+
+    private static final int MAX_ROUNDS = 8;
+    private static final double TOLERANCE = 0.10;
+
+    private KdfCalibrator() {
+    }
+
+    /**
+     * Calibrates for {@link #DEFAULT_TARGET}.
+     *
+     * @param start The algorithm and initial parameters to calibrate from.
+     * @return A function of the same algorithm with the calibrated cost.
+     */
+    public static KeyDerivationFunction calibrate(KeyDerivationFunction start) {
+        return calibrate(start, DEFAULT_TARGET);
+    }
+
+    /**
+     * @param start  The algorithm and initial parameters to calibrate from.
+     * @param target The desired duration of a single derivation.
+     * @return A function of the same algorithm with the calibrated cost.
+     */
+    public static KeyDerivationFunction calibrate(KeyDerivationFunction start, Duration target) {
+        long targetNanos = target.toNanos();
+        byte[] salt = CryptoUtils.generateSalt();
+        char[] password = "calibration".toCharArray();
+
+        // Warm up the JIT, otherwise the first measurement overestimates the cost
+        measure(start, password, salt);
+
+        KeyDerivationFunction candidate = start;
+        KeyDerivationFunction bestUnder = null;
+        KeyDerivationFunction cheapestOver = null;
+        long cheapestOverNanos = Long.MAX_VALUE;
+
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            long elapsed = measure(candidate, password, salt);
+            log.debug("KDF calibration: {} took {} ms.", candidate.encode(), elapsed / 1_000_000);
+
+            if (elapsed <= targetNanos) {
+                bestUnder = candidate;
+            } else if (elapsed < cheapestOverNanos) {
+                cheapestOver = candidate;
+                cheapestOverNanos = elapsed;
+            }
+            // Close enough; a candidate slightly over the target is only kept as cheapestOver
+            if (Math.abs(elapsed - targetNanos) <= targetNanos * TOLERANCE) {
+                break;
+            }
+
+            KeyDerivationFunction next = candidate.scaled((double) targetNanos / Math.max(1, elapsed));
+            if (next.equals(candidate) || next.equals(bestUnder) || next.equals(cheapestOver)) {
+                break;
+            }
+            candidate = next;
+        }
+
+        KeyDerivationFunction result = bestUnder != null ? bestUnder : cheapestOver;
+        log.info("KDF calibrated to {} (target: {} ms).", result.encode(), target.toMillis());
+        return result;
+    }
+
+    private static long measure(KeyDerivationFunction kdf, char[] password, byte[] salt) {
+        long start = System.nanoTime();
+        byte[] key = kdf.derive(password, salt, KeyDerivationFunction.AES_KEY_LENGTH);
+        long elapsed = System.nanoTime() - start;
+        Arrays.fill(key, (byte) 0);
+        return elapsed;
+    }
+}
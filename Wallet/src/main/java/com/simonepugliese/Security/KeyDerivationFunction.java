@@ -0,0 +1,104 @@
+package com.simonepugliese.Security;
+
+import java.util.Arrays;
+
+/**
+ * A password-based key derivation function together with its cost parameters.
+ * <p>
+ * Instances are immutable. The parameters are serialized with
+ * {@link #encode()} and stored next to the data they protect (e.g. in the
+ * vault metadata), so that the key can always be re-derived with the exact
+ * parameters it was created with, even after the defaults change.
+ */
+public interface KeyDerivationFunction {
+
+    /**
+     * Length in bytes of the AES keys returned by {@link #deriveKey(char[], byte[])}.
+     */
+    int AES_KEY_LENGTH = 32;
+
+    /**
+     * @return The algorithm identifier used in the encoded form (e.g. "scrypt").
+     */
+    String algorithm();
+
+    /**
+     * Derives key material from a password.
+     *
+     * @param password  The password.
+     * @param salt      The salt.
+     * @param keyLength Number of bytes to derive.
+     * @return The derived bytes. The caller should wipe them when done.
+     */
+    byte[] derive(char[] password, byte[] salt, int keyLength);
+
+    /**
+     * Returns a copy of this function with its work factor scaled
+     * (approximately, depending on the algorithm) by the given factor.
+     * Used by {@link KdfCalibrator}.
+     *
+     * @param factor The factor to apply to the cost (e.g. 2.0 to double it).
+     * @return A function of the same algorithm with the new cost, never below
+     * the algorithm's minimum.
+     */
+    KeyDerivationFunction scaled(double factor);
+
+    /**
+     * @return The parameters in a compact textual form, e.g.
+     * {@code "scrypt:N=32768,r=8,p=1"}. See {@link #decode(String)}.
+     */
+    String encode();
+
+    /**
+     * Derives a 256-bit AES key from a password.
+     *
+     * @param password The password.
+     * @param salt     The salt.
+     * @return The key, which the caller should destroy once done with it.
+     */
+    default SessionKey deriveKey(char[] password, byte[] salt) {
+        byte[] keyBytes = derive(password, salt, AES_KEY_LENGTH);
+        try {
+            return new SessionKey(keyBytes);
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * @return The function used for new vaults: scrypt with N=2^15, r=8, p=1
+     * (32 MiB of memory per derivation).
+     */
+    static KeyDerivationFunction defaults() {
+        return new ScryptKdf(1 << 15, 8, 1);
+    }
+
+    /**
+     * @return The parameters used by vaults created before the KDF was
+     * configurable: PBKDF2-HMAC-SHA256 with 65,536 iterations.
+     */
+    static KeyDerivationFunction legacy() {
+        return new Pbkdf2Kdf(65536);
+    }
+
+    /**
+     * Parses the output of {@link #encode()}.
+     *
+     * @param encoded The encoded parameters.
+     * @return The corresponding function.
+     * @throws IllegalArgumentException if the algorithm is unknown or the parameters are invalid.
+     */
+    static KeyDerivationFunction decode(String encoded) {
+        int separator = encoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid KDF parameters: " + encoded);
+        }
+        String algorithm = encoded.substring(0, separator);
+        String params = encoded.substring(separator + 1);
+        return switch (algorithm) {
+            case Pbkdf2Kdf.ALGORITHM -> Pbkdf2Kdf.decodeParameters(params);
+            case ScryptKdf.ALGORITHM -> ScryptKdf.decodeParameters(params);
+            default -> throw new IllegalArgumentException("Unknown KDF algorithm: " + algorithm);
+        };
+    }
+}
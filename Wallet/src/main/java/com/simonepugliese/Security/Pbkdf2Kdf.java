@@ -0,0 +1,114 @@
+package com.simonepugliese.Security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.util.Map;
+
+/**
+ * PBKDF2-HMAC-SHA256 (RFC 8018), backed by the JCE provider.
+ * <p>
+ * Its cost is CPU-only, so it offers little protection against GPU or ASIC
+ * attackers compared to {@link ScryptKdf}. It is kept for existing vaults.
+ */
+public final class Pbkdf2Kdf implements KeyDerivationFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(Pbkdf2Kdf.class);
+
+    static final String ALGORITHM = "pbkdf2-sha256";
+
+    private static final String JCE_ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /**
+     * Lowest iteration count {@link #scaled(double)} will produce.
+     */
+    public static final int MIN_ITERATIONS = 10_000;
+
+    /**
+     * Highest iteration count {@link #scaled(double)} will produce, and the
+     * highest an archive may ask for.
+     */
+    public static final int MAX_ITERATIONS = 10_000_000;
+
+    private final int iterations;
+
+    /**
+     * @param iterations The iteration count.
+     */
+    public Pbkdf2Kdf(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return The iteration count.
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    @Override
+    public String algorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public byte[] derive(char[] password, byte[] salt, int keyLength) {
+        return pbkdf2(password, salt, iterations, keyLength);
+    }
+
+    /**
+     * Raw PBKDF2-HMAC-SHA256, also used as a building block by {@link ScryptKdf}.
+     */
+    static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int keyLength) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength * 8);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(JCE_ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } catch (Exception e) {
+            log.error("Error deriving key with PBKDF2", e);
+            throw new RuntimeException("Error deriving key", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    @Override
+    public KeyDerivationFunction scaled(double factor) {
+        long scaled = Math.round(iterations * factor);
+        return new Pbkdf2Kdf((int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, scaled)));
+    }
+
+    @Override
+    public String encode() {
+        return ALGORITHM + ":i=" + iterations;
+    }
+
+    static Pbkdf2Kdf decodeParameters(String params) {
+        Map<String, Integer> values = ScryptKdf.parseParameters(params);
+        Integer i = values.get("i");
+        if (i == null) {
+            throw new IllegalArgumentException("Missing PBKDF2 iteration count: " + params);
+        }
+        return new Pbkdf2Kdf(i);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Pbkdf2Kdf other && other.iterations == iterations;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(iterations);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,265 @@
+package com.simonepugliese.Security;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * scrypt (RFC 7914), a memory-hard key derivation function, in pure Java.
+ * <p>
+ * Every derivation needs {@code 128 * r * N} bytes of memory, which makes
+ * parallel guessing on GPUs and ASICs much more expensive than with PBKDF2.
+ */
+public final class ScryptKdf implements KeyDerivationFunction {
+
+    static final String ALGORITHM = "scrypt";
+
+    /**
+     * Lowest cost parameter N that {@link #scaled(double)} will produce (2^14).
+     */
+    public static final int MIN_N = 1 << 14;
+
+    /**
+     * Highest cost parameter N that {@link #scaled(double)} will produce (2^20),
+     * which with r=8 is 1 GiB of memory per derivation.
+     */
+    public static final int MAX_N = 1 << 20;
+
+    /**
+     * Highest product of r and p an archive may ask for.
+     */
+    public static final int MAX_R_TIMES_P = 32;
+
+    private final int n;
+    private final int r;
+    private final int p;
+
+    /**
+     * @param n The CPU/memory cost, a power of two greater than 1.
+     * @param r The block size.
+     * @param p The parallelization factor.
+     */
+    public ScryptKdf(int n, int r, int p) {
+        if (n < 2 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("N must be a power of two greater than 1");
+        }
+        if (r < 1 || p < 1) {
+            throw new IllegalArgumentException("r and p must be positive");
+        }
+        if ((long) r * p >= (1 << 30) || (long) 128 * r * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("scrypt parameters too large");
+        }
+        this.n = n;
+        this.r = r;
+        this.p = p;
+    }
+
+    /**
+     * @return The CPU/memory cost N.
+     */
+    public int n() {
+        return n;
+    }
+
+    /**
+     * @return The block size r.
+     */
+    public int r() {
+        return r;
+    }
+
+    /**
+     * @return The parallelization factor p.
+     */
+    public int p() {
+        return p;
+    }
+
+    @Override
+    public String algorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public byte[] derive(char[] password, byte[] salt, int keyLength) {
+        int blockSize = 128 * r;
+        byte[] b = Pbkdf2Kdf.pbkdf2(password, salt, 1, p * blockSize);
+        int[] x = new int[32 * r];
+        int[] scratch = new int[32 * r];
+        int[] t = new int[16];
+        int[] v = new int[32 * r * n];
+        try {
+            for (int i = 0; i < p; i++) {
+                roMix(b, i * blockSize, x, scratch, t, v);
+            }
+            return Pbkdf2Kdf.pbkdf2(password, b, 1, keyLength);
+        } finally {
+            Arrays.fill(b, (byte) 0);
+            Arrays.fill(x, 0);
+            Arrays.fill(scratch, 0);
+            Arrays.fill(t, 0);
+            Arrays.fill(v, 0);
+        }
+    }
+
+    /**
+     * scryptROMix: mixes the block of {@code b} at {@code offset} in place.
+     */
+    private void roMix(byte[] b, int offset, int[] x, int[] scratch, int[] t, int[] v) {
+        int words = x.length;
+        for (int i = 0; i < words; i++) {
+            x[i] = readIntLE(b, offset + i * 4);
+        }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(x, 0, v, i * words, words);
+            blockMix(x, scratch, t);
+        }
+        for (int i = 0; i < n; i++) {
+            // Integerify: first word of the last 64-byte sub-block, mod N
+            int j = x[words - 16] & (n - 1);
+            int base = j * words;
+            for (int k = 0; k < words; k++) {
+                x[k] ^= v[base + k];
+            }
+            blockMix(x, scratch, t);
+        }
+        for (int i = 0; i < words; i++) {
+            writeIntLE(x[i], b, offset + i * 4);
+        }
+    }
+
+    /**
+     * scryptBlockMix with Salsa20/8. {@code scratch} must be as long as {@code b},
+     * {@code t} holds the 16-word Salsa20 state.
+     */
+    private void blockMix(int[] b, int[] scratch, int[] t) {
+        System.arraycopy(b, b.length - 16, t, 0, 16);
+        for (int i = 0; i < 2 * r; i++) {
+            for (int k = 0; k < 16; k++) {
+                t[k] ^= b[i * 16 + k];
+            }
+            salsa20_8(t);
+            // Even blocks go to the first half of the output, odd ones to the second
+            int dest = (i / 2 + (i % 2) * r) * 16;
+            System.arraycopy(t, 0, scratch, dest, 16);
+        }
+        System.arraycopy(scratch, 0, b, 0, b.length);
+    }
+
+    private static void salsa20_8(int[] b) {
+        int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3], x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+        int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11], x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+        for (int i = 0; i < 8; i += 2) {
+            // Columns
+            x4 ^= Integer.rotateLeft(x0 + x12, 7);
+            x8 ^= Integer.rotateLeft(x4 + x0, 9);
+            x12 ^= Integer.rotateLeft(x8 + x4, 13);
+            x0 ^= Integer.rotateLeft(x12 + x8, 18);
+            x9 ^= Integer.rotateLeft(x5 + x1, 7);
+            x13 ^= Integer.rotateLeft(x9 + x5, 9);
+            x1 ^= Integer.rotateLeft(x13 + x9, 13);
+            x5 ^= Integer.rotateLeft(x1 + x13, 18);
+            x14 ^= Integer.rotateLeft(x10 + x6, 7);
+            x2 ^= Integer.rotateLeft(x14 + x10, 9);
+            x6 ^= Integer.rotateLeft(x2 + x14, 13);
+            x10 ^= Integer.rotateLeft(x6 + x2, 18);
+            x3 ^= Integer.rotateLeft(x15 + x11, 7);
+            x7 ^= Integer.rotateLeft(x3 + x15, 9);
+            x11 ^= Integer.rotateLeft(x7 + x3, 13);
+            x15 ^= Integer.rotateLeft(x11 + x7, 18);
+            // Rows
+            x1 ^= Integer.rotateLeft(x0 + x3, 7);
+            x2 ^= Integer.rotateLeft(x1 + x0, 9);
+            x3 ^= Integer.rotateLeft(x2 + x1, 13);
+            x0 ^= Integer.rotateLeft(x3 + x2, 18);
+            x6 ^= Integer.rotateLeft(x5 + x4, 7);
+            x7 ^= Integer.rotateLeft(x6 + x5, 9);
+            x4 ^= Integer.rotateLeft(x7 + x6, 13);
+            x5 ^= Integer.rotateLeft(x4 + x7, 18);
+            x11 ^= Integer.rotateLeft(x10 + x9, 7);
+            x8 ^= Integer.rotateLeft(x11 + x10, 9);
+            x9 ^= Integer.rotateLeft(x8 + x11, 13);
+            x10 ^= Integer.rotateLeft(x9 + x8, 18);
+            x12 ^= Integer.rotateLeft(x15 + x14, 7);
+            x13 ^= Integer.rotateLeft(x12 + x15, 9);
+            x14 ^= Integer.rotateLeft(x13 + x12, 13);
+            x15 ^= Integer.rotateLeft(x14 + x13, 18);
+        }
+        b[0] += x0; b[1] += x1; b[2] += x2; b[3] += x3;
+        b[4] += x4; b[5] += x5; b[6] += x6; b[7] += x7;
+        b[8] += x8; b[9] += x9; b[10] += x10; b[11] += x11;
+        b[12] += x12; b[13] += x13; b[14] += x14; b[15] += x15;
+    }
+
+    private static int readIntLE(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    private static void writeIntLE(int value, byte[] b, int off) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * Scales N, rounding to the nearest power of two within [{@link #MIN_N}, {@link #MAX_N}].
+     */
+    @Override
+    public KeyDerivationFunction scaled(double factor) {
+        long target = Math.round(n * factor);
+        int scaled = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_N, target)));
+        if (scaled < MAX_N && target - scaled > (scaled << 1) - target) {
+            scaled <<= 1;
+        }
+        return new ScryptKdf(Math.max(MIN_N, Math.min(MAX_N, scaled)), r, p);
+    }
+
+    @Override
+    public String encode() {
+        return ALGORITHM + ":N=" + n + ",r=" + r + ",p=" + p;
+    }
+
+    static ScryptKdf decodeParameters(String params) {
+        Map<String, Integer> values = parseParameters(params);
+        if (!values.keySet().containsAll(List.of("N", "r", "p"))) {
+            throw new IllegalArgumentException("Missing scrypt parameters: " + params);
+        }
+        return new ScryptKdf(values.get("N"), values.get("r"), values.get("p"));
+    }
+
+    /**
+     * Parses a "name=value,name=value" list of integer parameters.
+     */
+    static Map<String, Integer> parseParameters(String params) {
+        Map<String, Integer> values = new HashMap<>();
+        for (String pair : params.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Invalid KDF parameter: " + pair);
+            }
+            try {
+                values.put(pair.substring(0, eq).trim(), Integer.parseInt(pair.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid KDF parameter: " + pair, e);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ScryptKdf other && other.n == n && other.r == r && other.p == p;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * n + r) + p;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,69 @@
+package com.simonepugliese.Security;
+
+import javax.crypto.SecretKey;
+import java.util.Arrays;
+
+/**
+ * An AES {@link SecretKey} whose key material can be wiped from memory.
+ * <p>
+ * Unlike {@link javax.crypto.spec.SecretKeySpec}, this class actually implements
+ * {@link #destroy()}: the internal buffer is zeroed and any further use of the
+ * key fails. It is used to hold the vault data key for the lifetime of an
+ * unlocked session.
+ */
+public final class SessionKey implements SecretKey {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] keyBytes;
+    private volatile boolean destroyed;
+
+    /**
+     * Creates a new SessionKey from raw key bytes.
+     * The bytes are copied, so the caller should wipe its own array.
+     *
+     * @param keyBytes The raw AES key (16, 24 or 32 bytes).
+     */
+    public SessionKey(byte[] keyBytes) {
+        if (keyBytes == null || (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32)) {
+            throw new IllegalArgumentException("Invalid AES key length");
+        }
+        this.keyBytes = keyBytes.clone();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "AES";
+    }
+
+    @Override
+    public String getFormat() {
+        return "RAW";
+    }
+
+    /**
+     * @return A copy of the raw key bytes.
+     * @throws IllegalStateException if the key has been destroyed.
+     */
+    @Override
+    public byte[] getEncoded() {
+        if (destroyed) {
+            throw new IllegalStateException("Session key has been destroyed");
+        }
+        return keyBytes.clone();
+    }
+
+    /**
+     * Zeroes the key material. The key cannot be used afterwards.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(keyBytes, (byte) 0);
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+}
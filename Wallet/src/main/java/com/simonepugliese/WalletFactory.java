@@ -1,10 +1,24 @@
 package com.simonepugliese;
 
+import com.simonepugliese.Core.AsyncConfig;
+import com.simonepugliese.Core.AsyncWalletManager;
+import com.simonepugliese.Core.CacheConfig;
 import com.simonepugliese.Core.ICriptor;
 import com.simonepugliese.Core.IEntryRepository;
 import com.simonepugliese.Core.WalletManager;
+import com.simonepugliese.Persistence.DbConnector;
 import com.simonepugliese.Persistence.EntryRepository;
 import com.simonepugliese.Persistence.EntryCriptor;
+import com.simonepugliese.Persistence.VaultKeyStore;
+import com.simonepugliese.Persistence.WriteBehindConfig;
+import com.simonepugliese.Persistence.WriteBehindRepository;
+import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.KeyDerivationFunction;
+import com.simonepugliese.Security.SessionKey;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Factory class responsible for assembling the application's
@@ -16,18 +30,123 @@ public class WalletFactory {
      * Creates and configures the main {@link WalletManager}.
      * This is the only instance the UI (e.g., JavaFX App)
      * should need to hold.
+     * <p>
+     * The master password is stretched exactly once here, to unwrap the
+     * vault data key used for all subsequent field encryption.
      * @param masterPassword The master password
      *
      * @return A fully configured WalletManager.
+     * @throws DecryptionFailedException if the master password does not unlock the vault.
      */
     public static WalletManager createWalletManager(String masterPassword) {
-        // 1. Create the concrete persistence (repository)
-        IEntryRepository repository = new EntryRepository();
+        return createWalletManager(masterPassword, KeyDerivationFunction.defaults());
+    }
+
+    /**
+     * Creates and configures the main {@link WalletManager}, choosing the KDF
+     * used if the vault does not exist yet (e.g. one tuned with
+     * {@link com.simonepugliese.Security.KdfCalibrator}).
+     * An existing vault is always unlocked with its stored KDF parameters.
+     * @param masterPassword The master password
+     * @param kdfForNewVault The KDF for a new vault.
+     *
+     * @return A fully configured WalletManager.
+     * @throws DecryptionFailedException if the master password does not unlock the vault.
+     */
+    public static WalletManager createWalletManager(String masterPassword, KeyDerivationFunction kdfForNewVault) {
+        return createWalletManager(DbConnector.getInstance(), masterPassword, kdfForNewVault);
+    }
+
+    /**
+     * Creates and configures a {@link WalletManager} for the vault stored in
+     * the given file, creating it if needed. Any number of vaults can be open
+     * at the same time; managers of the same file share its connection pool.
+     * @param vaultFile The SQLite file of the vault
+     * @param masterPassword The master password
+     *
+     * @return A fully configured WalletManager.
+     * @throws DecryptionFailedException if the master password does not unlock the vault.
+     */
+    public static WalletManager createWalletManager(Path vaultFile, String masterPassword) {
+        return createWalletManager(vaultFile, masterPassword, KeyDerivationFunction.defaults());
+    }
+
+    /**
+     * Same as {@link #createWalletManager(Path, String)}, choosing the KDF
+     * used if the vault does not exist yet.
+     * @param vaultFile The SQLite file of the vault
+     * @param masterPassword The master password
+     * @param kdfForNewVault The KDF for a new vault.
+     *
+     * @return A fully configured WalletManager.
+     * @throws DecryptionFailedException if the master password does not unlock the vault.
+     */
+    public static WalletManager createWalletManager(Path vaultFile, String masterPassword, KeyDerivationFunction kdfForNewVault) {
+        return createWalletManager(DbConnector.forPath(vaultFile), masterPassword, kdfForNewVault);
+    }
+
+    /**
+     * Opens the vault stored in the given file without blocking the caller
+     * (e.g. the JavaFX application thread): the master password is stretched
+     * on a virtual thread, then the wallet is wrapped in an
+     * {@link AsyncWalletManager}, with at most as many concurrent calls as the
+     * connection pool of the vault allows.
+     * @param vaultFile The SQLite file of the vault
+     * @param masterPassword The master password
+     * @param kdfForNewVault The KDF for a new vault.
+     * @param resultExecutor Where the futures are completed, e.g. {@code Platform::runLater}.
+     *
+     * @return A future with the unlocked wallet; it fails with a
+     * {@link DecryptionFailedException} if the master password does not unlock the vault.
+     */
+    public static CompletableFuture<AsyncWalletManager> createAsyncWalletManager(Path vaultFile, String masterPassword,
+                                                                                 KeyDerivationFunction kdfForNewVault,
+                                                                                 Executor resultExecutor) {
+        DbConnector connector = DbConnector.forPath(vaultFile);
+        AsyncConfig defaults = AsyncConfig.defaults();
+        AsyncConfig config = defaults.withMaxConcurrency(
+                Math.min(defaults.maxConcurrency(), connector.getPoolMetrics().maxSize()));
+        CompletableFuture<AsyncWalletManager> future = new CompletableFuture<>();
+        Thread.ofVirtual().name("wallet-unlock").start(() -> {
+            try {
+                WalletManager manager = createWalletManager(connector, masterPassword, kdfForNewVault);
+                AsyncWalletManager wallet = new AsyncWalletManager(manager, config, resultExecutor);
+                resultExecutor.execute(() -> {
+                    // Nobody will close a wallet whose future was cancelled meanwhile
+                    if (!future.complete(wallet)) {
+                        wallet.close();
+                    }
+                });
+            } catch (Throwable e) {
+                // Errors too, e.g. an OutOfMemoryError from a KDF with large
+                // stored parameters: the future must not stay pending
+                resultExecutor.execute(() -> future.completeExceptionally(e));
+            }
+        });
+        return future;
+    }
+
+    private static WalletManager createWalletManager(DbConnector connector, String masterPassword, KeyDerivationFunction kdfForNewVault) {
+        // 1. Unlock the vault data key (one key derivation per session)
+        VaultKeyStore keyStore = new VaultKeyStore(connector, kdfForNewVault);
+        char[] password = masterPassword.toCharArray();
+        SessionKey dataKey;
+        try {
+            dataKey = keyStore.unlock(password);
+        } finally {
+            java.util.Arrays.fill(password, '\0');
+        }
+
+        // 2. Create the concrete persistence (repository), with a single writer
+        //    committing concurrent saves and deletes in groups
+        IEntryRepository repository = new WriteBehindRepository(new EntryRepository(connector),
+                WriteBehindConfig.defaults());
 
-        // 2. Create the concrete encryption (criptor)
-        ICriptor criptor = new EntryCriptor(masterPassword);
+        // 3. Create the concrete encryption (criptor)
+        ICriptor criptor = new EntryCriptor(masterPassword, dataKey);
 
-        // 3. Inject them into the facade
-        return new WalletManager(repository, criptor);
+        // 4. Inject them into the facade, with a cache of recently opened entries
+        //    and the key store, to change the master password
+        return new WalletManager(repository, criptor, CacheConfig.defaults(), keyStore);
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ module com.simonepugliese.wallet {
     requires javafx.fxml;
     requires javafx.base;
     requires java.sql;
+    requires java.xml;
     requires org.xerial.sqlitejdbc;
     requires org.slf4j;
     requires ch.qos.logback.classic;
@@ -11,6 +12,7 @@ module com.simonepugliese.wallet {
 
     exports com.simonepugliese;
     exports com.simonepugliese.Core;
+    exports com.simonepugliese.Import;
     exports com.simonepugliese.Model;
     exports com.simonepugliese.Security;
 
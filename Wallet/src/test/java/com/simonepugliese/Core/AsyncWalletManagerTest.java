@@ -0,0 +1,252 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Security.DecryptionFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per AsyncWalletManager, con i mock di {@link WalletManagerTest}.
+ * Un executor a thread singolo fa le veci del thread JavaFX.
+ */
+class AsyncWalletManagerTest {
+
+    private static final String FX_THREAD = "finto-fx-thread";
+
+    private ExecutorService fxThread;
+    private BlockingRepository repository;
+    private WalletManagerTest.MockCriptor criptor;
+
+    @BeforeEach
+    void setup() {
+        fxThread = Executors.newSingleThreadExecutor(r -> new Thread(r, FX_THREAD));
+        repository = new BlockingRepository();
+        criptor = new WalletManagerTest.MockCriptor();
+    }
+
+    @AfterEach
+    void cleanup() {
+        repository.release.countDown();
+        fxThread.shutdownNow();
+    }
+
+    private AsyncWalletManager newAsyncManager(int maxConcurrency) {
+        return new AsyncWalletManager(new WalletManager(repository, criptor),
+                AsyncConfig.defaults().withMaxConcurrency(maxConcurrency), fxThread);
+    }
+
+    /**
+     * Repository le cui letture dei riepiloghi si bloccano finché il test non
+     * le rilascia, registrando quante ne girano insieme e su quali thread.
+     */
+    static final class BlockingRepository extends WalletManagerTest.MockEntryRepository {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicBoolean virtualThreads = new AtomicBoolean(true);
+        // Quanto una chiamata interrotta impiega ancora a terminare
+        volatile long exitDelayMillis;
+
+        @Override
+        public List<Entry> findAllSummaries() {
+            started.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            virtualThreads.compareAndSet(true, Thread.currentThread().isVirtual());
+            try {
+                release.await();
+                return List.of(new Entry("Riepilogo", Category.LOGIN));
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(exitDelayMillis));
+                throw new RuntimeException("Interrotto", e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condizione non raggiunta in tempo");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * SCENARIO 1 (Happy Path): le chiamate girano su thread virtuali, mentre
+     * i risultati arrivano sul thread indicato (il thread FX).
+     */
+    @Test
+    void calls_shouldRunOnVirtualThreads_andCompleteOnResultExecutor() throws Exception {
+        Entry plaintext = new Entry("Test", Category.LOGIN);
+        criptor.plaintext = plaintext;
+        criptor.encrypted = plaintext;
+        repository.entryToReturn = plaintext;
+        repository.release.countDown();
+
+        try (AsyncWalletManager async = newAsyncManager(2)) {
+            async.saveEntryAsync(plaintext).get(10, TimeUnit.SECONDS);
+            // Il thread FX resta occupato finché la callback non è agganciata,
+            // così il future non può essere già completato
+            CountDownLatch attached = new CountDownLatch(1);
+            fxThread.execute(() -> {
+                try {
+                    attached.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture<String> thread = async.loadAndDecryptEntryAsync(plaintext.getId())
+                    .thenApply(result -> {
+                        assertSame(plaintext, result.orElseThrow());
+                        return Thread.currentThread().getName();
+                    });
+            attached.countDown();
+            assertEquals(FX_THREAD, thread.get(10, TimeUnit.SECONDS), "Il risultato arriva sul thread FX");
+            assertEquals(1, async.loadAllEntrySummariesAsync().get(10, TimeUnit.SECONDS).size());
+            async.deleteEntryAsync(plaintext.getId()).get(10, TimeUnit.SECONDS);
+            assertEquals(Optional.of(plaintext), async.callAsync(w -> w.loadAndDecryptEntry(plaintext.getId()))
+                    .get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, repository.saveCallCount);
+        assertEquals(1, repository.deleteByIdCallCount);
+        assertTrue(repository.virtualThreads.get(), "Le chiamate girano su thread virtuali");
+    }
+
+    /**
+     * SCENARIO 2 (Concorrenza limitata): con un limite di 2, molte chiamate
+     * simultanee non superano mai 2 letture in corso; le altre attendono.
+     */
+    @Test
+    void calls_shouldNeverExceedMaxConcurrency() throws Exception {
+        try (AsyncWalletManager async = newAsyncManager(2)) {
+            List<CompletableFuture<List<Entry>>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(async.loadAllEntrySummariesAsync());
+            }
+            awaitCondition(() -> repository.started.get() == 2);
+            Thread.sleep(100);
+            assertEquals(2, repository.started.get(), "Le altre chiamate attendono il loro turno");
+
+            repository.release.countDown();
+            for (CompletableFuture<List<Entry>> future : futures) {
+                assertEquals(1, future.get(10, TimeUnit.SECONDS).size());
+            }
+        }
+        assertEquals(10, repository.started.get());
+        assertEquals(2, repository.maxRunning.get());
+    }
+
+    /**
+     * SCENARIO 3 (Cancellazione): una chiamata in attesa annullata non parte
+     * mai; una chiamata in corso viene interrotta.
+     */
+    @Test
+    void cancel_shouldWithdrawQueuedCalls_andInterruptRunningOnes() throws Exception {
+        try (AsyncWalletManager async = newAsyncManager(1)) {
+            CompletableFuture<List<Entry>> running = async.loadAllEntrySummariesAsync();
+            CompletableFuture<List<Entry>> queued = async.loadAllEntrySummariesAsync();
+            awaitCondition(() -> repository.started.get() == 1);
+
+            assertTrue(queued.cancel(true));
+            assertTrue(running.cancel(true));
+
+            awaitCondition(repository.interrupted::get);
+            assertThrows(CancellationException.class, running::join);
+            assertThrows(CancellationException.class, queued::join);
+
+            // Il permesso è stato restituito: una nuova chiamata procede
+            repository.release.countDown();
+            assertEquals(1, async.loadAllEntrySummariesAsync().get(10, TimeUnit.SECONDS).size());
+        }
+        assertEquals(2, repository.started.get(), "La chiamata annullata in coda non è mai partita");
+    }
+
+    /**
+     * SCENARIO 4 (Cattivo): gli errori arrivano come completamento eccezionale,
+     * e dopo close() le nuove chiamate falliscono senza bloccare.
+     */
+    @Test
+    void failures_shouldCompleteExceptionally_andCloseShouldRejectNewCalls() throws Exception {
+        repository.entryToReturn = new Entry("Cifrata", Category.LOGIN);
+        criptor.decryptBehavior = entry -> {
+            throw new DecryptionFailedException("Password errata", null);
+        };
+        repository.release.countDown();
+        AsyncWalletManager async = newAsyncManager(2);
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> async.loadAndDecryptEntryAsync("id").get(10, TimeUnit.SECONDS));
+        assertInstanceOf(DecryptionFailedException.class, failure.getCause());
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> async.callAsync(wallet -> {
+                    throw new OutOfMemoryError("finto");
+                }).get(10, TimeUnit.SECONDS), "Anche un Error completa il future");
+        assertInstanceOf(OutOfMemoryError.class, error.getCause());
+
+        async.close();
+        ExecutionException closed = assertThrows(ExecutionException.class,
+                () -> async.loadAllEntrySummariesAsync().get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, closed.getCause());
+    }
+
+    /**
+     * SCENARIO 5 (Chiusura): close() interrompe le chiamate oltre il timeout e
+     * chiude il wallet (azzerando le chiavi) solo dopo che sono terminate.
+     */
+    @Test
+    void close_shouldWaitForInterruptedCallsBeforeClosingTheWallet() throws Exception {
+        AtomicInteger runningAtClose = new AtomicInteger(-1);
+        ClosingCriptor closing = new ClosingCriptor(() -> runningAtClose.set(repository.running.get()));
+        repository.exitDelayMillis = 200;
+        AsyncWalletManager async = new AsyncWalletManager(new WalletManager(repository, closing),
+                AsyncConfig.defaults().withCloseTimeout(Duration.ofSeconds(1)), fxThread);
+        CompletableFuture<List<Entry>> call = async.loadAllEntrySummariesAsync();
+        awaitCondition(() -> repository.running.get() == 1);
+
+        async.close();
+
+        assertTrue(repository.interrupted.get(), "La chiamata oltre il timeout viene interrotta");
+        assertEquals(0, runningAtClose.get(), "Il wallet viene chiuso a chiamate terminate");
+        assertTrue(call.get(10, TimeUnit.SECONDS).isEmpty(), "Il future si completa comunque");
+    }
+
+    /**
+     * Criptor che segnala la propria chiusura.
+     */
+    static final class ClosingCriptor extends WalletManagerTest.MockCriptor implements AutoCloseable {
+        private final Runnable onClose;
+
+        ClosingCriptor(Runnable onClose) {
+            this.onClose = onClose;
+        }
+
+        @Override
+        public void close() {
+            onClose.run();
+        }
+    }
+}
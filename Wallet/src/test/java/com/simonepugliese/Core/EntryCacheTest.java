@@ -0,0 +1,121 @@
+package com.simonepugliese.Core;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per EntryCache.
+ * Usa un orologio finto per verificare il TTL senza attese reali.
+ */
+class EntryCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private EntryCache newCache(int maxEntries, Duration idleTtl) {
+        return new EntryCache(new CacheConfig(maxEntries, idleTtl), clock::get);
+    }
+
+    private static Entry entryWithSecret(String id) {
+        Entry entry = new Entry(id, "Descrizione " + id, Category.LOGIN);
+        entry.putField("Password", new Field("segreto-" + id, FieldType.PASSWORD, true));
+        return entry;
+    }
+
+    /**
+     * SCENARIO 1 (LRU): a cache piena viene rimossa l'entry usata meno di recente,
+     * e i suoi valori vengono cancellati.
+     */
+    @Test
+    void put_shouldEvictLeastRecentlyUsed_whenFull() {
+        EntryCache cache = newCache(2, Duration.ofMinutes(1));
+        cache.put(entryWithSecret("a"), cache.generation());
+        cache.put(entryWithSecret("b"), cache.generation());
+
+        cache.get("a"); // 'b' diventa la meno usata
+        cache.put(entryWithSecret("c"), cache.generation());
+
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty(), "'b' doveva essere rimossa (LRU)");
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    /**
+     * SCENARIO 2 (TTL): un'entry non letta per più del TTL scade,
+     * mentre ogni lettura ne rinnova la durata.
+     */
+    @Test
+    void get_shouldExpireIdleEntries() {
+        EntryCache cache = newCache(10, Duration.ofSeconds(30));
+        cache.put(entryWithSecret("a"), cache.generation());
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertTrue(cache.get("a").isPresent(), "Letta entro il TTL");
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertTrue(cache.get("a").isPresent(), "La lettura precedente ha rinnovato il TTL");
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(cache.get("a").isEmpty(), "Scaduta dopo 31 secondi di inattività");
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    /**
+     * SCENARIO 3 (Isolamento): la cache conserva una copia, quindi le modifiche
+     * all'entry originale o a quella restituita non la alterano.
+     */
+    @Test
+    void cache_shouldStoreAndReturnCopies() {
+        EntryCache cache = newCache(10, Duration.ofMinutes(1));
+        Entry original = entryWithSecret("a");
+        cache.put(original, cache.generation());
+
+        original.getField("Password").setValue("v2:cifrato");
+        cache.get("a").orElseThrow().getField("Password").setValue("cambiato");
+
+        assertEquals("segreto-a", cache.get("a").orElseThrow().getField("Password").getValue());
+    }
+
+    /**
+     * SCENARIO 4 (Statistiche e disattivazione): con maxEntries=0 non viene
+     * memorizzato nulla, e le letture non falsano le statistiche.
+     */
+    @Test
+    void disabledCache_shouldNeverHit() {
+        EntryCache cache = new EntryCache(CacheConfig.disabled(), clock::get);
+        cache.put(entryWithSecret("a"), cache.generation());
+
+        assertTrue(cache.get("a").isEmpty());
+        CacheStats stats = cache.stats();
+        assertEquals(0, stats.hits());
+        assertEquals(0, stats.misses(), "Una cache disattivata non conta miss");
+        assertEquals(0, stats.size());
+        assertEquals(0.0, stats.hitRate());
+    }
+
+    /**
+     * SCENARIO 5 (Generazione): un'entry letta prima di un'invalidazione non
+     * viene messa in cache, perché potrebbe essere già vecchia.
+     */
+    @Test
+    void put_shouldIgnoreEntriesReadBeforeAnInvalidation() {
+        EntryCache cache = newCache(10, Duration.ofMinutes(5));
+        long readAt = cache.generation();
+        cache.invalidate("a");
+
+        cache.put(entryWithSecret("a"), readAt);
+        assertTrue(cache.get("a").isEmpty(), "Letta prima della scrittura: scartata");
+
+        cache.put(entryWithSecret("a"), cache.generation());
+        assertTrue(cache.get("a").isPresent());
+    }
+}
@@ -2,14 +2,30 @@
 
 package com.simonepugliese.Core;
 
+import com.simonepugliese.Import.ImportFormat;
 import com.simonepugliese.Model.Category;
 import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
 import com.simonepugliese.Security.DecryptionFailedException; // Import aggiunto
+import com.simonepugliese.Security.KeyDerivationFunction;
+import com.simonepugliese.Security.Pbkdf2Kdf;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.util.function.Function; // Import aggiunto
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -153,6 +169,419 @@ class WalletManagerTest {
     }
 
 
+    /**
+     * SCENARIO 7 (Migrazione): solo le entry segnalate dal criptor come
+     * "da ri-cifrare" vengono decifrate, ri-cifrate e salvate.
+     */
+    @Test
+    void migrateLegacyEntries_shouldReEncryptOnlyOutdatedEntries() {
+        mockRepository.summariesToReturn = List.of(new Entry("id-1", "Uno", Category.LOGIN));
+        mockRepository.entriesToReturn = List.of(encryptedEntry);
+        mockCriptor.requiresReEncryption = true;
+
+        int migrated = manager.migrateLegacyEntries();
+
+        assertEquals(1, migrated);
+        assertEquals(1, mockRepository.findAllByIdsCallCount, "Le entry di una pagina si caricano con una query bulk");
+        assertEquals(0, mockRepository.findByIdCallCount);
+        assertEquals(1, mockCriptor.decryptCallCount);
+        assertEquals(1, mockCriptor.encryptCallCount);
+        assertEquals(1, mockRepository.saveCallCount);
+
+        // Nessuna entry obsoleta: niente da fare
+        mockCriptor.requiresReEncryption = false;
+        assertEquals(0, manager.migrateLegacyEntries());
+        assertEquals(1, mockRepository.saveCallCount, "Le entry aggiornate non vanno risalvate");
+    }
+
+
+    /**
+     * SCENARIO 8 (Bulk): loadAndDecryptEntries() usa UNA query bulk
+     * del repository (niente N+1) e decifra in batch.
+     */
+    @Test
+    void loadAndDecryptEntries_shouldUseBulkQuery_and_DecryptAll() {
+        mockRepository.entriesToReturn = List.of(encryptedEntry, new Entry("Altro", Category.WIFI));
+
+        List<EntryResult> results = manager.loadAndDecryptEntries(List.of("a", "b"));
+
+        assertEquals(1, mockRepository.findAllByIdsCallCount, "Deve esserci una sola chiamata bulk");
+        assertEquals(0, mockRepository.findByIdCallCount, "findById() non deve essere usato in un ciclo");
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(EntryResult::isSuccess));
+        assertEquals(2, mockCriptor.decryptCallCount);
+    }
+
+
+    /**
+     * SCENARIO 9 (Cache): con la cache attiva, riaprire la stessa entry non
+     * interroga il repository e non decifra di nuovo; save e delete la invalidano.
+     */
+    @Test
+    void loadAndDecryptEntry_shouldUseCache_untilInvalidated() {
+        WalletManager cachedManager = new WalletManager(mockRepository, mockCriptor, CacheConfig.defaults());
+        plaintextEntry.putField("Password", new Field("segreto", FieldType.PASSWORD, true));
+        String id = plaintextEntry.getId();
+
+        Entry first = cachedManager.loadAndDecryptEntry(id).orElseThrow();
+        Entry second = cachedManager.loadAndDecryptEntry(id).orElseThrow();
+
+        assertEquals(1, mockRepository.findByIdCallCount, "La seconda lettura deve arrivare dalla cache");
+        assertEquals(1, mockCriptor.decryptCallCount);
+        assertNotSame(first, second, "La cache deve restituire una copia");
+        assertEquals("segreto", second.getField("Password").getValue());
+
+        // La modifica della copia restituita non deve sporcare la cache
+        second.getField("Password").setValue("modificato");
+        assertEquals("segreto", cachedManager.loadAndDecryptEntry(id).orElseThrow().getField("Password").getValue());
+
+        cachedManager.saveEntry(first);
+        cachedManager.loadAndDecryptEntry(id);
+        assertEquals(2, mockRepository.findByIdCallCount, "saveEntry() deve invalidare la cache");
+
+        cachedManager.deleteEntry(id);
+        cachedManager.loadAndDecryptEntry(id);
+        assertEquals(3, mockRepository.findByIdCallCount, "deleteEntry() deve invalidare la cache");
+
+        CacheStats stats = cachedManager.getCacheStats();
+        assertEquals(2, stats.hits());
+        assertEquals(3, stats.misses());
+    }
+
+    /**
+     * SCENARIO 10 (Cache - Sicurezza): close() svuota la cache e ne cancella i valori.
+     */
+    @Test
+    void close_shouldClearCache() {
+        WalletManager cachedManager = new WalletManager(mockRepository, mockCriptor, CacheConfig.defaults());
+        cachedManager.loadAndDecryptEntry(plaintextEntry.getId());
+        assertEquals(1, cachedManager.getCacheStats().size());
+
+        cachedManager.close();
+
+        assertEquals(0, cachedManager.getCacheStats().size());
+    }
+
+    /**
+     * SCENARIO 11 (Blind index): findBySecretValue() interroga il repository con
+     * l'indice calcolato dal criptor, senza decifrare nulla; senza supporto
+     * agli indici il repository non viene interrogato.
+     */
+    @Test
+    void findBySecretValue_shouldQueryBlindIndexWithoutDecrypting() {
+        mockRepository.summariesToReturn = List.of(plaintextEntry);
+
+        assertTrue(manager.findBySecretValue("segreto").isEmpty(), "Senza indici non c'è risultato");
+        assertNull(mockRepository.lastBlindIndex);
+
+        mockCriptor.blindIndexPrefix = "idx:";
+        assertEquals(List.of(plaintextEntry), manager.findBySecretValue("segreto"));
+        assertEquals("idx:segreto", mockRepository.lastBlindIndex);
+        assertEquals(0, mockCriptor.decryptCallCount, "Nessuna decifratura");
+    }
+
+    /**
+     * SCENARIO 12 (Paginazione): loadEntrySummaries() passa la richiesta al
+     * repository senza decifrare, e in caso di errore restituisce una pagina vuota.
+     */
+    @Test
+    void loadEntrySummaries_shouldDelegatePageRequest() {
+        mockRepository.summariesToReturn = List.of(plaintextEntry);
+        PageRequest request = PageRequest.first(20).withCategory(Category.LOGIN);
+
+        Page page = manager.loadEntrySummaries(request);
+
+        assertSame(request, mockRepository.lastPageRequest);
+        assertEquals(List.of(EntrySummary.of(plaintextEntry)), page.entries());
+        assertEquals(0, mockCriptor.decryptCallCount, "I riepiloghi non si decifrano");
+
+        mockRepository.failPages = true;
+        Page failed = manager.loadEntrySummaries(request);
+        assertTrue(failed.entries().isEmpty());
+        assertTrue(failed.next().isEmpty());
+    }
+    /**
+     * SCENARIO 13 (Stream): streamDecrypted() decifra un'entry alla volta,
+     * solo quando viene consumata, e isola quelle che falliscono.
+     */
+    @Test
+    void streamDecrypted_shouldDecryptLazily_andIsolateFailures() {
+        Entry broken = new Entry("Rotta", Category.LOGIN);
+        mockRepository.entriesToReturn = List.of(encryptedEntry, broken, new Entry("Terza", Category.LOGIN));
+        mockCriptor.decryptBehavior = entry -> {
+            if (entry.getId().equals(broken.getId())) {
+                throw new DecryptionFailedException("Simulazione dato corrotto", null);
+            }
+            return entry;
+        };
+
+        try (Stream<EntryResult> results = manager.streamDecrypted()) {
+            assertEquals(0, mockCriptor.decryptCallCount, "Niente viene decifrato prima del consumo");
+            List<EntryResult> firstTwo = results.limit(2).toList();
+
+            assertEquals(2, mockCriptor.decryptCallCount, "Solo le entry consumate vengono decifrate");
+            assertTrue(firstTwo.get(0).isSuccess());
+            assertFalse(firstTwo.get(1).isSuccess());
+            assertInstanceOf(DecryptionFailedException.class, firstTwo.get(1).error());
+            assertSame(broken, firstTwo.get(1).entry(), "L'entry fallita è quella originale, intatta");
+        }
+        assertTrue(mockRepository.streamClosed, "Chiudere lo stream chiude quello del repository");
+    }
+
+    /**
+     * SCENARIO 14 (Import): importEntries() salva a batch, riporta il progresso
+     * dopo ogni batch e isola le entry che falliscono (cifratura o salvataggio).
+     */
+    @Test
+    void importEntries_shouldSaveInBatches_andReportFailures() {
+        List<Entry> source = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            source.add(new Entry("Import " + i, Category.LOGIN));
+        }
+        Entry notEncryptable = source.get(1);
+        Entry notSaveable = source.get(3);
+        mockCriptor.encryptBehavior = entry -> {
+            if (entry == notEncryptable) {
+                throw new IllegalStateException("Simulazione errore di cifratura");
+            }
+            return entry;
+        };
+        mockRepository.failSaveForId = notSaveable.getId();
+        List<ImportProgress> progress = new ArrayList<>();
+
+        ImportReport report = manager.importEntries(source.iterator(), new ImportConfig(2, 1, 1), progress::add);
+
+        assertEquals(3, report.imported());
+        assertFalse(report.isComplete());
+        assertEquals(List.of(notEncryptable.getId(), notSaveable.getId()),
+                report.failures().stream().map(result -> result.entry().getId()).toList());
+        assertEquals(List.of(source.get(0).getId(), source.get(2).getId(), source.get(4).getId()),
+                mockRepository.savedIds, "Le entry vengono salvate nell'ordine di lettura");
+        assertEquals(3, progress.size(), "Un aggiornamento per batch (2 + 2 + 1)");
+        assertEquals(5, progress.get(2).processed());
+    }
+
+    /**
+     * SCENARIO 15 (Import - Cattivo): se la sorgente fallisce a metà, l'errore
+     * viene rilanciato ma i batch già letti vengono comunque salvati.
+     */
+    @Test
+    void importEntries_shouldKeepBatchesRead_whenSourceFails() {
+        Iterator<Entry> failingSource = new Iterator<>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Entry next() {
+                if (read == 3) {
+                    throw new IllegalStateException("File di import troncato");
+                }
+                read++;
+                return new Entry("Import " + read, Category.LOGIN);
+            }
+        };
+        mockCriptor.encryptBehavior = entry -> entry;
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> manager.importEntries(failingSource, new ImportConfig(2, 1, 1), progress -> { }));
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(2, mockRepository.savedIds.size(), "Il batch completo letto prima dell'errore viene salvato");
+    }
+
+    /**
+     * SCENARIO 16 (Import da file): importFile() legge l'export nel formato
+     * indicato e ne importa le entry; un file inesistente produce un errore.
+     */
+    @Test
+    void importFile_shouldParseAndImportExport() throws IOException {
+        Path csv = Files.createTempFile("wallet-import-test", ".csv");
+        try {
+            Files.writeString(csv, "name,username,password\nPrimo,io,pw1\nSecondo,tu,pw2\n");
+            mockCriptor.encryptBehavior = entry -> entry;
+
+            ImportReport report = manager.importFile(csv, ImportFormat.CSV);
+
+            assertEquals(2, report.imported());
+            assertTrue(report.isComplete());
+            assertEquals("pw2", mockRepository.lastEntrySaved.getField("Password").getValue(),
+                    "Il mock del criptor lascia i valori in chiaro");
+        } finally {
+            Files.delete(csv);
+        }
+        assertThrows(RuntimeException.class, () -> manager.importFile(csv, ImportFormat.CSV),
+                "Un file inesistente produce un errore");
+    }
+
+    /**
+     * SCENARIO 17 (Export/Import archivio): exportTo() scrive un archivio cifrato
+     * che importFrom() ripristina in un altro wallet, con id e campi identici.
+     */
+    @Test
+    void exportTo_shouldWriteArchiveThatImportFromRestores() {
+        Entry login = new Entry("Banca", Category.LOGIN);
+        login.putField("Username", new Field("simone", FieldType.TEXT, false));
+        login.putField("Password", new Field("pàss\"wörd", FieldType.PASSWORD, true));
+        Entry note = new Entry("Nota", Category.SECURE_NOTE);
+        note.putField("Notes", new Field("x".repeat(200_000), FieldType.NOTE, false));
+        mockRepository.entriesToReturn = List.of(login, note, new Entry("Vuota", Category.GENERIC));
+        mockCriptor.decryptBehavior = entry -> entry;
+        KeyDerivationFunction kdf = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+        long exported = manager.exportTo(archive, "archivio".toCharArray(), kdf);
+
+        assertEquals(3, exported);
+        assertTrue(mockRepository.streamClosed);
+        assertFalse(new String(archive.toByteArray(), StandardCharsets.ISO_8859_1).contains("simone"),
+                "L'archivio non contiene valori in chiaro");
+
+        MockEntryRepository restoredRepository = new MockEntryRepository();
+        MockCriptor restoredCriptor = new MockCriptor();
+        restoredCriptor.encryptBehavior = entry -> entry;
+        WalletManager restored = new WalletManager(restoredRepository, restoredCriptor);
+
+        ImportReport report = restored.importFrom(new ByteArrayInputStream(archive.toByteArray()), "archivio".toCharArray());
+
+        assertEquals(3, report.imported());
+        assertEquals(List.of(login.getId(), note.getId(), mockRepository.entriesToReturn.get(2).getId()),
+                restoredRepository.savedIds, "Gli id vengono conservati");
+        assertEquals("Vuota", restoredRepository.lastEntrySaved.getDescription());
+        assertThrows(DecryptionFailedException.class,
+                () -> restored.importFrom(new ByteArrayInputStream(archive.toByteArray()), "sbagliata".toCharArray()),
+                "Password errata");
+    }
+
+    /**
+     * SCENARIO 18 (Export - Cattivo): un'entry non decifrabile interrompe
+     * l'export, invece di produrre un backup incompleto.
+     */
+    @Test
+    void exportTo_shouldAbort_whenAnEntryCannotBeDecrypted() {
+        mockRepository.entriesToReturn = List.of(new Entry("A", Category.LOGIN), new Entry("B", Category.LOGIN));
+        mockCriptor.decryptBehavior = entry -> {
+            throw new DecryptionFailedException("Simulazione errore", null);
+        };
+
+        assertThrows(DecryptionFailedException.class, () -> manager.exportTo(new ByteArrayOutputStream(),
+                "archivio".toCharArray(), new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS)));
+        assertTrue(mockRepository.streamClosed, "Lo stream viene chiuso anche in caso di errore");
+    }
+
+    /**
+     * SCENARIO 19 (Cambio password): prima si verifica la password attuale,
+     * poi vengono migrate le entry ancora cifrate con la password (formato
+     * legacy), infine il key store riscrive la data key; senza key store il
+     * cambio non è supportato.
+     */
+    @Test
+    void changeMasterPassword_shouldMigrateLegacyEntries_thenRewrapKey() {
+        mockRepository.summariesToReturn = List.of(new Entry("id-1", "Uno", Category.LOGIN));
+        mockRepository.entriesToReturn = List.of(encryptedEntry);
+        mockCriptor.requiresReEncryption = true;
+        MockKeyStore keyStore = new MockKeyStore(mockRepository);
+        WalletManager withKeyStore = new WalletManager(mockRepository, mockCriptor, CacheConfig.disabled(), keyStore);
+
+        withKeyStore.changeMasterPassword("vecchia".toCharArray(), "nuova".toCharArray());
+
+        assertEquals(List.of("verify:0", "rewrap:1"), keyStore.calls,
+                "La password si verifica prima della migrazione, la data key si riscrive dopo");
+        assertThrows(IllegalStateException.class,
+                () -> manager.changeMasterPassword("vecchia".toCharArray(), "nuova".toCharArray()));
+    }
+
+    /**
+     * SCENARIO 20 (Cambio password - Cattivo): se un'entry legacy non si
+     * decifra, la password NON viene cambiata, altrimenti quell'entry
+     * diventerebbe illeggibile; le altre entry della pagina vengono migrate.
+     */
+    @Test
+    void changeMasterPassword_shouldKeepPassword_whenMigrationFails() {
+        Entry broken = new Entry("Rotta", Category.LOGIN);
+        Entry legacy = new Entry("Legacy", Category.LOGIN);
+        mockRepository.summariesToReturn = List.of(broken, legacy);
+        mockRepository.entriesToReturn = List.of(broken, legacy);
+        mockCriptor.requiresReEncryption = true;
+        mockCriptor.decryptBehavior = entry -> {
+            if (entry == broken) {
+                throw new DecryptionFailedException("Simulazione errore", null);
+            }
+            return entry;
+        };
+        mockCriptor.encryptBehavior = entry -> entry;
+        MockKeyStore keyStore = new MockKeyStore(mockRepository);
+        WalletManager withKeyStore = new WalletManager(mockRepository, mockCriptor, CacheConfig.disabled(), keyStore);
+
+        assertThrows(DecryptionFailedException.class,
+                () -> withKeyStore.changeMasterPassword("vecchia".toCharArray(), "nuova".toCharArray()));
+
+        assertEquals(List.of("verify:0"), keyStore.calls, "La data key non deve essere riscritta");
+        assertEquals(List.of(legacy.getId()), mockRepository.savedIds, "L'entry valida è comunque migrata");
+    }
+
+    /**
+     * SCENARIO 21 (Cache - Concorrenza): una lettura che ha letto la riga
+     * vecchia mentre un salvataggio o una cancellazione veniva completato non
+     * rimette in cache i valori vecchi.
+     */
+    @Test
+    void loadAndDecryptEntry_shouldNotCacheValuesReadDuringAWrite() {
+        plaintextEntry.putField("Password", new Field("vecchio", FieldType.PASSWORD, true));
+        String id = plaintextEntry.getId();
+        Runnable[] duringRead = {null};
+        MockEntryRepository racingRepository = new MockEntryRepository() {
+            @Override
+            public Optional<Entry> findById(String entryId) {
+                Optional<Entry> read = super.findById(entryId);
+                if (duringRead[0] != null) {
+                    // Una scrittura concorrente viene completata dopo la lettura
+                    Runnable write = duringRead[0];
+                    duringRead[0] = null;
+                    write.run();
+                }
+                return read;
+            }
+        };
+        racingRepository.entryToReturn = plaintextEntry;
+        WalletManager cachedManager = new WalletManager(racingRepository, mockCriptor, CacheConfig.defaults());
+
+        duringRead[0] = () -> cachedManager.saveEntry(plaintextEntry.copy());
+        cachedManager.loadAndDecryptEntry(id);
+        cachedManager.loadAndDecryptEntry(id);
+        assertEquals(2, racingRepository.findByIdCallCount, "La lettura sovrapposta al salvataggio non va in cache");
+
+        cachedManager.saveEntry(plaintextEntry.copy()); // svuota la cache
+        duringRead[0] = () -> cachedManager.deleteEntry(id);
+        cachedManager.loadAndDecryptEntry(id);
+        assertEquals(0, cachedManager.getCacheStats().size(), "Un'entry cancellata non ritorna in cache");
+    }
+
+    /**
+     * SCENARIO 22 (Cambio password - Password errata): la password attuale si
+     * verifica per prima; se è sbagliata il vault non viene né letto né
+     * scritto.
+     */
+    @Test
+    void changeMasterPassword_shouldWriteNothing_withWrongCurrentPassword() {
+        mockRepository.summariesToReturn = List.of(new Entry("id-1", "Uno", Category.LOGIN));
+        mockRepository.entriesToReturn = List.of(encryptedEntry);
+        mockCriptor.requiresReEncryption = true;
+        MockKeyStore keyStore = new MockKeyStore(mockRepository);
+        WalletManager withKeyStore = new WalletManager(mockRepository, mockCriptor, CacheConfig.disabled(), keyStore);
+
+        assertThrows(DecryptionFailedException.class,
+                () -> withKeyStore.changeMasterPassword("sbagliata".toCharArray(), "nuova".toCharArray()));
+
+        assertEquals(List.of("verify:0"), keyStore.calls);
+        assertEquals(0, mockRepository.saveCallCount, "Nessuna riga scritta");
+        assertEquals(0, mockRepository.findAllByIdsCallCount, "Nessuna scansione del vault");
+        assertEquals(0, mockCriptor.decryptCallCount);
+    }
+
     // --- Classi Mock Interne per il Test ---
 
     /**
@@ -169,13 +598,23 @@ class WalletManagerTest {
         Entry plaintext;
         Entry encrypted;
 
-        // Campo per iniettare comportamento "cattivo"
+        // Campi per iniettare comportamento "cattivo"
+        Function<Entry, Entry> encryptBehavior = null;
         Function<Entry, Entry> decryptBehavior = null;
 
+        // Risposta simulata per requiresReEncryption()
+        boolean requiresReEncryption = false;
+
+        // Se non null, blindIndex() restituisce prefisso + valore
+        String blindIndexPrefix = null;
+
         @Override
         public Entry encrypt(Entry entry) {
             encryptCallCount++;
             lastEntryEncrypted = entry;
+            if (encryptBehavior != null) {
+                return encryptBehavior.apply(entry);
+            }
             return encrypted; // Ritorna la versione cifrata simulata
         }
 
@@ -191,28 +630,77 @@ class WalletManagerTest {
             // Altrimenti, usa il comportamento di default
             return plaintext;
         }
+
+        @Override
+        public boolean requiresReEncryption(Entry entry) {
+            return requiresReEncryption;
+        }
+
+        @Override
+        public Optional<String> blindIndex(String plaintext) {
+            return blindIndexPrefix == null ? Optional.empty() : Optional.of(blindIndexPrefix + plaintext);
+        }
     }
 
     /**
      * Mock di IEntryRepository che traccia le chiamate.
      */
+    /**
+     * Key store finto: la password attuale è "vecchia"; registra le chiamate
+     * con il numero di salvataggi fatti fino a quel momento.
+     */
+    static class MockKeyStore implements IVaultKeyStore {
+        final List<String> calls = new ArrayList<>();
+        private final MockEntryRepository repository;
+
+        MockKeyStore(MockEntryRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public void verify(char[] password) {
+            calls.add("verify:" + repository.saveCallCount);
+            if (!"vecchia".equals(new String(password))) {
+                throw new DecryptionFailedException("Simulazione password errata", null);
+            }
+        }
+
+        @Override
+        public void changeMasterPassword(char[] currentPassword, char[] newPassword) {
+            calls.add("rewrap:" + repository.saveCallCount);
+        }
+    }
+
     static class MockEntryRepository implements IEntryRepository {
         int saveCallCount = 0;
         int findByIdCallCount = 0;
         int findAllSummariesCallCount = 0;
+        int findAllByIdsCallCount = 0;
         int deleteByIdCallCount = 0;
 
         Entry lastEntrySaved = null;
         String lastIdLoaded = null;
         String lastIdDeleted = null;
+        String lastBlindIndex = null;
+        PageRequest lastPageRequest = null;
+        boolean streamClosed = false;
+        boolean failPages = false;
+        String failSaveForId = null;
+        List<String> savedIds = new ArrayList<>();
 
         // Dati simulati
         Entry entryToReturn = null;
+        List<Entry> summariesToReturn = List.of();
+        List<Entry> entriesToReturn = List.of();
 
         @Override
         public void save(Entry entry) {
             saveCallCount++;
             lastEntrySaved = entry;
+            if (entry.getId().equals(failSaveForId)) {
+                throw new RuntimeException("Simulazione errore di salvataggio");
+            }
+            savedIds.add(entry.getId());
         }
 
         @Override
@@ -222,10 +710,58 @@ class WalletManagerTest {
             return Optional.ofNullable(entryToReturn);
         }
 
+        @Override
+        public List<Entry> findAllByIds(Collection<String> ids) {
+            findAllByIdsCallCount++;
+            return entriesToReturn;
+        }
+
+        @Override
+        public List<Entry> findAll() {
+            return entriesToReturn;
+        }
+
+        @Override
+        public Stream<Entry> stream() {
+            return entriesToReturn.stream().onClose(() -> streamClosed = true);
+        }
+
         @Override
         public List<Entry> findAllSummaries() {
             findAllSummariesCallCount++;
-            return List.of(); // Il risultato non importa, solo la chiamata
+            return summariesToReturn; // Di default vuoto: conta solo la chiamata
+        }
+
+        @Override
+        public List<EntrySummary> findAllEntrySummaries() {
+            findAllSummariesCallCount++;
+            return summariesToReturn.stream().map(EntrySummary::of).toList();
+        }
+
+        @Override
+        public Page findSummaries(PageRequest request) {
+            lastPageRequest = request;
+            if (failPages) {
+                throw new RuntimeException("DB non disponibile");
+            }
+            // Sempre una sola pagina
+            return new Page(summariesToReturn.stream().map(EntrySummary::of).toList(), request, false);
+        }
+
+        @Override
+        public List<Entry> search(String query, int limit) {
+            return summariesToReturn;
+        }
+
+        @Override
+        public List<Entry> findByBlindIndex(String blindIndex) {
+            lastBlindIndex = blindIndex;
+            return summariesToReturn;
+        }
+
+        @Override
+        public List<List<Entry>> findSharedValues(FieldType type) {
+            return List.of();
         }
 
         @Override
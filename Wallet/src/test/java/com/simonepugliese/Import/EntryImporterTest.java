@@ -0,0 +1,249 @@
+package com.simonepugliese.Import;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per gli importer (Bitwarden JSON, KeePass XML, CSV).
+ * I file di esempio sono in src/test/resources/import.
+ */
+class EntryImporterTest {
+
+    /**
+     * Helper: importa un file del corpus di test.
+     */
+    private static List<Entry> importResource(ImportFormat format, String name) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                EntryImporterTest.class.getResourceAsStream("/import/" + name), StandardCharsets.UTF_8)) {
+            List<Entry> entries = new ArrayList<>();
+            format.newImporter().parse(reader).forEachRemaining(entries::add);
+            return entries;
+        }
+    }
+
+    private static void assertField(Entry entry, String name, String value, FieldType type, boolean sensitive) {
+        Field field = entry.getField(name);
+        assertNotNull(field, "Campo mancante: " + name);
+        assertEquals(value, field.getValue(), name);
+        assertEquals(type, field.getType(), name);
+        assertEquals(sensitive, field.isSensitive(), name);
+    }
+
+    /**
+     * SCENARIO 1 (Bitwarden): login, nota, carta e identità vengono mappati
+     * sulle categorie e sui tipi di campo giusti.
+     */
+    @Test
+    void bitwarden_shouldMapItemTypesAndFields() throws IOException {
+        List<Entry> entries = importResource(ImportFormat.BITWARDEN_JSON, "bitwarden.json");
+
+        assertEquals(5, entries.size());
+        Entry login = entries.get(0);
+        assertEquals("GitHub", login.getDescription());
+        assertEquals(Category.LOGIN, login.getCategory());
+        assertEquals(List.of("Username", "Password", "URL", "URL 2", "TOTP", "Recovery code", "Team", "Notes"),
+                List.copyOf(login.getFields().keySet()), "Campo collegato e storico password non vengono importati");
+        assertField(login, "Password", "gh-S3cr3t!", FieldType.PASSWORD, true);
+        assertField(login, "URL 2", "https://gist.github.com", FieldType.URL, false);
+        assertField(login, "Recovery code", "a1b2-c3d4-e5f6", FieldType.PASSWORD, true);
+        assertField(login, "Team", "Core \"Wallet\"", FieldType.TEXT, false);
+        assertField(login, "Notes", "Account personale,\nchiavi SSH a parte", FieldType.NOTE, false);
+
+        assertEquals(Category.SECURE_NOTE, entries.get(1).getCategory());
+        assertField(entries.get(1), "Notes", "Centrale: 4455 – cambiarlo a giugno", FieldType.NOTE, false);
+
+        Entry card = entries.get(2);
+        assertEquals(Category.CREDIT_CARD, card.getCategory());
+        assertField(card, "Number", "4111111111111111", FieldType.PASSWORD, true);
+        assertField(card, "Security code", "123", FieldType.PASSWORD, true);
+        assertField(card, "Expiry", "7/2029", FieldType.TEXT, false);
+
+        Entry identity = entries.get(3);
+        assertEquals(Category.IDENTITY, identity.getCategory());
+        assertField(identity, "Passport number", "YA1234567", FieldType.PASSWORD, true);
+        assertField(identity, "Last name", "Pugliese", FieldType.TEXT, false);
+        assertNull(identity.getField("Social security number"), "I valori null vengono saltati");
+
+        assertEquals("Untitled", entries.get(4).getDescription(), "Un nome vuoto riceve un titolo di default");
+        assertNull(entries.get(4).getField("Password"), "I valori vuoti vengono saltati");
+    }
+
+    /**
+     * SCENARIO 2 (Bitwarden - Cattivo): un export cifrato o un JSON malformato
+     * producono un errore chiaro invece di entry sbagliate.
+     */
+    @Test
+    void bitwarden_shouldRejectEncryptedOrMalformedExports() {
+        EntryImporter importer = new BitwardenJsonImporter();
+
+        Iterator<Entry> encrypted = importer.parse(new StringReader("{\"encrypted\": true, \"items\": []}"));
+        assertThrows(ImportFormatException.class, encrypted::hasNext);
+
+        Iterator<Entry> truncated = importer.parse(new StringReader("{\"items\": [{\"name\": \"A\", \"type\": 1},\n{\"name\": "));
+        assertTrue(truncated.hasNext());
+        assertEquals("A", truncated.next().getDescription(), "Le entry prima dell'errore vengono lette");
+        ImportFormatException error = assertThrows(ImportFormatException.class, truncated::next);
+        assertTrue(error.getMessage().contains("line 2"), "L'errore indica la riga: " + error.getMessage());
+
+        Iterator<Entry> empty = importer.parse(new StringReader("{\"folders\": [], \"items\": []}"));
+        assertFalse(empty.hasNext());
+        assertThrows(NoSuchElementException.class, empty::next);
+    }
+
+    /**
+     * SCENARIO 3 (KeePass): le stringhe standard e personalizzate diventano campi,
+     * mentre la cronologia e il cestino vengono ignorati.
+     */
+    @Test
+    void keePass_shouldMapStringsAndSkipHistoryAndRecycleBin() throws IOException {
+        List<Entry> entries = importResource(ImportFormat.KEEPASS_XML, "keepass.xml");
+
+        assertEquals(List.of("Wi-Fi casa", "Home banking", "Licenza IDE"),
+                entries.stream().map(Entry::getDescription).toList());
+
+        Entry wifi = entries.get(0);
+        assertEquals(Category.LOGIN, wifi.getCategory());
+        assertEquals(List.of("Username", "Password", "URL", "PIN", "SSID", "Notes"), List.copyOf(wifi.getFields().keySet()));
+        assertField(wifi, "Password", "wifi-P@ss<2024>", FieldType.PASSWORD, true);
+        assertField(wifi, "PIN", "0000", FieldType.PASSWORD, true);
+        assertField(wifi, "SSID", "CasaNet", FieldType.TEXT, false);
+        assertField(wifi, "Notes", "Rete di casa & ospiti", FieldType.NOTE, false);
+
+        assertNull(entries.get(1).getField("Notes"), "Le note vuote vengono saltate");
+        assertEquals(Category.SECURE_NOTE, entries.get(2).getCategory(), "Un'entry con sole note è una nota sicura");
+        assertEquals("Chiave:\nXXXX-YYYY-ZZZZ", entries.get(2).getField("Notes").getValue());
+    }
+
+    /**
+     * SCENARIO 4 (KeePass - Sicurezza): un DTD (possibile attacco XXE) viene rifiutato.
+     */
+    @Test
+    void keePass_shouldRejectDtd() {
+        String xxe = "<?xml version=\"1.0\"?>\n<!DOCTYPE KeePassFile [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n"
+                + "<KeePassFile><Root><Group><Entry><String><Key>Title</Key><Value>&xxe;</Value></String>"
+                + "</Entry></Group></Root></KeePassFile>";
+
+        Iterator<Entry> entries = new KeePassXmlImporter().parse(new StringReader(xxe));
+
+        assertThrows(ImportFormatException.class, entries::hasNext);
+    }
+
+    /**
+     * SCENARIO 5 (CSV): intestazione Bitwarden, BOM, CRLF, valori tra virgolette
+     * con virgole, virgolette e a capo; le righe vuote vengono saltate.
+     */
+    @Test
+    void csv_shouldParseQuotedValuesAndMapColumns() throws IOException {
+        List<Entry> entries = importResource(ImportFormat.CSV, "passwords.csv");
+
+        assertEquals(List.of("Jira", "Ricetta segreta", "Posta", "Solo nome"),
+                entries.stream().map(Entry::getDescription).toList());
+
+        Entry jira = entries.get(0);
+        assertEquals(Category.LOGIN, jira.getCategory());
+        assertEquals(List.of("Username", "Password", "URL"), List.copyOf(jira.getFields().keySet()),
+                "Le colonne folder/favorite/reprompt vengono ignorate");
+        assertField(jira, "Password", "pa,ss\"word", FieldType.PASSWORD, true);
+
+        assertEquals(Category.SECURE_NOTE, entries.get(1).getCategory());
+        assertField(entries.get(1), "Notes", "Farina 500g\r\nAcqua 300g", FieldType.NOTE, false);
+
+        Entry mail = entries.get(2);
+        assertField(mail, "TOTP", "JBSWY3DPEHPK3PXP", FieldType.PASSWORD, true);
+        assertField(mail, "fields", "PIN: 1234", FieldType.TEXT, false);
+
+        assertEquals(Category.GENERIC, entries.get(3).getCategory());
+        assertTrue(entries.get(3).getFields().isEmpty());
+    }
+
+    /**
+     * SCENARIO 6 (CSV): altri formati di intestazione (es. Chrome) e separatori,
+     * più gli errori su righe malformate.
+     */
+    @Test
+    void csv_shouldSupportOtherHeadersAndReportMalformedRows() {
+        String chrome = "name;url;username;password;note\n"
+                + "example.com;https://example.com/;me;pw;\n"
+                + "rotta;\"non chiusa\n";
+
+        Iterator<Entry> entries = new CsvImporter(';').parse(new StringReader(chrome));
+
+        Entry first = entries.next();
+        assertEquals("example.com", first.getDescription());
+        assertEquals(List.of("Username", "Password", "URL"), List.copyOf(first.getFields().keySet()));
+        ImportFormatException error = assertThrows(ImportFormatException.class, entries::hasNext);
+        assertTrue(error.getMessage().contains("line 3"), error.getMessage());
+
+        Iterator<Entry> tooManyValues = new CsvImporter().parse(new StringReader("name,password\na,b,c\n"));
+        assertThrows(ImportFormatException.class, tooManyValues::next);
+        assertFalse(new CsvImporter().parse(new StringReader("")).hasNext());
+    }
+
+    /**
+     * SCENARIO 7 (Streaming): il parser legge l'input un pezzo alla volta,
+     * senza caricarlo tutto prima della prima entry.
+     */
+    @Test
+    void parse_shouldReadInputIncrementally() {
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 10_000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"type\": 1, \"name\": \"Entry ").append(i)
+                    .append("\", \"login\": {\"password\": \"p").append(i).append("\"}}");
+        }
+        json.append("]}");
+        CountingReader reader = new CountingReader(new StringReader(json.toString()));
+
+        Iterator<Entry> entries = ImportFormat.BITWARDEN_JSON.newImporter().parse(reader);
+        assertEquals("Entry 0", entries.next().getDescription());
+
+        assertTrue(reader.charsRead < json.length() / 10,
+                "Letti " + reader.charsRead + " caratteri su " + json.length() + " per la prima entry");
+        int count = 1;
+        while (entries.hasNext()) {
+            entries.next();
+            count++;
+        }
+        assertEquals(10_000, count);
+    }
+
+    /**
+     * Reader che conta i caratteri letti.
+     */
+    private static final class CountingReader extends Reader {
+        private final Reader delegate;
+        long charsRead;
+
+        CountingReader(Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = delegate.read(buffer, offset, length);
+            if (n > 0) {
+                charsRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
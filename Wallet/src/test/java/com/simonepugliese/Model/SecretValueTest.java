@@ -0,0 +1,106 @@
+package com.simonepugliese.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per SecretValue e per il suo Scope.
+ */
+class SecretValueTest {
+
+    private static final String SECRET = "P4$$w0rd_è_✓";
+
+    /**
+     * SCENARIO 1 (Conversioni): il valore si legge come String, char[] e byte
+     * UTF-8, e due segreti uguali si riconoscono senza crearne una String.
+     */
+    @Test
+    void secret_shouldExposeValueInEveryForm() throws IOException {
+        SecretValue secret = SecretValue.of(SECRET.toCharArray());
+
+        assertEquals(SECRET, secret.reveal());
+        assertArrayEquals(SECRET.toCharArray(), secret.toChars());
+        assertEquals(SECRET.getBytes(StandardCharsets.UTF_8).length, secret.byteLength());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        secret.writeTo(out);
+        assertArrayEquals(SECRET.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertTrue(secret.contentEquals(SecretValue.of(SECRET)));
+        assertFalse(secret.contentEquals(SecretValue.of("altro")));
+        assertFalse(secret.toString().contains(SECRET), "toString() non mostra mai il valore");
+    }
+
+    /**
+     * SCENARIO 2 (Distruzione): destroy() azzera il buffer e ogni lettura
+     * successiva fallisce; le copie sono indipendenti.
+     */
+    @Test
+    void destroy_shouldWipeBuffer_andLeaveCopiesIntact() {
+        byte[] buffer = SECRET.getBytes(StandardCharsets.UTF_8);
+        SecretValue secret = SecretValue.wrap(buffer);
+        SecretValue copy = secret.copy();
+
+        secret.destroy();
+
+        assertTrue(secret.isDestroyed());
+        for (byte b : buffer) {
+            assertEquals(0, b, "Il buffer deve essere azzerato");
+        }
+        assertThrows(IllegalStateException.class, secret::reveal);
+        assertThrows(IllegalStateException.class, secret::copy);
+        assertEquals(SECRET, copy.reveal());
+    }
+
+    /**
+     * SCENARIO 3 (Scope): chiudere lo scope distrugge i segreti ancora vivi
+     * creati da esso, comprese le loro copie, e non ne permette di nuovi.
+     */
+    @Test
+    void scopeClose_shouldDestroyTrackedSecretsAndCopies() {
+        SecretValue.Scope scope = new SecretValue.Scope();
+        SecretValue first = scope.of(SECRET);
+        SecretValue second = scope.wrap("altro".getBytes(StandardCharsets.UTF_8));
+        SecretValue copy = first.copy();
+        SecretValue untracked = SecretValue.of(SECRET);
+        second.destroy();
+        assertEquals(2, scope.size(), "Un segreto distrutto non è più tracciato");
+
+        scope.close();
+
+        assertTrue(first.isDestroyed());
+        assertTrue(copy.isDestroyed());
+        assertFalse(untracked.isDestroyed(), "I segreti creati fuori dallo scope non sono suoi");
+        assertEquals(0, scope.size());
+        assertThrows(IllegalStateException.class, () -> scope.of(SECRET));
+    }
+
+    /**
+     * SCENARIO 4 (Field): il campo possiede il suo segreto, che viene
+     * distrutto quando il valore viene sostituito o cancellato.
+     */
+    @Test
+    void field_shouldDestroyReplacedSecrets() {
+        SecretValue secret = SecretValue.of(SECRET);
+        Field field = new Field(secret, FieldType.PASSWORD);
+        assertTrue(field.isSensitive());
+        assertEquals(SECRET, field.getValue());
+
+        Field copy = field.copy();
+        assertNotSame(secret, copy.getSecret());
+
+        field.setValue("cifrato");
+        assertTrue(secret.isDestroyed());
+        assertNull(field.getSecret());
+        assertEquals("cifrato", field.getValue());
+
+        Entry entry = new Entry("Test", Category.LOGIN);
+        entry.putField("Password", copy);
+        SecretValue copied = copy.getSecret();
+        entry.clearFields();
+        assertTrue(copied.isDestroyed());
+    }
+}
@@ -0,0 +1,232 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test per BackupService, su un vault temporaneo.
+ */
+class BackupServiceTest {
+
+    private static final int FIELDS_PER_ENTRY = 3;
+
+    private Path workDir;
+    private DbConnector connector;
+    private EntryRepository repository;
+
+    @BeforeEach
+    void setup() throws IOException {
+        workDir = Files.createTempDirectory("wallet-backup-test");
+        connector = DbConnector.forPath(workDir.resolve("vault.db"));
+        repository = new EntryRepository(connector);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        connector.close();
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Entry newEntry(int i) {
+        Entry entry = new Entry("Entry " + i, Category.LOGIN);
+        entry.putField("Username", new Field("user" + i, FieldType.TEXT, false));
+        entry.putField("Password", new Field("cifrato-" + i, FieldType.PASSWORD, true));
+        entry.putField("URL", new Field("https://example.com/" + i, FieldType.URL, false));
+        return entry;
+    }
+
+    private static long count(Path database, String table) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT count(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String integrityCheck(Path database) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Orologio che avanza di un secondo a ogni lettura.
+     */
+    private static Clock tickingClock() {
+        AtomicLong seconds = new AtomicLong(1_700_000_000L);
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochSecond(seconds.getAndIncrement());
+            }
+        };
+    }
+
+    /**
+     * SCENARIO 1 (Online): la copia procede a piccoli passi mentre un altro
+     * thread continua a scrivere; non riparte mai (WAL) e contiene
+     * un'istantanea coerente: ogni entry con tutti i suoi campi.
+     */
+    @Test
+    void backupNow_shouldCopyConsistentSnapshotWhileWritersRun() throws Exception {
+        List<Entry> initial = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            initial.add(newEntry(i));
+        }
+        repository.saveAll(initial);
+        BackupConfig config = BackupConfig.defaults().withPagesPerStep(1).withStepPause(Duration.ofMillis(1));
+        BackupService service = new BackupService(connector, workDir.resolve("backups"), config);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger writeErrors = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            int i = 1000;
+            while (!stop.get()) {
+                try {
+                    repository.save(newEntry(i++));
+                    written.incrementAndGet();
+                } catch (RuntimeException e) {
+                    writeErrors.incrementAndGet();
+                }
+            }
+        });
+        writer.start();
+        BackupResult result;
+        try {
+            result = service.backupNow();
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+
+        assertEquals(0, writeErrors.get(), "Le scritture non vengono bloccate dal backup");
+        assertTrue(written.get() > 0, "Il writer ha scritto durante il backup");
+        assertTrue(result.steps() > 1, "La copia avviene a passi");
+        assertEquals(0, result.restarts(), "In WAL la copia non riparte");
+        assertEquals("ok", integrityCheck(result.file()));
+        long entries = count(result.file(), "Entries");
+        assertTrue(entries >= 300 && entries <= 300 + written.get());
+        assertEquals(entries * FIELDS_PER_ENTRY, count(result.file(), "Fields"), "Nessuna entry a metà");
+    }
+
+    /**
+     * SCENARIO 2 (Retention): vengono tenuti solo gli ultimi N backup, e le
+     * metriche riportano i backup completati.
+     */
+    @Test
+    void backupNow_shouldKeepOnlyRetainedBackups() throws IOException {
+        repository.save(newEntry(1));
+        Path backups = workDir.resolve("backups");
+        BackupService service = new BackupService(connector, backups,
+                BackupConfig.defaults().withRetainedBackups(2), tickingClock());
+
+        List<Path> created = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            created.add(service.backupNow().file());
+        }
+
+        try (Stream<Path> files = Files.list(backups)) {
+            assertEquals(created.subList(2, 4), files.sorted().toList(), "Restano i due backup più recenti");
+        }
+        assertTrue(created.get(0).getFileName().toString().matches("vault-\\d{8}-\\d{6}-\\d{3}\\.db"));
+        BackupMetrics metrics = service.metrics();
+        assertEquals(4, metrics.completedCount());
+        assertEquals(0, metrics.failedCount());
+        assertEquals(created.get(3), metrics.lastBackup().file());
+        assertTrue(metrics.maxDuration().compareTo(metrics.averageDuration()) >= 0);
+    }
+
+    /**
+     * SCENARIO 3 (Cattivo): un backup che fallisce viene contato e non
+     * lascia file a metà.
+     */
+    @Test
+    void backup_shouldReportFailuresWithoutLeavingPartialFiles() throws IOException {
+        Path notADirectory = Files.createFile(workDir.resolve("file"));
+        BackupService service = new BackupService(connector, notADirectory.resolve("backups"), BackupConfig.defaults());
+
+        assertThrows(RuntimeException.class, service::backupNow);
+        assertThrows(RuntimeException.class, () -> service.backupTo(workDir.resolve("missing").resolve("copy.db")));
+
+        assertEquals(2, service.metrics().failedCount());
+        assertNull(service.metrics().lastBackup());
+        try (Stream<Path> files = Files.list(workDir)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".partial")));
+        }
+    }
+
+    /**
+     * SCENARIO 4 (Pianificazione): start() esegue i backup a intervalli
+     * regolari, close() li ferma.
+     */
+    @Test
+    void start_shouldRunScheduledBackups() throws Exception {
+        repository.save(newEntry(1));
+        Path backups = workDir.resolve("backups");
+        BackupConfig config = BackupConfig.defaults().withInterval(Duration.ofMillis(50)).withRetainedBackups(1);
+        BackupService service = new BackupService(connector, backups, config, tickingClock());
+
+        service.start();
+        assertThrows(IllegalStateException.class, service::start);
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (service.metrics().completedCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        service.close();
+
+        long completed = service.metrics().completedCount();
+        assertTrue(completed >= 2, "Almeno due backup pianificati");
+        Thread.sleep(200);
+        assertEquals(completed, service.metrics().completedCount(), "Dopo close() non partono altri backup");
+        try (Stream<Path> files = Files.list(backups)) {
+            assertEquals(1, files.count(), "Retention applicata anche ai backup pianificati");
+        }
+    }
+}
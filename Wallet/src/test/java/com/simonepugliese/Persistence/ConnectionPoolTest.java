@@ -0,0 +1,102 @@
+package com.simonepugliese.Persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il ConnectionPool usato dal DbConnector.
+ * Usa database SQLite in memoria, quindi non tocca wallet.db.
+ */
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    private ConnectionPool newPool(PoolConfig config) {
+        pool = new ConnectionPool(() -> DriverManager.getConnection("jdbc:sqlite::memory:"), config);
+        return pool;
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * SCENARIO 1 (Riuso): chiudere la connessione la restituisce al pool,
+     * e il prestito successivo riusa la stessa connessione fisica.
+     */
+    @Test
+    void borrow_shouldReusePhysicalConnection_afterClose() throws SQLException {
+        newPool(PoolConfig.defaults());
+
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+            assertEquals(1, pool.metrics().activeConnections(), "Una connessione deve risultare attiva");
+        }
+        try (Connection conn = pool.borrow()) {
+            assertNotNull(conn);
+        }
+
+        PoolMetrics metrics = pool.metrics();
+        assertEquals(1, metrics.createdCount(), "Deve essere stata aperta una sola connessione fisica");
+        assertEquals(2, metrics.borrowCount());
+        assertEquals(0, metrics.activeConnections());
+        assertEquals(1, metrics.idleConnections());
+    }
+
+    /**
+     * SCENARIO 2 (Cattivo - Uso dopo close): una connessione restituita
+     * non deve più essere utilizzabile dal vecchio proprietario.
+     */
+    @Test
+    void returnedConnection_shouldRejectFurtherUse() throws SQLException {
+        newPool(PoolConfig.defaults());
+
+        Connection conn = pool.borrow();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertDoesNotThrow(conn::close, "Una doppia close deve essere innocua");
+    }
+
+    /**
+     * SCENARIO 3 (Cattivo - Esaurimento): con il pool pieno il prestito
+     * va in timeout invece di aprire connessioni senza limite.
+     */
+    @Test
+    void borrow_shouldTimeout_whenPoolIsExhausted() throws SQLException {
+        newPool(PoolConfig.defaults().withMaxSize(1).withBorrowTimeout(Duration.ofMillis(50)));
+
+        try (Connection ignored = pool.borrow()) {
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+        }
+        assertEquals(1, pool.metrics().timeoutCount());
+    }
+
+    /**
+     * SCENARIO 4 (Transazioni): una transazione lasciata aperta viene
+     * annullata al rientro nel pool, non passata al prossimo utente.
+     */
+    @Test
+    void release_shouldResetAutoCommit() throws SQLException {
+        newPool(PoolConfig.defaults().withMaxSize(1));
+
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertTrue(conn.getAutoCommit(), "La connessione riusata deve essere in auto-commit");
+        }
+    }
+}
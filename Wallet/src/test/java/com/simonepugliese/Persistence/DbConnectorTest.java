@@ -4,45 +4,44 @@ package com.simonepugliese.Persistence;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 // Import aggiunti per l'eliminazione del file
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test per il DbConnector.
- * Verifica il pattern Singleton (anche in multithreading) e l'inizializzazione.
+ * Verifica il registro dei connector per file (anche in multithreading),
+ * l'inizializzazione e la modalità in memoria.
  */
 class DbConnectorTest {
 
     /**
-     * Resettiamo il Singleton E CANCELLIAMO IL DB
+     * Chiudiamo i connector aperti E CANCELLIAMO IL DB
      * prima di ogni test per garantire isolamento totale.
      * Questo costringe 'getInstance()' a rieseguire
      * 'initializeDatabase()' ogni volta.
      */
     @BeforeEach
-    void resetSingletonAndDatabaseFile() {
-        // 1. Resetta il singleton (necessario per testare l'init)
-        try {
-            Field instanceField = DbConnector.class.getDeclaredField("instance");
-            instanceField.setAccessible(true);
-            instanceField.set(null, null);
-        } catch (Exception e) {
-            fail("Fallito reset del Singleton via reflection", e);
-        }
+    void resetConnectorsAndDatabaseFile() {
+        // 1. Chiude i connector aperti (necessario per testare l'init)
+        DbConnector.closeAll();
 
-        // 2. Elimina fisicamente il file DB per forzare la ri-creazione
+        // 2. Elimina fisicamente il file DB (e i file del WAL) per forzare la ri-creazione
         try {
-            Files.deleteIfExists(Paths.get("wallet.db"));
+            deleteDatabaseFiles(Paths.get("wallet.db"));
         } catch (Exception e) {
             fail("Fallita eliminazione del file wallet.db", e);
         }
@@ -109,4 +108,148 @@ class DbConnectorTest {
         // Assert
         assertEquals(1, instances.size(), "Tutti i thread devono ricevere la stessa istanza");
     }
-}
\ No newline at end of file
+
+    /**
+     * SCENARIO 4 (Profilo): il profilo di default viene applicato a ogni connessione
+     * e le impostazioni effettive lo riflettono.
+     */
+    @Test
+    void connectionProfile_shouldBeAppliedToEveryConnection() throws Exception {
+        Path dbFile = Files.createTempFile("wallet-profile-test", ".db");
+        DbConnector connector = new DbConnector("jdbc:sqlite:" + dbFile, PoolConfig.defaults(), ConnectionProfile.defaults());
+        try {
+            Map<String, String> settings = connector.getEffectiveSettings();
+
+            assertEquals("wal", settings.get("journal_mode"));
+            assertEquals("1", settings.get("synchronous"), "synchronous=NORMAL vale 1");
+            assertEquals("1", settings.get("foreign_keys"));
+            assertEquals("2", settings.get("temp_store"), "temp_store=MEMORY vale 2");
+            assertEquals("5000", settings.get("busy_timeout"));
+        } finally {
+            connector.close();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+
+    /**
+     * SCENARIO 5 (Foreign key): con foreign_keys=ON, cancellare una Entry
+     * cancella in cascata i suoi Fields.
+     */
+    @Test
+    void deleteEntry_shouldCascadeToFields() throws Exception {
+        DbConnector connector = DbConnector.getInstance();
+        try (Connection conn = connector.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Entries (id, description, category) VALUES ('fk-test', 'd', 'c')");
+            stmt.executeUpdate("INSERT INTO Fields (id, entry_id, name, value, type, sensitive) "
+                    + "VALUES ('fk-field', 'fk-test', 'n', 'v', 'TEXT', 0)");
+
+            stmt.executeUpdate("DELETE FROM Entries WHERE id = 'fk-test'");
+
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Fields WHERE entry_id = 'fk-test'")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1), "I Fields orfani devono essere eliminati dalla cascata");
+            }
+        }
+    }
+
+    /**
+     * SCENARIO 6 (Concorrenza WAL): una transazione di lettura aperta non
+     * impedisce a un'altra connessione di confermare una scrittura, e il
+     * lettore continua a vedere il proprio snapshot.
+     */
+    @Test
+    void writes_shouldNotBlockOnOpenReadTransaction() throws Exception {
+        Path dbFile = Files.createTempFile("wallet-wal-test", ".db");
+        ConnectionProfile profile = ConnectionProfile.defaults().withBusyTimeout(Duration.ZERO);
+        DbConnector connector = new DbConnector("jdbc:sqlite:" + dbFile, PoolConfig.defaults(), profile);
+        try (Connection reader = connector.getConnection();
+             Connection writer = connector.getConnection()) {
+            reader.setAutoCommit(false);
+            assertEquals(0, countEntries(reader));
+
+            // Con il rollback journal (e busy_timeout=0) il commit fallirebbe con SQLITE_BUSY
+            try (Statement w = writer.createStatement()) {
+                w.executeUpdate("INSERT INTO Entries (id, description, category) VALUES ('wal-test', 'd', 'c')");
+            }
+
+            assertEquals(0, countEntries(reader), "Il lettore deve continuare a vedere il suo snapshot");
+            reader.commit();
+            assertEquals(1, countEntries(reader));
+        } finally {
+            connector.close();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+
+    /**
+     * SCENARIO 7 (Multi-vault): lo stesso file restituisce sempre lo stesso
+     * connector, file diversi sono vault separati.
+     */
+    @Test
+    void forPath_shouldIsolateVaultsByFile() throws Exception {
+        Path dir = Files.createTempDirectory("wallet-multi-vault");
+        Path fileA = dir.resolve("a.db");
+        Path fileB = dir.resolve("b.db");
+        try {
+            DbConnector a = DbConnector.forPath(fileA);
+            assertSame(a, DbConnector.forPath(dir.resolve("x/../a.db")), "Percorsi equivalenti devono condividere il connector");
+            DbConnector b = DbConnector.forPath(fileB);
+            assertNotSame(a, b);
+            assertEquals(fileA.toAbsolutePath(), a.getPath());
+
+            try (Connection conn = a.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO Entries (id, description, category) VALUES ('only-a', 'd', 'c')");
+            }
+            try (Connection conn = a.getConnection(); Connection connB = b.getConnection()) {
+                assertEquals(1, countEntries(conn));
+                assertEquals(0, countEntries(connB), "Il vault B non deve vedere i dati del vault A");
+            }
+
+            a.close();
+            assertNotSame(a, DbConnector.forPath(fileA), "Dopo close() deve essere aperto un nuovo connector");
+        } finally {
+            DbConnector.closeAll();
+            deleteDatabaseFiles(fileA);
+            deleteDatabaseFiles(fileB);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * SCENARIO 8 (In memoria): ogni vault in memoria è privato, condiviso tra
+     * le connessioni del suo pool, e viene scartato alla chiusura.
+     */
+    @Test
+    void inMemory_shouldCreatePrivateVaults() throws Exception {
+        try (DbConnector first = DbConnector.inMemory(); DbConnector second = DbConnector.inMemory()) {
+            assertNull(first.getPath());
+            try (Connection writer = first.getConnection(); Statement stmt = writer.createStatement()) {
+                stmt.executeUpdate("INSERT INTO Entries (id, description, category) VALUES ('mem', 'd', 'c')");
+                try (Connection reader = first.getConnection()) {
+                    assertEquals(1, countEntries(reader), "Le connessioni dello stesso pool vedono lo stesso database");
+                }
+            }
+            try (Connection conn = second.getConnection()) {
+                assertEquals(0, countEntries(conn), "Due vault in memoria devono essere indipendenti");
+            }
+
+            first.close();
+            assertThrows(SQLException.class, first::getConnection);
+        }
+    }
+
+    private static int countEntries(Connection conn) throws Exception {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Entries")) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private static void deleteDatabaseFiles(Path dbFile) throws Exception {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Paths.get(dbFile + suffix));
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package com.simonepugliese.Persistence;
 
+import com.simonepugliese.Core.EntryResult;
 import com.simonepugliese.Model.Category;
 import com.simonepugliese.Model.Entry;
 import com.simonepugliese.Model.Field;
 import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Model.SecretValue;
 import com.simonepugliese.Security.CryptoUtils; // Importato per il test
+import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.SessionKey;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -22,11 +33,14 @@ class EntryCriptorTest {
     private static final String PASSWORD_VAL = "P4$$w0rd_S3gret4!";
 
     private EntryCriptor criptor;
+    private SessionKey dataKey;
 
     @BeforeEach
     void setup() {
         // Creiamo un nuovo criptor per ogni test, con la sua password
-        this.criptor = new EntryCriptor(MASTER_PASS_STR);
+        // e una data key casuale (come se fosse stata appena sbloccata)
+        this.dataKey = CryptoUtils.generateDataKey();
+        this.criptor = new EntryCriptor(MASTER_PASS_STR, new SessionKey(dataKey.getEncoded()));
     }
 
     /**
@@ -60,20 +74,21 @@ class EntryCriptorTest {
         assertEquals(USERNAME_VAL, usernameField.getValue(), "Campo non sensibile non deve cambiare");
         assertFalse(usernameField.isSensitive());
 
-        // Il campo sensibile NON DEVE essere in chiaro
+        // Il campo sensibile NON DEVE essere in chiaro: ora è un ciphertext binario
         assertTrue(passwordField.isSensitive());
-        assertNotNull(passwordField.getValue());
-        assertNotEquals(PASSWORD_VAL, passwordField.getValue(), "Campo sensibile deve essere cifrato");
+        assertNotNull(passwordField.getCiphertext(), "Campo sensibile deve essere cifrato");
+        assertNull(passwordField.getValue(), "Il ciphertext non passa per una String");
 
         // Test "cattivo": verifico che sia *effettivamente* decifrabile
-        // con la password giusta, altrimenti l'encrypt è rotto.
-        String decryptedPass = CryptoUtils.decrypt(passwordField.getValue(), MASTER_PASS_CHARS);
+        // con la data key della sessione, altrimenti l'encrypt è rotto.
+        String decryptedPass = CryptoUtils.decrypt(passwordField.getCiphertext(), dataKey);
         assertEquals(PASSWORD_VAL, decryptedPass, "Il valore cifrato deve essere decifrabile");
     }
 
     /**
-     * SCENARIO 2 (Decrypt): Verifica che decrypt() modifichi
-     * solo il campo sensibile (che arriva cifrato).
+     * SCENARIO 2 (Decrypt - Legacy): Verifica che decrypt() modifichi
+     * solo il campo sensibile (che arriva cifrato nel vecchio formato
+     * con sale per-campo) e che i vecchi payload restino leggibili.
      */
     @Test
     void decrypt_shouldDecryptSensitiveFieldsOnly() {
@@ -96,4 +111,186 @@ class EntryCriptorTest {
         // Il campo sensibile ora è in chiaro
         assertEquals(PASSWORD_VAL, decryptedEntry.getField("Password").getValue(), "Password deve essere decifrata");
     }
-}
\ No newline at end of file
+
+    /**
+     * SCENARIO 3 (Round trip): encrypt() seguito da decrypt() restituisce
+     * i valori originali, senza passare dalla password.
+     */
+    @Test
+    void encryptThenDecrypt_shouldRestoreOriginalValues() {
+        Entry entry = criptor.encrypt(createTestEntry());
+        Entry decrypted = criptor.decrypt(entry);
+
+        assertEquals(USERNAME_VAL, decrypted.getField("Username").getValue());
+        assertEquals(PASSWORD_VAL, decrypted.getField("Password").getValue());
+    }
+
+    /**
+     * SCENARIO 4 (Migrazione): solo le entry con payload legacy
+     * devono essere segnalate come da ri-cifrare.
+     */
+    @Test
+    void requiresReEncryption_shouldDetectLegacyPayloadsOnly() {
+        Entry legacy = createTestEntry();
+        legacy.getField("Password").setValue(CryptoUtils.encrypt(PASSWORD_VAL, MASTER_PASS_CHARS));
+        assertTrue(criptor.requiresReEncryption(legacy), "Un payload legacy deve richiedere la migrazione");
+
+        Entry migrated = criptor.encrypt(criptor.decrypt(legacy));
+        assertFalse(criptor.requiresReEncryption(migrated), "Dopo la ri-cifratura non serve più migrare");
+        assertEquals(PASSWORD_VAL, criptor.decrypt(migrated).getField("Password").getValue());
+    }
+
+    /**
+     * SCENARIO 5 (Cattivo - close): dopo close() la data key è distrutta
+     * e non può più essere usata.
+     */
+    @Test
+    void close_shouldDestroyDataKey() {
+        criptor.close();
+        assertThrows(RuntimeException.class, () -> criptor.encrypt(createTestEntry()),
+                "Dopo close() il criptor non deve più cifrare");
+    }
+
+    /**
+     * SCENARIO 6 (Batch): decryptAll() su thread virtuali restituisce i
+     * risultati nell'ordine di input e isola l'entry corrotta senza
+     * toccarne i campi, mentre le altre vengono decifrate.
+     */
+    @Test
+    void decryptAll_shouldPreserveOrder_andIsolateFailures() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            EntryCriptor parallelCriptor = new EntryCriptor(MASTER_PASS_STR, new SessionKey(dataKey.getEncoded()), executor);
+
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                entries.add(createTestEntry());
+            }
+            assertTrue(parallelCriptor.encryptAll(entries).stream().allMatch(EntryResult::isSuccess));
+
+            // Corrompiamo l'entry n. 7
+            Entry corrupted = entries.get(7);
+            byte[] brokenValue = CryptoUtils.encrypt("altro", CryptoUtils.generateDataKey());
+            corrupted.getField("Password").setCiphertext(brokenValue);
+
+            List<EntryResult> results = parallelCriptor.decryptAll(entries);
+
+            assertEquals(entries.size(), results.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertSame(entries.get(i), results.get(i).entry(), "L'ordine di input deve essere rispettato");
+                if (i == 7) {
+                    assertFalse(results.get(i).isSuccess());
+                    assertInstanceOf(DecryptionFailedException.class, results.get(i).error());
+                    assertSame(brokenValue, corrupted.getField("Password").getCiphertext(), "L'entry fallita non deve essere modificata");
+                } else {
+                    assertTrue(results.get(i).isSuccess());
+                    assertEquals(PASSWORD_VAL, entries.get(i).getField("Password").getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * SCENARIO 7 (Blind index): encrypt() ed encryptAll() calcolano lo stesso
+     * indice per valori uguali, mai per i campi non sensibili, e una data key
+     * diversa produce indici diversi.
+     */
+    @Test
+    void encrypt_shouldComputeDeterministicBlindIndex() {
+        Entry first = criptor.encrypt(createTestEntry());
+        Entry second = createTestEntry();
+        assertTrue(criptor.encryptAll(List.of(second)).get(0).isSuccess());
+
+        String index = first.getField("Password").getBlindIndex();
+        assertNotNull(index);
+        assertEquals(index, second.getField("Password").getBlindIndex(), "Stesso valore, stesso indice");
+        assertEquals(index, criptor.blindIndex(PASSWORD_VAL).orElseThrow());
+        assertFalse(Arrays.equals(first.getField("Password").getCiphertext(), second.getField("Password").getCiphertext()),
+                "Il testo cifrato resta randomizzato");
+        assertNull(first.getField("Username").getBlindIndex(), "I campi non sensibili non hanno indice");
+        assertFalse(index.contains(PASSWORD_VAL));
+
+        try (EntryCriptor otherVault = new EntryCriptor(MASTER_PASS_STR, CryptoUtils.generateDataKey())) {
+            assertNotEquals(index, otherVault.blindIndex(PASSWORD_VAL).orElseThrow(),
+                    "L'indice dipende dalla chiave del vault");
+        }
+        assertTrue(criptor.blindIndex("").isEmpty());
+    }
+
+    /**
+     * SCENARIO 8 (Blind index - Migrazione): un valore cifrato prima degli
+     * indici va ri-cifrato, così l'indice viene calcolato.
+     */
+    @Test
+    void requiresReEncryption_shouldDetectMissingBlindIndex() {
+        Entry entry = criptor.encrypt(createTestEntry());
+        assertFalse(criptor.requiresReEncryption(entry));
+
+        entry.getField("Password").setBlindIndex(null);
+        assertTrue(criptor.requiresReEncryption(entry), "Un valore senza indice deve essere migrato");
+    }
+
+    /**
+     * SCENARIO 9 (Cattivo - close dopo l'uso): le istanze AES e HMAC riutilizzate
+     * non permettono di cifrare o calcolare indici dopo close(), nemmeno da
+     * un thread che le aveva già inizializzate.
+     */
+    @Test
+    void close_afterUse_shouldNotReuseInitializedEngines() {
+        Entry entry = criptor.encrypt(createTestEntry());
+        assertTrue(criptor.blindIndex(PASSWORD_VAL).isPresent());
+        assertTrue(criptor.decryptAll(List.of(entry)).get(0).isSuccess());
+
+        criptor.close();
+
+        assertThrows(RuntimeException.class, () -> criptor.blindIndex(PASSWORD_VAL));
+        assertThrows(RuntimeException.class, () -> criptor.decrypt(entry));
+        assertThrows(RuntimeException.class, () -> criptor.encrypt(createTestEntry()));
+    }
+
+    /**
+     * SCENARIO 10 (SecretValue): i valori decifrati sono segreti cancellabili,
+     * si cifrano di nuovo direttamente dal loro buffer, e close() li distrugge
+     * anche se l'entry è ancora in uso (ad es. dalla UI).
+     */
+    @Test
+    void decrypt_shouldProduceSecretsDestroyedOnClose() {
+        Entry stored = criptor.encrypt(createTestEntry());
+        Entry decrypted = criptor.decryptAll(List.of(stored.copy())).get(0).entry();
+        Entry single = criptor.decrypt(stored.copy());
+
+        SecretValue secret = decrypted.getField("Password").getSecret();
+        assertNotNull(secret, "Il valore decifrato è un SecretValue");
+        assertEquals(PASSWORD_VAL, secret.reveal());
+        assertNull(decrypted.getField("Username").getSecret(), "I campi non sensibili restano String");
+
+        Entry reEncrypted = criptor.encrypt(decrypted.copy());
+        assertEquals(stored.getField("Password").getBlindIndex(), reEncrypted.getField("Password").getBlindIndex());
+        assertEquals(PASSWORD_VAL, CryptoUtils.decrypt(reEncrypted.getField("Password").getCiphertext(), dataKey));
+
+        criptor.close();
+
+        assertTrue(secret.isDestroyed());
+        assertTrue(single.getField("Password").getSecret().isDestroyed());
+        assertThrows(IllegalStateException.class, () -> decrypted.getField("Password").getValue());
+    }
+
+    /**
+     * SCENARIO 11 (Formato "v2:"): un valore ancora salvato come testo Base64
+     * si decifra senza passare dalla migrazione; un "v2:" corrotto fallisce.
+     */
+    @Test
+    void decrypt_shouldReadV2TextValues() {
+        byte[] binary = CryptoUtils.encrypt(PASSWORD_VAL, dataKey);
+        Entry entry = createTestEntry();
+        entry.getField("Password").setValue(
+                "v2:" + Base64.getEncoder().encodeToString(Arrays.copyOfRange(binary, 1, binary.length)));
+        entry.getField("Password").setBlindIndex(criptor.blindIndex(PASSWORD_VAL).orElseThrow());
+
+        assertFalse(criptor.requiresReEncryption(entry), "Basta convertirlo, senza cifrarlo di nuovo");
+        assertEquals(PASSWORD_VAL, criptor.decrypt(entry).getField("Password").getSecret().reveal());
+
+        Entry corrupted = createTestEntry();
+        corrupted.getField("Password").setValue("v2:non Base64!");
+        assertThrows(DecryptionFailedException.class, () -> criptor.decrypt(corrupted));
+    }
+}
@@ -1,15 +1,29 @@
 package com.simonepugliese.Persistence;
 
+import com.simonepugliese.Core.EntryResult;
+import com.simonepugliese.Core.Page;
+import com.simonepugliese.Core.PageRequest;
 import com.simonepugliese.Model.Category;
 import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
 import com.simonepugliese.Model.Field;
 import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.SessionKey;
 import org.junit.jupiter.api.*;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -52,6 +66,8 @@ class EntryRepositoryTest {
             // Puliamo Fields prima a causa della Foreign Key
             stmt.executeUpdate("DELETE FROM Fields");
             stmt.executeUpdate("DELETE FROM Entries");
+            stmt.executeUpdate("DELETE FROM SearchIndex");
+            stmt.executeUpdate("DELETE FROM SearchDocuments");
         } catch (Exception e) {
             fail("La pulizia del DB è fallita", e);
         }
@@ -123,7 +139,7 @@ class EntryRepositoryTest {
         assertNotNull(loadedV2, "L'entry V2 non deve essere null");
         assertEquals("Sito V2 - Aggiornato", loadedV2.getDescription());
         assertEquals(Category.LOGIN, loadedV2.getCategory());
-        // La logica (DELETE+INSERT) del repository deve riflettere i campi V2
+        // La logica (diff dei campi) del repository deve riflettere i campi V2
         assertEquals(4, loadedV2.getFields().size(), "Ora ci devono essere 4 campi");
         assertEquals("NUOVO_USER", loadedV2.getField("Username").getValue());
         assertEquals("Nota aggiunta", loadedV2.getField("Note").getValue());
@@ -189,4 +205,660 @@ class EntryRepositoryTest {
         Optional<Entry> result = repository.findById("id-che-non-esiste-123");
         assertTrue(result.isEmpty(), "Un ID non esistente deve restituire Optional.empty");
     }
-}
\ No newline at end of file
+
+    /**
+     * SCENARIO 6 (Bulk): findAllByIds carica più entry complete con i
+     * loro campi, nell'ordine degli ID richiesti, ignorando gli ID inesistenti.
+     */
+    @Test
+    void findAllByIds_shouldLoadEntriesWithFields_inRequestedOrder() {
+        Entry first = createTestEntry("Primo", Category.LOGIN);
+        Entry second = createTestEntry("Secondo", Category.WIFI);
+        Entry empty = new Entry("Senza campi", Category.GENERIC);
+        repository.save(first);
+        repository.save(second);
+        repository.save(empty);
+
+        List<Entry> loaded = repository.findAllByIds(List.of(second.getId(), "id-inesistente", empty.getId(), first.getId()));
+
+        assertEquals(3, loaded.size(), "Gli ID inesistenti devono essere ignorati");
+        assertEquals(second.getId(), loaded.get(0).getId());
+        assertEquals(empty.getId(), loaded.get(1).getId());
+        assertEquals(first.getId(), loaded.get(2).getId());
+        assertEquals(3, loaded.get(0).getFields().size());
+        assertTrue(loaded.get(1).getFields().isEmpty(), "Un'entry senza campi deve comunque essere caricata");
+        assertEquals("valore-cifrato-simulato", loaded.get(2).getField("Password").getValue());
+        // L'ordine dei campi deve essere quello di inserimento
+        assertEquals(List.of("Username", "Password", "URL"), List.copyOf(loaded.get(2).getFields().keySet()));
+    }
+
+    /**
+     * SCENARIO 7 (Bulk - Batch IN): anche oltre la dimensione del batch
+     * della clausola IN tutte le entry vengono trovate.
+     */
+    @Test
+    void findAllByIds_shouldHandleMoreIdsThanOneBatch() {
+        List<String> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            Entry entry = new Entry("Entry " + i, Category.GENERIC);
+            entry.putField("Nota", new Field("n" + i, FieldType.NOTE, false));
+            repository.save(entry);
+            ids.add(entry.getId());
+        }
+
+        List<Entry> loaded = repository.findAllByIds(ids);
+
+        assertEquals(1200, loaded.size());
+        assertEquals("n1199", loaded.get(1199).getField("Nota").getValue());
+    }
+
+    /**
+     * SCENARIO 8 (Bulk - Tutto): findAll carica tutte le entry complete.
+     */
+    @Test
+    void findAll_shouldLoadEveryEntryWithFields() {
+        repository.save(createTestEntry("Entry 1", Category.LOGIN));
+        repository.save(createTestEntry("Entry 2", Category.WIFI));
+
+        List<Entry> all = repository.findAll();
+
+        assertEquals(2, all.size());
+        assertTrue(all.stream().allMatch(e -> e.getFields().size() == 3), "Ogni entry deve avere i suoi 3 campi");
+    }
+
+    /**
+     * Helper: legge gli ID delle righe Fields di un'entry, in ordine di rowid.
+     */
+    private List<String> storedFieldIds(String entryId) {
+        List<String> ids = new ArrayList<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT id FROM Fields WHERE entry_id = ? ORDER BY rowid")) {
+            ps.setString(1, entryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString("id"));
+                }
+            }
+        } catch (Exception e) {
+            fail("Lettura degli ID dei campi fallita", e);
+        }
+        return ids;
+    }
+
+    /**
+     * SCENARIO 9 (Diff - Nessuna modifica): risalvare un'entry identica
+     * non deve scrivere nessuna riga.
+     */
+    @Test
+    void save_shouldWriteNothing_whenEntryIsUnchanged() {
+        Entry entry = createTestEntry("Invariata", Category.LOGIN);
+        repository.save(entry);
+        List<String> idsBefore = storedFieldIds(entry.getId());
+        long rowsBefore = repository.getRowsWritten();
+
+        repository.save(entry);
+
+        assertEquals(rowsBefore, repository.getRowsWritten(), "Un save senza modifiche non deve scrivere righe");
+        assertEquals(idsBefore, storedFieldIds(entry.getId()), "Gli ID dei campi devono restare stabili");
+    }
+
+    /**
+     * SCENARIO 10 (Diff - Solo descrizione): cambiare la descrizione
+     * scrive solo la riga dell'entry, i campi restano intatti.
+     */
+    @Test
+    void save_shouldWriteOnlyEntryRow_whenOnlyDescriptionChanges() {
+        Entry entry = createTestEntry("Prima", Category.LOGIN);
+        repository.save(entry);
+        List<String> idsBefore = storedFieldIds(entry.getId());
+        long rowsBefore = repository.getRowsWritten();
+
+        entry.setDescription("Dopo");
+        repository.save(entry);
+
+        assertEquals(rowsBefore + 1, repository.getRowsWritten(), "Deve essere scritta solo la riga Entries");
+        assertEquals(idsBefore, storedFieldIds(entry.getId()));
+        assertEquals("Dopo", repository.findById(entry.getId()).orElseThrow().getDescription());
+    }
+
+    /**
+     * SCENARIO 11 (Diff - Campi): modifica, aggiunta e rimozione di campi
+     * toccano solo le righe interessate e mantengono l'ordine dei campi.
+     */
+    @Test
+    void save_shouldApplyFieldLevelDiff_andKeepOrder() {
+        Entry entry = createTestEntry("Campi", Category.LOGIN);
+        repository.save(entry);
+        List<String> idsBefore = storedFieldIds(entry.getId()); // Username, Password, URL
+        long rowsBefore = repository.getRowsWritten();
+
+        entry.putField("Password", new Field("nuovo-valore-cifrato", FieldType.PASSWORD, true)); // UPDATE
+        entry.removeField("URL");                                                               // DELETE
+        entry.putField("Note", new Field("appunto", FieldType.NOTE, false));                   // INSERT
+        repository.save(entry);
+
+        assertEquals(rowsBefore + 3, repository.getRowsWritten(), "Devono essere scritte solo 3 righe");
+        List<String> idsAfter = storedFieldIds(entry.getId());
+        assertEquals(idsBefore.subList(0, 2), idsAfter.subList(0, 2), "Username e Password mantengono il loro ID");
+
+        Entry loaded = repository.findById(entry.getId()).orElseThrow();
+        assertEquals(List.of("Username", "Password", "Note"), List.copyOf(loaded.getFields().keySet()));
+        assertEquals("nuovo-valore-cifrato", loaded.getField("Password").getValue());
+    }
+
+    /**
+     * SCENARIO 12 (Diff - Riordino): un campo rimosso e reinserito finisce
+     * in fondo anche nel DB, mantenendo il suo ID.
+     */
+    @Test
+    void save_shouldPreserveFieldOrder_whenFieldIsMovedToTheEnd() {
+        Entry entry = createTestEntry("Ordine", Category.LOGIN);
+        repository.save(entry);
+        String usernameId = storedFieldIds(entry.getId()).get(0);
+
+        Field username = entry.removeField("Username");
+        entry.putField("Username", username);
+        repository.save(entry);
+
+        Entry loaded = repository.findById(entry.getId()).orElseThrow();
+        assertEquals(List.of("Password", "URL", "Username"), List.copyOf(loaded.getFields().keySet()));
+        assertEquals(usernameId, storedFieldIds(entry.getId()).get(2), "Il campo spostato mantiene il suo ID");
+    }
+
+    /**
+     * SCENARIO 13 (Ricerca): trova per prefisso nella descrizione e nei campi
+     * non sensibili, mai nei campi sensibili, e ordina per rilevanza.
+     */
+    @Test
+    void search_shouldMatchPrefixes_andIgnoreSensitiveFields() {
+        Entry inDescription = createTestEntry("Posta Google", Category.LOGIN);
+        Entry inField = createTestEntry("Altro account", Category.LOGIN);
+        inField.putField("Note", new Field("backup google drive", FieldType.NOTE, false));
+        Entry unrelated = createTestEntry("Città di Roma", Category.WIFI);
+        repository.save(inDescription);
+        repository.save(inField);
+        repository.save(unrelated);
+
+        List<Entry> results = repository.search("goo", 10);
+        assertEquals(List.of(inDescription.getId(), inField.getId()), results.stream().map(Entry::getId).toList(),
+                "La descrizione pesa più dei campi");
+        assertTrue(results.get(0).getFields().isEmpty(), "I risultati sono riepiloghi senza campi");
+
+        assertTrue(repository.search("valore-cifrato", 10).isEmpty(), "I campi sensibili non devono essere indicizzati");
+        assertEquals(1, repository.search("citta", 10).size(), "Gli accenti vengono ignorati");
+        assertEquals(3, repository.search("test.com", 10).size(), "Tutte le entry hanno l'URL di test");
+        assertEquals(1, repository.search("test.com", 1).size(), "Il limite deve essere rispettato");
+        assertTrue(repository.search("\"*) OR NEAR(", 10).isEmpty(), "Gli operatori FTS5 digitati vengono neutralizzati");
+    }
+
+    /**
+     * SCENARIO 14 (Ricerca - Sincronizzazione): l'indice segue le modifiche
+     * e le cancellazioni fatte tramite il repository.
+     */
+    @Test
+    void search_shouldFollowUpdatesAndDeletes() {
+        Entry entry = createTestEntry("Banca", Category.LOGIN);
+        repository.save(entry);
+        assertEquals(1, repository.search("banca", 10).size());
+
+        entry.setDescription("Conto corrente");
+        repository.save(entry);
+        assertTrue(repository.search("banca", 10).isEmpty());
+        assertEquals(1, repository.search("conto", 10).size());
+
+        repository.deleteById(entry.getId());
+        assertTrue(repository.search("conto", 10).isEmpty());
+    }
+
+    /**
+     * SCENARIO 15 (Ricerca - Ricostruzione): le entry scritte senza passare dal
+     * repository (es. un vault precedente alla ricerca) vengono indicizzate.
+     */
+    @Test
+    void rebuildIfNeeded_shouldIndexEntriesMissingFromTheIndex() throws Exception {
+        try (Connection conn = dbConnector.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Entries (id, description, category) VALUES ('legacy', 'Vecchia entry', 'LOGIN')");
+            stmt.executeUpdate("INSERT INTO Fields (id, entry_id, name, value, type, sensitive) "
+                    + "VALUES ('f1', 'legacy', 'URL', 'https://legacy.example', 'URL', 0)");
+            assertTrue(repository.search("vecchia", 10).isEmpty());
+
+            assertTrue(SearchIndex.rebuildIfNeeded(conn));
+            assertFalse(SearchIndex.rebuildIfNeeded(conn), "Un indice allineato non va ricostruito");
+        }
+
+        assertEquals(1, repository.search("vecchia", 10).size());
+        assertEquals(1, repository.search("legacy example", 10).size());
+    }
+
+    /**
+     * SCENARIO 16 (Blind index): la ricerca per indice usa l'indice SQL e trova
+     * solo le entry con quel valore; il report raggruppa le password usate da
+     * più entry, contando una volta sola l'entry che la ripete.
+     */
+    @Test
+    void blindIndex_shouldFindEntriesAndSharedPasswords() throws Exception {
+        Entry first = entryWithPassword("Primo", "idx-riusata");
+        first.putField("PIN", passwordField("idx-riusata")); // Stessa entry: conta una volta
+        Entry second = entryWithPassword("Secondo", "idx-riusata");
+        Entry third = entryWithPassword("Terzo", "idx-unica");
+        Entry fourth = entryWithPassword("Quarto", "idx-doppia");
+        Entry fifth = entryWithPassword("Quinto", "idx-doppia");
+        Entry sixth = entryWithPassword("Sesto", "idx-riusata");
+        for (Entry entry : List.of(first, second, third, fourth, fifth, sixth)) {
+            repository.save(entry);
+        }
+
+        assertEquals(List.of(first.getId(), second.getId(), sixth.getId()),
+                repository.findByBlindIndex("idx-riusata").stream().map(Entry::getId).toList());
+        assertTrue(repository.findByBlindIndex("idx-inesistente").isEmpty());
+        assertEquals("idx-unica", repository.findById(third.getId()).orElseThrow()
+                .getField("Password").getBlindIndex(), "L'indice viene riletto con l'entry");
+
+        List<List<Entry>> shared = repository.findSharedValues(FieldType.PASSWORD);
+        assertEquals(2, shared.size(), "La password unica non è riusata");
+        assertEquals(List.of(first.getId(), second.getId(), sixth.getId()), shared.get(0).stream().map(Entry::getId).toList(),
+                "La più riusata per prima");
+        assertEquals(List.of(fourth.getId(), fifth.getId()), shared.get(1).stream().map(Entry::getId).toList());
+        assertTrue(repository.findSharedValues(FieldType.TEXT).isEmpty());
+
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "EXPLAIN QUERY PLAN SELECT entry_id FROM Fields WHERE blind_index = ?")) {
+            ps.setString(1, "idx-riusata");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString("detail"));
+                }
+            }
+            assertTrue(plan.toString().contains("idx_fields_blind_index"), "La ricerca non deve scandire la tabella: " + plan);
+        }
+    }
+
+    private Entry entryWithPassword(String description, String blindIndex) {
+        Entry entry = new Entry(description, Category.LOGIN);
+        entry.putField("Password", passwordField(blindIndex));
+        return entry;
+    }
+
+    private Field passwordField(String blindIndex) {
+        Field field = new Field("cifrato-" + blindIndex, FieldType.PASSWORD, true);
+        field.setBlindIndex(blindIndex);
+        return field;
+    }
+
+    /**
+     * SCENARIO 17 (Paginazione): le pagine seguono la descrizione senza
+     * distinguere maiuscole, in entrambe le direzioni e per categoria, e
+     * un'entry aggiunta prima del cursore non sposta le pagine seguenti.
+     */
+    @Test
+    void findSummaries_shouldPageByKeyset() {
+        List<String> descriptions = List.of("delta", "Alfa", "charlie", "Bravo", "echo", "foxtrot", "golf");
+        for (int i = 0; i < descriptions.size(); i++) {
+            repository.save(createTestEntry(descriptions.get(i), i % 2 == 0 ? Category.LOGIN : Category.WIFI));
+        }
+
+        Page first = repository.findSummaries(PageRequest.first(3));
+        assertEquals(List.of("Alfa", "Bravo", "charlie"), descriptionsOf(first));
+        assertTrue(first.hasNext());
+
+        // Una nuova entry PRIMA del cursore non deve far ripetere "charlie"
+        repository.save(createTestEntry("Aaa", Category.LOGIN));
+        Page second = repository.findSummaries(first.next().orElseThrow());
+        assertEquals(List.of("delta", "echo", "foxtrot"), descriptionsOf(second));
+        Page last = repository.findSummaries(second.next().orElseThrow());
+        assertEquals(List.of("golf"), descriptionsOf(last));
+        assertFalse(last.hasNext());
+        assertTrue(last.next().isEmpty());
+
+        Page descending = repository.findSummaries(PageRequest.first(2).withDirection(PageRequest.Direction.DESCENDING));
+        assertEquals(List.of("golf", "foxtrot"), descriptionsOf(descending));
+        assertEquals(List.of("echo", "delta"), descriptionsOf(repository.findSummaries(descending.next().orElseThrow())));
+
+        Page wifi = repository.findSummaries(PageRequest.first(2).withCategory(Category.WIFI));
+        assertEquals(List.of("Alfa", "Bravo"), descriptionsOf(wifi));
+        Page wifiLast = repository.findSummaries(wifi.next().orElseThrow());
+        assertEquals(List.of("foxtrot"), descriptionsOf(wifiLast));
+        assertFalse(wifiLast.hasNext());
+    }
+
+    /**
+     * SCENARIO 18 (Paginazione - Indici): filtro, cursore e ordinamento sono
+     * serviti da un indice (il cursore come intervallo, non come filtro su
+     * una scansione), senza ordinamento a parte. Le query sono quelle
+     * generate da findSummaries.
+     */
+    @Test
+    void summaryPages_shouldBeServedByIndexes() throws Exception {
+        String byDescription = queryPlan("SELECT id, description, category FROM Entries "
+                + "WHERE (description, id) > ('m' COLLATE NOCASE, '') ORDER BY description COLLATE NOCASE, id LIMIT 51");
+        assertTrue(byDescription.contains("SEARCH Entries USING COVERING INDEX idx_entries_description ((description,id)>"),
+                byDescription);
+        assertFalse(byDescription.contains("TEMP B-TREE"), byDescription);
+
+        String byCategory = queryPlan("SELECT id, description, category FROM Entries WHERE category = 'LOGIN' "
+                + "AND (description, id) < ('m' COLLATE NOCASE, '') ORDER BY description COLLATE NOCASE DESC, id DESC LIMIT 51");
+        assertTrue(byCategory.contains("idx_entries_category_description (category=? AND (description,id)<"), byCategory);
+        assertFalse(byCategory.contains("TEMP B-TREE"), byCategory);
+    }
+
+    /**
+     * SCENARIO 19 (Riepiloghi leggeri): findAllEntrySummaries restituisce gli
+     * stessi metadati di findAllSummaries, come record immutabili.
+     */
+    @Test
+    void findAllEntrySummaries_shouldMatchFindAllSummaries() {
+        Entry login = createTestEntry("Posta", Category.LOGIN);
+        Entry wifi = createTestEntry("Casa", Category.WIFI);
+        repository.save(login);
+        repository.save(wifi);
+
+        List<EntrySummary> summaries = repository.findAllEntrySummaries();
+
+        assertEquals(repository.findAllSummaries().stream().map(EntrySummary::of).toList(), summaries);
+        assertTrue(summaries.contains(EntrySummary.of(login)));
+        assertTrue(summaries.contains(new EntrySummary(wifi.getId(), "Casa", Category.WIFI)));
+        assertThrows(NullPointerException.class, () -> new EntrySummary(null, "x", Category.LOGIN));
+    }
+
+    /**
+     * SCENARIO 20 (Stream): stream() restituisce le stesse entry complete di
+     * findAll, anche senza campi, e chiuderlo (pure a metà) restituisce la
+     * connessione al pool.
+     */
+    @Test
+    void stream_shouldAssembleEntriesIncrementally_andReleaseConnection() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(createTestEntry("Entry " + i, Category.LOGIN));
+        }
+        repository.save(new Entry("Senza campi", Category.SECURE_NOTE));
+        int activeBefore = dbConnector.getPoolMetrics().activeConnections();
+
+        List<Entry> streamed;
+        try (Stream<Entry> entries = repository.stream()) {
+            assertEquals(activeBefore + 1, dbConnector.getPoolMetrics().activeConnections(), "Lo stream tiene una connessione");
+            streamed = entries.toList();
+        }
+        assertEquals(activeBefore, dbConnector.getPoolMetrics().activeConnections(), "close() restituisce la connessione");
+
+        List<Entry> all = repository.findAll();
+        assertEquals(all.stream().map(Entry::getId).toList(), streamed.stream().map(Entry::getId).toList());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i).getFields().keySet(), streamed.get(i).getFields().keySet(), "Stessi campi, stesso ordine");
+        }
+
+        // Consumo parziale
+        try (Stream<Entry> entries = repository.stream()) {
+            assertEquals(2, entries.limit(2).count());
+        }
+        assertEquals(activeBefore, dbConnector.getPoolMetrics().activeConnections());
+
+        List<String> visited = new ArrayList<>();
+        repository.forEach(entry -> visited.add(entry.getId()));
+        assertEquals(6, visited.size());
+        assertEquals(activeBefore, dbConnector.getPoolMetrics().activeConnections(), "forEach chiude da solo lo stream");
+    }
+
+    /**
+     * SCENARIO 21 (Batch): saveAll() salva tutte le entry in una transazione,
+     * sostituisce i campi di quelle esistenti e annulla solo l'entry che fallisce.
+     */
+    @Test
+    void saveAll_shouldSaveBatch_andRollbackOnlyFailingEntry() {
+        Entry existing = createTestEntry("Esistente", Category.LOGIN);
+        repository.save(existing);
+        existing.removeField("URL");
+        existing.putField("Note", new Field("aggiornata nel batch", FieldType.TEXT, false));
+
+        Entry fresh = createTestEntry("Nuova", Category.LOGIN);
+        Entry broken = new Entry("Rotta", Category.LOGIN);
+        broken.putField("Campo", new Field("x", null, false)); // Tipo mancante: l'insert fallisce
+
+        List<EntryResult> results = repository.saveAll(List.of(existing, broken, fresh));
+
+        assertEquals(List.of(true, false, true), results.stream().map(EntryResult::isSuccess).toList());
+        assertSame(broken, results.get(1).entry());
+        assertTrue(repository.findById(broken.getId()).isEmpty(), "L'entry fallita non lascia righe parziali");
+
+        Entry reloaded = repository.findById(existing.getId()).orElseThrow();
+        assertEquals(existing.getFields().keySet(), reloaded.getFields().keySet(), "I campi vengono sostituiti");
+        assertTrue(repository.findById(fresh.getId()).isPresent());
+        assertEquals(1, repository.search("aggiornata", 10).size(), "Le entry del batch vengono indicizzate");
+        assertEquals(2, repository.findAll().size());
+    }
+
+    /**
+     * SCENARIO 22 (Formato binario): i valori cifrati con la data key sono
+     * salvati come BLOB (niente Base64) e riletti identici, sia da save() che
+     * da saveAll(); i valori non cifrati restano TEXT.
+     */
+    @Test
+    void encryptedValues_shouldBeStoredAsBlob() throws Exception {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        byte[] encrypted = CryptoUtils.encrypt("segreto", dataKey);
+        Entry single = createTestEntry("Singola", Category.LOGIN);
+        single.getField("Password").setCiphertext(encrypted);
+        Entry batched = createTestEntry("Batch", Category.LOGIN);
+        batched.getField("Password").setCiphertext(encrypted);
+
+        repository.save(single);
+        repository.saveAll(List.of(batched));
+
+        assertEquals(List.of("blob", "blob"), storedTypes("Password"));
+        assertEquals(List.of("text", "text"), storedTypes("Username"));
+        for (Entry loaded : repository.findAll()) {
+            assertEquals("segreto", CryptoUtils.decrypt(loaded.getField("Password").getCiphertext(), dataKey));
+            assertNull(loaded.getField("Password").getValue(), "Il BLOB non diventa una String");
+        }
+        assertArrayEquals(encrypted, repository.findById(single.getId()).orElseThrow().getField("Password").getCiphertext());
+    }
+
+    /**
+     * SCENARIO 23 (Migrazione del formato): migrateStorageFormat() converte in
+     * BLOB i valori "v2:" Base64 senza decifrarli, lascia i payload legacy e i
+     * valori non convertibili; una seconda esecuzione non trova più nulla.
+     */
+    @Test
+    void migrateStorageFormat_shouldConvertBase64ValuesToBlob() throws Exception {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            Entry entry = createTestEntry("Entry " + i, Category.LOGIN);
+            byte[] binary = CryptoUtils.encrypt("segreto-" + i, dataKey);
+            entry.getField("Password").setValue(
+                    "v2:" + Base64.getEncoder().encodeToString(Arrays.copyOfRange(binary, 1, binary.length)));
+            entries.add(entry);
+        }
+        entries.get(0).getField("Password").setValue(CryptoUtils.encrypt("legacy", "password".toCharArray()));
+        repository.saveAll(entries);
+        // Come scritti prima del formato binario: testo, senza passare dal repository
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE Fields SET value = ? WHERE entry_id = ? AND name = 'Password'")) {
+            conn.setAutoCommit(false);
+            for (Entry entry : entries) {
+                ps.setString(1, entry.getField("Password").getValue());
+                ps.setString(2, entry.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        assertFalse(storedTypes("Password").contains("blob"));
+        assertEquals("segreto-5", CryptoUtils.decrypt(CryptoUtils.fromV2Payload(
+                repository.findById(entries.get(5).getId()).orElseThrow().getField("Password").getValue()), dataKey),
+                "I valori \"v2:\" si leggono ancora come testo");
+
+        assertEquals(1199, repository.migrateStorageFormat());
+
+        List<String> types = storedTypes("Password");
+        assertEquals(1199, types.stream().filter("blob"::equals).count());
+        assertEquals(0, repository.migrateStorageFormat(), "Niente da convertire alla seconda esecuzione");
+        Entry converted = repository.findById(entries.get(700).getId()).orElseThrow();
+        assertEquals("segreto-700", CryptoUtils.decrypt(converted.getField("Password").getCiphertext(), dataKey));
+        Entry legacy = repository.findById(entries.get(0).getId()).orElseThrow();
+        assertTrue(CryptoUtils.isLegacyPayload(legacy.getField("Password").getValue()));
+    }
+
+    /**
+     * SCENARIO 24 (Concorrenza): molti thread aggiornano insieme le proprie
+     * entry; il diff legge le righe salvate prima di scrivere, ma nessun save
+     * fallisce con SQLITE_BUSY e nessuna modifica va persa.
+     */
+    @Test
+    void save_shouldNotFailUnderConcurrentWriters() throws Exception {
+        int writers = 8;
+        int rounds = 50;
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Entry entry = createTestEntry("Concorrente " + i, Category.LOGIN);
+            repository.save(entry);
+            entries.add(entry);
+        }
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (Entry entry : entries) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        entry.putField("Username", new Field("utente-" + round, FieldType.TEXT, false));
+                        try {
+                            repository.save(entry);
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, failures.get(), "Nessun save deve fallire");
+        for (Entry entry : entries) {
+            assertEquals("utente-" + (rounds - 1),
+                    repository.findById(entry.getId()).orElseThrow().getField("Username").getValue());
+        }
+    }
+
+    /**
+     * SCENARIO 25 (Cifratura ripetuta): un valore sensibile cifrato di nuovo
+     * (IV diverso) con lo stesso blind index non viene riscritto; il
+     * ciphertext salvato resta quello di prima.
+     */
+    @Test
+    void save_shouldKeepTheStoredCiphertextWhenTheBlindIndexIsUnchanged() {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        Entry entry = createTestEntry("Ricifrata", Category.LOGIN);
+        byte[] storedCiphertext = CryptoUtils.encrypt("segreto", dataKey);
+        Field password = new Field((String) null, FieldType.PASSWORD, true);
+        password.setCiphertext(storedCiphertext);
+        password.setBlindIndex("indice-segreto");
+        entry.putField("Password", password);
+        repository.save(entry);
+        long rowsBefore = repository.getRowsWritten();
+
+        Field reEncrypted = password.copy();
+        reEncrypted.setCiphertext(CryptoUtils.encrypt("segreto", dataKey));
+        reEncrypted.setBlindIndex("indice-segreto");
+        entry.putField("Password", reEncrypted);
+        repository.save(entry);
+
+        assertEquals(rowsBefore, repository.getRowsWritten(), "Stesso blind index: nessuna riga scritta");
+        assertArrayEquals(storedCiphertext,
+                repository.findById(entry.getId()).orElseThrow().getField("Password").getCiphertext());
+
+        Field changed = password.copy();
+        changed.setCiphertext(CryptoUtils.encrypt("altro", dataKey));
+        changed.setBlindIndex("indice-altro");
+        entry.putField("Password", changed);
+        repository.save(entry);
+
+        assertEquals(rowsBefore + 1, repository.getRowsWritten(), "Blind index diverso: il valore viene riscritto");
+        assertEquals("altro", CryptoUtils.decrypt(
+                repository.findById(entry.getId()).orElseThrow().getField("Password").getCiphertext(), dataKey));
+    }
+
+    /**
+     * SCENARIO 26 (Sostituzione condizionale): replaceIfUnchanged() riscrive i
+     * valori sensibili solo delle entry ancora salvate come lette; un save
+     * concorrente non va perso e le righe dei campi restano le stesse.
+     */
+    @Test
+    void replaceIfUnchanged_shouldSkipEntriesChangedSinceTheyWereRead() throws Exception {
+        Entry first = createTestEntry("Prima", Category.LOGIN);
+        Entry second = createTestEntry("Seconda", Category.LOGIN);
+        repository.saveAll(List.of(first, second));
+        List<String> idsBefore = storedFieldIds(first.getId());
+        List<Entry> read = repository.findAllByIds(List.of(first.getId(), second.getId()));
+        List<Entry> replacements = new ArrayList<>();
+        for (Entry entry : read) {
+            Entry replacement = entry.copy();
+            replacement.getField("Password").setValue("ricifrato-" + entry.getDescription());
+            replacement.getField("Password").setBlindIndex("indice-" + entry.getDescription());
+            replacements.add(replacement);
+        }
+
+        // Salvataggi concorrenti, dopo la lettura
+        first.putField("Username", new Field("nuovo-utente", FieldType.TEXT, false));
+        repository.save(first);
+        second.putField("Password", new Field("cambiata", FieldType.PASSWORD, true));
+        repository.save(second);
+
+        assertEquals(1, repository.replaceIfUnchanged(read, replacements));
+
+        Entry replaced = repository.findById(first.getId()).orElseThrow();
+        assertEquals("ricifrato-Prima", replaced.getField("Password").getValue());
+        assertEquals("indice-Prima", replaced.getField("Password").getBlindIndex());
+        assertEquals("nuovo-utente", replaced.getField("Username").getValue(), "Il campo non sensibile resta quello salvato");
+        assertEquals(idsBefore, storedFieldIds(first.getId()), "Nessuna cancellazione e reinserimento");
+        Entry skipped = repository.findById(second.getId()).orElseThrow();
+        assertEquals("cambiata", skipped.getField("Password").getValue(), "Il save concorrente non va perso");
+        assertNull(skipped.getField("Password").getBlindIndex());
+
+        repository.deleteById(first.getId());
+        assertEquals(0, repository.replaceIfUnchanged(read, replacements.subList(0, 1)), "Entry cancellata: saltata");
+        assertTrue(repository.findById(first.getId()).isEmpty());
+    }
+
+    private static List<String> storedTypes(String fieldName) throws Exception {
+        List<String> types = new ArrayList<>();
+        try (Connection conn = dbConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT typeof(value) FROM Fields WHERE name = ?")) {
+            ps.setString(1, fieldName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    types.add(rs.getString(1));
+                }
+            }
+        }
+        return types;
+    }
+
+    private static List<String> descriptionsOf(Page page) {
+        return page.entries().stream().map(EntrySummary::description).toList();
+    }
+
+    private static String queryPlan(String sql) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (Connection conn = dbConnector.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,252 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.KeyDerivationFunction;
+import com.simonepugliese.Security.Pbkdf2Kdf;
+import com.simonepugliese.Security.ScryptKdf;
+import com.simonepugliese.Security.SessionKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test per VaultKeyStore.
+ * Verifica la gerarchia di chiavi: la data key viene generata una volta,
+ * salvata cifrata (wrapped) e recuperata solo con la password giusta.
+ */
+class VaultKeyStoreTest {
+
+    private static final char[] MASTER_PASS = "password_vault_test".toCharArray();
+    private static final char[] WRONG_PASS = "password_sbagliata".toCharArray();
+
+    private VaultKeyStore keyStore;
+
+    /**
+     * Rimuove la chiave salvata prima e dopo ogni test, così gli altri
+     * test (es. WalletFactoryTest) possono creare il proprio vault. Anche le
+     * entry: senza data key, i valori cifrati rimasti verificherebbero la
+     * password.
+     */
+    @BeforeEach
+    @AfterEach
+    void cleanupMetadata() {
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM Metadata");
+            stmt.executeUpdate("DELETE FROM Fields");
+            stmt.executeUpdate("DELETE FROM Entries");
+            stmt.executeUpdate("DELETE FROM SearchIndex");
+            stmt.executeUpdate("DELETE FROM SearchDocuments");
+        } catch (Exception e) {
+            fail("La pulizia della tabella Metadata è fallita", e);
+        }
+        keyStore = new VaultKeyStore();
+    }
+
+    /**
+     * SCENARIO 1 (Happy Path): due sblocchi con la stessa password
+     * restituiscono la stessa data key.
+     */
+    @Test
+    void unlock_shouldReturnSameDataKey_onEverySession() {
+        SessionKey first = keyStore.unlock(MASTER_PASS);
+        SessionKey second = new VaultKeyStore().unlock(MASTER_PASS);
+
+        assertArrayEquals(first.getEncoded(), second.getEncoded(), "La data key deve essere stabile tra le sessioni");
+    }
+
+    /**
+     * SCENARIO 2 (Cattivo): con la password errata lo sblocco fallisce.
+     */
+    @Test
+    void unlock_shouldThrow_withWrongPassword() {
+        keyStore.unlock(MASTER_PASS);
+
+        assertThrows(DecryptionFailedException.class, () -> keyStore.unlock(WRONG_PASS),
+                "Una password errata non deve sbloccare il vault");
+    }
+
+    /**
+     * SCENARIO 3 (Parametri per vault): il KDF scelto alla creazione viene salvato
+     * e riusato anche da un VaultKeyStore configurato con un KDF diverso.
+     */
+    @Test
+    void unlock_shouldUseStoredKdfParameters() throws Exception {
+        KeyDerivationFunction kdf = new ScryptKdf(ScryptKdf.MIN_N, 8, 1);
+        SessionKey created = new VaultKeyStore(kdf).unlock(MASTER_PASS);
+
+        assertEquals(kdf.encode(), readMetadata("kdf.params"));
+
+        SessionKey reopened = new VaultKeyStore(new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS)).unlock(MASTER_PASS);
+        assertArrayEquals(created.getEncoded(), reopened.getEncoded(), "Un vault esistente deve usare i parametri salvati");
+        assertEquals(kdf.encode(), readMetadata("kdf.params"), "I parametri salvati non devono essere sovrascritti");
+    }
+
+    /**
+     * SCENARIO 4 (Retrocompatibilità): un vault creato prima dei parametri
+     * configurabili (senza 'kdf.params') si sblocca con PBKDF2 a 65536 iterazioni.
+     */
+    @Test
+    void unlock_shouldFallBackToLegacyKdf_whenNoParametersAreStored() throws Exception {
+        byte[] salt = CryptoUtils.generateSalt();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        String wrapped = CryptoUtils.wrapKey(dataKey, CryptoUtils.deriveKey(MASTER_PASS, salt));
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO Metadata (key, value) VALUES (?, ?)")) {
+            ps.setString(1, "kek.salt");
+            ps.setString(2, Base64.getEncoder().encodeToString(salt));
+            ps.executeUpdate();
+            ps.setString(1, "datakey.wrapped");
+            ps.setString(2, wrapped);
+            ps.executeUpdate();
+        }
+
+        SessionKey unlocked = keyStore.unlock(MASTER_PASS);
+
+        assertArrayEquals(dataKey.getEncoded(), unlocked.getEncoded());
+        assertNull(readMetadata("kdf.params"));
+    }
+
+    /**
+     * SCENARIO 5 (Cambio password): viene riscritta solo la data key cifrata.
+     * La vecchia password non sblocca più il vault, la nuova restituisce la
+     * stessa data key; il nuovo KEK usa il KDF del key store e un nuovo salt.
+     */
+    @Test
+    void changeMasterPassword_shouldRewrapTheSameDataKey() throws Exception {
+        char[] newPass = "nuova_password".toCharArray();
+        SessionKey dataKey = new VaultKeyStore(new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS)).unlock(MASTER_PASS);
+        String oldSalt = readMetadata("kek.salt");
+        KeyDerivationFunction upgraded = new ScryptKdf(ScryptKdf.MIN_N, 8, 1);
+
+        new VaultKeyStore(upgraded).changeMasterPassword(MASTER_PASS, newPass);
+
+        assertThrows(DecryptionFailedException.class, () -> keyStore.unlock(MASTER_PASS),
+                "La vecchia password non deve più sbloccare il vault");
+        assertArrayEquals(dataKey.getEncoded(), keyStore.unlock(newPass).getEncoded(),
+                "La data key (e quindi ogni campo cifrato) non cambia");
+        assertEquals(upgraded.encode(), readMetadata("kdf.params"));
+        assertNotEquals(oldSalt, readMetadata("kek.salt"));
+    }
+
+    /**
+     * SCENARIO 6 (Cambio password - Cattivo): con la password attuale errata
+     * non cambia nulla; senza una data key né il cambio né la verifica sono
+     * possibili.
+     */
+    @Test
+    void changeMasterPassword_shouldChangeNothing_withWrongPassword() throws Exception {
+        assertThrows(IllegalStateException.class, () -> keyStore.changeMasterPassword(MASTER_PASS, WRONG_PASS),
+                "Un vault senza data key non ha una password da cambiare");
+        assertThrows(IllegalStateException.class, () -> keyStore.verify(MASTER_PASS));
+
+        keyStore.unlock(MASTER_PASS);
+        String wrapped = readMetadata("datakey.wrapped");
+        assertThrows(DecryptionFailedException.class, () -> keyStore.verify(WRONG_PASS));
+        keyStore.verify(MASTER_PASS);
+
+        assertThrows(DecryptionFailedException.class, () -> keyStore.changeMasterPassword(WRONG_PASS, WRONG_PASS));
+
+        assertEquals(wrapped, readMetadata("datakey.wrapped"));
+        assertNotNull(keyStore.unlock(MASTER_PASS));
+    }
+
+    /**
+     * SCENARIO 7 (Vault legacy): senza data key ma con valori cifrati per
+     * campo, una password errata viene rifiutata e non crea nessuna chiave;
+     * quella giusta crea la data key.
+     */
+    @Test
+    void unlock_shouldCheckThePasswordOfALegacyVault_beforeCreatingTheDataKey() throws Exception {
+        saveEntryWithPassword(new Field(CryptoUtils.encrypt("segreto", MASTER_PASS), FieldType.PASSWORD, true));
+
+        assertThrows(DecryptionFailedException.class, () -> keyStore.unlock(WRONG_PASS),
+                "Una password errata non deve diventare la password del vault");
+        assertNull(readMetadata("datakey.wrapped"));
+
+        SessionKey created = keyStore.unlock(MASTER_PASS);
+        assertArrayEquals(created.getEncoded(), keyStore.unlock(MASTER_PASS).getEncoded());
+        assertThrows(DecryptionFailedException.class, () -> keyStore.unlock(WRONG_PASS));
+    }
+
+    /**
+     * SCENARIO 8 (Vault danneggiato): valori cifrati con una data key che non
+     * è più salvata non vengono coperti da una chiave nuova.
+     */
+    @Test
+    void unlock_shouldRefuse_whenTheDataKeyOfTheValuesIsMissing() throws Exception {
+        Field password = new Field((String) null, FieldType.PASSWORD, true);
+        password.setCiphertext(CryptoUtils.encrypt("segreto", CryptoUtils.generateDataKey()));
+        saveEntryWithPassword(password);
+
+        assertThrows(IllegalStateException.class, () -> keyStore.unlock(MASTER_PASS));
+        assertNull(readMetadata("datakey.wrapped"));
+    }
+
+    /**
+     * SCENARIO 9 (Primo sblocco): la data key appena creata viene restituita
+     * così com'è, derivando la chiave dalla password una volta sola.
+     */
+    @Test
+    void unlock_shouldDeriveTheKeyOnce_whenCreatingTheDataKey() {
+        KeyDerivationFunction fast = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+        AtomicInteger derivations = new AtomicInteger();
+        KeyDerivationFunction counting = new KeyDerivationFunction() {
+            @Override
+            public String algorithm() {
+                return fast.algorithm();
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, int keyLength) {
+                derivations.incrementAndGet();
+                return fast.derive(password, salt, keyLength);
+            }
+
+            @Override
+            public KeyDerivationFunction scaled(double factor) {
+                return fast.scaled(factor);
+            }
+
+            @Override
+            public String encode() {
+                return fast.encode();
+            }
+        };
+
+        SessionKey created = new VaultKeyStore(counting).unlock(MASTER_PASS);
+
+        assertEquals(1, derivations.get());
+        assertArrayEquals(created.getEncoded(), keyStore.unlock(MASTER_PASS).getEncoded());
+    }
+
+    private static void saveEntryWithPassword(Field password) {
+        Entry entry = new Entry("Legacy", Category.LOGIN);
+        entry.putField("Password", password);
+        new EntryRepository().save(entry);
+    }
+
+    private static String readMetadata(String key) throws Exception {
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT value FROM Metadata WHERE key = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
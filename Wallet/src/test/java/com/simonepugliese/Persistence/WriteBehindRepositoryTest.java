@@ -0,0 +1,212 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test per WriteBehindRepository, su un vault temporaneo.
+ */
+class WriteBehindRepositoryTest {
+
+    private Path workDir;
+    private DbConnector connector;
+    private EntryRepository repository;
+    private WriteBehindRepository writeBehind;
+
+    @BeforeEach
+    void setup() throws IOException {
+        workDir = Files.createTempDirectory("wallet-write-behind-test");
+        connector = DbConnector.forPath(workDir.resolve("vault.db"));
+        repository = new EntryRepository(connector);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        connector.close();
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Entry newEntry(String id, String username) {
+        Entry entry = new Entry(id, "Entry " + id, Category.LOGIN);
+        entry.putField("Username", new Field(username, FieldType.TEXT, false));
+        entry.putField("Password", new Field("cifrato-" + id, FieldType.PASSWORD, true));
+        return entry;
+    }
+
+    /**
+     * SCENARIO 1 (Group commit): molti thread salvano insieme con save();
+     * ognuno ritorna solo dopo il commit, e le scritture finiscono in poche
+     * transazioni invece che in una per thread.
+     */
+    @Test
+    void save_shouldCommitConcurrentWritersTogether() throws Exception {
+        writeBehind = new WriteBehindRepository(repository,
+                WriteBehindConfig.defaults().withMaxLatency(Duration.ofMillis(50)));
+        int writers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            String id = "entry-" + i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    writeBehind.save(newEntry(id, "user"));
+                    // Al ritorno di save() la entry è già leggibile
+                    if (writeBehind.findById(id).isEmpty()) {
+                        errors.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+        assertEquals(writers, writeBehind.findAll().size());
+        assertEquals(writers, writeBehind.getCommittedWriteCount());
+        assertTrue(writeBehind.getCommitCount() < writers,
+                "Commit di gruppo: " + writeBehind.getCommitCount() + " transazioni per " + writers + " salvataggi");
+    }
+
+    /**
+     * SCENARIO 2 (Coalescenza): scritture sulla stessa entry nello stesso
+     * gruppo diventano una sola; vince l'ultima, e tutti i future si
+     * completano al commit.
+     */
+    @Test
+    void saveAsync_shouldCoalesceWritesToTheSameEntry() throws Exception {
+        repository.save(newEntry("da-cancellare", "vecchio"));
+        writeBehind = new WriteBehindRepository(repository,
+                WriteBehindConfig.defaults().withMaxLatency(Duration.ofSeconds(5)).withMaxBatchSize(5));
+
+        CompletableFuture<Boolean> first = writeBehind.saveAsync(newEntry("a", "prima"));
+        CompletableFuture<Boolean> second = writeBehind.saveAsync(newEntry("a", "seconda"));
+        CompletableFuture<Boolean> saved = writeBehind.saveAsync(newEntry("b", "utente"));
+        CompletableFuture<Boolean> deletedLater = writeBehind.saveAsync(newEntry("b", "effimero"));
+        CompletableFuture<Boolean> delete = writeBehind.deleteAsync("b");
+        CompletableFuture.allOf(first, second, saved, deletedLater, delete).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, writeBehind.getCommitCount(), "Un gruppo pieno viene scritto subito, in una transazione");
+        assertEquals(2, writeBehind.getCommittedWriteCount(), "Una scrittura per entry");
+        assertEquals("seconda", writeBehind.findById("a").orElseThrow().getField("Username").getValue());
+        assertTrue(writeBehind.findById("b").isEmpty());
+        assertTrue(writeBehind.findById("da-cancellare").isPresent());
+
+        assertTrue(writeBehind.deleteById("da-cancellare"));
+        assertFalse(writeBehind.deleteById("da-cancellare"), "Entry già cancellata");
+        assertEquals(1, writeBehind.search("seconda", 10).size(), "Le entry del gruppo vengono indicizzate");
+    }
+
+    /**
+     * SCENARIO 3 (Cattivo): una scrittura che fallisce fa fallire solo il
+     * proprio future; le altre del gruppo vengono salvate.
+     */
+    @Test
+    void saveAsync_shouldFailOnlyTheBrokenWriteOfAGroup() throws Exception {
+        writeBehind = new WriteBehindRepository(repository,
+                WriteBehindConfig.defaults().withMaxLatency(Duration.ofSeconds(5)).withMaxBatchSize(3));
+        Entry broken = new Entry("rotta", "Rotta", Category.LOGIN);
+        broken.putField("Campo", new Field("x", null, false)); // Tipo mancante: l'insert fallisce
+
+        CompletableFuture<Boolean> before = writeBehind.saveAsync(newEntry("prima", "utente"));
+        CompletableFuture<Boolean> failing = writeBehind.saveAsync(broken);
+        CompletableFuture<Boolean> after = writeBehind.saveAsync(newEntry("dopo", "utente"));
+
+        assertTrue(before.get(10, TimeUnit.SECONDS));
+        assertTrue(after.get(10, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertTrue(writeBehind.findById("rotta").isEmpty(), "L'entry fallita non lascia righe parziali");
+        assertEquals(2, writeBehind.findAll().size());
+        assertThrows(RuntimeException.class, () -> writeBehind.save(broken), "save() rilancia l'errore");
+    }
+
+    /**
+     * SCENARIO 4 (Chiusura): close() scrive ciò che è in coda senza aspettare
+     * la latenza massima; dopo la chiusura le scritture vengono rifiutate.
+     */
+    @Test
+    void close_shouldCommitQueuedWritesAndRejectNewOnes() throws Exception {
+        writeBehind = new WriteBehindRepository(repository,
+                WriteBehindConfig.defaults().withMaxLatency(Duration.ofSeconds(30)));
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pending.add(writeBehind.saveAsync(newEntry("entry-" + i, "user")));
+        }
+        CompletableFuture<Void> flushed = writeBehind.flush();
+
+        long startedAt = System.nanoTime();
+        writeBehind.close();
+
+        assertTrue(System.nanoTime() - startedAt < Duration.ofSeconds(10).toNanos(), "Non attende la latenza");
+        for (CompletableFuture<Boolean> future : pending) {
+            assertTrue(future.isDone() && !future.isCompletedExceptionally());
+        }
+        assertTrue(flushed.isDone());
+        assertEquals(10, repository.findAll().size());
+        assertThrows(IllegalStateException.class, () -> writeBehind.saveAsync(newEntry("tardiva", "user")));
+        assertThrows(IllegalStateException.class, () -> writeBehind.deleteById("entry-0"));
+        writeBehind.close();
+    }
+
+    /**
+     * SCENARIO 5 (Writer interrotto): se il thread di scrittura si ferma da
+     * solo, il repository si chiude e le scritture falliscono invece di
+     * restare in attesa per sempre.
+     */
+    @Test
+    void save_shouldFailInsteadOfHangingWhenTheWriterStops() throws Exception {
+        // Con la latenza il gruppo resta aperto: la callback viene agganciata prima
+        // del commit, e gira quindi sul thread di scrittura, che interrompe
+        writeBehind = new WriteBehindRepository(repository,
+                WriteBehindConfig.defaults().withMaxLatency(Duration.ofMillis(500)));
+        CompletableFuture<Boolean> first = writeBehind.saveAsync(newEntry("prima", "utente"));
+        first.thenRun(() -> Thread.currentThread().interrupt());
+        // Niente get(): chi attende con get() può eseguire lui stesso le callback
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!first.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(first.getNow(false));
+
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> writeBehind.save(newEntry("dopo", "utente")));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> late.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertThrows(IllegalStateException.class, () -> writeBehind.saveAsync(newEntry("tardiva", "utente")));
+        assertTrue(writeBehind.findById("dopo").isEmpty());
+    }
+}
@@ -0,0 +1,185 @@
+package com.simonepugliese.Security;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'archivio cifrato a segmenti (ArchiveOutputStream / ArchiveInputStream).
+ * Segmenti piccoli, così ogni archivio di test ne contiene molti.
+ */
+class ArchiveStreamTest {
+
+    private static final char[] PASSWORD = "password-archivio".toCharArray();
+    private static final KeyDerivationFunction KDF = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+    private static final int SEGMENT_SIZE = 1024;
+    // Lunghezza di un frame completo: lunghezza (4) + segmento cifrato + tag GCM
+    private static final int FRAME_SIZE = 4 + SEGMENT_SIZE + ArchiveHeader.TAG_LENGTH;
+
+    private static byte[] randomPayload(int size) {
+        byte[] payload = new byte[size];
+        new Random(42).nextBytes(payload);
+        return payload;
+    }
+
+    private static byte[] seal(byte[] payload) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ArchiveOutputStream out = new ArchiveOutputStream(archive, PASSWORD, KDF, SEGMENT_SIZE)) {
+            // Scritture di dimensioni diverse, a cavallo dei segmenti
+            int offset = 0;
+            int chunk = 1;
+            while (offset < payload.length) {
+                int n = Math.min(chunk, payload.length - offset);
+                out.write(payload, offset, n);
+                offset += n;
+                chunk = chunk * 3 % 4000 + 1;
+            }
+        }
+        return archive.toByteArray();
+    }
+
+    /**
+     * SCENARIO 1 (Happy Path): quello che viene scritto viene riletto identico,
+     * anche un archivio vuoto o lungo esattamente un segmento.
+     */
+    @Test
+    void archive_shouldRoundTripPayloads() throws IOException {
+        for (int size : new int[]{0, 1, SEGMENT_SIZE, 100_000}) {
+            byte[] payload = randomPayload(size);
+            byte[] archive = seal(payload);
+
+            try (InputStream in = new ArchiveInputStream(new ByteArrayInputStream(archive), PASSWORD)) {
+                assertArrayEquals(payload, in.readAllBytes(), "Payload di " + size + " byte");
+            }
+        }
+    }
+
+    /**
+     * SCENARIO 2 (Sicurezza): password errata o file che non è un archivio.
+     */
+    @Test
+    void archive_shouldRejectWrongPasswordAndForeignFiles() throws IOException {
+        byte[] archive = seal(randomPayload(5000));
+
+        assertThrows(DecryptionFailedException.class,
+                () -> new ArchiveInputStream(new ByteArrayInputStream(archive), "sbagliata".toCharArray()));
+        assertThrows(IOException.class,
+                () -> new ArchiveInputStream(new ByteArrayInputStream("PK\u0003\u0004 zip".getBytes()), PASSWORD));
+    }
+
+    /**
+     * SCENARIO 3 (Sicurezza): un byte modificato in un segmento viene rilevato,
+     * e nessun byte di quel segmento viene restituito.
+     */
+    @Test
+    void archive_shouldRejectTamperedSegment() throws IOException {
+        byte[] payload = randomPayload(10 * SEGMENT_SIZE);
+        byte[] archive = seal(payload);
+        // Un byte nel quinto dei 10 segmenti, contando dalla fine dell'archivio
+        int fifthFrame = archive.length - 6 * FRAME_SIZE;
+        archive[fifthFrame + 100] ^= 1;
+
+        ArchiveInputStream in = new ArchiveInputStream(new ByteArrayInputStream(archive), PASSWORD);
+        byte[] read = new byte[payload.length];
+        int total = 0;
+        DecryptionFailedException error = null;
+        try {
+            int n;
+            while ((n = in.read(read, total, read.length - total)) > 0) {
+                total += n;
+            }
+        } catch (DecryptionFailedException e) {
+            error = e;
+        }
+
+        assertNotNull(error, "La modifica deve essere rilevata");
+        assertEquals(4 * SEGMENT_SIZE, total, "Vengono restituiti solo i segmenti verificati");
+        assertArrayEquals(Arrays.copyOf(payload, total), Arrays.copyOf(read, total));
+    }
+
+    /**
+     * SCENARIO 4 (Sicurezza): un archivio troncato, anche esattamente tra due
+     * segmenti, non viene scambiato per un archivio completo.
+     */
+    @Test
+    void archive_shouldRejectTruncatedArchive() throws IOException {
+        byte[] archive = seal(randomPayload(3 * SEGMENT_SIZE + 10));
+        int lastFrame = 4 + 10 + ArchiveHeader.TAG_LENGTH;
+
+        byte[] withoutLastSegment = Arrays.copyOf(archive, archive.length - lastFrame);
+        try (ArchiveInputStream in = new ArchiveInputStream(new ByteArrayInputStream(withoutLastSegment), PASSWORD)) {
+            assertThrows(DecryptionFailedException.class, in::readAllBytes);
+        }
+
+        byte[] cutInsideSegment = Arrays.copyOf(archive, archive.length - 5);
+        try (ArchiveInputStream in = new ArchiveInputStream(new ByteArrayInputStream(cutInsideSegment), PASSWORD)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    /**
+     * SCENARIO 5 (Sicurezza): l'header è autenticato, quindi non si possono
+     * cambiare i parametri (qui la dimensione dei segmenti) senza invalidare l'archivio.
+     */
+    @Test
+    void archive_shouldAuthenticateHeader() throws IOException {
+        byte[] archive = seal(randomPayload(500));
+        // magic (4) + versione (1) + dimensione segmento (int, big-endian: 00 00 04 00)
+        assertEquals(0x04, archive[7]);
+        archive[7] = 0x08;
+
+        assertThrows(DecryptionFailedException.class,
+                () -> new ArchiveInputStream(new ByteArrayInputStream(archive), PASSWORD));
+    }
+
+    /**
+     * SCENARIO 6 (Sicurezza): un header che chiede parametri KDF enormi viene
+     * rifiutato subito, prima di derivare la chiave, anche con la password giusta.
+     */
+    @Test
+    void archive_shouldRejectOversizedKdfParameters() {
+        for (String kdf : new String[]{"pbkdf2-sha256:i=2147483647", "scrypt:N=16777216,r=1,p=1",
+                "scrypt:N=16384,r=1,p=1000000", "scrypt:N=1048576,r=16,p=1"}) {
+            byte[] archive = craftedHeader(kdf);
+
+            long startedAt = System.nanoTime();
+            IOException error = assertThrows(IOException.class,
+                    () -> new ArchiveInputStream(new ByteArrayInputStream(archive), PASSWORD), kdf);
+            assertTrue(error.getMessage().startsWith("Corrupt archive header"), error.getMessage());
+            assertTrue(System.nanoTime() - startedAt < Duration.ofSeconds(5).toNanos(), "Nessuna derivazione: " + kdf);
+        }
+    }
+
+    /**
+     * Un header valido in tutto tranne che nei parametri KDF, seguito da un
+     * segmento qualsiasi.
+     */
+    private static byte[] craftedHeader(String kdf) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            byte[] kdfParams = kdf.getBytes(StandardCharsets.UTF_8);
+            data.write(new byte[]{'W', 'L', 'T', 'A'});
+            data.writeByte(1);
+            data.writeInt(SEGMENT_SIZE);
+            data.writeShort(kdfParams.length);
+            data.write(kdfParams);
+            data.writeByte(16);
+            data.write(new byte[16]);
+            data.write(new byte[7]);
+            data.write(randomPayload(100));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,103 @@
+package com.simonepugliese.Security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per CipherEngine: le istanze riutilizzate devono comportarsi
+ * esattamente come le funzioni statiche di CryptoUtils.
+ */
+class CipherEngineTest {
+
+    private static final String PLAINTEXT = "Questo è un segreto 12345 ✓";
+
+    /**
+     * SCENARIO 1 (Riuso): lo stesso engine cifra e decifra molti valori,
+     * anche più grandi del buffer interno, con chiavi diverse, e resta
+     * compatibile con CryptoUtils in entrambe le direzioni.
+     */
+    @Test
+    void engine_shouldRoundTripManyValuesWithDifferentKeys() {
+        CipherEngine engine = new CipherEngine();
+        SessionKey firstKey = CryptoUtils.generateDataKey();
+        SessionKey secondKey = CryptoUtils.generateDataKey();
+        String large = "x".repeat(10_000);
+        String huge = "€".repeat(40_000);
+
+        for (String value : new String[]{PLAINTEXT, large, "a", huge, PLAINTEXT}) {
+            for (SessionKey key : new SessionKey[]{firstKey, secondKey}) {
+                byte[] encrypted = engine.encrypt(value, key);
+                assertEquals(1 + 12 + value.getBytes(StandardCharsets.UTF_8).length + 16, encrypted.length);
+                assertEquals(value, engine.decrypt(encrypted, key));
+                assertEquals(value, CryptoUtils.decrypt(encrypted, key));
+                assertEquals(value, engine.decrypt(CryptoUtils.encrypt(value, key), key));
+            }
+        }
+        assertNull(engine.encrypt((String) null, firstKey));
+        assertNull(engine.encrypt("", firstKey));
+        assertNull(engine.decrypt(null, firstKey));
+    }
+
+    /**
+     * SCENARIO 2 (Cattivo): una chiave sbagliata, un payload troncato o legacy
+     * falliscono con DecryptionFailedException, e l'engine resta utilizzabile.
+     */
+    @Test
+    void decrypt_withWrongKeyOrCorruptPayload_shouldFailAndStayUsable() {
+        CipherEngine engine = new CipherEngine();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        byte[] encrypted = engine.encrypt(PLAINTEXT, dataKey);
+        byte[] legacy = CryptoUtils.encrypt(PLAINTEXT, "password".toCharArray()).getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(DecryptionFailedException.class, () -> engine.decrypt(encrypted, CryptoUtils.generateDataKey()));
+        assertThrows(DecryptionFailedException.class, () -> engine.decrypt(Arrays.copyOf(encrypted, 5), dataKey));
+        assertThrows(DecryptionFailedException.class, () -> engine.decryptToBytes(Arrays.copyOf(encrypted, 5), dataKey));
+        assertThrows(DecryptionFailedException.class, () -> engine.decrypt(legacy, dataKey));
+
+        assertEquals(PLAINTEXT, engine.decrypt(encrypted, dataKey));
+    }
+
+    /**
+     * SCENARIO 3 (Blind index): l'HMAC riutilizzato coincide con quello di
+     * CryptoUtils, cambia con la chiave, e una chiave distrutta non è più
+     * utilizzabile anche se l'HMAC era già inizializzato con essa.
+     */
+    @Test
+    void blindIndex_shouldMatchCryptoUtils_andRejectDestroyedKey() {
+        CipherEngine engine = new CipherEngine();
+        SessionKey firstKey = CryptoUtils.deriveBlindIndexKey(CryptoUtils.generateDataKey());
+        SessionKey secondKey = CryptoUtils.deriveBlindIndexKey(CryptoUtils.generateDataKey());
+
+        String index = engine.blindIndex(PLAINTEXT, firstKey);
+        assertEquals(CryptoUtils.blindIndex(PLAINTEXT, firstKey), index);
+        assertEquals(index, engine.blindIndex(PLAINTEXT, firstKey), "Stesso valore, stesso indice");
+        assertNotEquals(index, engine.blindIndex(PLAINTEXT, secondKey));
+        assertEquals(index, engine.blindIndex(PLAINTEXT, firstKey), "Tornando alla prima chiave");
+        assertNull(engine.blindIndex("", firstKey));
+
+        firstKey.destroy();
+        assertThrows(RuntimeException.class, () -> engine.blindIndex(PLAINTEXT, firstKey));
+    }
+
+    /**
+     * SCENARIO 4 (Pulizia): dopo clear() l'engine non tiene più le istanze
+     * inizializzate, ma può essere usato di nuovo.
+     */
+    @Test
+    void clear_shouldKeepEngineUsable() {
+        CipherEngine engine = new CipherEngine();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        SessionKey indexKey = CryptoUtils.deriveBlindIndexKey(dataKey);
+        byte[] encrypted = engine.encrypt(PLAINTEXT, dataKey);
+        String index = engine.blindIndex(PLAINTEXT, indexKey);
+
+        engine.clear();
+
+        assertEquals(PLAINTEXT, engine.decrypt(encrypted, dataKey));
+        assertEquals(index, engine.blindIndex(PLAINTEXT, indexKey));
+    }
+}
@@ -1,6 +1,12 @@
 package com.simonepugliese.Security;
 
 import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -72,4 +78,84 @@ class CryptoUtilsTest {
         assertNotNull(encrypted2);
         assertNotEquals(encrypted1, encrypted2, "Due encrypt uguali devono produrre ciphertext diversi (sale)");
     }
-}
\ No newline at end of file
+
+    /**
+     * SCENARIO 5 (Data key): il ciclo encrypt -> decrypt con una data key
+     * già derivata funziona e produce il nuovo formato (non legacy).
+     */
+    @Test
+    void encryptDecrypt_withDataKey_shouldReturnOriginalString() {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+
+        byte[] encrypted = CryptoUtils.encrypt(PLAINTEXT, dataKey);
+
+        assertTrue(CryptoUtils.isLegacyPayload(CryptoUtils.encrypt(PLAINTEXT, MASTER_PASS)), "Il payload con password è legacy");
+        assertEquals(PLAINTEXT, CryptoUtils.decrypt(encrypted, dataKey));
+        assertThrows(DecryptionFailedException.class, () -> CryptoUtils.decrypt(encrypted, CryptoUtils.generateDataKey()),
+                "Una data key diversa non deve decifrare");
+    }
+
+    /**
+     * SCENARIO 6 (Key wrapping): la data key avvolta con la KEK derivata
+     * dalla password si recupera solo con la password giusta.
+     */
+    @Test
+    void wrapUnwrapKey_shouldRequireCorrectPassword() {
+        byte[] salt = CryptoUtils.generateSalt();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+
+        String wrapped = CryptoUtils.wrapKey(dataKey, CryptoUtils.deriveKey(MASTER_PASS, salt));
+        SecretKey unwrapped = CryptoUtils.unwrapKey(wrapped, CryptoUtils.deriveKey(MASTER_PASS, salt));
+
+        assertArrayEquals(dataKey.getEncoded(), unwrapped.getEncoded(), "La chiave recuperata deve coincidere");
+        assertThrows(DecryptionFailedException.class, () -> CryptoUtils.unwrapKey(wrapped, CryptoUtils.deriveKey(WRONG_PASS, salt)),
+                "Con la password errata lo sblocco deve fallire");
+    }
+
+    /**
+     * SCENARIO 7 (Distruzione): una SessionKey distrutta non espone più il materiale.
+     */
+    @Test
+    void sessionKey_destroy_shouldWipeKey() {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        dataKey.destroy();
+
+        assertTrue(dataKey.isDestroyed());
+        assertThrows(IllegalStateException.class, dataKey::getEncoded);
+    }
+
+    /**
+     * SCENARIO 8 (Formato binario): il payload con data key è binario
+     * [versione | IV | ciphertext], senza Base64: 1 + 12 + 16 byte oltre al testo.
+     */
+    @Test
+    void encrypt_withDataKey_shouldProduceCompactBinaryPayload() {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+
+        byte[] encrypted = CryptoUtils.encrypt(PLAINTEXT, dataKey);
+
+        assertEquals(3, encrypted[0], "Il primo byte è la versione del formato");
+        assertEquals(1 + 12 + PLAINTEXT.getBytes(StandardCharsets.UTF_8).length + 16, encrypted.length);
+        assertNull(CryptoUtils.encrypt("", dataKey));
+        assertNull(CryptoUtils.fromV2Payload(CryptoUtils.encrypt(PLAINTEXT, MASTER_PASS)),
+                "Un payload legacy non è v2");
+        assertNull(CryptoUtils.fromV2Payload("valore non cifrato"));
+        assertNull(CryptoUtils.fromV2Payload("v2:non Base64!"));
+    }
+
+    /**
+     * SCENARIO 9 (Retrocompatibilità): i payload "v2:" Base64 scritti prima del
+     * formato binario si convertono in binario senza decifrarli, e si
+     * decifrano ancora.
+     */
+    @Test
+    void v2Payload_shouldDecrypt_andConvertToBinaryWithoutKey() {
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        byte[] binary = CryptoUtils.encrypt(PLAINTEXT, dataKey);
+        String v2 = "v2:" + Base64.getEncoder().encodeToString(Arrays.copyOfRange(binary, 1, binary.length));
+
+        assertFalse(CryptoUtils.isLegacyPayload(v2));
+        assertArrayEquals(binary, CryptoUtils.fromV2Payload(v2), "La conversione non cambia il ciphertext");
+        assertEquals(PLAINTEXT, CryptoUtils.decrypt(CryptoUtils.fromV2Payload(v2), dataKey));
+    }
+}
@@ -0,0 +1,143 @@
+package com.simonepugliese.Security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per le implementazioni di KeyDerivationFunction e per KdfCalibrator.
+ * I vettori di test sono quelli ufficiali della RFC 7914 (sezioni 11 e 12).
+ */
+class KeyDerivationFunctionTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * SCENARIO 1 (Correttezza): PBKDF2-HMAC-SHA256 corrisponde al vettore RFC 7914.
+     */
+    @Test
+    void pbkdf2_shouldMatchRfcTestVector() {
+        byte[] derived = new Pbkdf2Kdf(1).derive("passwd".toCharArray(), "salt".getBytes(StandardCharsets.UTF_8), 64);
+
+        assertEquals("55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+                + "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783", HEX.formatHex(derived));
+    }
+
+    /**
+     * SCENARIO 2 (Correttezza): scrypt (N=1024, r=8, p=16) corrisponde al vettore RFC 7914.
+     */
+    @Test
+    void scrypt_shouldMatchRfcTestVector() {
+        byte[] derived = new ScryptKdf(1024, 8, 16).derive("password".toCharArray(), "NaCl".getBytes(StandardCharsets.UTF_8), 64);
+
+        assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+                + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640", HEX.formatHex(derived));
+    }
+
+    /**
+     * SCENARIO 3 (Serializzazione): i parametri codificati vengono riletti identici,
+     * mentre un algoritmo sconosciuto viene rifiutato.
+     */
+    @Test
+    void encodeDecode_shouldRoundTripParameters() {
+        KeyDerivationFunction scrypt = new ScryptKdf(1 << 15, 8, 2);
+        KeyDerivationFunction pbkdf2 = KeyDerivationFunction.legacy();
+
+        assertEquals("scrypt:N=32768,r=8,p=2", scrypt.encode());
+        assertEquals(scrypt, KeyDerivationFunction.decode(scrypt.encode()));
+        assertEquals("pbkdf2-sha256:i=65536", pbkdf2.encode());
+        assertEquals(pbkdf2, KeyDerivationFunction.decode(pbkdf2.encode()));
+        assertThrows(IllegalArgumentException.class, () -> KeyDerivationFunction.decode("argon2:t=3"));
+        assertThrows(IllegalArgumentException.class, () -> KeyDerivationFunction.decode("scrypt:N=1000,r=8,p=1"),
+                "N deve essere una potenza di due");
+    }
+
+    /**
+     * SCENARIO 4 (Limiti): il costo scalato resta sempre nei limiti dell'algoritmo.
+     */
+    @Test
+    void scaled_shouldRespectAlgorithmBounds() {
+        assertEquals(new ScryptKdf(1 << 16, 8, 1), new ScryptKdf(1 << 15, 8, 1).scaled(2.1));
+        assertEquals(new ScryptKdf(ScryptKdf.MIN_N, 8, 1), new ScryptKdf(1 << 15, 8, 1).scaled(0.01));
+        assertEquals(new ScryptKdf(ScryptKdf.MAX_N, 8, 1), new ScryptKdf(1 << 15, 8, 1).scaled(1e9));
+        assertEquals(new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS), new Pbkdf2Kdf(65536).scaled(0.001));
+        assertEquals(new Pbkdf2Kdf(131072), new Pbkdf2Kdf(65536).scaled(2));
+    }
+
+    /**
+     * SCENARIO 5 (Calibrazione): il calibratore restituisce lo stesso algoritmo
+     * con un costo valido.
+     */
+    @Test
+    void calibrate_shouldKeepAlgorithm() {
+        KeyDerivationFunction calibrated = KdfCalibrator.calibrate(new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS), Duration.ofMillis(30));
+
+        Pbkdf2Kdf pbkdf2 = assertInstanceOf(Pbkdf2Kdf.class, calibrated);
+        assertTrue(pbkdf2.iterations() >= Pbkdf2Kdf.MIN_ITERATIONS);
+    }
+
+    /**
+     * SCENARIO 6 (Calibrazione - Tolleranza): un candidato appena sopra il
+     * target (entro il 10%) non viene scelto se uno più economico era sotto.
+     */
+    @Test
+    void calibrate_shouldNotPickACandidateSlowerThanTheTarget() {
+        // 50 ms, poi il doppio: almeno 100 ms, appena sopra il target
+        SleepingKdf calibrated = assertInstanceOf(SleepingKdf.class,
+                KdfCalibrator.calibrate(new SleepingKdf(50), Duration.ofMillis(100)));
+
+        assertTrue(calibrated.millis() < 100, "Scelto " + calibrated.millis() + " ms, oltre il target");
+    }
+
+    /**
+     * SCENARIO 7 (Distruzione): la chiave derivata ha i primi 32 byte del
+     * derive() e si può cancellare dalla memoria.
+     */
+    @Test
+    void deriveKey_shouldReturnDestroyableKey() {
+        KeyDerivationFunction kdf = new Pbkdf2Kdf(1);
+        byte[] salt = "salt".getBytes(StandardCharsets.UTF_8);
+
+        SessionKey key = kdf.deriveKey("passwd".toCharArray(), salt);
+
+        assertArrayEquals(kdf.derive("passwd".toCharArray(), salt, KeyDerivationFunction.AES_KEY_LENGTH), key.getEncoded());
+        key.destroy();
+        assertTrue(key.isDestroyed());
+        assertThrows(IllegalStateException.class, key::getEncoded);
+    }
+
+    /**
+     * KDF finto per la calibrazione: una derivazione dura 'millis' millisecondi.
+     */
+    private record SleepingKdf(long millis) implements KeyDerivationFunction {
+
+        @Override
+        public String algorithm() {
+            return "sleep";
+        }
+
+        @Override
+        public byte[] derive(char[] password, byte[] salt, int keyLength) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new byte[keyLength];
+        }
+
+        @Override
+        public KeyDerivationFunction scaled(double factor) {
+            return new SleepingKdf(Math.max(1, Math.round(millis * factor)));
+        }
+
+        @Override
+        public String encode() {
+            return "sleep:ms=" + millis;
+        }
+    }
+}
@@ -1,7 +1,28 @@
 package com.simonepugliese;
 
+import com.simonepugliese.Core.AsyncWalletManager;
 import com.simonepugliese.Core.WalletManager;
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+import com.simonepugliese.Model.SecretValue;
+import com.simonepugliese.Persistence.DbConnector;
+import com.simonepugliese.Persistence.EntryRepository;
+import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.DecryptionFailedException;
+import com.simonepugliese.Security.Pbkdf2Kdf;
 import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -23,4 +44,173 @@ class WalletFactoryTest {
         // Assert
         assertNotNull(manager, "La Factory deve creare un'istanza non-nulla di WalletManager");
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifica che più vault possano essere aperti nello stesso processo,
+     * ognuno con la propria password.
+     */
+    @Test
+    void createWalletManager_shouldOpenIndependentVaults_byPath() throws Exception {
+        Path dir = Files.createTempDirectory("wallet-factory-test");
+        Path vaultA = dir.resolve("a.db");
+        Path vaultB = dir.resolve("b.db");
+        // Un KDF economico: il test verifica l'isolamento, non il costo
+        Pbkdf2Kdf kdf = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+        try {
+            WalletManager a = WalletFactory.createWalletManager(vaultA, "password_a", kdf);
+            WalletManager b = WalletFactory.createWalletManager(vaultB, "password_b", kdf);
+            assertNotNull(a);
+            assertNotNull(b);
+
+            assertThrows(DecryptionFailedException.class,
+                    () -> WalletFactory.createWalletManager(vaultA, "password_b", kdf),
+                    "La password del vault B non deve aprire il vault A");
+            a.close();
+            b.close();
+        } finally {
+            DbConnector.forPath(vaultA).close();
+            DbConnector.forPath(vaultB).close();
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Verifica il cambio della master password su un vault reale: le entry
+     * (anche quelle ancora nel formato legacy, cifrate con la password) si
+     * leggono con la nuova password, la vecchia non apre più il vault.
+     */
+    @Test
+    void changeMasterPassword_shouldKeepEveryEntryReadable() throws Exception {
+        Path dir = Files.createTempDirectory("wallet-factory-test");
+        Path vault = dir.resolve("vault.db");
+        Pbkdf2Kdf kdf = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+        try {
+            WalletManager manager = WalletFactory.createWalletManager(vault, "vecchia", kdf);
+            Entry current = new Entry("Attuale", Category.LOGIN);
+            current.putField("Password", new Field("segreto-1", FieldType.PASSWORD, true));
+            manager.saveEntry(current);
+            // Un'entry salvata prima della data key: cifrata direttamente con la password
+            Entry legacy = new Entry("Legacy", Category.LOGIN);
+            legacy.putField("Password", new Field(CryptoUtils.encrypt("segreto-2", "vecchia".toCharArray()),
+                    FieldType.PASSWORD, true));
+            new EntryRepository(DbConnector.forPath(vault)).save(legacy);
+
+            assertThrows(DecryptionFailedException.class,
+                    () -> manager.changeMasterPassword("sbagliata".toCharArray(), "nuova".toCharArray()));
+            manager.changeMasterPassword("vecchia".toCharArray(), "nuova".toCharArray());
+            manager.close();
+
+            assertThrows(DecryptionFailedException.class,
+                    () -> WalletFactory.createWalletManager(vault, "vecchia", kdf));
+            WalletManager reopened = WalletFactory.createWalletManager(vault, "nuova", kdf);
+            assertEquals("segreto-1", reopened.loadAndDecryptEntry(current.getId()).orElseThrow()
+                    .getField("Password").getValue());
+            assertEquals("segreto-2", reopened.loadAndDecryptEntry(legacy.getId()).orElseThrow()
+                    .getField("Password").getValue(), "L'entry legacy è stata migrata prima del cambio");
+            reopened.close();
+        } finally {
+            DbConnector.forPath(vault).close();
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Verifica che close() del WalletManager cancelli i segreti decifrati,
+     * anche quelli delle entry restituite al chiamante o servite dalla cache.
+     */
+    @Test
+    void close_shouldWipeDecryptedSecrets() throws Exception {
+        Path dir = Files.createTempDirectory("wallet-factory-test");
+        Path vault = dir.resolve("vault.db");
+        try {
+            WalletManager manager = WalletFactory.createWalletManager(vault, "password",
+                    new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS));
+            Entry entry = new Entry("Segreta", Category.LOGIN);
+            entry.putField("Password", new Field(SecretValue.of("segreto".toCharArray()), FieldType.PASSWORD));
+            manager.saveEntry(entry);
+
+            SecretValue loaded = manager.loadAndDecryptEntry(entry.getId()).orElseThrow()
+                    .getField("Password").getSecret();
+            SecretValue cached = manager.loadAndDecryptEntry(entry.getId()).orElseThrow()
+                    .getField("Password").getSecret();
+            assertEquals("segreto", loaded.reveal());
+            assertTrue(loaded.contentEquals(cached));
+
+            manager.close();
+
+            assertTrue(loaded.isDestroyed());
+            assertTrue(cached.isDestroyed(), "Anche le copie servite dalla cache");
+        } finally {
+            DbConnector.forPath(vault).close();
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Verifica l'apertura asincrona: lo sblocco avviene fuori dal thread
+     * chiamante, il risultato arriva sull'executor indicato, e una password
+     * errata fa fallire il future.
+     */
+    @Test
+    void createAsyncWalletManager_shouldUnlockOffTheCallerThread() throws Exception {
+        Path dir = Files.createTempDirectory("wallet-factory-test");
+        Path vault = dir.resolve("vault.db");
+        Pbkdf2Kdf kdf = new Pbkdf2Kdf(Pbkdf2Kdf.MIN_ITERATIONS);
+        ExecutorService fxThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "finto-fx-thread"));
+        try {
+            AsyncWalletManager wallet = WalletFactory.createAsyncWalletManager(vault, "password", kdf, fxThread)
+                    .get(30, TimeUnit.SECONDS);
+            Entry entry = new Entry("Asincrona", Category.LOGIN);
+            entry.putField("Password", new Field("segreto", FieldType.PASSWORD, true));
+            wallet.saveEntryAsync(entry).get(30, TimeUnit.SECONDS);
+            // Il thread "FX" resta occupato finché la callback non è agganciata,
+            // così il future non può essere già completato
+            CountDownLatch attached = new CountDownLatch(1);
+            fxThread.execute(() -> {
+                try {
+                    attached.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture<String> loadedOn = wallet.loadAndDecryptEntryAsync(entry.getId())
+                    .thenApply(loaded -> {
+                        assertEquals("segreto", loaded.orElseThrow().getField("Password").getValue());
+                        return Thread.currentThread().getName();
+                    });
+            attached.countDown();
+            String thread = loadedOn.get(30, TimeUnit.SECONDS);
+            assertEquals("finto-fx-thread", thread);
+            wallet.close();
+
+            ExecutionException wrong = assertThrows(ExecutionException.class,
+                    () -> WalletFactory.createAsyncWalletManager(vault, "sbagliata", kdf, fxThread)
+                            .get(30, TimeUnit.SECONDS));
+            assertInstanceOf(DecryptionFailedException.class, wrong.getCause());
+        } finally {
+            fxThread.shutdownNow();
+            DbConnector.forPath(vault).close();
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
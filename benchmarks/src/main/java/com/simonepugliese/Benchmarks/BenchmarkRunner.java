@@ -0,0 +1,43 @@
+package com.simonepugliese.Benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of the benchmarks jar.
+ * <p>
+ * Accepts the usual JMH command line options (e.g. a benchmark regex,
+ * {@code -p entryCount=1000}). Unless a result file is given with
+ * {@code -rff}, results are written as JSON to
+ * {@code jmh-results/jmh-result-<timestamp>.json}, so that runs of different
+ * releases can be compared to spot regressions.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, java.io.IOException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+
+        if (!cmd.getResult().hasValue()) {
+            Path dir = Files.createDirectories(Path.of("jmh-results"));
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.resultFormat(ResultFormatType.JSON)
+                    .result(dir.resolve("jmh-result-" + stamp + ".json").toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
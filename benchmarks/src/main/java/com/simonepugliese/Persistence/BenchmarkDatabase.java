@@ -0,0 +1,141 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Model.Category;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Model.FieldType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * A throw-away SQLite vault in a temporary file, for benchmarks.
+ * <p>
+ * It is opened with {@link DbConnector#forPath(Path)}, so it gets the same
+ * pool and connection profile as the application's vaults. A file (rather
+ * than {@link DbConnector#inMemory()}) keeps real I/O in the measurements.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO Entries (id, description, category) VALUES (?, ?, ?)";
+    private static final String INSERT_FIELD_SQL =
+            "INSERT INTO Fields (id, entry_id, name, value, type, sensitive, blind_index) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final Path file;
+    private final DbConnector connector;
+
+    private BenchmarkDatabase(Path file) {
+        this.file = file;
+        this.connector = DbConnector.forPath(file);
+    }
+
+    /**
+     * @return A new, empty vault in a temporary file.
+     * @throws IOException if the temporary file cannot be created.
+     */
+    public static BenchmarkDatabase create() throws IOException {
+        return new BenchmarkDatabase(Files.createTempFile("wallet-bench-", ".db"));
+    }
+
+    /**
+     * @return A new repository bound to this vault.
+     */
+    public EntryRepository newRepository() {
+        return new EntryRepository(connector);
+    }
+
+    /**
+     * @return The connector of this vault.
+     */
+    public DbConnector connector() {
+        return connector;
+    }
+
+    /**
+     * Builds a sample LOGIN entry.
+     *
+     * @param index           Used to make the description unique.
+     * @param sensitiveFields Number of sensitive fields (in addition to a username and a URL).
+     * @return A new plaintext Entry.
+     */
+    public static Entry sampleEntry(int index, int sensitiveFields) {
+        Entry entry = new Entry("Account " + index, Category.LOGIN);
+        entry.putField("Username", new Field("user" + index + "@example.com", FieldType.TEXT, false));
+        entry.putField("URL", new Field("https://service" + index + ".example.com", FieldType.URL, false));
+        for (int i = 0; i < sensitiveFields; i++) {
+            entry.putField("Secret " + i, new Field("s3cr3t-" + index + "-" + i, FieldType.PASSWORD, true));
+        }
+        return entry;
+    }
+
+    /**
+     * Inserts {@code count} sample entries in a single transaction,
+     * bypassing the repository so that large vaults are set up quickly.
+     *
+     * @param count           Number of entries.
+     * @param sensitiveFields Sensitive fields per entry.
+     * @param transform       Applied to each entry before insertion (e.g. encryption).
+     * @return The IDs of the inserted entries.
+     */
+    public List<String> populate(int count, int sensitiveFields, UnaryOperator<Entry> transform) {
+        List<String> ids = new ArrayList<>(count);
+        try (Connection conn = connector.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement entryPs = conn.prepareStatement(INSERT_ENTRY_SQL);
+                 PreparedStatement fieldPs = conn.prepareStatement(INSERT_FIELD_SQL)) {
+                for (int i = 0; i < count; i++) {
+                    Entry entry = transform.apply(sampleEntry(i, sensitiveFields));
+                    entryPs.setString(1, entry.getId());
+                    entryPs.setString(2, entry.getDescription());
+                    entryPs.setString(3, entry.getCategory().name());
+                    entryPs.addBatch();
+                    for (Map.Entry<String, Field> field : entry.getFields().entrySet()) {
+                        fieldPs.setString(1, UUID.randomUUID().toString());
+                        fieldPs.setString(2, entry.getId());
+                        fieldPs.setString(3, field.getKey());
+                        EntryRepository.bindValue(fieldPs, 4, field.getValue());
+                        fieldPs.setString(5, field.getValue().getType().name());
+                        fieldPs.setBoolean(6, field.getValue().isSensitive());
+                        fieldPs.setString(7, field.getValue().getBlindIndex());
+                        fieldPs.addBatch();
+                    }
+                    ids.add(entry.getId());
+                    if (i % 1000 == 999) {
+                        entryPs.executeBatch();
+                        fieldPs.executeBatch();
+                    }
+                }
+                entryPs.executeBatch();
+                fieldPs.executeBatch();
+            }
+            // The rows bypassed the repository, so index them in bulk
+            SearchIndex.rebuild(conn);
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to populate the benchmark vault", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Closes the connections and deletes the vault files.
+     */
+    @Override
+    public void close() throws IOException {
+        connector.close();
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            Files.deleteIfExists(Path.of(file + suffix));
+        }
+    }
+}
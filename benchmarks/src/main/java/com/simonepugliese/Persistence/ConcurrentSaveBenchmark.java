@@ -0,0 +1,74 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.IEntryRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves from many threads at once: each save in its own transaction
+ * ({@link EntryRepository}) or queued for a group commit
+ * ({@link WriteBehindRepository}). Run it with {@code -t} to vary the
+ * number of writers; failed saves (e.g. SQLITE_BUSY) are printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class ConcurrentSaveBenchmark {
+
+    private static final int SENSITIVE_FIELDS = 3;
+
+    @Param({"direct", "writeBehind"})
+    private String writer;
+
+    private BenchmarkDatabase database;
+    private IEntryRepository repository;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong failures = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        database = BenchmarkDatabase.create();
+        EntryRepository direct = database.newRepository();
+        repository = "writeBehind".equals(writer)
+                ? new WriteBehindRepository(direct, WriteBehindConfig.defaults())
+                : direct;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.out.printf("%n[failed saves: %d]%n", failures.get());
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        database.close();
+    }
+
+    @Benchmark
+    public void saveNewEntry() {
+        try {
+            repository.save(BenchmarkDatabase.sampleEntry(created.getAndIncrement(), SENSITIVE_FIELDS));
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+        }
+    }
+}
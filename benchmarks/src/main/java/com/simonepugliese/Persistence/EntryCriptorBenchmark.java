@@ -0,0 +1,86 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.EntryResult;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.Field;
+import com.simonepugliese.Security.CryptoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EntryCriptor} on entries with 1 to 50 sensitive fields,
+ * one entry at a time and as a batch of {@value #BATCH_SIZE} entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class EntryCriptorBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1", "5", "20", "50"})
+    private int sensitiveFields;
+
+    private EntryCriptor criptor;
+    private Entry encryptedTemplate;
+
+    @Setup
+    public void setup() {
+        criptor = new EntryCriptor("benchmark-master-password", CryptoUtils.generateDataKey());
+        encryptedTemplate = criptor.encrypt(BenchmarkDatabase.sampleEntry(0, sensitiveFields));
+    }
+
+    @TearDown
+    public void tearDown() {
+        criptor.close();
+    }
+
+    /**
+     * The criptor works in place, so every invocation gets its own copy.
+     */
+    private Entry copyOf(Entry source) {
+        Entry copy = new Entry(source.getId(), source.getDescription(), source.getCategory());
+        for (Map.Entry<String, Field> field : source.getFields().entrySet()) {
+            copy.putField(field.getKey(), field.getValue().copy());
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public Entry encrypt() {
+        return criptor.encrypt(BenchmarkDatabase.sampleEntry(0, sensitiveFields));
+    }
+
+    @Benchmark
+    public Entry decrypt() {
+        return criptor.decrypt(copyOf(encryptedTemplate));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<EntryResult> decryptAllBatch() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(copyOf(encryptedTemplate));
+        }
+        return criptor.decryptAll(batch);
+    }
+}
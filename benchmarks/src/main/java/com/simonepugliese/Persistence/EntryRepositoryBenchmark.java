@@ -0,0 +1,142 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.Page;
+import com.simonepugliese.Core.PageRequest;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EntryRepository} against a temporary SQLite file
+ * holding 1k, 10k or 100k entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class EntryRepositoryBenchmark {
+
+    private static final int SENSITIVE_FIELDS = 3;
+    private static final int BULK_SIZE = 100;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int entryCount;
+
+    private BenchmarkDatabase database;
+    private EntryRepository repository;
+    private List<String> ids;
+    private long edits;
+
+    @Setup
+    public void setup() throws IOException {
+        database = BenchmarkDatabase.create();
+        ids = database.populate(entryCount, SENSITIVE_FIELDS, e -> e);
+        repository = database.newRepository();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.printf("%n[rows written by save: %d]%n", repository.getRowsWritten());
+        database.close();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public Optional<Entry> findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Entry> findAllByIds() {
+        int from = ThreadLocalRandom.current().nextInt(ids.size() - BULK_SIZE);
+        return repository.findAllByIds(ids.subList(from, from + BULK_SIZE));
+    }
+
+    /**
+     * A search-as-you-type query matching a single entry by description prefix.
+     */
+    @Benchmark
+    public List<Entry> searchSelective() {
+        return repository.search("Account " + ThreadLocalRandom.current().nextInt(entryCount), 20);
+    }
+
+    /**
+     * A query matching every entry (by URL), so ranking covers the whole index.
+     */
+    @Benchmark
+    public List<Entry> searchBroad() {
+        return repository.search("example", 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Entry> findAllSummaries() {
+        return repository.findAllSummaries();
+    }
+
+    /**
+     * Same rows as {@link #findAllSummaries()}, as immutable records
+     * (compare with -prof gc for the allocation rate).
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<EntrySummary> findAllEntrySummaries() {
+        return repository.findAllEntrySummaries();
+    }
+
+    /**
+     * One screen of the main list, anywhere in the vault: with keyset
+     * pagination it costs the same as the first page.
+     */
+    @Benchmark
+    public Page findSummariesPage() {
+        String after = "Account " + ThreadLocalRandom.current().nextInt(entryCount);
+        return repository.findSummaries(new PageRequest(PAGE_SIZE, null, PageRequest.Direction.ASCENDING, after, ""));
+    }
+
+    /**
+     * A typical edit: one entry is loaded, its description changed and saved back.
+     */
+    @Benchmark
+    public void saveEditedEntry() {
+        Entry entry = repository.findById(randomId()).orElseThrow();
+        entry.setDescription("Edited " + edits++);
+        repository.save(entry);
+    }
+
+    /**
+     * Saving an entry again without changes.
+     */
+    @Benchmark
+    public void saveUnchangedEntry() {
+        repository.save(repository.findById(randomId()).orElseThrow());
+    }
+
+    @Benchmark
+    public void saveNewEntry() {
+        repository.save(BenchmarkDatabase.sampleEntry((int) edits++, SENSITIVE_FIELDS));
+    }
+}
@@ -0,0 +1,172 @@
+package com.simonepugliese.Persistence;
+
+import com.simonepugliese.Core.EntryResult;
+import com.simonepugliese.Core.ImportReport;
+import com.simonepugliese.Core.WalletManager;
+import com.simonepugliese.Model.Entry;
+import com.simonepugliese.Model.EntrySummary;
+import com.simonepugliese.Security.CryptoUtils;
+import com.simonepugliese.Security.SessionKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end {@link WalletManager} paths (encryption + persistence)
+ * against a temporary vault.
+ * <p>
+ * It lives in the Persistence package because the vault is assembled
+ * by hand on a temporary file rather than through the WalletFactory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class WalletManagerBenchmark {
+
+    private static final String MASTER_PASSWORD = "benchmark-master-password";
+    private static final int SENSITIVE_FIELDS = 3;
+    private static final int BULK_SIZE = 100;
+    private static final int IMPORT_SIZE = 1000;
+    private static final char[] ARCHIVE_PASSWORD = "benchmark-archive-password".toCharArray();
+
+    @Param({"1000", "10000"})
+    private int entryCount;
+
+    private BenchmarkDatabase database;
+    private WalletManager manager;
+    private List<String> ids;
+    private int created;
+
+    @Setup
+    public void setup() throws IOException {
+        database = BenchmarkDatabase.create();
+        SessionKey dataKey = CryptoUtils.generateDataKey();
+        EntryCriptor seedCriptor = new EntryCriptor(MASTER_PASSWORD, new SessionKey(dataKey.getEncoded()));
+        ids = database.populate(entryCount, SENSITIVE_FIELDS, seedCriptor::encrypt);
+        manager = new WalletManager(database.newRepository(), new EntryCriptor(MASTER_PASSWORD, dataKey));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        database.close();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public void saveEntry() {
+        manager.saveEntry(BenchmarkDatabase.sampleEntry(created++, SENSITIVE_FIELDS));
+    }
+
+    /**
+     * Imports new entries through the batched pipeline.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ImportReport importEntries() {
+        return manager.importEntries(newEntries(IMPORT_SIZE));
+    }
+
+    /**
+     * The same import as {@link #importEntries()}, one saveEntry (and one transaction) per entry.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void importEntriesOneByOne() {
+        newEntries(IMPORT_SIZE).forEachRemaining(manager::saveEntry);
+    }
+
+    private Iterator<Entry> newEntries(int count) {
+        int first = created;
+        created += count;
+        return IntStream.range(first, first + count)
+                .mapToObj(i -> BenchmarkDatabase.sampleEntry(i, SENSITIVE_FIELDS))
+                .iterator();
+    }
+
+    @Benchmark
+    public Optional<Entry> loadAndDecryptEntry() {
+        return manager.loadAndDecryptEntry(randomId());
+    }
+
+    /**
+     * Decrypts the whole vault one entry at a time, as an export would.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long streamDecrypted() {
+        try (Stream<EntryResult> results = manager.streamDecrypted()) {
+            return results.filter(EntryResult::isSuccess).count();
+        }
+    }
+
+    /**
+     * Exports the whole vault to an encrypted archive, discarding the output.
+     * Compared to {@link #streamDecrypted()}, it shows the cost of the
+     * archive itself (serialization, AES-GCM and one scrypt derivation).
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long exportTo() {
+        return manager.exportTo(OutputStream.nullOutputStream(), ARCHIVE_PASSWORD);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<EntryResult> loadAndDecryptEntries() {
+        int from = ThreadLocalRandom.current().nextInt(ids.size() - BULK_SIZE);
+        return manager.loadAndDecryptEntries(ids.subList(from, from + BULK_SIZE));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Entry> loadAllEntrySummaries() {
+        return manager.loadAllEntrySummaries();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<EntrySummary> loadAllSummaryRecords() {
+        return manager.loadAllSummaryRecords();
+    }
+
+    /**
+     * Which entries use a given password: one lookup on the blind index.
+     */
+    @Benchmark
+    public List<Entry> findBySecretValue() {
+        int index = ThreadLocalRandom.current().nextInt(entryCount);
+        return manager.findBySecretValue("s3cr3t-" + index + "-0");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<List<Entry>> findReusedPasswords() {
+        return manager.findReusedPasswords();
+    }
+}
@@ -0,0 +1,100 @@
+package com.simonepugliese.Security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CryptoUtils} encryption and decryption across payload sizes,
+ * both with the vault data key and with the legacy per-field key derivation.
+ * <p>
+ * The {@code ...WithEngine} benchmarks run the same data-key operations on a
+ * reused {@link CipherEngine}, as {@code EntryCriptor} does, to compare them
+ * with the static methods that look up a new Cipher or Mac per call.
+ * Run with {@code -prof gc} to compare the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class CryptoUtilsBenchmark {
+
+    @Param({"16", "256", "4096", "65536"})
+    private int payloadSize;
+
+    private final char[] password = "benchmark-master-password".toCharArray();
+    private SessionKey dataKey;
+    private SessionKey blindIndexKey;
+    private String plaintext;
+    private byte[] encrypted;
+    private String legacyEncrypted;
+
+    @Setup
+    public void setup() {
+        dataKey = CryptoUtils.generateDataKey();
+        blindIndexKey = CryptoUtils.deriveBlindIndexKey(dataKey);
+        plaintext = "x".repeat(payloadSize);
+        encrypted = CryptoUtils.encrypt(plaintext, dataKey);
+        legacyEncrypted = CryptoUtils.encrypt(plaintext, password);
+    }
+
+    @Benchmark
+    public byte[] encryptWithDataKey() {
+        return CryptoUtils.encrypt(plaintext, dataKey);
+    }
+
+    @Benchmark
+    public String decryptWithDataKey() {
+        return CryptoUtils.decrypt(encrypted, dataKey);
+    }
+
+    @Benchmark
+    public String blindIndex() {
+        return CryptoUtils.blindIndex(plaintext, blindIndexKey);
+    }
+
+    @Benchmark
+    public byte[] encryptWithEngine(EngineState state) {
+        return state.engine.encrypt(plaintext, dataKey);
+    }
+
+    @Benchmark
+    public String decryptWithEngine(EngineState state) {
+        return state.engine.decrypt(encrypted, dataKey);
+    }
+
+    @Benchmark
+    public String blindIndexWithEngine(EngineState state) {
+        return state.engine.blindIndex(plaintext, blindIndexKey);
+    }
+
+    @Benchmark
+    public String encryptLegacy() {
+        return CryptoUtils.encrypt(plaintext, password);
+    }
+
+    @Benchmark
+    public String decryptLegacy() {
+        return CryptoUtils.decrypt(legacyEncrypted, password);
+    }
+
+    /**
+     * One engine per benchmark thread: engines are not thread-safe.
+     */
+    @State(Scope.Thread)
+    public static class EngineState {
+        final CipherEngine engine = new CipherEngine();
+    }
+}